@@ -23,7 +23,8 @@ package com.truecaller.androidactors;
  */
 public interface ActionHandle {
     /**
-     * Forget the link to the listener.
+     * Forget the link to the listener. Handles of actor calls also cancel the call: it is skipped
+     * if it hasn't started yet, and the running call sees its {@link CancellationToken} cancelled.
      * NOTE: It doesn't mean that there is no chance that the listener will not be triggered
      *       after this call. It only prevents the listener and the related classes from leaking
      *       until the background call finishes
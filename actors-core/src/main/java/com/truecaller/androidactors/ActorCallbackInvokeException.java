@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+
+/* package */ class ActorCallbackInvokeException extends ActorInvokeException {
+    ActorCallbackInvokeException() {
+        this(true);
+    }
+
+    ActorCallbackInvokeException(boolean captureCallSite) {
+        super("uncaught exception when delivering result from", captureCallSite);
+    }
+
+    @NonNull
+    /* package */ static ActorCallbackInvokeException capture() {
+        return new ActorCallbackInvokeException(CallSiteCapturePolicy.current().shouldCapture(ResultListener.class));
+    }
+}
@@ -24,15 +24,32 @@ import androidx.annotation.Nullable;
     @NonNull
     private final String mCallDescription;
 
+    private final boolean mCallSiteCaptured;
+
     @Nullable
     private String mMessage = null;
 
     /* package */ ActorInvokeException(@NonNull String callDescription) {
+        this(callDescription, true);
+    }
+
+    /* package */ ActorInvokeException(@NonNull String callDescription, boolean captureCallSite) {
         mCallDescription = callDescription;
+        mCallSiteCaptured = captureCallSite;
+        if (captureCallSite) {
+            super.fillInStackTrace();
+        }
     }
 
     /* package */ void setMethodSignature(@NonNull Class cls, @NonNull Message<?,?> message) {
         mMessage = mCallDescription + " " + cls.getSimpleName() + message;
+        if (!mCallSiteCaptured) {
+            mMessage += " (call site was not captured, see CallSiteCapturePolicy)";
+        }
+    }
+
+    /* package */ boolean isCallSiteCaptured() {
+        return mCallSiteCaptured;
     }
 
     @Override
@@ -43,4 +60,13 @@ import androidx.annotation.Nullable;
 
         return super.getMessage();
     }
+
+    /**
+     * Throwable constructor captures stack trace unconditionally, we do it in our own
+     * constructor instead and only if call site capture was requested
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
 }
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+public class ActorMethodInvokeException extends ActorInvokeException {
+
+    private static final String DESCRIPTION = "uncaught exception from";
+
+    public ActorMethodInvokeException() {
+        super(DESCRIPTION);
+    }
+
+    /* package */ ActorMethodInvokeException(boolean captureCallSite) {
+        super(DESCRIPTION, captureCallSite);
+    }
+
+    /**
+     * Create exception template for a call of the actor method. Call site is captured
+     * according to the installed {@link CallSiteCapturePolicy}
+     *
+     * @param actorInterface called actor interface
+     */
+    @NonNull
+    public static ActorMethodInvokeException capture(@NonNull Class<?> actorInterface) {
+        return new ActorMethodInvokeException(CallSiteCapturePolicy.current().shouldCapture(actorInterface));
+    }
+
+    /**
+     * Same as {@link #capture(Class)} but doesn't allocate anything if call site shouldn't be captured,
+     * {@link MessageBase} creates the template only if the call fails
+     *
+     * @param actorInterface called actor interface
+     * @return exception template or null if call site wasn't captured
+     */
+    @Nullable
+    public static ActorMethodInvokeException captureIfNeeded(@NonNull Class<?> actorInterface) {
+        return CallSiteCapturePolicy.current().shouldCapture(actorInterface) ? new ActorMethodInvokeException(true) : null;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Registry of integer ids of actor methods. Generated proxies register methods of their interface
+ * once, generated messages report their id, so observers can tell methods apart without
+ * {@code toString()} of every call. You don't need to call it manually.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class ActorMethods {
+
+    /**
+     * Id of calls of methods which were not registered
+     */
+    public static final int UNKNOWN = 0;
+
+    private static final Object sLock = new Object();
+
+    // Copy-on-write, index is method id
+    @NonNull
+    private static volatile Class<?>[] sInterfaces = new Class<?>[] {null};
+
+    @NonNull
+    private static volatile String[] sMethods = new String[] {null};
+
+    // Names of methods with their interfaces, built once so tracers don't allocate
+    @NonNull
+    private static volatile String[] sNames = new String[] {null};
+
+    private ActorMethods() {
+    }
+
+    /**
+     * Register methods of the actor interface
+     *
+     * @return id of the first method, other methods get consecutive ids
+     */
+    public static int register(@NonNull Class<?> actor, @NonNull String... methods) {
+        synchronized (sLock) {
+            final int base = sInterfaces.length;
+            final Class<?>[] interfaces = Arrays.copyOf(sInterfaces, base + methods.length);
+            final String[] names = Arrays.copyOf(sMethods, base + methods.length);
+            final String[] fullNames = Arrays.copyOf(sNames, base + methods.length);
+            for (int index = 0; index < methods.length; ++index) {
+                interfaces[base + index] = actor;
+                names[base + index] = methods[index];
+                fullNames[base + index] = actor.getSimpleName() + "." + methods[index];
+            }
+            sMethods = names;
+            sNames = fullNames;
+            sInterfaces = interfaces;
+            return base;
+        }
+    }
+
+    /**
+     * @return number of ids given out so far, including {@link #UNKNOWN}
+     */
+    public static int count() {
+        return sInterfaces.length;
+    }
+
+    @Nullable
+    public static Class<?> interfaceOf(int methodId) {
+        final Class<?>[] interfaces = sInterfaces;
+        return methodId > UNKNOWN && methodId < interfaces.length ? interfaces[methodId] : null;
+    }
+
+    @Nullable
+    public static String methodOf(int methodId) {
+        final String[] methods = sMethods;
+        return methodId > UNKNOWN && methodId < methods.length ? methods[methodId] : null;
+    }
+
+    /**
+     * @return simple name of the interface and name of the method, like {@code Storage.get}
+     */
+    @Nullable
+    public static String nameOf(int methodId) {
+        final String[] names = sNames;
+        return methodId > UNKNOWN && methodId < names.length ? names[methodId] : null;
+    }
+}
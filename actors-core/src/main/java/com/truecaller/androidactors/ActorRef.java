@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.TimeUnit;
+
+public interface ActorRef<T> {
+    T tell();
+
+    /**
+     * @param priority one of {@link Priority} levels, it replaces priority of the called method
+     * @return actor instance which sends all calls with the given priority
+     */
+    T tell(int priority);
+
+    /**
+     * @return current state of the actor's mailbox or null if mailbox is not bounded
+     */
+    @Nullable
+    MailboxStatus mailbox();
+
+    /**
+     * Calls made through the returned reference are sent to the actor after the delay.
+     * Delay is rounded up to the tick of the shared timer, which is 10 milliseconds.
+     *
+     * @param delay delay before every call is sent
+     * @param unit unit of the delay
+     * @return reference which can also cancel the calls which were not sent yet
+     */
+    @NonNull
+    ScheduledRef<T> tellAfter(long delay, @NonNull TimeUnit unit);
+
+    /**
+     * Calls made through the returned reference are sent to the actor after the initial delay
+     * and then every period until {@link ScheduledRef#forget()} is called. Runs missed because
+     * of a busy timer are skipped rather than sent in a burst. Only void methods can be repeated.
+     *
+     * @param initialDelay delay before the first call is sent
+     * @param period period between the calls
+     * @param unit unit of the delay and the period
+     * @return reference which stops repeating calls on {@link ScheduledRef#forget()}
+     */
+    @NonNull
+    ScheduledRef<T> tellAtFixedRate(long initialDelay, long period, @NonNull TimeUnit unit);
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.TimeUnit;
+
+/* package */ class ActorRefImpl<T> implements ActorRef<T> {
+    @NonNull
+    private final T mInstance;
+
+    @NonNull
+    private final ProxyFactory mProxyFactory;
+
+    @NonNull
+    private final Class<T> mCls;
+
+    @NonNull
+    private final MessageSender mSender;
+
+    @Nullable
+    private final MailboxStatus mMailbox;
+
+    // Shared timer is used if null
+    @Nullable
+    private final TimingWheel mWheel;
+
+    // Proxies for every priority level, created on first use
+    @NonNull
+    private final Object[] mPrioritized = new Object[Priority.HIGH - Priority.LOW + 1];
+
+    /* package */ ActorRefImpl(@NonNull ProxyFactory proxyFactory, @NonNull Class<T> cls, @NonNull MessageSender sender) {
+        this(proxyFactory, cls, sender, null);
+    }
+
+    /* package */ ActorRefImpl(@NonNull ProxyFactory proxyFactory, @NonNull Class<T> cls, @NonNull MessageSender sender,
+                               @Nullable MailboxStatus mailbox) {
+        this(proxyFactory, cls, sender, mailbox, null);
+    }
+
+    /* package */ ActorRefImpl(@NonNull ProxyFactory proxyFactory, @NonNull Class<T> cls, @NonNull MessageSender sender,
+                               @Nullable MailboxStatus mailbox, @Nullable TimingWheel wheel) {
+        mInstance = proxyFactory.newProxy(cls, sender);
+        mProxyFactory = proxyFactory;
+        mCls = cls;
+        mSender = sender;
+        mMailbox = mailbox;
+        mWheel = wheel;
+    }
+
+    @NonNull
+    public T tell() {
+        return mInstance;
+    }
+
+    @NonNull
+    @Override
+    public T tell(int priority) {
+        if (priority < Priority.LOW || priority > Priority.HIGH) {
+            throw new IllegalArgumentException("Unknown priority " + priority);
+        }
+
+        // Race here only leads to an extra proxy instance
+        @SuppressWarnings("unchecked")
+        T instance = (T) mPrioritized[priority - Priority.LOW];
+        if (instance == null) {
+            instance = mProxyFactory.newProxy(mCls, new PrioritizedMessageSender(mSender, priority));
+            mPrioritized[priority - Priority.LOW] = instance;
+        }
+        return instance;
+    }
+
+    @Nullable
+    @Override
+    public MailboxStatus mailbox() {
+        return mMailbox;
+    }
+
+    @NonNull
+    @Override
+    public ScheduledRef<T> tellAfter(long delay, @NonNull TimeUnit unit) {
+        return schedule(unit.toNanos(delay), 0);
+    }
+
+    @NonNull
+    @Override
+    public ScheduledRef<T> tellAtFixedRate(long initialDelay, long period, @NonNull TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Period has to be positive");
+        }
+        return schedule(unit.toNanos(initialDelay), unit.toNanos(period));
+    }
+
+    @NonNull
+    private ScheduledRef<T> schedule(long delay, long period) {
+        return new ScheduledActorRef<>(mProxyFactory, mCls, mSender,
+                mWheel != null ? mWheel : TimingWheel.shared(), delay, period);
+    }
+
+    /**
+     * Changes priority of every message before passing it to the actor thread
+     */
+    private static class PrioritizedMessageSender implements InlineMessageSender {
+        @NonNull
+        private final MessageSender mSender;
+
+        private final int mPriority;
+
+        private PrioritizedMessageSender(@NonNull MessageSender sender, int priority) {
+            mSender = sender;
+            mPriority = priority;
+        }
+
+        @Override
+        public void deliver(@NonNull Message message) {
+            MessageBase.setPriority(message, mPriority);
+            mSender.deliver(message);
+        }
+
+        @Override
+        public boolean deliverInline(@NonNull Message message) {
+            // Priority doesn't matter for the call which doesn't wait in the mailbox
+            return mSender instanceof InlineMessageSender && ((InlineMessageSender) mSender).deliverInline(message);
+        }
+    }
+}
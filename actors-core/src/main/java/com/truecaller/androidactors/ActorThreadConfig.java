@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Options of the dedicated thread created by {@link CoreActorsThreads#createThread(String, ActorThreadConfig)}.
+ * Any combination of options can be used, options not supported by the thread kind are ignored.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class ActorThreadConfig {
+
+    /**
+     * Priority isn't set, threads run with the default priority and service threads keep their own one
+     */
+    /* package */ static final int NO_PRIORITY = Integer.MIN_VALUE;
+
+    /* package */ final long mStopDelayMillis;
+
+    /* package */ final int mThreadPriority;
+
+    @Nullable
+    /* package */ final MailboxConfig mMailbox;
+
+    /* package */ final int mMaxBatchSize;
+
+    /* package */ final long mMaxBatchTimeMillis;
+
+    private ActorThreadConfig(@NonNull Builder builder) {
+        mStopDelayMillis = builder.mStopDelayMillis;
+        mThreadPriority = builder.mThreadPriority;
+        mMailbox = builder.mMailbox;
+        mMaxBatchSize = builder.mMaxBatchSize;
+        mMaxBatchTimeMillis = builder.mMaxBatchTimeMillis;
+    }
+
+    @NonNull
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return priority to start the thread with
+     */
+    /* package */ int threadPriority() {
+        return mThreadPriority == NO_PRIORITY ? ThreadPriority.DEFAULT : mThreadPriority;
+    }
+
+    @Override
+    public String toString() {
+        return "ActorThreadConfig{stopDelay=" + mStopDelayMillis + "ms, priority="
+                + (mThreadPriority == NO_PRIORITY ? "none" : String.valueOf(mThreadPriority)) + ", mailbox=" + mMailbox
+                + ", batch=" + mMaxBatchSize + "/" + mMaxBatchTimeMillis + "ms}";
+    }
+
+    public static final class Builder {
+        private long mStopDelayMillis = LockFreeActorThread.NO_DELAY;
+
+        private int mThreadPriority = NO_PRIORITY;
+
+        @Nullable
+        private MailboxConfig mMailbox = null;
+
+        private int mMaxBatchSize = 0;
+
+        private long mMaxBatchTimeMillis = -1;
+
+        private Builder() {
+        }
+
+        /**
+         * @param stopDelay delay before the idle thread stops itself, threads never stop by default.
+         *                  Ignored by service threads, see {@code ActorService}
+         */
+        @NonNull
+        public Builder setStopDelay(long stopDelay, @NonNull TimeUnit unit) {
+            if (stopDelay < 0) {
+                throw new IllegalArgumentException("Stop delay can't be negative");
+            }
+            mStopDelayMillis = unit.toMillis(stopDelay);
+            return this;
+        }
+
+        /**
+         * @param priority Linux priority of the thread, see {@link PrioritizedActorThread#setThreadPriority(int)}.
+         *                 Service threads apply it when they connect to the service
+         */
+        @NonNull
+        public Builder setThreadPriority(int priority) {
+            mThreadPriority = priority;
+            return this;
+        }
+
+        /**
+         * @param mailbox limits of the mailbox, unbounded by default. Service threads limit only calls
+         *                waiting for the service connection
+         */
+        @NonNull
+        public Builder setMailbox(@Nullable MailboxConfig mailbox) {
+            mMailbox = mailbox;
+            return this;
+        }
+
+        /**
+         * Execute calls in batches, so one looper message can serve many calls. Supported by looper
+         * threads on Android only, service threads use batching of {@code ActorService}
+         *
+         * @param maxBatchSize max number of calls executed in one batch, must be positive
+         * @param maxBatchTime max time spent on one batch, negative for no time limit
+         */
+        @NonNull
+        public Builder setBatching(int maxBatchSize, long maxBatchTime, @NonNull TimeUnit unit) {
+            if (maxBatchSize <= 0) {
+                throw new IllegalArgumentException("Batch size must be positive");
+            }
+            mMaxBatchSize = maxBatchSize;
+            mMaxBatchTimeMillis = maxBatchTime < 0 ? -1 : unit.toMillis(maxBatchTime);
+            return this;
+        }
+
+        @NonNull
+        public ActorThreadConfig build() {
+            return new ActorThreadConfig(this);
+        }
+    }
+}
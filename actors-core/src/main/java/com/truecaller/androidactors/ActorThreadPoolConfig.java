@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuration of the thread pool created by {@link CoreActorsThreads#createPooledThread(String, ActorThreadPoolConfig)}.
+ *
+ * Pool keeps {@code coreThreads} alive and starts more threads, up to {@code maxThreads}, when tasks wait
+ * in the queue for longer than {@code growAfter}. Extra threads are stopped after {@code keepAlive} of idleness.
+ * Pool with {@link QueueType#SYNCHRONOUS} queue starts a new thread for every task which finds no free thread.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class ActorThreadPoolConfig {
+
+    public enum QueueType {
+        /**
+         * No queue, every task is handed to a free thread or a new one. Tasks are rejected
+         * when all {@code maxThreads} threads are busy. Nothing waits, so {@code growAfter} is ignored
+         */
+        SYNCHRONOUS,
+        /**
+         * Queue with limited capacity. Tasks are rejected when queue is full and all {@code maxThreads}
+         * threads are busy
+         */
+        BOUNDED,
+        /**
+         * Queue without limits
+         */
+        UNBOUNDED
+    }
+
+    /* package */ final int mCoreThreads;
+
+    /* package */ final int mMaxThreads;
+
+    /* package */ final long mKeepAliveMillis;
+
+    @NonNull
+    /* package */ final QueueType mQueueType;
+
+    /* package */ final int mQueueCapacity;
+
+    /* package */ final long mGrowAfterMillis;
+
+    /* package */ final int mThroughput;
+
+    /* package */ final int mThreadPriority;
+
+    @NonNull
+    /* package */ final RejectedExecutionHandler mRejectedHandler;
+
+    @Nullable
+    /* package */ final MailboxConfig mMailbox;
+
+    private ActorThreadPoolConfig(@NonNull Builder builder) {
+        mCoreThreads = builder.mCoreThreads;
+        mMaxThreads = builder.mMaxThreads;
+        mKeepAliveMillis = builder.mKeepAliveMillis;
+        mQueueType = builder.mQueueType;
+        mQueueCapacity = builder.mQueueCapacity;
+        mGrowAfterMillis = builder.mGrowAfterMillis;
+        mThroughput = builder.mThroughput;
+        mThreadPriority = builder.mThreadPriority;
+        mRejectedHandler = builder.mRejectedHandler;
+        mMailbox = builder.mMailbox;
+    }
+
+    @NonNull
+    public static Builder builder(int maxThreads) {
+        return new Builder(maxThreads);
+    }
+
+    @Override
+    public String toString() {
+        return "ActorThreadPoolConfig{core=" + mCoreThreads + ", max=" + mMaxThreads + ", keepAlive=" + mKeepAliveMillis
+                + "ms, queue=" + mQueueType + "(" + mQueueCapacity + "), growAfter=" + mGrowAfterMillis
+                + "ms, throughput=" + mThroughput + ", priority=" + mThreadPriority + ", mailbox=" + mMailbox + "}";
+    }
+
+    public static final class Builder {
+        private int mCoreThreads = 1;
+
+        private final int mMaxThreads;
+
+        private long mKeepAliveMillis = TimeUnit.MINUTES.toMillis(1);
+
+        @NonNull
+        private QueueType mQueueType = QueueType.UNBOUNDED;
+
+        private int mQueueCapacity = Integer.MAX_VALUE;
+
+        private long mGrowAfterMillis = 50;
+
+        private int mThroughput = ExecutorActorThread.DEFAULT_THROUGHPUT;
+
+        private int mThreadPriority = ThreadPriority.DEFAULT;
+
+        @NonNull
+        private RejectedExecutionHandler mRejectedHandler = new ThreadPoolExecutor.AbortPolicy();
+
+        @Nullable
+        private MailboxConfig mMailbox = null;
+
+        private Builder(int maxThreads) {
+            if (maxThreads <= 0) {
+                throw new IllegalArgumentException("Max threads must be positive");
+            }
+            mMaxThreads = maxThreads;
+        }
+
+        /**
+         * @param coreThreads number of threads which are kept alive even if they are idle, 1 by default
+         */
+        @NonNull
+        public Builder setCoreThreads(int coreThreads) {
+            if (coreThreads < 0 || coreThreads > mMaxThreads) {
+                throw new IllegalArgumentException("Core threads must be between 0 and max threads");
+            }
+            mCoreThreads = coreThreads;
+            return this;
+        }
+
+        /**
+         * @param keepAlive how long threads above core size wait for new tasks before stopping, 1 minute by default
+         */
+        @NonNull
+        public Builder setKeepAlive(long keepAlive, @NonNull TimeUnit unit) {
+            if (keepAlive <= 0) {
+                throw new IllegalArgumentException("Keep alive time must be positive");
+            }
+            mKeepAliveMillis = unit.toMillis(keepAlive);
+            return this;
+        }
+
+        /**
+         * @param type queue type, {@link QueueType#UNBOUNDED} by default
+         * @param capacity queue capacity, ignored for all types except {@link QueueType#BOUNDED}
+         */
+        @NonNull
+        public Builder setQueue(@NonNull QueueType type, int capacity) {
+            if (type == QueueType.BOUNDED && capacity <= 0) {
+                throw new IllegalArgumentException("Bounded queue capacity must be positive");
+            }
+            mQueueType = type;
+            mQueueCapacity = type == QueueType.BOUNDED ? capacity : Integer.MAX_VALUE;
+            return this;
+        }
+
+        /**
+         * @param growAfter pool starts one more thread when tasks are waiting in the queue for this long, 50ms by default.
+         *                  Ignored with {@link QueueType#SYNCHRONOUS} queue, which starts threads up to
+         *                  {@code maxThreads} right away
+         */
+        @NonNull
+        public Builder setGrowAfter(long growAfter, @NonNull TimeUnit unit) {
+            if (growAfter < 0) {
+                throw new IllegalArgumentException("Grow delay can't be negative");
+            }
+            mGrowAfterMillis = unit.toMillis(growAfter);
+            return this;
+        }
+
+        /**
+         * @param throughput max number of calls executed for one actor before pool thread is given to other actors
+         */
+        @NonNull
+        public Builder setThroughput(int throughput) {
+            if (throughput <= 0) {
+                throw new IllegalArgumentException("Throughput must be positive");
+            }
+            mThroughput = throughput;
+            return this;
+        }
+
+        /**
+         * @param priority Linux priority of pool threads, see {@link PrioritizedActorThread#setThreadPriority(int)}
+         */
+        @NonNull
+        public Builder setThreadPriority(int priority) {
+            mThreadPriority = priority;
+            return this;
+        }
+
+        /**
+         * @param handler handler for tasks which can't be accepted by the pool, {@link ThreadPoolExecutor.AbortPolicy}
+         *                by default, which makes the call throw {@link java.util.concurrent.RejectedExecutionException}
+         *                and skips it. Actor which already has calls waiting for a pool thread asks the pool
+         *                again a bit later instead
+         */
+        @NonNull
+        public Builder setRejectedExecutionHandler(@NonNull RejectedExecutionHandler handler) {
+            mRejectedHandler = handler;
+            return this;
+        }
+
+        /**
+         * @param mailbox limits of every actor's mailbox, mailboxes are unbounded by default
+         */
+        @NonNull
+        public Builder setMailbox(@Nullable MailboxConfig mailbox) {
+            mMailbox = mailbox;
+            return this;
+        }
+
+        @NonNull
+        public ActorThreadPoolConfig build() {
+            return new ActorThreadPoolConfig(this);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/* package */ class ActorThreadPoolThreadsFactory implements ThreadFactory {
+
+    @NonNull
+    private final String mName;
+
+    // Guarded by mThreads
+    private int mPriority;
+
+    // Started threads which haven't finished yet, guarded by itself
+    @NonNull
+    private final Set<PoolThread> mThreads = new HashSet<>();
+
+    @NonNull
+    private final AtomicInteger mThreadNumber = new AtomicInteger(0);
+
+    /* package */ ActorThreadPoolThreadsFactory(@NonNull String name) {
+        this(name, ThreadPriority.DEFAULT);
+    }
+
+    /**
+     * @param priority Linux priority of created threads, see {@link PrioritizedActorThread#setThreadPriority(int)}
+     */
+    /* package */ ActorThreadPoolThreadsFactory(@NonNull String name, int priority) {
+        mName = name;
+        mPriority = priority;
+    }
+
+    @Override
+    public Thread newThread(Runnable r) {
+        return new PoolThread(r, mName + "-" + mThreadNumber.incrementAndGet());
+    }
+
+    /**
+     * Change priority of all running threads right away and of threads created later
+     */
+    /* package */ void setThreadPriority(int priority) {
+        synchronized (mThreads) {
+            mPriority = priority;
+            for (PoolThread thread : mThreads) {
+                thread.mTracker.set(priority);
+            }
+        }
+    }
+
+    /* package */ int getThreadPriority() {
+        synchronized (mThreads) {
+            return mPriority;
+        }
+    }
+
+    /* package */ class PoolThread extends Thread {
+        @NonNull
+        private final ThreadPriority.Tracker mTracker = new ThreadPriority.Tracker(ThreadPriority.DEFAULT);
+
+        private PoolThread(@NonNull Runnable runnable, @NonNull String name) {
+            super(runnable, name);
+        }
+
+        @Override
+        public void run() {
+            synchronized (mThreads) {
+                // Priority could be changed after the thread was created
+                mThreads.add(this);
+                mTracker.set(mPriority);
+                mTracker.attachCurrent();
+            }
+            try {
+                super.run();
+            } finally {
+                synchronized (mThreads) {
+                    mTracker.detachCurrent();
+                    mThreads.remove(this);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Observer which aggregates queue time, wall time and CPU time of calls into histograms per actor
+ * method. Recording is lock-free and, after the first call of each method, doesn't allocate.
+ * <pre>
+ * ActorsMetrics metrics = new ActorsMetrics();
+ * Instrumentation.install(metrics);
+ * ...
+ * for (ActorsMetrics.MethodSnapshot method : metrics.snapshot()) {
+ *     log(method.getActorInterface(), method.getMethod(), method.getWallTime().getPercentile(99));
+ * }
+ * </pre>
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class ActorsMetrics implements ActorsObserver {
+
+    /* package */ static final int DEFAULT_MAX_METHODS = 1024;
+
+    // Index is method id, methods with ids out of range are counted as unknown
+    @NonNull
+    private final AtomicReferenceArray<MethodMetrics> mMethods;
+
+    public ActorsMetrics() {
+        this(DEFAULT_MAX_METHODS);
+    }
+
+    /**
+     * @param maxMethods max number of actor methods with their own histograms, methods registered
+     *                   after that are counted as {@link ActorMethods#UNKNOWN}
+     */
+    public ActorsMetrics(int maxMethods) {
+        if (maxMethods <= 0) {
+            throw new IllegalArgumentException("Max methods must be positive");
+        }
+        mMethods = new AtomicReferenceArray<>(maxMethods);
+    }
+
+    @Override
+    public void onEnqueued(int methodId) {
+        metricsOf(methodId).mEnqueued.incrementAndGet();
+    }
+
+    @Override
+    public void onStarted(int methodId, long queueTimeNanos) {
+    }
+
+    @Override
+    public void onCompleted(int methodId, long queueTimeNanos, long wallTimeNanos, long cpuTimeNanos,
+                            boolean failed) {
+        final MethodMetrics metrics = metricsOf(methodId);
+        metrics.mQueueTime.record(queueTimeNanos);
+        metrics.mWallTime.record(wallTimeNanos);
+        metrics.mCpuTime.record(cpuTimeNanos);
+        if (failed) {
+            metrics.mFailures.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return state of all methods which were called since the metrics were installed
+     */
+    @NonNull
+    public List<MethodSnapshot> snapshot() {
+        final List<MethodSnapshot> result = new ArrayList<>();
+        for (int id = 0; id < mMethods.length(); ++id) {
+            final MethodMetrics metrics = mMethods.get(id);
+            if (metrics != null) {
+                result.add(new MethodSnapshot(id, metrics));
+            }
+        }
+        return result;
+    }
+
+    @NonNull
+    private MethodMetrics metricsOf(int methodId) {
+        final int index = methodId > 0 && methodId < mMethods.length() ? methodId : ActorMethods.UNKNOWN;
+        MethodMetrics metrics = mMethods.get(index);
+        if (metrics == null) {
+            // Only the first call of the method allocates
+            mMethods.compareAndSet(index, null, new MethodMetrics());
+            metrics = mMethods.get(index);
+        }
+        return metrics;
+    }
+
+    private static class MethodMetrics {
+        @NonNull
+        private final AtomicLong mEnqueued = new AtomicLong();
+
+        @NonNull
+        private final AtomicLong mFailures = new AtomicLong();
+
+        @NonNull
+        private final Histogram mQueueTime = new Histogram();
+
+        @NonNull
+        private final Histogram mWallTime = new Histogram();
+
+        @NonNull
+        private final Histogram mCpuTime = new Histogram();
+    }
+
+    public static final class MethodSnapshot {
+        private final int mMethodId;
+
+        private final long mEnqueued;
+
+        private final long mFailures;
+
+        @NonNull
+        private final Histogram.Snapshot mQueueTime;
+
+        @NonNull
+        private final Histogram.Snapshot mWallTime;
+
+        @NonNull
+        private final Histogram.Snapshot mCpuTime;
+
+        private MethodSnapshot(int methodId, @NonNull MethodMetrics metrics) {
+            mMethodId = methodId;
+            mEnqueued = metrics.mEnqueued.get();
+            mFailures = metrics.mFailures.get();
+            mQueueTime = metrics.mQueueTime.snapshot();
+            mWallTime = metrics.mWallTime.snapshot();
+            mCpuTime = metrics.mCpuTime.snapshot();
+        }
+
+        /**
+         * @return method id, {@link ActorMethods#UNKNOWN} for calls of unknown methods
+         */
+        public int getMethodId() {
+            return mMethodId;
+        }
+
+        @Nullable
+        public Class<?> getActorInterface() {
+            return ActorMethods.interfaceOf(mMethodId);
+        }
+
+        @Nullable
+        public String getMethod() {
+            return ActorMethods.methodOf(mMethodId);
+        }
+
+        /**
+         * @return number of calls put into mailboxes
+         */
+        public long getEnqueued() {
+            return mEnqueued;
+        }
+
+        /**
+         * @return number of calls which have thrown
+         */
+        public long getFailures() {
+            return mFailures;
+        }
+
+        /**
+         * @return time calls spent in mailboxes, in nanoseconds
+         */
+        @NonNull
+        public Histogram.Snapshot getQueueTime() {
+            return mQueueTime;
+        }
+
+        /**
+         * @return time spent in the actor's method, in nanoseconds
+         */
+        @NonNull
+        public Histogram.Snapshot getWallTime() {
+            return mWallTime;
+        }
+
+        /**
+         * @return CPU time spent in the actor's method, in nanoseconds. Empty if platform can't measure it
+         */
+        @NonNull
+        public Histogram.Snapshot getCpuTime() {
+            return mCpuTime;
+        }
+
+        @Override
+        public String toString() {
+            final Class<?> actor = getActorInterface();
+            final String name = actor == null ? "<unknown>" : actor.getSimpleName() + "." + getMethod();
+            return name + " enqueued=" + mEnqueued + ", failures=" + mFailures + ", queue=" + mQueueTime
+                    + ", wall=" + mWallTime + ", cpu=" + mCpuTime;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+/**
+ * Observer of calls passing through actor threads. Install it with {@link Instrumentation#install(ActorsObserver)}.
+ * Callbacks are called on the hot path of every call: caller's thread for {@link #onEnqueued(int)},
+ * actor's thread for others. Implementations must be thread safe, fast and must not block.
+ * <p>
+ * Calls to actors bound to threads which don't have a mailbox, like the same-thread actor thread,
+ * are reported too, their queue time is close to zero.
+ *
+ * @see ActorsMetrics
+ */
+public interface ActorsObserver {
+    /**
+     * Call was put into the actor's mailbox
+     *
+     * @param methodId id of the called method, see {@link ActorMethods}
+     */
+    void onEnqueued(int methodId);
+
+    /**
+     * Actor starts to execute the call
+     *
+     * @param queueTimeNanos time the call spent in the mailbox, -1 if it was enqueued before the observer was installed
+     */
+    void onStarted(int methodId, long queueTimeNanos);
+
+    /**
+     * Actor finished the call
+     *
+     * @param wallTimeNanos time spent in the actor's method
+     * @param cpuTimeNanos CPU time the actor's thread spent in the method, -1 if platform can't measure it
+     * @param failed true if method has thrown an exception
+     */
+    void onCompleted(int methodId, long queueTimeNanos, long wallTimeNanos, long cpuTimeNanos, boolean failed);
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Access to the object pools used by the library on the way from the caller to the actor.
+ * Check hit/miss counters under your load and tune capacities if pools miss too often.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class ActorsPools {
+
+    private ActorsPools() {
+    }
+
+    /**
+     * @return pool of transactions which carry calls from proxies to actor implementations
+     */
+    @NonNull
+    public static ObjectPool<?> transactions() {
+        return Transaction.sPool;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Observer which wraps every actor call into a named section of a tracer, so actor work can be seen
+ * on the timeline next to the rest of the app. Sections are named after the actor interface and
+ * method, like {@code Storage.get}. Calls are traced on the thread which executes them.
+ */
+public abstract class ActorsTracer implements ActorsObserver {
+
+    /* package */ static final String UNKNOWN_SECTION = "ActorCall";
+
+    @Override
+    public void onEnqueued(int methodId) {
+    }
+
+    @Override
+    public void onStarted(int methodId, long queueTimeNanos) {
+        final String name = ActorMethods.nameOf(methodId);
+        beginSection(name != null ? name : UNKNOWN_SECTION);
+    }
+
+    @Override
+    public void onCompleted(int methodId, long queueTimeNanos, long wallTimeNanos, long cpuTimeNanos,
+                            boolean failed) {
+        endSection();
+    }
+
+    /**
+     * Open section of the call which is about to start on the current thread
+     */
+    protected abstract void beginSection(@NonNull String name);
+
+    /**
+     * Close the last section opened on the current thread
+     */
+    protected abstract void endSection();
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Debug tool which reports {@link Promise#get()} calls waiting for the result on a thread which
+ * should never block, usually the main thread:
+ *
+ * <pre>
+ * if (BuildConfig.DEBUG) {
+ *     BlockingCalls.detect(Looper.getMainLooper().getThread(), new BlockingCalls.Reporter() {
+ *         ...
+ *     });
+ * }
+ * </pre>
+ *
+ * Calls executed inline because the caller is on the actor's thread are reported only if their
+ * result is not ready when the call returns. Without detector the only cost is reading a volatile field.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class BlockingCalls {
+
+    public interface Reporter {
+        /**
+         * Called on the blocked thread right before it starts waiting
+         *
+         * @param call       description of the call
+         * @param stackTrace exception which stack trace shows where the call was made
+         */
+        void onBlockingCall(@NonNull String call, @NonNull Throwable stackTrace);
+    }
+
+    @Nullable
+    private static volatile BlockingCalls sDetector = null;
+
+    @NonNull
+    private final Thread mThread;
+
+    @NonNull
+    private final Reporter mReporter;
+
+    private BlockingCalls(@NonNull Thread thread, @NonNull Reporter reporter) {
+        mThread = thread;
+        mReporter = reporter;
+    }
+
+    /**
+     * Start reporting blocking calls made on the given thread, replaces the previous detector
+     */
+    public static void detect(@NonNull Thread thread, @NonNull Reporter reporter) {
+        sDetector = new BlockingCalls(thread, reporter);
+    }
+
+    /**
+     * Stop reporting blocking calls
+     */
+    public static void stop() {
+        sDetector = null;
+    }
+
+    /**
+     * Current thread is about to wait for the result of the call
+     */
+    /* package */ static void onWait(@NonNull Object call) {
+        final BlockingCalls detector = sDetector;
+        if (detector == null || detector.mThread != Thread.currentThread()) {
+            return;
+        }
+        detector.mReporter.onBlockingCall(call.toString(), new IllegalStateException(
+                "Call " + call + " blocks thread " + detector.mThread.getName()));
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Decides if the stack trace of the caller should be captured when an actor method is called.
+ *
+ * Captured stack trace shows where the failed call came from, but it's also the most expensive part
+ * of every call. When the stack trace is not captured the exception still reports the actor class,
+ * the method and its arguments.
+ *
+ * Policy is global for the whole process, it is installed with {@link #install(CallSiteCapturePolicy)}.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public abstract class CallSiteCapturePolicy {
+
+    @NonNull
+    private static volatile CallSiteCapturePolicy sPolicy = always();
+
+    protected CallSiteCapturePolicy() {
+    }
+
+    /**
+     * @param actorInterface interface of the actor being called, {@link ResultListener} for
+     *                       results delivered to other threads
+     * @return true if the stack trace of the caller should be captured
+     */
+    public abstract boolean shouldCapture(@NonNull Class<?> actorInterface);
+
+    /**
+     * Capture stack trace for every call. This is the default policy.
+     */
+    @NonNull
+    public static CallSiteCapturePolicy always() {
+        return Always.INSTANCE;
+    }
+
+    /**
+     * Never capture stack trace
+     */
+    @NonNull
+    public static CallSiteCapturePolicy off() {
+        return Off.INSTANCE;
+    }
+
+    /**
+     * Capture stack trace for one call out of {@code rate}. Counter is shared between all threads
+     * and intentionally not synchronized, so the rate is approximate.
+     *
+     * @param rate sampling rate, 1 means every call
+     */
+    @NonNull
+    public static CallSiteCapturePolicy sampled(int rate) {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("Sampling rate must be positive");
+        }
+        return rate == 1 ? always() : new Sampled(rate);
+    }
+
+    /**
+     * Capture stack trace only for calls to the given actor interfaces
+     */
+    @NonNull
+    public static CallSiteCapturePolicy forInterfaces(@NonNull Class<?>... interfaces) {
+        return new ForInterfaces(new HashSet<>(Arrays.asList(interfaces)));
+    }
+
+    /**
+     * Replace the policy used by all calls
+     *
+     * @param policy policy for all calls, {@link #always()} restores the default
+     */
+    public static void install(@NonNull CallSiteCapturePolicy policy) {
+        sPolicy = policy;
+    }
+
+    @NonNull
+    /* package */ static CallSiteCapturePolicy current() {
+        return sPolicy;
+    }
+
+    private static class Always extends CallSiteCapturePolicy {
+        static final CallSiteCapturePolicy INSTANCE = new Always();
+
+        @Override
+        public boolean shouldCapture(@NonNull Class<?> actorInterface) {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "always";
+        }
+    }
+
+    private static class Off extends CallSiteCapturePolicy {
+        static final CallSiteCapturePolicy INSTANCE = new Off();
+
+        @Override
+        public boolean shouldCapture(@NonNull Class<?> actorInterface) {
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return "off";
+        }
+    }
+
+    private static class Sampled extends CallSiteCapturePolicy {
+        private final int mRate;
+
+        private int mCounter = 0;
+
+        Sampled(int rate) {
+            mRate = rate;
+        }
+
+        @Override
+        public boolean shouldCapture(@NonNull Class<?> actorInterface) {
+            int counter = mCounter + 1;
+            if (counter >= mRate) {
+                counter = 0;
+            }
+            mCounter = counter;
+            return counter == 0;
+        }
+
+        @Override
+        public String toString() {
+            return "sampled(1/" + mRate + ")";
+        }
+    }
+
+    private static class ForInterfaces extends CallSiteCapturePolicy {
+        @NonNull
+        private final Set<Class<?>> mInterfaces;
+
+        ForInterfaces(@NonNull Set<Class<?>> interfaces) {
+            mInterfaces = Collections.unmodifiableSet(interfaces);
+        }
+
+        @Override
+        public boolean shouldCapture(@NonNull Class<?> actorInterface) {
+            return mInterfaces.contains(actorInterface);
+        }
+
+        @Override
+        public String toString() {
+            return "forInterfaces" + mInterfaces;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+/**
+ * Signal which lets a running actor method stop early when its result is not needed anymore.
+ * Declare it as a parameter of the actor method:
+ * <pre>
+ * &#64;ActorInterface
+ * public interface Network {
+ *     &#64;NonNull
+ *     Promise&lt;Response&gt; fetch(&#64;NonNull String url, &#64;Nullable CancellationToken token);
+ * }
+ * </pre>
+ * Callers can pass null, then the call gets its own token which is cancelled by
+ * {@link ActionHandle#forget()}. A token passed by the caller can be shared by several calls and
+ * cancelled directly. Calls with a cancelled token are skipped if they haven't started yet, actor's
+ * implementation checks {@link #isCancelled()} to stop a running call.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class CancellationToken {
+    private volatile boolean mCancelled = false;
+
+    /**
+     * Ask the calls which use this token to stop
+     */
+    public void cancel() {
+        mCancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return mCancelled;
+    }
+
+    @Override
+    public String toString() {
+        return mCancelled ? "CancellationToken{cancelled}" : "CancellationToken{}";
+    }
+}
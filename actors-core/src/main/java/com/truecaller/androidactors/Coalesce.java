@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks actor method whose pending calls can be replaced by a newer call. When a call comes while
+ * another call of the same method to the same actor is still waiting in the mailbox, the new call
+ * takes the place of the waiting one and the waiting one is never executed. Result listeners of
+ * the replaced call, including {@link Promise#get()}, get the result of the call which replaced it.
+ *
+ * Calls are only replaced within the same {@link Priority} and never after actor started to execute them.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.CLASS)
+public @interface Coalesce {
+    /**
+     * Calls are never replaced, used internally only
+     */
+    int NONE = 0;
+
+    /**
+     * New call replaces the waiting one regardless of arguments
+     */
+    int LATEST = 1;
+
+    /**
+     * New call replaces the waiting one only if all arguments are equal
+     */
+    int SAME_ARGUMENTS = 2;
+
+    int value() default LATEST;
+}
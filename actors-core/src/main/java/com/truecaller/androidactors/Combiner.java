@@ -0,0 +1,30 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Combination of two promised values, see {@link Promise#zip(Promise, Combiner)}
+ *
+ * @param <A> type of the first value
+ * @param <B> type of the second value
+ * @param <R> result type
+ */
+public interface Combiner<A, B, R> {
+    R combine(@Nullable A first, @Nullable B second);
+}
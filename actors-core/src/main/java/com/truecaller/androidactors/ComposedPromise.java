@@ -0,0 +1,510 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Promise computed from the results of other promises. Like any other promise it does nothing
+ * until one of the then() methods is called. Continuations run right on the thread which produced
+ * the value, the result is delivered to the listener's thread with a single message.
+ * <p>
+ * Values passed to a mapper or combiner are owned by it. Values which are not going to be used
+ * because the call was forgotten or failed are released with the cleaner of the promise which
+ * produced them.
+ *
+ * @param <R> result type
+ */
+/* package */ abstract class ComposedPromise<R> extends Promise<R> implements ActionHandle, ResultListener<R> {
+
+    // Listener of thenNothing(), the result is computed and thrown away
+    private static final ResultListener NOTHING = new ResultListener() {
+        @Override
+        public void onResult(@Nullable Object result) {
+        }
+    };
+
+    @Nullable
+    private volatile ResultListener<R> mListener = null;
+
+    @Nullable
+    private ActorThread mThread = null;
+
+    @Override
+    public void thenNothing() {
+        //noinspection unchecked
+        start(NOTHING, null);
+    }
+
+    @NonNull
+    @Override
+    public ActionHandle then(@NonNull ResultListener<R> listener) {
+        start(listener, null);
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public ActionHandle then(@NonNull ActorThread thread, @NonNull ResultListener<R> listener) {
+        start(listener, thread);
+        return this;
+    }
+
+    @Nullable
+    @Override
+    public R get() throws InterruptedException {
+        PromiseProxy.BlockResultListener<R> listener = new PromiseProxy.BlockResultListener<>();
+        start(listener, null);
+        return listener.waitAndGet(this);
+    }
+
+    @Nullable
+    @Override
+    public R get(long timeout, @NonNull TimeUnit unit) throws InterruptedException, TimeoutException {
+        PromiseProxy.BlockResultListener<R> listener = new PromiseProxy.BlockResultListener<>();
+        start(listener, null);
+        if (!listener.await(this, Math.max(0, unit.toNanos(timeout)))) {
+            forget();
+            // Result could arrive right before the sources were cancelled
+            if (!listener.isDone()) {
+                throw new TimeoutException("Composed call didn't finish in " + timeout + " " + unit);
+            }
+        }
+        return listener.result();
+    }
+
+    /**
+     * Listener is forgotten and source calls which haven't delivered their results yet are cancelled
+     */
+    @Override
+    public void forget() {
+        mListener = null;
+        cancelSources();
+    }
+
+    /**
+     * Final delivery on the listener's thread
+     */
+    @Override
+    public void onResult(@Nullable R result) {
+        final ResultListener<R> listener = mListener;
+        mListener = null;
+
+        if (listener == null) {
+            throw new ResultListenerIsNotSpecifiedException();
+        }
+
+        listener.onResult(result);
+    }
+
+    private void start(@NonNull ResultListener<R> listener, @Nullable ActorThread thread) {
+        mListener = listener;
+        mThread = thread;
+        subscribe();
+    }
+
+    /**
+     * Ask the source promises for their results
+     */
+    /* package */ abstract void subscribe();
+
+    /**
+     * Cancel source calls, see {@link ActionHandle#forget()}
+     */
+    /* package */ abstract void cancelSources();
+
+    /* package */ static void cancel(@Nullable Promise<?> promise) {
+        if (promise instanceof PromiseProxy) {
+            ((PromiseProxy) promise).cancel();
+        } else if (promise instanceof ComposedPromise) {
+            ((ComposedPromise) promise).forget();
+        }
+    }
+
+    /**
+     * @return true if completion doesn't run the listener's code: the result is sent to the listener's
+     *         thread or handed to a caller waiting in {@link #get()}
+     */
+    /* package */ final boolean isListenerIsolated() {
+        final ResultListener<R> listener = mListener;
+        return listener instanceof PromiseProxy.BlockResultListener
+                || (mThread != null && !(listener instanceof StageListener));
+    }
+
+    /**
+     * @return true if no one waits for the result anymore
+     */
+    /* package */ final boolean isAbandoned() {
+        return mListener == null;
+    }
+
+    /**
+     * Pass the result to the listener. Listener without a thread, another stage and a waiting
+     * caller get it right away, otherwise it is sent to the listener's thread
+     */
+    /* package */ final void complete(@Nullable R result, @Nullable ResourceCleaner<R> cleaner) {
+        final ResultListener<R> listener = mListener;
+        final ActorThread thread = mThread;
+        mThread = null;
+
+        if (listener == null || listener == NOTHING) {
+            mListener = null;
+            clean(result, cleaner);
+        } else if (thread == null || listener instanceof StageListener) {
+            mListener = null;
+            if (listener instanceof StageListener) {
+                ((StageListener<R>) listener).onResult(result, cleaner);
+            } else {
+                listener.onResult(result);
+            }
+        } else {
+            // Listener can be forgotten before the message is handled, then the result is cleaned
+            new PromiseImpl<>(result, cleaner).then(thread, this);
+        }
+    }
+
+    /**
+     * Pass the failure to the listener if it is able to handle it
+     *
+     * @return true if the failure was handled
+     */
+    /* package */ final boolean fail(@NonNull RuntimeException error) {
+        final ResultListener<R> listener = mListener;
+        mListener = null;
+        mThread = null;
+
+        if (listener instanceof StageListener) {
+            return ((StageListener<R>) listener).onFailure(error);
+        }
+        if (listener instanceof PromiseProxy.BlockResultListener) {
+            ((PromiseProxy.BlockResultListener<R>) listener).onFailure(error);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Failure of a mapper or combiner, it is rethrown on the producer's thread if no one handles it
+     */
+    /* package */ final void failOrThrow(@NonNull RuntimeException error) {
+        if (!fail(error)) {
+            throw error;
+        }
+    }
+
+    /* package */ static <T> void clean(@Nullable T value, @Nullable ResourceCleaner<T> cleaner) {
+        if (value != null && cleaner != null) {
+            cleaner.clean(value);
+        }
+    }
+
+    /**
+     * Listener of a source promise, it releases values which arrive after this promise was forgotten
+     */
+    /* package */ abstract class Input<T> implements StageListener<T> {
+        @Override
+        public final void onResult(@Nullable T result) {
+            onResult(result, null);
+        }
+
+        @Override
+        public final void onResult(@Nullable T result, @Nullable ResourceCleaner<T> cleaner) {
+            if (isAbandoned()) {
+                clean(result, cleaner);
+            } else {
+                accept(result, cleaner);
+            }
+        }
+
+        @Override
+        public boolean onFailure(@NonNull RuntimeException error) {
+            return fail(error);
+        }
+
+        /* package */ abstract void accept(@Nullable T result, @Nullable ResourceCleaner<T> cleaner);
+    }
+
+    /* package */ static class Mapped<T, R> extends ComposedPromise<R> {
+        @NonNull
+        private final Promise<T> mSource;
+
+        @NonNull
+        private final Mapper<T, R> mMapper;
+
+        /* package */ Mapped(@NonNull Promise<T> source, @NonNull Mapper<T, R> mapper) {
+            mSource = source;
+            mMapper = mapper;
+        }
+
+        @Override
+        /* package */ void subscribe() {
+            mSource.then(new Input<T>() {
+                @Override
+                /* package */ void accept(@Nullable T result, @Nullable ResourceCleaner<T> cleaner) {
+                    final R mapped;
+                    try {
+                        mapped = mMapper.map(result);
+                    } catch (RuntimeException e) {
+                        failOrThrow(e);
+                        return;
+                    }
+                    complete(mapped, null);
+                }
+            });
+        }
+
+        @Override
+        /* package */ void cancelSources() {
+            cancel(mSource);
+        }
+    }
+
+    /* package */ static class FlatMapped<T, R> extends ComposedPromise<R> {
+        @NonNull
+        private final Promise<T> mSource;
+
+        @NonNull
+        private final Mapper<T, Promise<R>> mMapper;
+
+        @Nullable
+        private volatile Promise<R> mNext = null;
+
+        /* package */ FlatMapped(@NonNull Promise<T> source, @NonNull Mapper<T, Promise<R>> mapper) {
+            mSource = source;
+            mMapper = mapper;
+        }
+
+        @Override
+        /* package */ void subscribe() {
+            mSource.then(new Input<T>() {
+                @Override
+                /* package */ void accept(@Nullable T result, @Nullable ResourceCleaner<T> cleaner) {
+                    final Promise<R> next;
+                    try {
+                        next = mMapper.map(result);
+                    } catch (RuntimeException e) {
+                        failOrThrow(e);
+                        return;
+                    }
+
+                    if (next == null) {
+                        complete(null, null);
+                        return;
+                    }
+                    mNext = next;
+                    next.then(new Input<R>() {
+                        @Override
+                        /* package */ void accept(@Nullable R result, @Nullable ResourceCleaner<R> cleaner) {
+                            complete(result, cleaner);
+                        }
+                    });
+                    // Could be forgotten while the next call was made
+                    if (isAbandoned()) {
+                        cancel(next);
+                    }
+                }
+            });
+        }
+
+        @Override
+        /* package */ void cancelSources() {
+            cancel(mSource);
+            cancel(mNext);
+        }
+    }
+
+    /* package */ static class Recovered<R> extends ComposedPromise<R> {
+        @NonNull
+        private final Promise<R> mSource;
+
+        @NonNull
+        private final Mapper<Throwable, R> mFallback;
+
+        /* package */ Recovered(@NonNull Promise<R> source, @NonNull Mapper<Throwable, R> fallback) {
+            mSource = source;
+            mFallback = fallback;
+        }
+
+        @Override
+        /* package */ void subscribe() {
+            mSource.then(new Input<R>() {
+                @Override
+                /* package */ void accept(@Nullable R result, @Nullable ResourceCleaner<R> cleaner) {
+                    complete(result, cleaner);
+                }
+
+                @Override
+                public boolean onFailure(@NonNull RuntimeException error) {
+                    if (isAbandoned()) {
+                        return true;
+                    }
+
+                    final R fallback;
+                    try {
+                        fallback = mFallback.map(error);
+                    } catch (RuntimeException e) {
+                        failOrThrow(e);
+                        return true;
+                    }
+                    complete(fallback, null);
+                    return true;
+                }
+            });
+        }
+
+        @Override
+        /* package */ void cancelSources() {
+            cancel(mSource);
+        }
+    }
+
+    /* package */ static class Zipped<A, B, R> extends ComposedPromise<R> {
+        @NonNull
+        private final Promise<A> mFirstSource;
+
+        @NonNull
+        private final Promise<B> mSecondSource;
+
+        @NonNull
+        private final Combiner<A, B, R> mCombiner;
+
+        private final Object mLock = new Object();
+
+        // Guarded by mLock
+        @NonNull
+        private final Slot<A> mFirst = new Slot<>();
+
+        @NonNull
+        private final Slot<B> mSecond = new Slot<>();
+
+        private boolean mDone = false;
+
+        /* package */ Zipped(@NonNull Promise<A> first, @NonNull Promise<B> second,
+                             @NonNull Combiner<A, B, R> combiner) {
+            mFirstSource = first;
+            mSecondSource = second;
+            mCombiner = combiner;
+        }
+
+        @Override
+        /* package */ void subscribe() {
+            mFirstSource.then(new SlotInput<>(mFirst));
+            mSecondSource.then(new SlotInput<>(mSecond));
+        }
+
+        @Override
+        /* package */ void cancelSources() {
+            cancel(mFirstSource);
+            cancel(mSecondSource);
+        }
+
+        private <T> void onArrived(@NonNull Slot<T> slot, @Nullable T result, @Nullable ResourceCleaner<T> cleaner) {
+            synchronized (mLock) {
+                slot.set(result, cleaner);
+                if (mDone || isAbandoned()) {
+                    mDone = true;
+                    // Values which got here before are released too
+                    mFirst.clean();
+                    mSecond.clean();
+                    return;
+                }
+                if (!mFirst.mArrived || !mSecond.mArrived) {
+                    return;
+                }
+                mDone = true;
+            }
+
+            final R combined;
+            try {
+                combined = mCombiner.combine(mFirst.mValue, mSecond.mValue);
+            } catch (RuntimeException e) {
+                failOrThrow(e);
+                return;
+            } finally {
+                mFirst.reset();
+                mSecond.reset();
+            }
+            complete(combined, null);
+        }
+
+        private boolean onFailed(@NonNull RuntimeException error) {
+            synchronized (mLock) {
+                if (mDone) {
+                    return false;
+                }
+                mDone = true;
+                mFirst.clean();
+                mSecond.clean();
+            }
+            return fail(error);
+        }
+
+        private class SlotInput<T> implements StageListener<T> {
+            @NonNull
+            private final Slot<T> mSlot;
+
+            private SlotInput(@NonNull Slot<T> slot) {
+                mSlot = slot;
+            }
+
+            @Override
+            public void onResult(@Nullable T result) {
+                onArrived(mSlot, result, null);
+            }
+
+            @Override
+            public void onResult(@Nullable T result, @Nullable ResourceCleaner<T> cleaner) {
+                onArrived(mSlot, result, cleaner);
+            }
+
+            @Override
+            public boolean onFailure(@NonNull RuntimeException error) {
+                return onFailed(error);
+            }
+        }
+    }
+
+    private static class Slot<T> {
+        @Nullable
+        private T mValue;
+
+        @Nullable
+        private ResourceCleaner<T> mCleaner;
+
+        private boolean mArrived = false;
+
+        private void set(@Nullable T value, @Nullable ResourceCleaner<T> cleaner) {
+            mValue = value;
+            mCleaner = cleaner;
+            mArrived = true;
+        }
+
+        private void clean() {
+            ComposedPromise.clean(mValue, mCleaner);
+            reset();
+        }
+
+        private void reset() {
+            mValue = null;
+            mCleaner = null;
+        }
+    }
+}
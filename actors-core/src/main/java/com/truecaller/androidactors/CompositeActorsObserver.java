@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Observer which passes every event to several observers in order they were given, for example
+ * to collect {@link ActorsMetrics} and trace calls at the same time
+ */
+@SuppressWarnings("unused")
+public final class CompositeActorsObserver implements ActorsObserver {
+
+    @NonNull
+    private final ActorsObserver[] mObservers;
+
+    public CompositeActorsObserver(@NonNull ActorsObserver... observers) {
+        mObservers = observers.clone();
+    }
+
+    @Override
+    public void onEnqueued(int methodId) {
+        for (ActorsObserver observer : mObservers) {
+            observer.onEnqueued(methodId);
+        }
+    }
+
+    @Override
+    public void onStarted(int methodId, long queueTimeNanos) {
+        for (ActorsObserver observer : mObservers) {
+            observer.onStarted(methodId, queueTimeNanos);
+        }
+    }
+
+    @Override
+    public void onCompleted(int methodId, long queueTimeNanos, long wallTimeNanos, long cpuTimeNanos,
+                            boolean failed) {
+        // Sections opened by tracers are closed in reverse order
+        for (int index = mObservers.length - 1; index >= 0; --index) {
+            mObservers[index].onCompleted(methodId, queueTimeNanos, wallTimeNanos, cpuTimeNanos, failed);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Actor threads which don't depend on Android and can be used on any JVM. On Android
+ * use {@code ActorsThreads}, which adds looper and service based threads.
+ */
+@SuppressWarnings({"unused", "SameParameterValue"})
+public interface CoreActorsThreads {
+    /**
+     * Create a dedicated thread with its own mailbox, which never stops
+     */
+    @NonNull
+    ActorThread createThread(@NonNull String name);
+
+    /**
+     * Create a dedicated thread with its own mailbox
+     *
+     * @param name name of the thread
+     * @param stopDelay delay in milliseconds before the idle thread stops itself, -1 to never stop it
+     */
+    @NonNull
+    ActorThread createThread(@NonNull String name, long stopDelay);
+
+    /**
+     * Create thread which runs with the given priority. Priority can be changed later
+     *
+     * @param name name of the thread
+     * @param stopDelay delay in milliseconds before the idle thread stops itself, -1 to never stop it
+     * @param priority Linux priority of the thread, see {@link PrioritizedActorThread#setThreadPriority(int)}
+     */
+    @NonNull
+    PrioritizedActorThread createThread(@NonNull String name, long stopDelay, int priority);
+
+    /**
+     * Same as {@link #createThread(String, long)}, but mailbox of the thread is bounded. All actors
+     * bound to the thread share the mailbox
+     *
+     * @param mailbox limits of the mailbox and what to do with calls which don't fit into it
+     */
+    @NonNull
+    ActorThread createThread(@NonNull String name, long stopDelay, @NonNull MailboxConfig mailbox);
+
+    /**
+     * Create a dedicated thread with any combination of options, see {@link ActorThreadConfig}
+     */
+    @NonNull
+    PrioritizedActorThread createThread(@NonNull String name, @NonNull ActorThreadConfig config);
+
+    /**
+     * Create thread which uses lock-free mailbox instead of looper. It is a better choice
+     * for actors which receive calls from many threads at the same time.
+     *
+     * @param name name of the thread
+     * @param stopDelay delay in milliseconds before the idle thread stops itself, -1 to never stop it
+     */
+    @NonNull
+    ActorThread createLockFreeThread(@NonNull String name, long stopDelay);
+
+    /**
+     * Same as {@link #createLockFreeThread(String, long)}, but thread runs with the given priority
+     *
+     * @param priority Linux priority of the thread, see {@link PrioritizedActorThread#setThreadPriority(int)}
+     */
+    @NonNull
+    PrioritizedActorThread createLockFreeThread(@NonNull String name, long stopDelay, int priority);
+
+    /**
+     * Same as {@link #createLockFreeThread(String, long)}, but mailbox of every bound actor is bounded
+     *
+     * @param mailbox limits of the mailbox and what to do with calls which don't fit into it
+     */
+    @NonNull
+    ActorThread createLockFreeThread(@NonNull String name, long stopDelay, @NonNull MailboxConfig mailbox);
+
+    /**
+     * Same as {@link #createLockFreeThread(String, long)}, but with any combination of options,
+     * see {@link ActorThreadConfig}. Batching isn't supported and ignored
+     */
+    @NonNull
+    PrioritizedActorThread createLockFreeThread(@NonNull String name, @NonNull ActorThreadConfig config);
+
+    @NonNull
+    ActorThread createThread(@NonNull Executor executor);
+
+    /**
+     * Create thread which gives every bound actor its own mailbox and consumer thread from the given
+     * factory. Use it with factories of cheap threads, for example virtual threads, when actors block.
+     *
+     * @param threadFactory factory of consumer threads
+     * @param stopDelay delay in milliseconds before idle consumer thread stops, -1 to never stop it
+     */
+    @NonNull
+    ActorThread createThreadPerActor(@NonNull ThreadFactory threadFactory, long stopDelay);
+
+    /**
+     * Same as {@link #createThreadPerActor(ThreadFactory, long)}, but mailbox of every bound actor is bounded
+     *
+     * @param mailbox limits of the mailbox and what to do with calls which don't fit into it
+     */
+    @NonNull
+    ActorThread createThreadPerActor(@NonNull ThreadFactory threadFactory, long stopDelay,
+                                     @NonNull MailboxConfig mailbox);
+
+    /**
+     * Create thread which executes calls in the thread which makes them. Calls to the same actor
+     * are still executed one by one: a call made while the actor is busy, including a call the actor
+     * makes to itself, is executed by the busy thread right after the current one.
+     */
+    @NonNull
+    ActorThread createSameThread();
+
+    @NonNull
+    ActorThread createPooledThread(@NonNull String name, int maxThreads);
+
+    /**
+     * Create thread pool which is shared by all actors bound to it. Calls to the same actor are
+     * still executed one by one and in order.
+     *
+     * @param throughput max number of calls executed for one actor before pool thread is given
+     *                   to other actors
+     */
+    @NonNull
+    ActorThread createPooledThread(@NonNull String name, int maxThreads, int throughput);
+
+    /**
+     * Create elastic thread pool which is shared by all actors bound to it, see {@link ActorThreadPoolConfig}
+     */
+    @NonNull
+    PrioritizedActorThread createPooledThread(@NonNull String name, @NonNull ActorThreadPoolConfig config);
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+@SuppressWarnings({"unused", "WeakerAccess", "SameParameterValue"})
+public abstract class CoreActorsThreadsBase implements CoreActorsThreads {
+
+    @NonNull
+    /* package */ final ProxyFactory mProxyFactory;
+
+    @NonNull
+    /* package */ final FailureHandler mFailureHandler;
+
+    public CoreActorsThreadsBase(@NonNull ProxyFactory proxyFactory) {
+        this(proxyFactory, new CrashEarlyFailureHandler());
+    }
+
+    public CoreActorsThreadsBase(@NonNull ProxyFactory proxyFactory, @NonNull FailureHandler failureHandler) {
+        mProxyFactory = proxyFactory;
+        mFailureHandler = failureHandler;
+    }
+
+    @Override
+    @NonNull
+    public ActorThread createThread(@NonNull String name) {
+        return createLockFreeThread(name, LockFreeActorThread.NO_DELAY);
+    }
+
+    @Override
+    @NonNull
+    public ActorThread createThread(@NonNull String name, long stopDelay) {
+        return createLockFreeThread(name, stopDelay);
+    }
+
+    @Override
+    @NonNull
+    public PrioritizedActorThread createThread(@NonNull String name, long stopDelay, int priority) {
+        return createLockFreeThread(name, stopDelay, priority);
+    }
+
+    @Override
+    @NonNull
+    public ActorThread createThread(@NonNull String name, long stopDelay, @NonNull MailboxConfig mailbox) {
+        return createLockFreeThread(name, stopDelay, mailbox);
+    }
+
+    @Override
+    @NonNull
+    public PrioritizedActorThread createThread(@NonNull String name, @NonNull ActorThreadConfig config) {
+        return createLockFreeThread(name, config);
+    }
+
+    @Override
+    @NonNull
+    public ActorThread createLockFreeThread(@NonNull String name, long stopDelay) {
+        return new LockFreeActorThread(mProxyFactory, mFailureHandler, name, stopDelay);
+    }
+
+    @Override
+    @NonNull
+    public PrioritizedActorThread createLockFreeThread(@NonNull String name, long stopDelay, int priority) {
+        return new LockFreeActorThread(mProxyFactory, mFailureHandler, name, stopDelay, priority);
+    }
+
+    @Override
+    @NonNull
+    public ActorThread createLockFreeThread(@NonNull String name, long stopDelay, @NonNull MailboxConfig mailbox) {
+        return new LockFreeActorThread(mProxyFactory, mFailureHandler, name, stopDelay,
+                ThreadPriority.DEFAULT, mailbox);
+    }
+
+    @Override
+    @NonNull
+    public PrioritizedActorThread createLockFreeThread(@NonNull String name, @NonNull ActorThreadConfig config) {
+        return new LockFreeActorThread(mProxyFactory, mFailureHandler, name, config.mStopDelayMillis,
+                config.threadPriority(), config.mMailbox);
+    }
+
+    @Override
+    @NonNull
+    public ActorThread createThread(@NonNull Executor executor) {
+        return new ExecutorActorThread(executor, mProxyFactory, mFailureHandler);
+    }
+
+    @Override
+    @NonNull
+    public ActorThread createThreadPerActor(@NonNull ThreadFactory threadFactory, long stopDelay) {
+        return new ThreadPerActorThread(mProxyFactory, mFailureHandler, threadFactory, stopDelay, null);
+    }
+
+    @Override
+    @NonNull
+    public ActorThread createThreadPerActor(@NonNull ThreadFactory threadFactory, long stopDelay,
+                                            @NonNull MailboxConfig mailbox) {
+        return new ThreadPerActorThread(mProxyFactory, mFailureHandler, threadFactory, stopDelay, mailbox);
+    }
+
+    @Override
+    @NonNull
+    public ActorThread createSameThread() {
+        return new SameThreadActorThread(mProxyFactory, mFailureHandler);
+    }
+
+    @Override
+    @NonNull
+    public ActorThread createPooledThread(@NonNull String name, int maxThreads) {
+        return createPooledThread(name, maxThreads, ExecutorActorThread.DEFAULT_THROUGHPUT);
+    }
+
+    @Override
+    @NonNull
+    public ActorThread createPooledThread(@NonNull String name, int maxThreads, int throughput) {
+        return createPooledThread(name, ActorThreadPoolConfig.builder(maxThreads)
+                .setCoreThreads(0)
+                .setThroughput(throughput)
+                .build());
+    }
+
+    @Override
+    @NonNull
+    public PrioritizedActorThread createPooledThread(@NonNull String name, @NonNull ActorThreadPoolConfig config) {
+        final ElasticThreadPoolExecutor executor = new ElasticThreadPoolExecutor(config,
+                new ActorThreadPoolThreadsFactory(name, config.mThreadPriority));
+        return new PooledActorThread(executor, mProxyFactory, mFailureHandler, config.mThroughput,
+                config.mMailbox);
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Thread pool which grows when tasks wait in the queue for too long and shrinks back when it's idle.
+ *
+ * Plain {@link ThreadPoolExecutor} with a queue starts new threads above its core size only when the queue
+ * is full, which never happens with unbounded queue. This pool raises its core size instead, one thread
+ * at a time, while the queue stays non empty for longer than configured delay. When the queue is drained,
+ * the core size goes back to configured value and extra threads stop after keep alive time.
+ * Synchronous queue is always empty, such pool grows the way plain {@link ThreadPoolExecutor} does.
+ */
+/* package */ class ElasticThreadPoolExecutor extends ThreadPoolExecutor {
+
+    private final int mCoreThreads;
+
+    private final long mGrowAfterMillis;
+
+    private static final long NO_BACKLOG = Long.MIN_VALUE;
+
+    // Time since queue is not empty, NO_BACKLOG if queue was found empty
+    private volatile long mBacklogSince = NO_BACKLOG;
+
+    private volatile int mThreadPriority;
+
+    // Busy threads may not finish or take new tasks for long, so the timer checks the queue too
+    @NonNull
+    private final TimingWheel mWheel;
+
+    @NonNull
+    private final AtomicBoolean mRecheckScheduled = new AtomicBoolean(false);
+
+    @NonNull
+    private final Runnable mRecheck = new Runnable() {
+        @Override
+        public void run() {
+            mRecheckScheduled.set(false);
+            checkBacklog();
+        }
+    };
+
+    /* package */ ElasticThreadPoolExecutor(@NonNull ActorThreadPoolConfig config, @NonNull ThreadFactory threadFactory) {
+        super(config.mCoreThreads, config.mMaxThreads, config.mKeepAliveMillis, TimeUnit.MILLISECONDS,
+                createQueue(config), threadFactory, config.mRejectedHandler);
+        mCoreThreads = config.mCoreThreads;
+        mGrowAfterMillis = config.mGrowAfterMillis;
+        mThreadPriority = config.mThreadPriority;
+        mWheel = TimingWheel.shared();
+    }
+
+    /**
+     * Change priority of all pool threads right away, threads started later get it too
+     */
+    /* package */ void setThreadPriority(int priority) {
+        mThreadPriority = priority;
+        final ThreadFactory factory = getThreadFactory();
+        if (factory instanceof ActorThreadPoolThreadsFactory) {
+            ((ActorThreadPoolThreadsFactory) factory).setThreadPriority(priority);
+        }
+    }
+
+    /* package */ int getThreadPriority() {
+        return mThreadPriority;
+    }
+
+    @Override
+    public void execute(@NonNull Runnable command) {
+        super.execute(command);
+
+        checkBacklog();
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+        if (getQueue().isEmpty()) {
+            mBacklogSince = NO_BACKLOG;
+        }
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        super.afterExecute(r, t);
+        if (getQueue().isEmpty()) {
+            if (getCorePoolSize() > mCoreThreads) {
+                shrink();
+            }
+        } else {
+            // Nobody might submit new tasks, but queued ones still wait
+            checkBacklog();
+        }
+    }
+
+    private void checkBacklog() {
+        if (getQueue().isEmpty()) {
+            return;
+        }
+
+        final long now = TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+        final long since = mBacklogSince;
+        if (since == NO_BACKLOG) {
+            mBacklogSince = now;
+        } else if (now - since >= mGrowAfterMillis) {
+            grow(now);
+        }
+        scheduleRecheck();
+    }
+
+    /**
+     * Queue is checked again after grow delay even if nobody submits or finishes tasks meanwhile
+     */
+    private void scheduleRecheck() {
+        if (isShutdown() || getCorePoolSize() >= getMaximumPoolSize()
+                || !mRecheckScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        mWheel.schedule(mRecheck, TimeUnit.MILLISECONDS.toNanos(mGrowAfterMillis), 0);
+    }
+
+    private synchronized void grow(long now) {
+        final int size = Math.max(getCorePoolSize(), getPoolSize());
+        if (size < getMaximumPoolSize()) {
+            // Starts new thread immediately since there are queued tasks
+            setCorePoolSize(size + 1);
+        }
+        mBacklogSince = now;
+    }
+
+    private synchronized void shrink() {
+        if (getQueue().isEmpty()) {
+            // Extra threads will stop when they become idle for keep alive time
+            setCorePoolSize(mCoreThreads);
+        }
+    }
+
+    @NonNull
+    private static BlockingQueue<Runnable> createQueue(@NonNull ActorThreadPoolConfig config) {
+        switch (config.mQueueType) {
+            case SYNCHRONOUS:
+                return new SynchronousQueue<>();
+            case BOUNDED:
+                return new ArrayBlockingQueue<>(config.mQueueCapacity);
+            case UNBOUNDED:
+            default:
+                return new LinkedBlockingQueue<>();
+        }
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Actor thread on top of an executor. Every bound actor gets its own mailbox which is scheduled
+ * to the executor only while it has messages, so actors don't block each other and calls to the
+ * same actor are executed one by one and in order of their {@link Priority} even if executor
+ * has many threads.
+ */
+/* package */ class ExecutorActorThread implements WatchableActorThread {
+
+    /* package */ static final int DEFAULT_THROUGHPUT = 16;
+
+    // Delay before saturated executor is asked to run the mailbox again
+    private static final long RETRY_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @NonNull
+    private final Executor mExecutor;
+
+    @NonNull
+    private final ProxyFactory mProxyFactory;
+
+    @NonNull
+    private final FailureHandler mFailureHandler;
+
+    private final int mThroughput;
+
+    @Nullable
+    private final MailboxConfig mMailboxConfig;
+
+    /* package */ ExecutorActorThread(@NonNull Executor executor, @NonNull ProxyFactory proxyFactory,
+                                      @NonNull FailureHandler failureHandler) {
+        this(executor, proxyFactory, failureHandler, DEFAULT_THROUGHPUT);
+    }
+
+    /**
+     * @param throughput max number of messages processed by one actor before it gives the executor
+     *                   thread to other actors
+     */
+    /* package */ ExecutorActorThread(@NonNull Executor executor, @NonNull ProxyFactory proxyFactory,
+                                      @NonNull FailureHandler failureHandler, int throughput) {
+        this(executor, proxyFactory, failureHandler, throughput, null);
+    }
+
+    /**
+     * @param mailbox limits of every actor's mailbox, null for unbounded mailboxes
+     */
+    /* package */ ExecutorActorThread(@NonNull Executor executor, @NonNull ProxyFactory proxyFactory,
+                                      @NonNull FailureHandler failureHandler, int throughput,
+                                      @Nullable MailboxConfig mailbox) {
+        if (throughput <= 0) {
+            throw new IllegalArgumentException("Throughput must be positive");
+        }
+        mExecutor = executor;
+        mProxyFactory = proxyFactory;
+        mFailureHandler = failureHandler;
+        mThroughput = throughput;
+        mMailboxConfig = mailbox;
+    }
+
+    @NonNull
+    @Override
+    public <T> ActorRef<T> bind(@NonNull Class<T> cls, @NonNull T impl) {
+        return bind(cls, impl, null);
+    }
+
+    @NonNull
+    @Override
+    public <T> ActorRef<T> bind(@NonNull Class<T> cls, @NonNull T impl, @Nullable Supervisor supervisor) {
+        final MailboxLimiter limiter = MailboxLimiter.create(mMailboxConfig);
+        Mailbox<T> postman = new Mailbox<>(impl, mExecutor, mFailureHandler, mThroughput, limiter, supervisor);
+        return new ActorRefImpl<>(mProxyFactory, cls, postman, limiter);
+    }
+
+    @VisibleForTesting
+    /* package */ static class Mailbox<T> implements InlineMessageSender, Runnable {
+
+        @NonNull
+        private final Executor mExecutor;
+
+        @NonNull
+        private final FailureHandler mFailureHandler;
+
+        @NonNull
+        private final T mActorImpl;
+
+        private final int mThroughput;
+
+        @NonNull
+        private final TransactionQueue mQueue = new TransactionQueue();
+
+        // Consumer side only, transactions taken from the queue and ordered by priority
+        @NonNull
+        private final PriorityMailbox mPending = new PriorityMailbox();
+
+        // True while mailbox is submitted to executor or running, guards consumer side of the queue
+        @NonNull
+        private final AtomicBoolean mScheduled = new AtomicBoolean(false);
+
+        @Nullable
+        private final MailboxLimiter mLimiter;
+
+        @Nullable
+        private final Supervisor mSupervisor;
+
+        @NonNull
+        private final Runnable mResubmit = new Runnable() {
+            @Override
+            public void run() {
+                submit();
+            }
+        };
+
+        // Thread which currently executes actor's calls
+        @Nullable
+        private volatile Thread mRunner;
+
+        private Mailbox(@NonNull T actorImpl, @NonNull Executor executor, @NonNull FailureHandler failureHandler,
+                        int throughput, @Nullable MailboxLimiter limiter, @Nullable Supervisor supervisor) {
+            mExecutor = executor;
+            mFailureHandler = failureHandler;
+            mActorImpl = actorImpl;
+            mThroughput = throughput;
+            mLimiter = limiter;
+            mSupervisor = supervisor;
+        }
+
+        @Override
+        public void deliver(@NonNull Message message) {
+            final Transaction transaction = Transaction.obtain(mActorImpl, message, mFailureHandler, mSupervisor);
+            final MailboxLimiter limiter = mLimiter;
+            if (limiter != null && !limiter.admit(transaction, Thread.currentThread() == mRunner)) {
+                transaction.drop();
+                return;
+            }
+
+            mQueue.offer(transaction);
+            if (!mScheduled.compareAndSet(false, true)) {
+                return;
+            }
+
+            try {
+                mExecutor.execute(this);
+            } catch (RuntimeException e) {
+                // Mailbox isn't running yet, so the call can be taken back and it is never made
+                mPending.drain(mQueue, mLimiter);
+                final Transaction taken = mPending.remove(message);
+                if (taken != null) {
+                    if (mLimiter != null) {
+                        mLimiter.release(taken);
+                    }
+                    taken.reject(e);
+                }
+                if (mPending.isEmpty()) {
+                    release();
+                } else {
+                    onRejected(e);
+                }
+                if (taken != null) {
+                    throw e;
+                }
+            }
+        }
+
+        @Override
+        public boolean deliverInline(@NonNull Message message) {
+            // Only the actor itself can be running on this thread
+            if (Thread.currentThread() != mRunner) {
+                return false;
+            }
+            Transaction.obtain(mActorImpl, message, mFailureHandler, mSupervisor).execute();
+            return true;
+        }
+
+        @Override
+        public void run() {
+            mRunner = Thread.currentThread();
+            try {
+                for (int processed = 0; processed < mThroughput; ++processed) {
+                    mPending.drain(mQueue, mLimiter);
+                    if (mLimiter != null) {
+                        mLimiter.trim(mPending);
+                    }
+                    final Transaction transaction = mPending.poll();
+                    if (transaction == null) {
+                        break;
+                    }
+                    if (mLimiter != null) {
+                        mLimiter.release(transaction);
+                    }
+                    transaction.execute();
+                }
+            } finally {
+                mRunner = null;
+                // Pending transactions can be touched only while mailbox is scheduled
+                final boolean pending = !mPending.isEmpty();
+                if (pending) {
+                    // Quota is exhausted, other actors get the thread first
+                    submit();
+                } else {
+                    release();
+                }
+            }
+        }
+
+        /**
+         * Let producers schedule the mailbox again, messages could arrive after the queue was checked
+         */
+        private void release() {
+            mScheduled.set(false);
+            if (!mQueue.isEmpty() && mScheduled.compareAndSet(false, true)) {
+                submit();
+            }
+        }
+
+        /**
+         * Give scheduled mailbox to the executor, it never throws since nobody would run pending
+         * transactions otherwise
+         */
+        private void submit() {
+            try {
+                mExecutor.execute(this);
+            } catch (RuntimeException e) {
+                onRejected(e);
+            }
+        }
+
+        /**
+         * Executor refused to run scheduled mailbox. Busy executor is asked again later, calls to
+         * the actor of the shut down executor are dropped
+         */
+        private void onRejected(@NonNull RuntimeException reason) {
+            if (!(mExecutor instanceof ExecutorService) || !((ExecutorService) mExecutor).isShutdown()) {
+                TimingWheel.shared().schedule(mResubmit, RETRY_DELAY_NANOS, 0);
+                return;
+            }
+
+            mPending.drain(mQueue, mLimiter);
+            Transaction transaction;
+            while ((transaction = mPending.poll()) != null) {
+                if (mLimiter != null) {
+                    mLimiter.release(transaction);
+                }
+                transaction.reject(reason);
+            }
+            release();
+        }
+    }
+}
@@ -0,0 +1,399 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Promise which waits for results of several promises, see {@link Promise#all(List)},
+ * {@link Promise#any(List)} and {@link Promise#allSettled(List, long, java.util.concurrent.TimeUnit)}.
+ * All source calls are made at once. When the outcome is known, calls which haven't started yet
+ * are cancelled and results which are not used are released with their cleaners.
+ *
+ * @param <T> result type of source promises
+ * @param <R> aggregated result type
+ */
+/* package */ abstract class GatheredPromise<T, R> extends ComposedPromise<R> {
+
+    /* package */ static final int PENDING = 0;
+    /* package */ static final int FULFILLED = 1;
+    /* package */ static final int FAILED = 2;
+
+    // Outcomes of decide()
+    private static final int WAIT = 0;
+    private static final int COMPLETE = 1;
+    private static final int FAIL = 2;
+
+    @NonNull
+    private final List<Promise<T>> mSources;
+
+    private final long mDeadlineNanos;
+
+    @NonNull
+    private final TimingWheel mWheel;
+
+    private final Object mLock = new Object();
+
+    // Guarded by mLock until mDone is set, owned by the thread which set it afterwards
+    @NonNull
+    /* package */ final int[] mStates;
+
+    @NonNull
+    /* package */ final Object[] mValues;
+
+    @NonNull
+    /* package */ final ResourceCleaner[] mCleaners;
+
+    @NonNull
+    /* package */ final RuntimeException[] mFailures;
+
+    /* package */ int mFulfilled = 0;
+
+    /* package */ int mFailed = 0;
+
+    private boolean mDone = false;
+
+    @Nullable
+    private TimingWheel.Timeout mTimeout = null;
+
+    /**
+     * @param deadlineNanos time to wait for the results, 0 to wait as long as needed
+     */
+    /* package */ GatheredPromise(@NonNull List<Promise<T>> sources, long deadlineNanos, @NonNull TimingWheel wheel) {
+        mSources = new ArrayList<>(sources);
+        mDeadlineNanos = deadlineNanos;
+        mWheel = wheel;
+        mStates = new int[mSources.size()];
+        mValues = new Object[mSources.size()];
+        mCleaners = new ResourceCleaner[mSources.size()];
+        mFailures = new RuntimeException[mSources.size()];
+    }
+
+    /**
+     * @return {@link #COMPLETE} or {@link #FAIL} when the outcome is known, {@link #WAIT} otherwise
+     */
+    /* package */ abstract int decide();
+
+    /**
+     * Complete with the aggregated result, called once after {@link #decide()} returned COMPLETE
+     * or the deadline passed
+     */
+    /* package */ abstract void deliver();
+
+    /**
+     * @return failure to report, called once after {@link #decide()} returned FAIL
+     */
+    @NonNull
+    /* package */ abstract RuntimeException failure();
+
+    @Override
+    /* package */ void subscribe() {
+        if (mDeadlineNanos > 0 && !isListenerIsolated()) {
+            // Deadline comes on the timer thread, which also runs watchdog and delayed calls
+            throw new IllegalStateException("Promise with deadline must be delivered to an actor thread or get()");
+        }
+        if (mSources.isEmpty()) {
+            synchronized (mLock) {
+                mDone = true;
+            }
+            deliver();
+            return;
+        }
+
+        if (mDeadlineNanos > 0) {
+            mTimeout = mWheel.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    onDeadline();
+                }
+            }, mDeadlineNanos, 0);
+        }
+        for (int i = 0; i < mSources.size(); ++i) {
+            mSources.get(i).then(new Source(i));
+        }
+    }
+
+    private void onFulfilled(int index, @Nullable T value, @Nullable ResourceCleaner<T> cleaner) {
+        final int outcome;
+        final boolean done;
+        synchronized (mLock) {
+            if (mDone) {
+                // Late result
+                clean(value, cleaner);
+                return;
+            }
+            if (isAbandoned()) {
+                mDone = true;
+                clean(value, cleaner);
+                cleanFulfilled();
+                outcome = WAIT;
+            } else {
+                mStates[index] = FULFILLED;
+                mValues[index] = value;
+                mCleaners[index] = cleaner;
+                ++mFulfilled;
+                outcome = decide();
+                mDone = outcome != WAIT;
+            }
+            done = mDone;
+        }
+        if (done) {
+            finish(outcome);
+        }
+    }
+
+    private boolean onFailed(int index, @NonNull RuntimeException error) {
+        final int outcome;
+        synchronized (mLock) {
+            if (mDone) {
+                return false;
+            }
+            mStates[index] = FAILED;
+            mFailures[index] = error;
+            ++mFailed;
+            outcome = decide();
+            mDone = outcome != WAIT;
+        }
+        if (outcome != WAIT) {
+            return finish(outcome);
+        }
+        return true;
+    }
+
+    private void onDeadline() {
+        synchronized (mLock) {
+            if (mDone) {
+                return;
+            }
+            mDone = true;
+        }
+        finish(COMPLETE);
+    }
+
+    /**
+     * @return true if the failure was handled
+     */
+    private boolean finish(int outcome) {
+        if (mTimeout != null) {
+            mTimeout.forget();
+        }
+        cancelPending();
+
+        if (outcome == COMPLETE) {
+            deliver();
+            return true;
+        } else if (outcome == FAIL) {
+            cleanFulfilled();
+            return fail(failure());
+        }
+        return true;
+    }
+
+    /**
+     * Release results which arrived but are not going to be delivered
+     */
+    /* package */ final void cleanFulfilled() {
+        for (int i = 0; i < mStates.length; ++i) {
+            if (mStates[i] == FULFILLED) {
+                //noinspection unchecked
+                clean(mValues[i], mCleaners[i]);
+                mValues[i] = null;
+                mCleaners[i] = null;
+            }
+        }
+    }
+
+    @Override
+    /* package */ void cancelSources() {
+        cancelPending();
+    }
+
+    private void cancelPending() {
+        final List<Promise<T>> pending = new ArrayList<>();
+        synchronized (mLock) {
+            for (int i = 0; i < mStates.length; ++i) {
+                if (mStates[i] == PENDING) {
+                    pending.add(mSources.get(i));
+                }
+            }
+        }
+        // Cancelled calls report back, so it's done without the lock
+        for (Promise<T> source : pending) {
+            cancel(source);
+        }
+    }
+
+    private class Source implements StageListener<T> {
+        private final int mIndex;
+
+        private Source(int index) {
+            mIndex = index;
+        }
+
+        @Override
+        public void onResult(@Nullable T result) {
+            onFulfilled(mIndex, result, null);
+        }
+
+        @Override
+        public void onResult(@Nullable T result, @Nullable ResourceCleaner<T> cleaner) {
+            onFulfilled(mIndex, result, cleaner);
+        }
+
+        @Override
+        public boolean onFailure(@NonNull RuntimeException error) {
+            return onFailed(mIndex, error);
+        }
+    }
+
+    /**
+     * Cleaner of the aggregated result, each value is released by the cleaner of its promise
+     */
+    private static class ValuesCleaner implements ResourceCleaner<List<Object>> {
+        @NonNull
+        private final ResourceCleaner[] mCleaners;
+
+        private ValuesCleaner(@NonNull ResourceCleaner[] cleaners) {
+            mCleaners = cleaners;
+        }
+
+        @Override
+        public void clean(@NonNull List<Object> resource) {
+            for (int i = 0; i < mCleaners.length; ++i) {
+                Object value = resource.get(i);
+                if (value instanceof Settled) {
+                    value = ((Settled) value).getValue();
+                }
+                //noinspection unchecked
+                ComposedPromise.clean(value, mCleaners[i]);
+            }
+        }
+    }
+
+    /* package */ static class All<T> extends GatheredPromise<T, List<T>> {
+        /* package */ All(@NonNull List<Promise<T>> sources) {
+            super(sources, 0, TimingWheel.shared());
+        }
+
+        @Override
+        /* package */ int decide() {
+            if (mFailed > 0) {
+                return FAIL;
+            }
+            return mFulfilled == mStates.length ? COMPLETE : WAIT;
+        }
+
+        @Override
+        /* package */ void deliver() {
+            final List<T> values = new ArrayList<>(mValues.length);
+            for (Object value : mValues) {
+                //noinspection unchecked
+                values.add((T) value);
+            }
+            //noinspection unchecked
+            complete(Collections.unmodifiableList(values), (ResourceCleaner) new ValuesCleaner(mCleaners));
+        }
+
+        @NonNull
+        @Override
+        /* package */ RuntimeException failure() {
+            for (RuntimeException failure : mFailures) {
+                if (failure != null) {
+                    return failure;
+                }
+            }
+            throw new IllegalStateException("No failure");
+        }
+    }
+
+    /* package */ static class Any<T> extends GatheredPromise<T, T> {
+        /* package */ Any(@NonNull List<Promise<T>> sources) {
+            super(sources, 0, TimingWheel.shared());
+            if (sources.isEmpty()) {
+                throw new IllegalArgumentException("There must be at least one promise");
+            }
+        }
+
+        @Override
+        /* package */ int decide() {
+            if (mFulfilled > 0) {
+                return COMPLETE;
+            }
+            return mFailed == mStates.length ? FAIL : WAIT;
+        }
+
+        @Override
+        /* package */ void deliver() {
+            for (int i = 0; i < mStates.length; ++i) {
+                if (mStates[i] == FULFILLED) {
+                    //noinspection unchecked
+                    complete((T) mValues[i], (ResourceCleaner<T>) mCleaners[i]);
+                    return;
+                }
+            }
+        }
+
+        @NonNull
+        @Override
+        /* package */ RuntimeException failure() {
+            // Every call failed, the last one is reported
+            return mFailures[mFailures.length - 1];
+        }
+    }
+
+    /* package */ static class AllSettled<T> extends GatheredPromise<T, List<Settled<T>>> {
+        /* package */ AllSettled(@NonNull List<Promise<T>> sources, long deadlineNanos, @NonNull TimingWheel wheel) {
+            super(sources, deadlineNanos, wheel);
+        }
+
+        @Override
+        /* package */ int decide() {
+            return mFulfilled + mFailed == mStates.length ? COMPLETE : WAIT;
+        }
+
+        @Override
+        /* package */ void deliver() {
+            final List<Settled<T>> outcomes = new ArrayList<>(mStates.length);
+            for (int i = 0; i < mStates.length; ++i) {
+                switch (mStates[i]) {
+                    case FULFILLED:
+                        //noinspection unchecked
+                        outcomes.add(Settled.fulfilled((T) mValues[i]));
+                        break;
+                    case FAILED:
+                        outcomes.add(Settled.<T>failed(mFailures[i]));
+                        break;
+                    default:
+                        outcomes.add(Settled.<T>timedOut());
+                }
+            }
+            //noinspection unchecked
+            complete(Collections.unmodifiableList(outcomes), (ResourceCleaner) new ValuesCleaner(mCleaners));
+        }
+
+        @NonNull
+        @Override
+        /* package */ RuntimeException failure() {
+            throw new IllegalStateException("Settled promise doesn't fail");
+        }
+    }
+}
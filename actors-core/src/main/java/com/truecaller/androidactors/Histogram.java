@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of non-negative values, usually durations in nanoseconds. Recording doesn't
+ * allocate and never blocks. Buckets grow exponentially, every power of two is split into
+ * {@link #SUB_BUCKETS} linear buckets, so percentiles are accurate within 1/8 of the value.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class Histogram {
+
+    /* package */ static final int SUB_BUCKETS = 8;
+
+    private static final int SUB_BUCKET_BITS = 3;
+
+    /* package */ static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    @NonNull
+    private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKETS);
+
+    @NonNull
+    private final AtomicLong mCount = new AtomicLong();
+
+    @NonNull
+    private final AtomicLong mSum = new AtomicLong();
+
+    @NonNull
+    private final AtomicLong mMax = new AtomicLong();
+
+    /**
+     * @param value value to record, negative values are ignored
+     */
+    public void record(long value) {
+        if (value < 0) {
+            return;
+        }
+        mBuckets.incrementAndGet(bucketOf(value));
+        mCount.incrementAndGet();
+        mSum.addAndGet(value);
+
+        long max;
+        while (value > (max = mMax.get())) {
+            if (mMax.compareAndSet(max, value)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Copy current state. Values recorded while the snapshot is taken may be partially included
+     */
+    @NonNull
+    public Snapshot snapshot() {
+        final long[] buckets = new long[BUCKETS];
+        long count = 0;
+        for (int index = 0; index < BUCKETS; ++index) {
+            buckets[index] = mBuckets.get(index);
+            count += buckets[index];
+        }
+        return new Snapshot(buckets, count, mSum.get(), mMax.get());
+    }
+
+    /* package */ static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        final int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * @return the highest value which goes into the bucket
+     */
+    /* package */ static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        final int shift = bucket / SUB_BUCKETS - 1;
+        final long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    public static final class Snapshot {
+        @NonNull
+        private final long[] mBuckets;
+
+        private final long mCount;
+
+        private final long mSum;
+
+        private final long mMax;
+
+        private Snapshot(@NonNull long[] buckets, long count, long sum, long max) {
+            mBuckets = buckets;
+            mCount = count;
+            mSum = sum;
+            mMax = max;
+        }
+
+        public long getCount() {
+            return mCount;
+        }
+
+        public long getSum() {
+            return mSum;
+        }
+
+        public long getMax() {
+            return mMax;
+        }
+
+        public double getMean() {
+            return mCount == 0 ? 0 : (double) mSum / mCount;
+        }
+
+        /**
+         * @param percentile percentile in range 0..100
+         * @return value not exceeded by the given percent of recorded values, 0 if nothing was recorded
+         */
+        public long getPercentile(double percentile) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("Percentile must be in range 0..100");
+            }
+            if (mCount == 0) {
+                return 0;
+            }
+
+            final long rank = Math.max(1, (long) Math.ceil(mCount * percentile / 100));
+            long seen = 0;
+            for (int index = 0; index < mBuckets.length; ++index) {
+                seen += mBuckets[index];
+                if (seen >= rank) {
+                    return Math.min(upperBoundOf(index), mMax);
+                }
+            }
+            return mMax;
+        }
+
+        @Override
+        public String toString() {
+            return "{count=" + mCount + ", mean=" + (long) getMean() + ", p50=" + getPercentile(50)
+                    + ", p99=" + getPercentile(99) + ", max=" + mMax + "}";
+        }
+    }
+}
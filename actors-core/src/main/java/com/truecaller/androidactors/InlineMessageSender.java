@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Sender which can run a message right away when it is called from the actor's own thread.
+ * Caller waiting for the result there would otherwise wait for itself forever.
+ */
+/* package */ interface InlineMessageSender extends MessageSender {
+    /**
+     * Message is invoked on the calling thread, ahead of calls waiting in the mailbox
+     *
+     * @return false if the caller is not on the actor's thread, message is not delivered then
+     */
+    boolean deliverInline(@NonNull Message message);
+}
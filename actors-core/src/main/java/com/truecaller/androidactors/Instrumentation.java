@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Process-wide call instrumentation. The observer sees calls of all actor threads, no matter which
+ * builder created them. Without observer the only cost on the hot path is reading a volatile field.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class Instrumentation {
+
+    @Nullable
+    private static volatile ActorsObserver sObserver = null;
+
+    @NonNull
+    private static volatile ThreadCpuClock sCpuClock = ThreadCpuClock.createDefault();
+
+    private Instrumentation() {
+    }
+
+    /**
+     * @return currently installed observer, null if calls aren't observed
+     */
+    @Nullable
+    public static ActorsObserver observer() {
+        return sObserver;
+    }
+
+    /**
+     * Replace the observer of all calls. Use {@link CompositeActorsObserver} to install several ones
+     *
+     * @param observer observer of all calls, null to stop observing
+     */
+    public static void install(@Nullable ActorsObserver observer) {
+        sObserver = observer;
+    }
+
+    /* package */ static long currentThreadCpuNanos() {
+        return sCpuClock.currentThreadCpuNanos();
+    }
+
+    /**
+     * Platform specific clock, Android installs the one based on {@code android.os.Debug}
+     */
+    /* package */ static void setCpuClock(@NonNull ThreadCpuClock clock) {
+        sCpuClock = clock;
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Actor thread which doesn't use any locks on the way from the caller to the actor.
+ * All calls go to the lock-free mailbox which is drained by a dedicated consumer thread.
+ * Consumer thread parks itself when mailbox is empty and stops when it was idle longer
+ * than stop delay. Next call starts a new consumer thread.
+ */
+/* package */ class LockFreeActorThread implements PrioritizedActorThread, WatchableActorThread {
+
+    /* package */ static final long NO_DELAY = -1L;
+
+    @VisibleForTesting
+    /* package */ static final int STATE_STOPPED = 0;
+
+    @VisibleForTesting
+    /* package */ static final int STATE_RUNNING = 1;
+
+    @VisibleForTesting
+    /* package */ static final int STATE_PARKED = 2;
+
+    @NonNull
+    private final ProxyFactory mProxyFactory;
+
+    @NonNull
+    private final FailureHandler mFailureHandler;
+
+    @NonNull
+    private final String mThreadName;
+
+    private final long mStopDelay;
+
+    @NonNull
+    private final TransactionQueue mMailbox = new TransactionQueue();
+
+    // Consumer side only, transactions taken from the mailbox and ordered by priority
+    @NonNull
+    private final PriorityMailbox mPending = new PriorityMailbox();
+
+    @VisibleForTesting
+    @NonNull
+    /* package */ final AtomicInteger mState = new AtomicInteger(STATE_STOPPED);
+
+    @VisibleForTesting
+    @Nullable
+    /* package */ volatile Thread mConsumer;
+
+    @NonNull
+    private final ThreadPriority.Tracker mPriority;
+
+    @Nullable
+    private final MailboxLimiter mLimiter;
+
+    @Nullable
+    private final ThreadFactory mThreadFactory;
+
+    /* package */ LockFreeActorThread(@NonNull ProxyFactory proxyFactory, @NonNull FailureHandler failureHandler,
+                                      @NonNull String threadName, long stopDelay) {
+        this(proxyFactory, failureHandler, threadName, stopDelay, ThreadPriority.DEFAULT);
+    }
+
+    /* package */ LockFreeActorThread(@NonNull ProxyFactory proxyFactory, @NonNull FailureHandler failureHandler,
+                                      @NonNull String threadName, long stopDelay, int priority) {
+        this(proxyFactory, failureHandler, threadName, stopDelay, priority, null);
+    }
+
+    /* package */ LockFreeActorThread(@NonNull ProxyFactory proxyFactory, @NonNull FailureHandler failureHandler,
+                                      @NonNull String threadName, long stopDelay, int priority,
+                                      @Nullable MailboxConfig mailbox) {
+        this(proxyFactory, failureHandler, threadName, stopDelay, priority, mailbox, null);
+    }
+
+    /**
+     * @param threadFactory factory of consumer threads, null to start platform threads named after the actor thread
+     */
+    /* package */ LockFreeActorThread(@NonNull ProxyFactory proxyFactory, @NonNull FailureHandler failureHandler,
+                                      @NonNull String threadName, long stopDelay, int priority,
+                                      @Nullable MailboxConfig mailbox, @Nullable ThreadFactory threadFactory) {
+        mThreadFactory = threadFactory;
+        mLimiter = MailboxLimiter.create(mailbox);
+        mPriority = new ThreadPriority.Tracker(priority);
+        mProxyFactory = proxyFactory;
+        mFailureHandler = failureHandler;
+        mThreadName = threadName;
+        mStopDelay = stopDelay;
+    }
+
+    @NonNull
+    @Override
+    public <T> ActorRef<T> bind(@NonNull Class<T> cls, @NonNull T impl) {
+        return bind(cls, impl, null);
+    }
+
+    @NonNull
+    @Override
+    public <T> ActorRef<T> bind(@NonNull Class<T> cls, @NonNull T impl, @Nullable Supervisor supervisor) {
+        MessageSenderProxy<T> postman = new MessageSenderProxy<>(mFailureHandler, impl, supervisor);
+        return new ActorRefImpl<>(mProxyFactory, cls, postman, mLimiter);
+    }
+
+    @VisibleForTesting
+    /* package */ void sendTransaction(@NonNull Transaction transaction) {
+        final MailboxLimiter limiter = mLimiter;
+        if (limiter != null && !limiter.admit(transaction, Thread.currentThread() == mConsumer)) {
+            transaction.drop();
+            return;
+        }
+
+        mMailbox.offer(transaction);
+
+        while (true) {
+            switch (mState.get()) {
+                case STATE_RUNNING:
+                    // Consumer will check mailbox before parking
+                    return;
+                case STATE_PARKED:
+                    if (mState.compareAndSet(STATE_PARKED, STATE_RUNNING)) {
+                        LockSupport.unpark(mConsumer);
+                        return;
+                    }
+                    break;
+                case STATE_STOPPED:
+                    if (mState.compareAndSet(STATE_STOPPED, STATE_RUNNING)) {
+                        startConsumer();
+                        return;
+                    }
+                    break;
+            }
+        }
+    }
+
+    @Override
+    public void setThreadPriority(int priority) {
+        // Applied to the running consumer right away, new consumer applies it when it starts
+        mPriority.set(priority);
+    }
+
+    @Override
+    public int getThreadPriority() {
+        return mPriority.get();
+    }
+
+    private void startConsumer() {
+        final ThreadFactory factory = mThreadFactory;
+        Thread consumer = factory == null
+                ? new Thread(new Consumer(), mThreadName) : factory.newThread(new Consumer());
+        mConsumer = consumer;
+        consumer.start();
+    }
+
+    private void consume() {
+        final long stopDelay = TimeUnit.MILLISECONDS.toNanos(mStopDelay);
+        long idleDeadline = 0;
+        boolean idle = false;
+
+        while (true) {
+            mPending.drain(mMailbox, mLimiter);
+            if (mLimiter != null) {
+                // Producers never touch pending transactions, so oldest ones are dropped here
+                mLimiter.trim(mPending);
+            }
+            Transaction transaction = mPending.poll();
+            if (transaction != null) {
+                idle = false;
+                if (mLimiter != null) {
+                    mLimiter.release(transaction);
+                }
+                transaction.execute();
+                continue;
+            }
+
+            if (!mMailbox.isEmpty()) {
+                // Producer is in the middle of adding new transaction
+                Thread.yield();
+                continue;
+            }
+
+            if (!idle) {
+                idle = true;
+                idleDeadline = System.nanoTime() + stopDelay;
+            }
+
+            mState.set(STATE_PARKED);
+            if (!mMailbox.isEmpty()) {
+                mState.compareAndSet(STATE_PARKED, STATE_RUNNING);
+                continue;
+            }
+
+            if (mStopDelay == NO_DELAY) {
+                LockSupport.park(this);
+                continue;
+            }
+
+            final long timeout = idleDeadline - System.nanoTime();
+            if (timeout > 0) {
+                LockSupport.parkNanos(this, timeout);
+                continue;
+            }
+
+            if (mState.compareAndSet(STATE_PARKED, STATE_STOPPED)) {
+                if (mMailbox.isEmpty() || !mState.compareAndSet(STATE_STOPPED, STATE_RUNNING)) {
+                    // Next call will start new consumer
+                    return;
+                }
+                // Transaction came right after we stopped, continue work
+                idle = false;
+            }
+        }
+    }
+
+    private void onConsumerCrashed() {
+        // Pending transactions belong to the consumer, the next one may be running once state is stopped
+        final boolean pending = !mPending.isEmpty();
+        mState.set(STATE_STOPPED);
+        if ((pending || !mMailbox.isEmpty()) && mState.compareAndSet(STATE_STOPPED, STATE_RUNNING)) {
+            startConsumer();
+        }
+    }
+
+    private class Consumer implements Runnable {
+        @Override
+        public void run() {
+            boolean finished = false;
+            mPriority.attachCurrent();
+            try {
+                consume();
+                finished = true;
+            } finally {
+                mPriority.detachCurrent();
+                if (!finished) {
+                    // Failure handler decided to throw, don't leave mailbox without consumer
+                    onConsumerCrashed();
+                }
+            }
+        }
+    }
+
+    private class MessageSenderProxy<T> implements InlineMessageSender {
+
+        @NonNull
+        private final FailureHandler mFailureHandler;
+
+        @NonNull
+        private final T mActorImpl;
+
+        @Nullable
+        private final Supervisor mSupervisor;
+
+        private MessageSenderProxy(@NonNull FailureHandler failureHandler, @NonNull T actorImpl,
+                                   @Nullable Supervisor supervisor) {
+            mActorImpl = actorImpl;
+            mFailureHandler = failureHandler;
+            mSupervisor = supervisor;
+        }
+
+        @Override
+        public void deliver(@NonNull Message message) {
+            Transaction transaction = Transaction.<T>obtain(mActorImpl, message, mFailureHandler, mSupervisor);
+            sendTransaction(transaction);
+        }
+
+        @Override
+        public boolean deliverInline(@NonNull Message message) {
+            if (Thread.currentThread() != mConsumer) {
+                return false;
+            }
+            Transaction.<T>obtain(mActorImpl, message, mFailureHandler, mSupervisor).execute();
+            return true;
+        }
+    }
+}
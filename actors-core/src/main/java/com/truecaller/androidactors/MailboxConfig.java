@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits of the actor's mailbox. Mailbox is limited by number of waiting calls and, optionally,
+ * by their estimated weight. When a call doesn't fit into the mailbox, {@link OverflowPolicy} decides
+ * what happens with it.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class MailboxConfig {
+
+    public enum OverflowPolicy {
+        /**
+         * Caller waits until there is space in the mailbox or block timeout expires, after that
+         * the call is rejected. Calls made from the actor's own thread are rejected right away
+         */
+        BLOCK,
+        /**
+         * New call is silently dropped
+         */
+        DROP_NEWEST,
+        /**
+         * Oldest call of the lowest priority is dropped to make space for the new one.
+         * Mailboxes of lock-free and pooled threads drop calls when the actor takes the next
+         * call, so they can exceed limits while actor is busy
+         */
+        DROP_OLDEST,
+        /**
+         * Caller gets {@link MailboxOverflowException}
+         */
+        REJECT
+    }
+
+    /* package */ static final long NO_TIMEOUT = -1L;
+
+    /* package */ final int mCapacity;
+
+    /* package */ final long mMaxWeight;
+
+    @Nullable
+    /* package */ final MessageWeigher mWeigher;
+
+    @NonNull
+    /* package */ final OverflowPolicy mPolicy;
+
+    /* package */ final long mBlockTimeoutNanos;
+
+    private MailboxConfig(@NonNull Builder builder) {
+        mCapacity = builder.mCapacity;
+        mMaxWeight = builder.mMaxWeight;
+        mWeigher = builder.mWeigher;
+        mPolicy = builder.mPolicy;
+        mBlockTimeoutNanos = builder.mBlockTimeoutNanos;
+    }
+
+    /**
+     * @param capacity max number of calls waiting in the mailbox
+     */
+    @NonNull
+    public static Builder builder(int capacity) {
+        return new Builder(capacity);
+    }
+
+    @Override
+    public String toString() {
+        return "MailboxConfig{capacity=" + mCapacity + ", maxWeight=" + mMaxWeight + ", policy=" + mPolicy + "}";
+    }
+
+    public static final class Builder {
+        private final int mCapacity;
+
+        private long mMaxWeight = Long.MAX_VALUE;
+
+        @Nullable
+        private MessageWeigher mWeigher = null;
+
+        @NonNull
+        private OverflowPolicy mPolicy = OverflowPolicy.REJECT;
+
+        private long mBlockTimeoutNanos = NO_TIMEOUT;
+
+        private Builder(int capacity) {
+            if (capacity <= 0) {
+                throw new IllegalArgumentException("Mailbox capacity must be positive");
+            }
+            mCapacity = capacity;
+        }
+
+        /**
+         * @param maxWeight max estimated weight of calls waiting in the mailbox, in bytes. One call heavier
+         *                  than the limit is still accepted by the empty mailbox
+         * @param weigher estimates weight of every call
+         */
+        @NonNull
+        public Builder setMaxWeight(long maxWeight, @NonNull MessageWeigher weigher) {
+            if (maxWeight <= 0) {
+                throw new IllegalArgumentException("Max weight must be positive");
+            }
+            mMaxWeight = maxWeight;
+            mWeigher = weigher;
+            return this;
+        }
+
+        /**
+         * @param policy what to do with calls which don't fit into the mailbox, {@link OverflowPolicy#REJECT} by default
+         */
+        @NonNull
+        public Builder setOverflowPolicy(@NonNull OverflowPolicy policy) {
+            mPolicy = policy;
+            return this;
+        }
+
+        /**
+         * @param timeout how long {@link OverflowPolicy#BLOCK} waits for space in the mailbox, forever by default
+         */
+        @NonNull
+        public Builder setBlockTimeout(long timeout, @NonNull TimeUnit unit) {
+            if (timeout < 0) {
+                throw new IllegalArgumentException("Block timeout can't be negative");
+            }
+            mBlockTimeoutNanos = unit.toNanos(timeout);
+            return this;
+        }
+
+        @NonNull
+        public MailboxConfig build() {
+            return new MailboxConfig(this);
+        }
+    }
+}
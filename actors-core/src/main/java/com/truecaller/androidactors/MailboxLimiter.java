@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of the size and weight of a bounded mailbox and applies its {@link MailboxConfig.OverflowPolicy}.
+ * Mailbox calls {@link #admit(Transaction, boolean)} before it puts transaction into the queue and
+ * {@link #release(Transaction)} when transaction leaves the queue. Producers don't take any locks
+ * unless they have to wait for the space in the mailbox.
+ */
+/* package */ class MailboxLimiter implements MailboxStatus {
+
+    @NonNull
+    private final MailboxConfig mConfig;
+
+    @NonNull
+    private final AtomicInteger mSize = new AtomicInteger(0);
+
+    @NonNull
+    private final AtomicLong mWeight = new AtomicLong(0);
+
+    @NonNull
+    private final Object mLock = new Object();
+
+    // Number of blocked producers, guarded by mLock for writes
+    private volatile int mWaiters = 0;
+
+    /* package */ MailboxLimiter(@NonNull MailboxConfig config) {
+        mConfig = config;
+    }
+
+    @Nullable
+    /* package */ static MailboxLimiter create(@Nullable MailboxConfig config) {
+        return config == null ? null : new MailboxLimiter(config);
+    }
+
+    /**
+     * Reserve space for the transaction
+     *
+     * @param consumer true if caller is the thread which consumes the mailbox, such callers never wait
+     * @return true if transaction has to be put into the mailbox, false if it has to be dropped
+     * @throws MailboxOverflowException if transaction was rejected
+     */
+    /* package */ boolean admit(@NonNull Transaction transaction, boolean consumer) {
+        final MessageWeigher weigher = mConfig.mWeigher;
+        final long weight = weigher == null ? 0 : weigher.weigh(transaction.message);
+        transaction.weight = weight;
+
+        switch (mConfig.mPolicy) {
+            case DROP_OLDEST:
+                // Mailbox makes space after transaction is added
+                mSize.incrementAndGet();
+                mWeight.addAndGet(weight);
+                return true;
+            case DROP_NEWEST:
+                return tryReserve(weight);
+            case BLOCK:
+                if (tryReserve(weight)) {
+                    return true;
+                }
+                if (!consumer) {
+                    await(transaction, weight);
+                    return true;
+                }
+                // Actor calls itself, it would wait forever
+                throw overflow(transaction);
+            case REJECT:
+            default:
+                if (tryReserve(weight)) {
+                    return true;
+                }
+                throw overflow(transaction);
+        }
+    }
+
+    /* package */ void release(@NonNull Transaction transaction) {
+        mSize.decrementAndGet();
+        mWeight.addAndGet(-transaction.weight);
+        if (mWaiters > 0) {
+            synchronized (mLock) {
+                mLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * @return true if mailbox has to drop transactions, only happens with {@link MailboxConfig.OverflowPolicy#DROP_OLDEST}
+     */
+    /* package */ boolean isOverflown() {
+        final int size = mSize.get();
+        return size > mConfig.mCapacity || (size > 1 && mWeight.get() > mConfig.mMaxWeight);
+    }
+
+    /**
+     * Drop oldest transactions of the lowest priority until mailbox fits into its limits
+     */
+    /* package */ void trim(@NonNull PriorityMailbox mailbox) {
+        while (isOverflown()) {
+            final Transaction oldest = mailbox.evict();
+            if (oldest == null) {
+                // Remaining transactions are still on the way to this mailbox
+                return;
+            }
+            release(oldest);
+            oldest.drop();
+        }
+    }
+
+    @Override
+    public int size() {
+        return mSize.get();
+    }
+
+    @Override
+    public long weight() {
+        return mWeight.get();
+    }
+
+    @Override
+    public int capacity() {
+        return mConfig.mCapacity;
+    }
+
+    @Override
+    public long maxWeight() {
+        return mConfig.mMaxWeight;
+    }
+
+    @Override
+    public boolean isFull() {
+        return mSize.get() >= mConfig.mCapacity || mWeight.get() >= mConfig.mMaxWeight;
+    }
+
+    @Override
+    public float fullness() {
+        final float bySize = (float) mSize.get() / mConfig.mCapacity;
+        final float byWeight = (float) mWeight.get() / mConfig.mMaxWeight;
+        return Math.min(1f, Math.max(bySize, byWeight));
+    }
+
+    private boolean tryReserve(long weight) {
+        while (true) {
+            final int size = mSize.get();
+            if (size >= mConfig.mCapacity) {
+                return false;
+            }
+            if (mSize.compareAndSet(size, size + 1)) {
+                break;
+            }
+        }
+
+        final long total = mWeight.addAndGet(weight);
+        if (total > mConfig.mMaxWeight && total != weight) {
+            // Doesn't fit by weight, but a single heavy call is still allowed into the empty mailbox
+            mSize.decrementAndGet();
+            mWeight.addAndGet(-weight);
+            return false;
+        }
+        return true;
+    }
+
+    private void await(@NonNull Transaction transaction, long weight) {
+        final long timeout = mConfig.mBlockTimeoutNanos;
+        final long deadline = System.nanoTime() + timeout;
+        boolean interrupted = false;
+        synchronized (mLock) {
+            ++mWaiters;
+            try {
+                while (!tryReserve(weight)) {
+                    if (timeout == MailboxConfig.NO_TIMEOUT) {
+                        mLock.wait();
+                        continue;
+                    }
+
+                    final long left = deadline - System.nanoTime();
+                    if (left <= 0) {
+                        throw overflow(transaction);
+                    }
+                    mLock.wait(left / 1000000L, (int) (left % 1000000L));
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            } finally {
+                --mWaiters;
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+            throw overflow(transaction);
+        }
+    }
+
+    @NonNull
+    private static MailboxOverflowException overflow(@NonNull Transaction transaction) {
+        return new MailboxOverflowException("Mailbox is full, call " + transaction.message + " was rejected");
+    }
+}
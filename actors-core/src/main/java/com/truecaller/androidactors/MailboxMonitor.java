@@ -0,0 +1,285 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Diagnostic view of the calls which were sent to actors but not started yet. Works the same way
+ * for every kind of actor thread, including Handler based ones.
+ * <pre>
+ * MailboxMonitor monitor = new MailboxMonitor();
+ * ActorThread ui = monitor.monitor(actors.ui());
+ * ...
+ * MailboxMonitor.Snapshot snapshot = monitor.snapshot(10);
+ * </pre>
+ * Only actors bound through the returned thread are monitored. Depth, age of the oldest call and
+ * number of pending calls per method are kept up to date on every send and start of a call, so
+ * reading them costs the same regardless of how many calls are pending and can be done every frame.
+ * Calls are described by their {@code toString()}, so parameters are hidden according to
+ * {@link SecureParameter}.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class MailboxMonitor {
+
+    // Nodes kept for reuse, the rest is left to GC
+    private static final int MAX_SPARE_CALLS = 64;
+
+    private final Object mLock = new Object();
+
+    // Pending calls in the order they were sent, guarded by mLock
+    @Nullable
+    private PendingCall mHead;
+
+    @Nullable
+    private PendingCall mTail;
+
+    @Nullable
+    private PendingCall mSpare;
+
+    private int mSpareCount;
+
+    // Number of pending calls per method id, guarded by mLock
+    @NonNull
+    private int[] mPending = new int[0];
+
+    private volatile int mDepth;
+
+    /**
+     * Monitor mailboxes of actors bound to the thread
+     *
+     * @param thread one of the threads created by the generated builder
+     * @return thread which binds actors under this monitor, actors bound to the original thread
+     *         are not monitored. It is a {@link PrioritizedActorThread} if the original thread is one
+     */
+    @NonNull
+    public ActorThread monitor(@NonNull ActorThread thread) {
+        return Supervisor.monitor(thread, this);
+    }
+
+    /**
+     * @return number of calls which were sent but not started yet
+     */
+    public int depth() {
+        return mDepth;
+    }
+
+    /**
+     * @return time the oldest pending call waits for, 0 if nothing is pending
+     */
+    public long oldestAge(@NonNull TimeUnit unit) {
+        synchronized (mLock) {
+            return mHead == null ? 0 : unit.convert(System.nanoTime() - mHead.mSentAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * @param maxCalls max number of pending calls to describe, starting from the oldest one, 0 to
+     *                 skip descriptions
+     */
+    @NonNull
+    public Snapshot snapshot(int maxCalls) {
+        if (maxCalls < 0) {
+            throw new IllegalArgumentException("Number of calls can't be negative");
+        }
+
+        final Map<String, Integer> methods = new LinkedHashMap<>();
+        final List<String> calls = new ArrayList<>(Math.min(maxCalls, 16));
+        final int depth;
+        final long oldestAge;
+        synchronized (mLock) {
+            depth = mDepth;
+            oldestAge = mHead == null ? 0 : System.nanoTime() - mHead.mSentAt;
+            for (int id = 0; id < mPending.length; ++id) {
+                if (mPending[id] != 0) {
+                    methods.put(nameOf(id), mPending[id]);
+                }
+            }
+            // Pending messages can't be delivered and recycled while the lock is held
+            for (PendingCall call = mHead; call != null && calls.size() < maxCalls; call = call.mNext) {
+                calls.add(call.mMessage.toString());
+            }
+        }
+        return new Snapshot(depth, TimeUnit.NANOSECONDS.toMillis(oldestAge),
+                Collections.unmodifiableMap(methods), Collections.unmodifiableList(calls));
+    }
+
+    /**
+     * Call was sent to the actor, has to be matched by {@link #onTaken(PendingCall)} when the call
+     * leaves the mailbox
+     */
+    @NonNull
+    /* package */ PendingCall onSent(@NonNull Message message, int methodId) {
+        final long now = System.nanoTime();
+        synchronized (mLock) {
+            PendingCall call = mSpare;
+            if (call != null) {
+                mSpare = call.mNext;
+                --mSpareCount;
+            } else {
+                call = new PendingCall();
+            }
+            call.mMessage = message;
+            call.mMethodId = methodId;
+            call.mSentAt = now;
+            call.mPrev = mTail;
+            call.mNext = null;
+            if (mTail == null) {
+                mHead = call;
+            } else {
+                mTail.mNext = call;
+            }
+            mTail = call;
+
+            if (methodId >= mPending.length) {
+                final int[] pending = new int[Math.max(methodId + 1, ActorMethods.count())];
+                System.arraycopy(mPending, 0, pending, 0, mPending.length);
+                mPending = pending;
+            }
+            ++mPending[methodId];
+            mDepth = mDepth + 1;
+            return call;
+        }
+    }
+
+    /**
+     * Call was started, dropped or superseded
+     */
+    /* package */ void onTaken(@NonNull PendingCall call) {
+        synchronized (mLock) {
+            if (call.mPrev == null) {
+                mHead = call.mNext;
+            } else {
+                call.mPrev.mNext = call.mNext;
+            }
+            if (call.mNext == null) {
+                mTail = call.mPrev;
+            } else {
+                call.mNext.mPrev = call.mPrev;
+            }
+
+            --mPending[call.mMethodId];
+            mDepth = mDepth - 1;
+
+            call.mMessage = null;
+            call.mPrev = null;
+            call.mNext = null;
+            if (mSpareCount < MAX_SPARE_CALLS) {
+                call.mNext = mSpare;
+                mSpare = call;
+                ++mSpareCount;
+            }
+        }
+    }
+
+    @NonNull
+    private static String nameOf(int methodId) {
+        final String name = ActorMethods.nameOf(methodId);
+        return name != null ? name : "unknown";
+    }
+
+    @Override
+    public String toString() {
+        return "MailboxMonitor{depth=" + mDepth + "}";
+    }
+
+    /**
+     * Node of the pending calls list, owned by the monitor
+     */
+    /* package */ static final class PendingCall {
+        @Nullable
+        private Message mMessage;
+
+        private int mMethodId;
+
+        private long mSentAt;
+
+        @Nullable
+        private PendingCall mPrev;
+
+        @Nullable
+        private PendingCall mNext;
+
+        private PendingCall() {
+        }
+    }
+
+    public static final class Snapshot {
+        private final int mDepth;
+
+        private final long mOldestAgeMillis;
+
+        @NonNull
+        private final Map<String, Integer> mPendingByMethod;
+
+        @NonNull
+        private final List<String> mCalls;
+
+        private Snapshot(int depth, long oldestAgeMillis, @NonNull Map<String, Integer> pendingByMethod,
+                         @NonNull List<String> calls) {
+            mDepth = depth;
+            mOldestAgeMillis = oldestAgeMillis;
+            mPendingByMethod = pendingByMethod;
+            mCalls = calls;
+        }
+
+        /**
+         * @return number of calls which were sent but not started yet
+         */
+        public int getDepth() {
+            return mDepth;
+        }
+
+        /**
+         * @return time the oldest pending call waits for, 0 if nothing is pending
+         */
+        public long getOldestAgeMillis() {
+            return mOldestAgeMillis;
+        }
+
+        /**
+         * @return number of pending calls keyed by "Interface.method", calls of unknown methods
+         *         are counted under "unknown"
+         */
+        @NonNull
+        public Map<String, Integer> getPendingByMethod() {
+            return mPendingByMethod;
+        }
+
+        /**
+         * @return descriptions of pending calls, oldest first
+         */
+        @NonNull
+        public List<String> getCalls() {
+            return mCalls;
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot{depth=" + mDepth + ", oldest=" + mOldestAgeMillis + "ms, methods="
+                    + mPendingByMethod + ", calls=" + mCalls + "}";
+        }
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Thrown when a call can't be put to the actor's mailbox because it is full, see {@link MailboxConfig}.
+ * Calls which return {@link Promise} also throw it from {@link Promise#get()} when they were dropped
+ * from the mailbox.
+ */
+public class MailboxOverflowException extends RejectedExecutionException {
+    /* package */ MailboxOverflowException(@NonNull String message) {
+        super(message);
+    }
+}
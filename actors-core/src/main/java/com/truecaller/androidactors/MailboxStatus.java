@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+/**
+ * Current state of a bounded mailbox. Producers can check it to slow down before
+ * mailbox overflows. Values are changing all the time, so they are only estimations.
+ */
+public interface MailboxStatus {
+    /**
+     * @return number of calls waiting in the mailbox
+     */
+    int size();
+
+    /**
+     * @return estimated weight of calls waiting in the mailbox, 0 if there is no {@link MessageWeigher}
+     */
+    long weight();
+
+    /**
+     * @return max number of calls in the mailbox
+     */
+    int capacity();
+
+    /**
+     * @return max weight of calls in the mailbox
+     */
+    long maxWeight();
+
+    /**
+     * @return true if next call would overflow the mailbox
+     */
+    boolean isFull();
+
+    /**
+     * @return how full the mailbox is, from 0 (empty) to 1 (full), by count or by weight whichever is bigger
+     */
+    float fullness();
+}
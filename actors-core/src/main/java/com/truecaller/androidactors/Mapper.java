@@ -16,18 +16,18 @@
 
 package com.truecaller.androidactors;
 
-import org.junit.Assert;
-import org.junit.Test;
+import androidx.annotation.Nullable;
 
-public class ActorRefImplTest {
+/**
+ * Conversion of a promised value, see {@link Promise#map(Mapper)}
+ *
+ * @param <T> source type
+ * @param <R> result type
+ */
+public interface Mapper<T, R> {
     /**
-     * Just check that reference is always the same
+     * @param value value to convert, the mapper owns it and is responsible for releasing its
+     *              resources if there are any
      */
-    @Test
-    public void referenceTest() {
-        Long item = 12000000L;
-        ActorRefImpl<Long> ref = new ActorRefImpl<>(item);
-        Assert.assertSame(item, ref.tell());
-        Assert.assertSame(item, ref.tell());
-    }
+    R map(@Nullable T value);
 }
@@ -0,0 +1,245 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+public abstract class MessageBase<T, R> implements Message<T, R> {
+
+    /**
+     * Capacity of the pool for every generated message class of void methods
+     */
+    protected static final int DEFAULT_POOL_SIZE = 16;
+
+    @Nullable
+    /* package */ ActorInvokeException mExceptionTemplate;
+
+    private int mPriority = Priority.NORMAL;
+
+    private int mCoalesce = Coalesce.NONE;
+
+    @Nullable
+    private CancellationToken mCancellationToken = null;
+
+    /**
+     * @param exception exception template with captured call site, null if call site was not captured
+     */
+    protected MessageBase(@Nullable ActorInvokeException exception) {
+        mExceptionTemplate = exception;
+    }
+
+    protected MessageBase() {
+        this(null);
+    }
+
+    protected Promise<R> verifyResult(Promise<R> result) {
+        if (result == null) {
+            AssertionError exception = new AssertionError("Actor methods are not allowed to return null");
+            //noinspection UnnecessaryInitCause, have to support Java 1.6
+            exception.initCause(exception());
+            throw exception;
+        }
+        return result;
+    }
+
+    @NonNull
+    @Override
+    public ActorInvokeException exception() {
+        ActorInvokeException exception = mExceptionTemplate;
+        if (exception == null) {
+            // Call site wasn't captured, template is only needed when something went wrong
+            exception = new ActorMethodInvokeException(false);
+            mExceptionTemplate = exception;
+        }
+        return exception;
+    }
+
+    /**
+     * Set exception template for the reused message
+     */
+    protected void setExceptionTemplate(@Nullable ActorInvokeException exception) {
+        mExceptionTemplate = exception;
+    }
+
+    /**
+     * @return priority of this call, one of {@link Priority} levels
+     */
+    public int getPriority() {
+        return mPriority;
+    }
+
+    /**
+     * Set priority of this call. Generated messages call it for methods annotated by {@link Priority}
+     */
+    protected void setPriority(int priority) {
+        mPriority = priority;
+    }
+
+    /* package */ static int priorityOf(@NonNull Message<?, ?> message) {
+        final MessageBase base = unwrap(message);
+        return base != null ? base.mPriority : Priority.NORMAL;
+    }
+
+    /**
+     * Id of the actor method this message calls, see {@link ActorMethods}. Generated messages override it
+     */
+    public int getMethodId() {
+        return ActorMethods.UNKNOWN;
+    }
+
+    /* package */ static int methodIdOf(@NonNull Message<?, ?> message) {
+        final MessageBase base = unwrap(message);
+        return base != null ? base.getMethodId() : ActorMethods.UNKNOWN;
+    }
+
+    /* package */ static void setPriority(@NonNull Message<?, ?> message, int priority) {
+        final MessageBase base = unwrap(message);
+        if (base != null) {
+            base.setPriority(priority);
+        }
+    }
+
+    /**
+     * Allow newer calls of the same method to replace this one while it waits in the mailbox.
+     * Generated messages call it for methods annotated by {@link Coalesce}
+     *
+     * @param mode one of {@link Coalesce} modes
+     */
+    protected void setCoalesce(int mode) {
+        mCoalesce = mode;
+    }
+
+    /**
+     * Generated messages of methods with {@link Coalesce#SAME_ARGUMENTS} mode compare their arguments here
+     *
+     * @param other message of the same method
+     */
+    protected boolean hasSameArguments(@NonNull MessageBase<T, R> other) {
+        return true;
+    }
+
+    protected static boolean equal(@Nullable Object first, @Nullable Object second) {
+        return first == null ? second == null : first.equals(second);
+    }
+
+    /**
+     * @return true if the incoming message can take the place of the pending one
+     */
+    /* package */ static boolean coalesces(@NonNull Message<?, ?> pending, @NonNull Message<?, ?> incoming) {
+        final MessageBase next = unwrap(incoming);
+        if (next == null || next.mCoalesce == Coalesce.NONE) {
+            return false;
+        }
+
+        final MessageBase previous = unwrap(pending);
+        if (previous == null || previous.getClass() != next.getClass()
+                || (pending instanceof PromiseProxy) != (incoming instanceof PromiseProxy)) {
+            return false;
+        }
+
+        //noinspection unchecked
+        return next.mCoalesce == Coalesce.LATEST || next.hasSameArguments(previous);
+    }
+
+    /* package */ static boolean isCoalescing(@NonNull Message<?, ?> message) {
+        final MessageBase base = unwrap(message);
+        return base != null && base.mCoalesce != Coalesce.NONE;
+    }
+
+    /**
+     * Generated messages of methods with a {@link CancellationToken} parameter pass the caller's token here
+     *
+     * @return token for the actor's method, a new one if the caller passed null
+     */
+    @NonNull
+    protected CancellationToken bindCancellationToken(@Nullable CancellationToken token) {
+        mCancellationToken = token != null ? token : new CancellationToken();
+        return mCancellationToken;
+    }
+
+    @Nullable
+    /* package */ static CancellationToken cancellationTokenOf(@NonNull Message<?, ?> message) {
+        final MessageBase base = unwrap(message);
+        return base != null ? base.mCancellationToken : null;
+    }
+
+    /**
+     * @return true if the call doesn't have to be made anymore
+     */
+    /* package */ static boolean isCancelled(@NonNull Message<?, ?> message) {
+        if (message instanceof PromiseProxy) {
+            return ((PromiseProxy) message).isCancelled();
+        }
+        final CancellationToken token = cancellationTokenOf(message);
+        return token != null && token.isCancelled();
+    }
+
+    @Nullable
+    private static MessageBase unwrap(@NonNull Message<?, ?> message) {
+        if (message instanceof PromiseProxy) {
+            // Calls which return promise are delivered wrapped
+            message = ((PromiseProxy) message).mMessage;
+        } else if (message instanceof PeriodicMessage) {
+            message = ((PeriodicMessage) message).mMessage;
+        }
+        return message instanceof MessageBase ? (MessageBase) message : null;
+    }
+
+    /**
+     * Called by the actor thread when message was successfully invoked and isn't referenced anymore.
+     * Generated messages for void methods return themselves to their pool here.
+     */
+    public void recycle() {
+    }
+
+    /* package */ static void recycleDelivered(@NonNull Message<?, ?> message) {
+        if (message instanceof MessageBase) {
+            ((MessageBase) message).mCancellationToken = null;
+            ((MessageBase) message).recycle();
+        }
+    }
+
+    @NonNull
+    protected static String logParam(Object parameter, int level) {
+        if (level == SecureParameter.LEVEL_NO_INFO) {
+            return "<value>";
+        }
+
+        if (parameter == null) {
+            return "null";
+        }
+
+        if (parameter instanceof CharSequence) {
+            if (((CharSequence) parameter).length() == 0) {
+                return "''";
+            }
+
+            if (level == SecureParameter.LEVEL_NULL_OR_EMPTY_STRING) {
+                return "<not empty string>";
+            }
+
+            return "'" + parameter + "'";
+        }
+
+        if (level != SecureParameter.LEVEL_FULL_INFO) {
+            return "<not null value>";
+        }
+
+        return String.valueOf(parameter);
+    }
+}
@@ -18,19 +18,15 @@ package com.truecaller.androidactors;
 
 import androidx.annotation.NonNull;
 
-import java.util.concurrent.ThreadFactory;
-
-/* package */ class ActorThreadPoolThreadsFactory implements ThreadFactory {
-
-    @NonNull
-    private final String mName;
-
-    /* package */ ActorThreadPoolThreadsFactory(@NonNull String name) {
-        mName = name;
-    }
-
-    @Override
-    public Thread newThread(Runnable r) {
-        return new Thread(r, mName);
-    }
+/**
+ * Estimates how much memory a call holds while it waits in the mailbox, see
+ * {@link MailboxConfig.Builder#setMaxWeight(long, MessageWeigher)}
+ */
+public interface MessageWeigher {
+    /**
+     * Called on the caller's thread for every call before it is put to the mailbox, keep it cheap
+     *
+     * @return estimated size of the call in bytes
+     */
+    long weigh(@NonNull Message<?, ?> message);
 }
@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free pool of reusable objects. Free objects are kept in an array split into stripes,
+ * every thread starts looking for a free object (or for a free slot) in its own stripe and
+ * continues with the others if it is empty (or full). It keeps threads out of each other's way
+ * and still lets objects travel from the consumer thread, which usually recycles them, to
+ * producer threads, which obtain them.
+ *
+ * Pool keeps hit/miss counters, use them to find the right capacity for your load.
+ *
+ * @param <T> type of pooled objects
+ */
+@SuppressWarnings("WeakerAccess")
+public final class ObjectPool<T> {
+
+    /**
+     * Creates new objects when pool is empty
+     */
+    public interface Factory<T> {
+        @NonNull
+        T create();
+    }
+
+    // Counters are spread by cache lines to avoid false sharing between stripes
+    private static final int COUNTERS_STRIDE = 16;
+    private static final int COUNTER_HIT = 0;
+    private static final int COUNTER_MISS = 1;
+    private static final int COUNTER_DROP = 2;
+
+    private static final int MAX_STRIPES = 8;
+
+    @NonNull
+    private final Factory<T> mFactory;
+
+    @NonNull
+    private volatile Slots<T> mSlots;
+
+    /**
+     * @param factory factory for new objects
+     * @param capacity max number of free objects kept by the pool
+     */
+    public ObjectPool(@NonNull Factory<T> factory, int capacity) {
+        mFactory = factory;
+        mSlots = new Slots<>(capacity);
+    }
+
+    /**
+     * @return object from the pool or a new one if the pool is empty
+     */
+    @NonNull
+    public T acquire() {
+        final Slots<T> slots = mSlots;
+        final int stripe = slots.stripe();
+        final T item = slots.take(stripe);
+        if (item != null) {
+            slots.count(stripe, COUNTER_HIT);
+            return item;
+        }
+
+        slots.count(stripe, COUNTER_MISS);
+        return mFactory.create();
+    }
+
+    /**
+     * Return object to the pool. Caller must not use object after this call.
+     *
+     * @param item object to return
+     * @return false if pool is full and the object was dropped
+     */
+    public boolean release(@NonNull T item) {
+        final Slots<T> slots = mSlots;
+        final int stripe = slots.stripe();
+        if (slots.put(stripe, item)) {
+            return true;
+        }
+
+        slots.count(stripe, COUNTER_DROP);
+        return false;
+    }
+
+    /**
+     * Change pool capacity. All free objects will be dropped and counters reset.
+     *
+     * @param capacity max number of free objects kept by the pool
+     */
+    public void setCapacity(int capacity) {
+        mSlots = new Slots<>(capacity);
+    }
+
+    public int getCapacity() {
+        return mSlots.items.length();
+    }
+
+    /**
+     * Drop all free objects and reset counters
+     */
+    public void clear() {
+        setCapacity(getCapacity());
+    }
+
+    /**
+     * @return number of {@link #acquire()} calls which were served from the pool
+     */
+    public long getHitCount() {
+        return mSlots.sum(COUNTER_HIT);
+    }
+
+    /**
+     * @return number of {@link #acquire()} calls which had to create a new object
+     */
+    public long getMissCount() {
+        return mSlots.sum(COUNTER_MISS);
+    }
+
+    /**
+     * @return number of {@link #release(Object)} calls which found the pool full
+     */
+    public long getDropCount() {
+        return mSlots.sum(COUNTER_DROP);
+    }
+
+    @Override
+    public String toString() {
+        return "ObjectPool{capacity=" + getCapacity() + ", hits=" + getHitCount() + ", misses=" + getMissCount()
+                + ", drops=" + getDropCount() + "}";
+    }
+
+    private static class Slots<T> {
+        @NonNull
+        final AtomicReferenceArray<T> items;
+
+        @NonNull
+        final AtomicLongArray counters;
+
+        final int stripes;
+
+        final int stripeSize;
+
+        Slots(int capacity) {
+            if (capacity < 0) {
+                throw new IllegalArgumentException("Capacity can't be negative");
+            }
+            items = new AtomicReferenceArray<>(capacity);
+            stripes = Math.max(1, Math.min(capacity, Math.min(MAX_STRIPES, Runtime.getRuntime().availableProcessors())));
+            stripeSize = Math.max(1, capacity / stripes);
+            counters = new AtomicLongArray(stripes * COUNTERS_STRIDE);
+        }
+
+        int stripe() {
+            return (int) (Thread.currentThread().getId() % stripes);
+        }
+
+        @Nullable
+        T take(int stripe) {
+            final int capacity = items.length();
+            final int start = Math.min(stripe * stripeSize, capacity);
+            for (int index = 0; index < capacity; ++index) {
+                final int slot = (start + index) % capacity;
+                if (items.get(slot) != null) {
+                    T item = items.getAndSet(slot, null);
+                    if (item != null) {
+                        return item;
+                    }
+                }
+            }
+            return null;
+        }
+
+        boolean put(int stripe, @NonNull T item) {
+            final int capacity = items.length();
+            final int start = Math.min(stripe * stripeSize, capacity);
+            for (int index = 0; index < capacity; ++index) {
+                final int slot = (start + index) % capacity;
+                if (items.get(slot) == null && items.compareAndSet(slot, null, item)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void count(int stripe, int counter) {
+            counters.incrementAndGet(stripe * COUNTERS_STRIDE + counter);
+        }
+
+        long sum(int counter) {
+            long result = 0;
+            for (int stripe = 0; stripe < stripes; ++stripe) {
+                result += counters.get(stripe * COUNTERS_STRIDE + counter);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Message which is sent to the actor over and over again, so it can't be returned to the pool
+ * after the first invocation
+ */
+/* package */ class PeriodicMessage<T, R> implements Message<T, R> {
+    @NonNull
+    /* package */ final Message<T, R> mMessage;
+
+    /* package */ PeriodicMessage(@NonNull Message<T, R> message) {
+        mMessage = message;
+    }
+
+    @Nullable
+    @Override
+    public Promise<R> invoke(@NonNull T target) {
+        return mMessage.invoke(target);
+    }
+
+    @NonNull
+    @Override
+    public ActorInvokeException exception() {
+        return mMessage.exception();
+    }
+
+    @Override
+    public String toString() {
+        return mMessage.toString();
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Actor thread on top of the thread pool created by the library, so it can control priority of pool threads
+ */
+/* package */ class PooledActorThread extends ExecutorActorThread implements PrioritizedActorThread {
+
+    @NonNull
+    private final ElasticThreadPoolExecutor mExecutor;
+
+    /* package */ PooledActorThread(@NonNull ElasticThreadPoolExecutor executor, @NonNull ProxyFactory proxyFactory,
+                                    @NonNull FailureHandler failureHandler, int throughput,
+                                    @Nullable MailboxConfig mailbox) {
+        super(executor, proxyFactory, failureHandler, throughput, mailbox);
+        mExecutor = executor;
+    }
+
+    @Override
+    public void setThreadPriority(int priority) {
+        mExecutor.setThreadPriority(priority);
+    }
+
+    @Override
+    public int getThreadPriority() {
+        return mExecutor.getThreadPriority();
+    }
+}
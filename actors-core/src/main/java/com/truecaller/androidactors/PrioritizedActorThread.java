@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+/**
+ * Actor thread which owns its OS threads and can change their priority at runtime,
+ * for example to boost an actor while UI waits for its result and to drop it back afterwards.
+ */
+@SuppressWarnings("unused")
+public interface PrioritizedActorThread extends ActorThread {
+    /**
+     * @param priority Linux priority of the thread, one of {@code android.os.Process} THREAD_PRIORITY_*
+     *                 constants or a custom value from -20 (highest) to 19 (lowest). Ignored outside of Android
+     */
+    void setThreadPriority(int priority);
+
+    int getThreadPriority();
+}
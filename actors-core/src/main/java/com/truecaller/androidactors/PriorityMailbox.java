@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+/**
+ * Mailbox which returns transactions with higher {@link Priority} first and keeps order of
+ * transactions with the same priority. Every time a transaction is taken over waiting transactions
+ * of lower priorities, those lower priorities age. Once a priority has aged for
+ * {@link #DEFAULT_AGING_THRESHOLD} transactions, its oldest transaction goes next regardless of
+ * anything waiting above it, so low priority calls can't be starved.
+ *
+ * Calls of {@link Coalesce} methods replace the waiting call of the same method to the same actor
+ * and take its place in the mailbox.
+ *
+ * Transactions are linked through their own {@link Transaction#next} field. Mailbox isn't thread safe,
+ * callers have to guard it or access it from one thread only.
+ */
+/* package */ class PriorityMailbox {
+
+    @VisibleForTesting
+    /* package */ static final int DEFAULT_AGING_THRESHOLD = 8;
+
+    private static final int LEVELS = Priority.HIGH - Priority.LOW + 1;
+
+    @NonNull
+    private final Transaction[] mHeads = new Transaction[LEVELS];
+
+    @NonNull
+    private final Transaction[] mTails = new Transaction[LEVELS];
+
+    // Number of transactions taken over waiting transactions of every level
+    @NonNull
+    private final int[] mAge = new int[LEVELS];
+
+    private final int mAgingThreshold;
+
+    private int mSize = 0;
+
+    /* package */ PriorityMailbox() {
+        this(DEFAULT_AGING_THRESHOLD);
+    }
+
+    /* package */ PriorityMailbox(int agingThreshold) {
+        mAgingThreshold = agingThreshold;
+    }
+
+    /* package */ void offer(@NonNull Transaction transaction) {
+        offer(transaction, null);
+    }
+
+    /**
+     * @param limiter limiter of the bounded mailbox, it gets back space of the replaced transaction
+     */
+    /* package */ void offer(@NonNull Transaction transaction, @Nullable MailboxLimiter limiter) {
+        final int level = levelOf(transaction);
+        transaction.next = null;
+        if (MessageBase.isCoalescing(transaction.message) && replace(level, transaction, limiter)) {
+            return;
+        }
+
+        if (mTails[level] == null) {
+            mHeads[level] = transaction;
+        } else {
+            mTails[level].next = transaction;
+        }
+        mTails[level] = transaction;
+        ++mSize;
+    }
+
+    /**
+     * Move all transactions which are ready to be consumed from the lock-free queue.
+     * Has to be called from the queue's consumer thread.
+     */
+    /* package */ void drain(@NonNull TransactionQueue queue) {
+        drain(queue, null);
+    }
+
+    /* package */ void drain(@NonNull TransactionQueue queue, @Nullable MailboxLimiter limiter) {
+        Transaction transaction;
+        while ((transaction = queue.poll()) != null) {
+            offer(transaction, limiter);
+        }
+    }
+
+    @Nullable
+    /* package */ Transaction poll() {
+        if (mSize == 0) {
+            return null;
+        }
+
+        int level = LEVELS - 1;
+        while (mHeads[level] == null) {
+            --level;
+        }
+
+        // Oldest of aged levels goes first
+        for (int lower = 0; lower < level; ++lower) {
+            if (mHeads[lower] != null && mAge[lower] >= mAgingThreshold) {
+                level = lower;
+                break;
+            }
+        }
+
+        for (int lower = 0; lower < level; ++lower) {
+            if (mHeads[lower] != null) {
+                ++mAge[lower];
+            }
+        }
+        mAge[level] = 0;
+
+        final Transaction transaction = mHeads[level];
+        mHeads[level] = transaction.next;
+        if (mHeads[level] == null) {
+            mTails[level] = null;
+        }
+        transaction.next = null;
+        --mSize;
+        return transaction;
+    }
+
+    /**
+     * Remove the oldest transaction of the lowest priority, used when mailbox overflows
+     */
+    @Nullable
+    /* package */ Transaction evict() {
+        if (mSize == 0) {
+            return null;
+        }
+
+        int level = 0;
+        while (mHeads[level] == null) {
+            ++level;
+        }
+
+        final Transaction transaction = mHeads[level];
+        mHeads[level] = transaction.next;
+        if (mHeads[level] == null) {
+            mTails[level] = null;
+            mAge[level] = 0;
+        }
+        transaction.next = null;
+        --mSize;
+        return transaction;
+    }
+
+    /**
+     * @return true if transaction was found and removed
+     */
+    /* package */ boolean remove(@NonNull Transaction transaction) {
+        final int level = levelOf(transaction);
+        Transaction prev = null;
+        for (Transaction current = mHeads[level]; current != null; prev = current, current = current.next) {
+            if (current != transaction) {
+                continue;
+            }
+
+            if (prev == null) {
+                mHeads[level] = current.next;
+            } else {
+                prev.next = current.next;
+            }
+            if (mTails[level] == current) {
+                mTails[level] = prev;
+            }
+            current.next = null;
+            --mSize;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return transaction of the message which was removed or null if mailbox doesn't have it
+     */
+    @Nullable
+    /* package */ Transaction remove(@NonNull Message message) {
+        for (int level = 0; level < LEVELS; ++level) {
+            for (Transaction current = mHeads[level]; current != null; current = current.next) {
+                if (current.message == message) {
+                    remove(current);
+                    return current;
+                }
+            }
+        }
+        return null;
+    }
+
+    /* package */ boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    /* package */ int size() {
+        return mSize;
+    }
+
+    private boolean replace(int level, @NonNull Transaction transaction, @Nullable MailboxLimiter limiter) {
+        Transaction prev = null;
+        for (Transaction current = mHeads[level]; current != null; prev = current, current = current.next) {
+            if (current.impl != transaction.impl || !MessageBase.coalesces(current.message, transaction.message)) {
+                continue;
+            }
+
+            transaction.next = current.next;
+            if (prev == null) {
+                mHeads[level] = transaction;
+            } else {
+                prev.next = transaction;
+            }
+            if (mTails[level] == current) {
+                mTails[level] = transaction;
+            }
+            current.next = null;
+
+            if (limiter != null) {
+                limiter.release(current);
+            }
+            current.supersede(transaction);
+            return true;
+        }
+        return false;
+    }
+
+    private static int levelOf(@NonNull Transaction transaction) {
+        final int priority = transaction.priority;
+        if (priority < Priority.LOW) {
+            return 0;
+        }
+        return priority > Priority.HIGH ? LEVELS - 1 : priority - Priority.LOW;
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Promise of the result from an actor's method. It is the only legal way to return
+ * something from an actor. Keep in mind that the method itself will not be invoked until you
+ * provide what should the library do with the result (call one of the then() methods)
+ *
+ * @param <R> result type
+ */
+public abstract class Promise<R> {
+    /**
+     * Caller does not care about result
+     */
+    public abstract void thenNothing();
+
+    /**
+     * Ask the library to pass a result to the result listener on actor's thread
+     *
+     * @param listener Class which will receive the call result
+     * @return Handle to the call. It will hold an instance to the listener and its context.
+     *         Do not forget to call {@link ActionHandle#forget()} when you don't want to
+     *         process the result anymore
+     */
+    @NonNull
+    public abstract ActionHandle then(@NonNull ResultListener<R> listener);
+
+    /**
+     * Ask the library to pass a result to the result listener on the provided thread
+     *
+     * @param thread Actor thread on which the listener will be triggered
+     * @param listener Class which will receive the call result
+     * @return Handle to the call. It will hold an instance to the listener and its context.
+     *         Do not forget to call {@link ActionHandle#forget()} when you don't want to
+     *         process the result anymore
+     */
+    @NonNull
+    public abstract ActionHandle then(@NonNull ActorThread thread, @NonNull ResultListener<R> listener);
+
+    /**
+     * Block the current thread until the actor's method returns a result.
+     * In most cases you don't need this method.
+     * But if do need it, use it carefully - it can be a reason for deadlocks.
+     * Call made from the actor's own thread is executed right away instead of waiting in the mailbox.
+     * Exception thrown by the actor's method is rethrown here and doesn't go to {@link FailureHandler},
+     * an {@link Error} goes to the failure handler and is rethrown wrapped into a {@link RuntimeException}.
+     *
+     * @return Actor's method call result
+     * @throws InterruptedException
+     * @throws MailboxOverflowException if actor's mailbox is bounded and the call didn't fit into it
+     * @see BlockingCalls
+     */
+    @Nullable
+    public abstract R get() throws InterruptedException;
+
+    /**
+     * Same as {@link #get()}, but waits at most the given time. The call is forgotten when time is out,
+     * so it is skipped if it hasn't started yet.
+     *
+     * @return Actor's method call result
+     * @throws InterruptedException
+     * @throws TimeoutException if the result didn't arrive in time
+     * @throws MailboxOverflowException if actor's mailbox is bounded and the call didn't fit into it
+     */
+    @Nullable
+    public abstract R get(long timeout, @NonNull TimeUnit unit) throws InterruptedException, TimeoutException;
+
+    /**
+     * Convert the result. Mapper runs on the thread which produced the result, so it has to be fast
+     *
+     * @param mapper conversion of the result, it owns the result and has to release its resources
+     * @param <U> type of the converted result
+     * @return Promise of the converted result, the call is not made until one of its then() methods
+     *         is called
+     */
+    @NonNull
+    public <U> Promise<U> map(@NonNull Mapper<R, U> mapper) {
+        return new ComposedPromise.Mapped<>(this, mapper);
+    }
+
+    /**
+     * Continue with another call, usually to another actor, once the result is there. Mapper runs
+     * on the thread which produced the result, the result of the next call is delivered to the
+     * listener without passing through the caller's thread
+     * <pre>
+     * network.get().fetch(url)
+     *         .flatMap(new Mapper&lt;Response, Promise&lt;Long&gt;&gt;() {
+     *             public Promise&lt;Long&gt; map(Response response) {
+     *                 return storage.get().save(response);
+     *             }
+     *         })
+     *         .then(actors.ui(), listener);
+     * </pre>
+     *
+     * @param mapper source of the next promise, null promise completes with null
+     * @param <U> result type of the next call
+     * @return Promise of the next call's result
+     */
+    @NonNull
+    public <U> Promise<U> flatMap(@NonNull Mapper<R, Promise<U>> mapper) {
+        return new ComposedPromise.FlatMapped<>(this, mapper);
+    }
+
+    /**
+     * Wait for both results and combine them. Both calls are made at the same time, combiner
+     * runs on the thread which produced the later result
+     *
+     * @param other promise of the second value
+     * @param combiner combination of both results, it owns the results
+     * @param <O> type of the second value
+     * @param <U> type of the combined result
+     * @return Promise of the combined result
+     */
+    @NonNull
+    public <O, U> Promise<U> zip(@NonNull Promise<O> other, @NonNull Combiner<R, O, U> combiner) {
+        return new ComposedPromise.Zipped<>(this, other, combiner);
+    }
+
+    /**
+     * Replace a failure with a fallback value. Failure is a call which was dropped by a bounded
+     * mailbox, actor's method which has thrown (it is reported to {@link FailureHandler} as well)
+     * or a mapper or combiner of the previous stages which has thrown. Without a recovering stage
+     * failed calls are never delivered to the listener, and failures of mappers are rethrown on
+     * the thread which ran them.
+     *
+     * @param fallback source of the value instead of the failed one, runs on the thread which
+     *                 noticed the failure
+     * @return Promise of the result or the fallback value
+     */
+    @NonNull
+    public Promise<R> recover(@NonNull Mapper<Throwable, R> fallback) {
+        return new ComposedPromise.Recovered<>(this, fallback);
+    }
+
+    /**
+     * Wrap a result into a proxy.
+     *
+     * @param result method result
+     * @param <R> result type
+     * @return Proxy which can be returned from the actor methods implementations
+     */
+    @NonNull
+    public static <R> Promise<R> wrap(@Nullable R result) {
+        return new PromiseImpl<>(result, null);
+    }
+
+    /**
+     * Wrap a result into a proxy and provide a class for cleaning up the resources in case no one
+     * is waiting for the result. It is useful for closing Cursor object or something similar
+     *
+     * @param result method result
+     * @param cleaner helper for cleaning up the resources if the result will not be delivered
+     * @param <R> result type
+     * @return Proxy which can be returned from the actor methods implementations
+     */
+    @NonNull
+    public static <R> Promise<R> wrap(@Nullable R result, @Nullable ResourceCleaner<R> cleaner) {
+        return new PromiseImpl<>(result, cleaner);
+    }
+
+    /**
+     * Wait for results of all promises. All calls are made at once, results are delivered in the
+     * order of promises. If any of the calls fails, the aggregated promise fails with its reason,
+     * calls which haven't started yet are cancelled and arrived results are released with their
+     * cleaners, see {@link #recover(Mapper)}.
+     *
+     * @param promises promises to wait for
+     * @param <R> result type
+     * @return Promise of the list of results, each one is released with the cleaner of its promise
+     *         if no one waits for the list
+     */
+    @NonNull
+    public static <R> Promise<List<R>> all(@NonNull List<Promise<R>> promises) {
+        return new GatheredPromise.All<>(promises);
+    }
+
+    /**
+     * Wait for the first result. All calls are made at once. Once a result is there, calls which
+     * haven't started yet are cancelled and later results are released with their cleaners. The
+     * aggregated promise fails only if all calls fail.
+     *
+     * @param promises promises to wait for, at least one
+     * @param <R> result type
+     * @return Promise of the first result
+     */
+    @NonNull
+    public static <R> Promise<R> any(@NonNull List<Promise<R>> promises) {
+        return new GatheredPromise.Any<>(promises);
+    }
+
+    /**
+     * Wait for all promises until the deadline. All calls are made at once. When the deadline
+     * passes, whatever has arrived is delivered, calls which haven't started yet are cancelled and
+     * results which arrive later are released with their cleaners. The deadline is tracked by the
+     * timer thread shared with delayed calls, so no code of the caller may run there: the result is
+     * taken only with {@link #then(ActorThread, ResultListener)} or {@link #get()}. Listeners without
+     * a thread and stages like {@link #map(Mapper)} throw {@link IllegalStateException}.
+     * <pre>
+     * Promise.allSettled(Arrays.asList(contacts.tell().find(number), spam.tell().find(number)),
+     *         150, TimeUnit.MILLISECONDS)
+     *         .then(actors.ui(), listener);
+     * </pre>
+     *
+     * @param promises promises to wait for
+     * @param deadline time to wait for the results
+     * @param <R> result type
+     * @return Promise of outcomes in the order of promises, it never fails
+     */
+    @NonNull
+    public static <R> Promise<List<Settled<R>>> allSettled(@NonNull List<Promise<R>> promises,
+                                                           long deadline, @NonNull TimeUnit unit) {
+        if (deadline <= 0) {
+            throw new IllegalArgumentException("Deadline must be positive");
+        }
+        return new GatheredPromise.AllSettled<>(promises, unit.toNanos(deadline), TimingWheel.shared());
+    }
+
+    /**
+     * For tests only. Create special promise for using in tests. For detauls see {@link TestPromise}
+     *
+     * @param result desired result
+     * @param <R>
+     * @return Valid promise for using in tests
+     */
+    @NonNull
+    public static <R> TestPromise<R> test(@Nullable R result) {
+        return new TestPromise<>(result);
+    }
+
+    @NonNull
+    public static <I, R, T extends Message<I, R>> Promise<R> wrap(@NonNull MessageSender sender, @NonNull T message) {
+        return new PromiseProxy<>(sender, message);
+    }
+}
@@ -19,6 +19,8 @@ package com.truecaller.androidactors;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.util.concurrent.TimeUnit;
+
 /* package */  class PromiseImpl<R> extends Promise<R> implements ActionHandle {
 
     @NonNull
@@ -31,7 +33,7 @@ import androidx.annotation.Nullable;
     private ResourceCleaner<R> mCleaner;
 
     /* package */ PromiseImpl(@Nullable R result, @Nullable ResourceCleaner<R> cleaner) {
-        mInvokeException = new ActorCallbackInvokeException();
+        mInvokeException = ActorCallbackInvokeException.capture();
         mCleaner = cleaner;
         mResult = result;
     }
@@ -49,7 +51,10 @@ import androidx.annotation.Nullable;
         final ResourceCleaner<R> cleaner = mCleaner;
         mResult = null;
 
-        if (listener != null) {
+        if (listener instanceof StageListener) {
+            // Next stage takes over the result together with its cleaner
+            ((StageListener<R>) listener).onResult(result, cleaner);
+        } else if (listener != null) {
             listener.onResult(result);
         } else if (cleaner != null && result != null) {
             cleaner.clean(result);
@@ -91,6 +96,12 @@ import androidx.annotation.Nullable;
         return result;
     }
 
+    @Nullable
+    @Override
+    public R get(long timeout, @NonNull TimeUnit unit) throws InterruptedException {
+        return get();
+    }
+
     @Override
     public void forget() {
         final ResourceCleaner<R> cleaner = mCleaner;
@@ -0,0 +1,426 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+/* package */ class PromiseProxy<T, R> extends Promise<R> implements Message<T, R>, ActionHandle, ResultListener<R> {
+    @NonNull
+    private final MessageSender mSender;
+
+    @NonNull
+    /* package */ final Message<T, R> mMessage;
+
+    @Nullable
+    private ActorThread mActorThread = null;
+
+    @Nullable
+    private volatile ResultListener<R> mListener = null;
+
+    // Calls of the same coalescing method replaced by this one, they get the same result
+    @Nullable
+    private PromiseProxy<T, R> mSuperseded = null;
+
+    private volatile boolean mCancelled = false;
+
+    /* package */ PromiseProxy(@NonNull MessageSender sender, @NonNull Message<T, R> message) {
+        mSender = sender;
+        mMessage = message;
+    }
+
+    @Override
+    public void thenNothing() {
+        mSender.deliver(this);
+    }
+
+    @NonNull
+    @Override
+    public ActionHandle then(@NonNull ResultListener<R> listener) {
+        mListener = listener;
+        mSender.deliver(this);
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public ActionHandle then(@NonNull ActorThread thread, @NonNull ResultListener<R> listener) {
+        mActorThread = thread;
+        mListener = listener;
+        mSender.deliver(this);
+        return this;
+    }
+
+    @Nullable
+    @Override
+    public R get() throws InterruptedException {
+        BlockResultListener<R> listener = new BlockResultListener<>();
+        mListener = listener;
+        deliverForResult();
+        return listener.waitAndGet(this);
+    }
+
+    @Nullable
+    @Override
+    public R get(long timeout, @NonNull TimeUnit unit) throws InterruptedException, TimeoutException {
+        BlockResultListener<R> listener = new BlockResultListener<>();
+        mListener = listener;
+        deliverForResult();
+        if (!listener.await(this, Math.max(0, unit.toNanos(timeout)))) {
+            cancel();
+            // Result could arrive right before the call was cancelled
+            if (!listener.isDone()) {
+                throw new TimeoutException("Call " + this + " didn't finish in " + timeout + " " + unit);
+            }
+        }
+        return listener.result();
+    }
+
+    /**
+     * Caller on the actor's thread would wait for itself, so the call is executed right away
+     */
+    private void deliverForResult() {
+        if (!(mSender instanceof InlineMessageSender) || !((InlineMessageSender) mSender).deliverInline(this)) {
+            mSender.deliver(this);
+        }
+    }
+
+    @Override
+    public void onResult(@Nullable R result) {
+        final ResultListener<R> listener = mListener;
+        mListener = null;
+
+        if (listener == null) {
+            throw new ResultListenerIsNotSpecifiedException();
+        }
+
+        listener.onResult(result);
+    }
+
+    /**
+     * Listener is forgotten and the call is skipped if it hasn't started yet. Running call is
+     * asked to stop through its {@link CancellationToken}, if it has one
+     */
+    @Override
+    public void forget() {
+        cancel();
+    }
+
+    /**
+     * Caller doesn't need the result anymore, the call is skipped if it hasn't started yet
+     */
+    /* package */ void cancel() {
+        mCancelled = true;
+        mListener = null;
+
+        if (isForgotten()) {
+            final CancellationToken token = MessageBase.cancellationTokenOf(mMessage);
+            if (token != null) {
+                token.cancel();
+            }
+        }
+    }
+
+    /**
+     * @return true if the call doesn't have to be made anymore
+     */
+    /* package */ boolean isCancelled() {
+        if (isForgotten()) {
+            return true;
+        }
+        final CancellationToken token = MessageBase.cancellationTokenOf(mMessage);
+        return token != null && token.isCancelled();
+    }
+
+    /**
+     * Coalesced calls replaced by this one still wait for the result unless they are cancelled too
+     */
+    private boolean isForgotten() {
+        for (PromiseProxy<T, R> call = this; call != null; call = call.mSuperseded) {
+            if (!call.mCancelled) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Call was dropped or cancelled before it reached the actor, it will never be invoked
+     *
+     * @param reason exception for callers waiting in {@link #get()}
+     */
+    /* package */ void onDropped(@NonNull RuntimeException reason) {
+        for (PromiseProxy<T, R> call = this; call != null; call = call.mSuperseded) {
+            final ResultListener<R> listener = call.mListener;
+            call.mListener = null;
+            call.mActorThread = null;
+
+            if (listener instanceof BlockResultListener) {
+                ((BlockResultListener<R>) listener).onFailure(reason);
+            } else if (listener instanceof StageListener) {
+                ((StageListener<R>) listener).onFailure(reason);
+            }
+        }
+        mSuperseded = null;
+    }
+
+    /**
+     * Call took the place of the waiting call of the same {@link Coalesce} method
+     */
+    /* package */ void supersede(@NonNull PromiseProxy<T, R> replaced) {
+        PromiseProxy<T, R> last = replaced;
+        while (last.mSuperseded != null) {
+            last = last.mSuperseded;
+        }
+        last.mSuperseded = mSuperseded;
+        mSuperseded = replaced;
+    }
+
+    @Override
+    public Promise<R> invoke(@NonNull T impl) {
+        if (isCancelled()) {
+            onDropped(new CancellationException("Call " + this + " was cancelled"));
+            return null;
+        }
+
+        final Promise<R> result;
+        try {
+            result = mMessage.invoke(impl);
+        } catch (Throwable e) {
+            // Errors always go to failure handler, waiters and stages get them wrapped
+            final boolean runtime = e instanceof RuntimeException;
+            if (!failStages(runtime ? (RuntimeException) e : new RuntimeException(e)) || !runtime) {
+                throw e;
+            }
+            return null;
+        }
+        final PromiseProxy<T, R> superseded = mSuperseded;
+        mSuperseded = null;
+
+        if (result != null && superseded != null && hasListeners(superseded)) {
+            // Result is shared by listeners of all replaced calls
+            result.then(new SharedResultListener<>(this, superseded));
+        } else if (result != null) {
+            ResultListener<R> listener = mListener;
+
+            if (listener != null && mActorThread != null) {
+                result.then(mActorThread, this);
+            } else {
+                mListener = null;
+                //noinspection ConstantConditions
+                result.then(listener);
+            }
+        }
+        mActorThread = null;
+        return null;
+    }
+
+    @NonNull
+    @Override
+    public ActorInvokeException exception() {
+        return mMessage.exception();
+    }
+
+    @Override
+    public String toString() {
+        return mMessage.toString();
+    }
+
+    /**
+     * Actor's method has thrown, composed promises and callers of {@link #get()} waiting for the result
+     * are told about it
+     *
+     * @return true if every call sharing the failure has a recovering stage or a waiting caller,
+     *         otherwise the exception has to go to {@link FailureHandler}
+     */
+    private boolean failStages(@NonNull RuntimeException error) {
+        boolean handled = true;
+        for (PromiseProxy<T, R> call = this; call != null; call = call.mSuperseded) {
+            final ResultListener<R> listener = call.mListener;
+            call.mActorThread = null;
+            if (listener instanceof StageListener) {
+                call.mListener = null;
+                handled &= ((StageListener<R>) listener).onFailure(error);
+            } else if (listener instanceof BlockResultListener) {
+                call.mListener = null;
+                ((BlockResultListener<R>) listener).onFailure(error);
+            } else {
+                handled = false;
+            }
+        }
+        mSuperseded = null;
+        return handled;
+    }
+
+    private boolean hasListeners(@NonNull PromiseProxy<T, R> superseded) {
+        if (mListener != null) {
+            return true;
+        }
+        for (PromiseProxy<T, R> call = superseded; call != null; call = call.mSuperseded) {
+            if (call.mListener != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void deliverShared(@Nullable R result) {
+        final ActorThread thread = mActorThread;
+        mActorThread = null;
+        if (mListener == null) {
+            return;
+        }
+
+        if (thread == null) {
+            onResult(result);
+            return;
+        }
+
+        //noinspection unchecked
+        thread.bind(ResultListener.class, new ResultListener<R>() {
+            @Override
+            public void onResult(@Nullable R result) {
+                final ResultListener<R> listener = mListener;
+                mListener = null;
+                // Listener could be forgotten meanwhile
+                if (listener != null) {
+                    listener.onResult(result);
+                }
+            }
+        }).tell().onResult(result);
+    }
+
+    private static class SharedResultListener<T, R> implements ResultListener<R> {
+        @NonNull
+        private final PromiseProxy<T, R> mCall;
+
+        @NonNull
+        private final PromiseProxy<T, R> mSuperseded;
+
+        private SharedResultListener(@NonNull PromiseProxy<T, R> call, @NonNull PromiseProxy<T, R> superseded) {
+            mCall = call;
+            mSuperseded = superseded;
+        }
+
+        @Override
+        public void onResult(@Nullable R result) {
+            mCall.deliverShared(result);
+            for (PromiseProxy<T, R> call = mSuperseded; call != null; call = call.mSuperseded) {
+                call.deliverShared(result);
+            }
+        }
+    }
+
+    /**
+     * Waiting thread is parked rather than waiting on a monitor, so virtual thread releases its carrier
+     */
+    /* package */ static class BlockResultListener<R> implements ResultListener<R> {
+
+        /* package */ static final long WAIT_FOREVER = -1L;
+
+        private static final Object EMPTY_INSTANCE = new Object();
+
+        @Nullable
+        private volatile Object mResult = EMPTY_INSTANCE;
+
+        // Written before the result, so it is visible once result is there
+        @Nullable
+        private RuntimeException mFailure = null;
+
+        @Nullable
+        private volatile Thread mWaiter = null;
+
+        @Override
+        public void onResult(@Nullable R result) {
+            mResult = result;
+            LockSupport.unpark(mWaiter);
+        }
+
+        /* package */ void onFailure(@NonNull RuntimeException failure) {
+            mFailure = failure;
+            mResult = null;
+            LockSupport.unpark(mWaiter);
+        }
+
+        /**
+         * @param call waited call, it is reported to {@link BlockingCalls} if the result is not ready
+         */
+        /* package */ R waitAndGet(@NonNull Object call) throws InterruptedException {
+            await(call, WAIT_FOREVER);
+            return result();
+        }
+
+        /**
+         * @param call    waited call, it is reported to {@link BlockingCalls} if the result is not ready
+         * @param timeout max time to wait in nanoseconds, {@link #WAIT_FOREVER} to wait until the result arrives
+         * @return false if time is out
+         */
+        /* package */ boolean await(@NonNull Object call, long timeout) throws InterruptedException {
+            if (isDone()) {
+                return true;
+            }
+            BlockingCalls.onWait(call);
+
+            final long deadline = System.nanoTime() + timeout;
+            mWaiter = Thread.currentThread();
+            try {
+                while (!isDone()) {
+                    if (timeout == WAIT_FOREVER) {
+                        LockSupport.park(this);
+                    } else {
+                        final long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            return false;
+                        }
+                        LockSupport.parkNanos(this, remaining);
+                    }
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                }
+                return true;
+            } finally {
+                mWaiter = null;
+            }
+        }
+
+        /* package */ boolean isDone() {
+            return mResult != EMPTY_INSTANCE;
+        }
+
+        /**
+         * Result of the finished call
+         */
+        /* package */ R result() {
+            final Object current = mResult;
+            if (mFailure != null) {
+                throw mFailure;
+            }
+
+            // It is safe to cast here. We have type safe way of setting this field
+            // and empty value was already checked
+            @SuppressWarnings("unchecked")
+            R result = (R) current;
+            return result;
+        }
+    }
+}
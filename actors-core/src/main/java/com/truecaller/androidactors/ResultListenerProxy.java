@@ -21,6 +21,8 @@ import androidx.annotation.Nullable;
 
 /* package */ class ResultListenerProxy implements ResultListener {
 
+    private static final int METHOD_ID_ON_RESULT = ActorMethods.register(ResultListener.class, "onResult");
+
     private final MessageSender mMessageSender;
 
     /* package */ ResultListenerProxy(MessageSender messageSender) {
@@ -29,7 +31,7 @@ import androidx.annotation.Nullable;
 
     @Override
     public void onResult(@Nullable Object result) {
-        mMessageSender.deliver(new ResultListenerMessage(new ActorMethodInvokeException(), result));
+        mMessageSender.deliver(new ResultListenerMessage(ActorMethodInvokeException.captureIfNeeded(ResultListener.class), result));
     }
 
     /* package */ static class ResultListenerMessage extends MessageBase<ResultListener, Void> {
@@ -37,7 +39,7 @@ import androidx.annotation.Nullable;
         @Nullable
         private final Object mResult;
 
-        /* package */ ResultListenerMessage(@NonNull ActorMethodInvokeException exception, @Nullable Object result) {
+        /* package */ ResultListenerMessage(@Nullable ActorMethodInvokeException exception, @Nullable Object result) {
             super(exception);
             mResult = result;
         }
@@ -53,6 +55,11 @@ import androidx.annotation.Nullable;
             return null;
         }
 
+        @Override
+        public int getMethodId() {
+            return METHOD_ID_ON_RESULT;
+        }
+
         @Override
         public String toString() {
             if (mResult instanceof Message) {
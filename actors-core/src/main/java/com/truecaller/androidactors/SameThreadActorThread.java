@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Actor thread which executes calls in the calling thread. It is an executor actor thread on top of
+ * the executor which runs tasks right away, so the actor's mailbox keeps calls in order and never lets
+ * two threads into the actor at the same time. A caller which finds the actor busy leaves its call
+ * in the mailbox and returns, the busy thread executes it before it leaves the actor.
+ */
+/* package */ class SameThreadActorThread extends ExecutorActorThread {
+
+    /* package */ SameThreadActorThread(@NonNull ProxyFactory proxyFactory, @NonNull FailureHandler failureHandler) {
+        // Calling thread keeps executing until the mailbox is empty
+        super(new DirectExecutor(), proxyFactory, failureHandler, Integer.MAX_VALUE);
+    }
+
+    private static class DirectExecutor implements Executor {
+        @Override
+        public void execute(@NonNull Runnable command) {
+            command.run();
+        }
+    }
+}
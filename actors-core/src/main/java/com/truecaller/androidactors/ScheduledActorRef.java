@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Holds calls on the timing wheel and passes them to the actor thread when they are due
+ */
+/* package */ class ScheduledActorRef<T> implements ScheduledRef<T>, MessageSender {
+    @NonNull
+    private final T mInstance;
+
+    @NonNull
+    private final MessageSender mSender;
+
+    @NonNull
+    private final TimingWheel mWheel;
+
+    private final long mDelay;
+
+    private final long mPeriod;
+
+    // Calls which were not sent yet and all repeating calls, guarded by this
+    @NonNull
+    private final HashSet<Call> mCalls = new HashSet<>();
+
+    /**
+     * @param delay delay before the call is sent in nanoseconds
+     * @param period period of repeating in nanoseconds, 0 for calls which are sent once
+     */
+    /* package */ ScheduledActorRef(@NonNull ProxyFactory proxyFactory, @NonNull Class<T> cls,
+                                    @NonNull MessageSender sender, @NonNull TimingWheel wheel, long delay, long period) {
+        if (delay < 0 || period < 0) {
+            throw new IllegalArgumentException("Delay and period can't be negative");
+        }
+        mSender = sender;
+        mWheel = wheel;
+        mDelay = delay;
+        mPeriod = period;
+        mInstance = proxyFactory.newProxy(cls, this);
+    }
+
+    @Override
+    public T tell() {
+        return mInstance;
+    }
+
+    @Override
+    public void deliver(@NonNull Message message) {
+        final Call call;
+        if (mPeriod == 0) {
+            call = new Call(message);
+        } else if (message instanceof PromiseProxy) {
+            throw new IllegalArgumentException("Only calls of void methods can be repeated, " + message);
+        } else {
+            //noinspection unchecked
+            call = new Call(new PeriodicMessage(message));
+        }
+
+        synchronized (this) {
+            // send() takes the same lock, so a call which is due immediately waits until it is registered
+            call.mTimeout = mWheel.schedule(call, mDelay, mPeriod);
+            mCalls.add(call);
+        }
+    }
+
+    @Override
+    public void forget() {
+        final ArrayList<Call> calls;
+        synchronized (this) {
+            calls = new ArrayList<>(mCalls);
+            mCalls.clear();
+        }
+
+        for (Call call : calls) {
+            call.mTimeout.forget();
+            if (call.mMessage instanceof PromiseProxy) {
+                ((PromiseProxy) call.mMessage).onDropped(new CancellationException("Call " + call.mMessage + " was cancelled"));
+            } else {
+                MessageBase.recycleDelivered(call.mMessage);
+            }
+        }
+    }
+
+    private void send(@NonNull Call call) {
+        synchronized (this) {
+            // Call which isn't in the set any more was cancelled
+            if (mPeriod == 0 ? !mCalls.remove(call) : !mCalls.contains(call)) {
+                return;
+            }
+        }
+
+        try {
+            mSender.deliver(call.mMessage);
+        } catch (RejectedExecutionException e) {
+            // Nobody to report to on the timer thread, the call is lost the same way as dropped one
+            if (call.mMessage instanceof PromiseProxy) {
+                ((PromiseProxy) call.mMessage).onDropped(e);
+            }
+        }
+    }
+
+    private class Call implements Runnable {
+        @NonNull
+        private final Message mMessage;
+
+        // Assigned under the ref lock before the call is added to the set
+        private TimingWheel.Timeout mTimeout;
+
+        private Call(@NonNull Message message) {
+            mMessage = message;
+        }
+
+        @Override
+        public void run() {
+            send(this);
+        }
+    }
+}
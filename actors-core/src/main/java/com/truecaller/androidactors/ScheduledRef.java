@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+/**
+ * Reference for sending calls to the actor later or repeatedly, see {@link ActorRef#tellAfter}
+ * and {@link ActorRef#tellAtFixedRate}
+ *
+ * @param <T> actor interface
+ */
+public interface ScheduledRef<T> extends ActionHandle {
+    /**
+     * @return actor instance which schedules every call instead of sending it immediately
+     */
+    T tell();
+
+    /**
+     * Cancel all calls made through this reference which were not sent to the actor yet and stop
+     * repeating ones. Waiting {@link Promise#get()} callers get {@link java.util.concurrent.CancellationException}.
+     * Reference stays usable for new calls.
+     */
+    @Override
+    void forget();
+}
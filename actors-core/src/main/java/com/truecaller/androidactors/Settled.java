@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Outcome of one of the promises passed to {@link Promise#allSettled(java.util.List, long, java.util.concurrent.TimeUnit)}
+ *
+ * @param <R> result type
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class Settled<R> {
+    private static final int FULFILLED = 0;
+    private static final int FAILED = 1;
+    private static final int TIMED_OUT = 2;
+
+    private final int mState;
+
+    @Nullable
+    private final R mValue;
+
+    @Nullable
+    private final Throwable mFailure;
+
+    private Settled(int state, @Nullable R value, @Nullable Throwable failure) {
+        mState = state;
+        mValue = value;
+        mFailure = failure;
+    }
+
+    @NonNull
+    /* package */ static <R> Settled<R> fulfilled(@Nullable R value) {
+        return new Settled<>(FULFILLED, value, null);
+    }
+
+    @NonNull
+    /* package */ static <R> Settled<R> failed(@NonNull Throwable failure) {
+        return new Settled<>(FAILED, null, failure);
+    }
+
+    @NonNull
+    /* package */ static <R> Settled<R> timedOut() {
+        return new Settled<>(TIMED_OUT, null, null);
+    }
+
+    /**
+     * @return true if the result arrived before the deadline
+     */
+    public boolean isFulfilled() {
+        return mState == FULFILLED;
+    }
+
+    /**
+     * @return true if the call was dropped, actor's method has thrown or a mapper failed
+     */
+    public boolean isFailed() {
+        return mState == FAILED;
+    }
+
+    /**
+     * @return true if the result didn't arrive before the deadline
+     */
+    public boolean isTimedOut() {
+        return mState == TIMED_OUT;
+    }
+
+    /**
+     * @return result of the fulfilled promise, null otherwise
+     */
+    @Nullable
+    public R getValue() {
+        return mValue;
+    }
+
+    /**
+     * @return reason of the failure, null if the promise didn't fail
+     */
+    @Nullable
+    public Throwable getFailure() {
+        return mFailure;
+    }
+
+    @Override
+    public String toString() {
+        switch (mState) {
+            case FULFILLED:
+                return "Settled{value=" + mValue + "}";
+            case FAILED:
+                return "Settled{failure=" + mFailure + "}";
+            default:
+                return "Settled{timed out}";
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Listener of a result which is used to compute another promise, see {@link ComposedPromise}
+ */
+/* package */ interface StageListener<R> extends ResultListener<R> {
+    /**
+     * Result together with its cleaner. Listener takes over the result and has to clean it if the
+     * result is not going to be used
+     */
+    void onResult(@Nullable R result, @Nullable ResourceCleaner<R> cleaner);
+
+    /**
+     * Result will never come: the call was dropped, actor's method has thrown or one of the
+     * previous stages failed
+     *
+     * @return true if the failure was handled by a recovering stage or a waiting caller
+     */
+    boolean onFailure(@NonNull RuntimeException error);
+}
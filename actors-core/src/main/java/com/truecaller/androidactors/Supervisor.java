@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Diagnostics attached to every call of the actors bound through a supervised thread, see
+ * {@link Watchdog#watch(ActorThread)} and {@link MailboxMonitor#monitor(ActorThread)}
+ */
+/* package */ final class Supervisor {
+    @Nullable
+    /* package */ final Watchdog mWatchdog;
+
+    @Nullable
+    /* package */ final MailboxMonitor mMonitor;
+
+    /* package */ Supervisor(@Nullable Watchdog watchdog, @Nullable MailboxMonitor monitor) {
+        mWatchdog = watchdog;
+        mMonitor = monitor;
+    }
+
+    /**
+     * @return thread which binds actors under the watchdog, keeping the mailbox monitor of the
+     *         thread if it is already supervised
+     */
+    @NonNull
+    /* package */ static ActorThread watch(@NonNull ActorThread thread, @NonNull Watchdog watchdog) {
+        final Supervisor current = of(thread);
+        return supervise(thread, new Supervisor(watchdog, current != null ? current.mMonitor : null));
+    }
+
+    /**
+     * @return thread which binds actors under the mailbox monitor, keeping the watchdog of the
+     *         thread if it is already supervised
+     */
+    @NonNull
+    /* package */ static ActorThread monitor(@NonNull ActorThread thread, @NonNull MailboxMonitor monitor) {
+        final Supervisor current = of(thread);
+        return supervise(thread, new Supervisor(current != null ? current.mWatchdog : null, monitor));
+    }
+
+    /**
+     * @return thread which binds actors of the supervised thread, the thread itself if it isn't supervised
+     */
+    @NonNull
+    /* package */ static ActorThread unwrap(@NonNull ActorThread thread) {
+        return thread instanceof SupervisedActorThread ? ((SupervisedActorThread) thread).mThread : thread;
+    }
+
+    @Nullable
+    private static Supervisor of(@NonNull ActorThread thread) {
+        return thread instanceof SupervisedActorThread ? ((SupervisedActorThread) thread).mSupervisor : null;
+    }
+
+    @NonNull
+    private static ActorThread supervise(@NonNull ActorThread thread, @NonNull Supervisor supervisor) {
+        if (thread instanceof SupervisedActorThread) {
+            thread = ((SupervisedActorThread) thread).mThread;
+        }
+        if (!(thread instanceof WatchableActorThread)) {
+            throw new IllegalArgumentException("Thread " + thread + " can't be supervised");
+        }
+        if (thread instanceof PrioritizedActorThread) {
+            return new SupervisedPrioritizedActorThread((WatchableActorThread) thread, supervisor);
+        }
+        return new SupervisedActorThread((WatchableActorThread) thread, supervisor);
+    }
+
+    private static class SupervisedActorThread implements ActorThread {
+        @NonNull
+        private final WatchableActorThread mThread;
+
+        @NonNull
+        private final Supervisor mSupervisor;
+
+        private SupervisedActorThread(@NonNull WatchableActorThread thread, @NonNull Supervisor supervisor) {
+            mThread = thread;
+            mSupervisor = supervisor;
+        }
+
+        @NonNull
+        @Override
+        public <T> ActorRef<T> bind(@NonNull Class<T> cls, @NonNull T impl) {
+            return mThread.bind(cls, impl, mSupervisor);
+        }
+    }
+
+    /**
+     * Supervised thread which still lets callers change the priority of the original thread
+     */
+    private static class SupervisedPrioritizedActorThread extends SupervisedActorThread implements PrioritizedActorThread {
+        private SupervisedPrioritizedActorThread(@NonNull WatchableActorThread thread, @NonNull Supervisor supervisor) {
+            super(thread, supervisor);
+        }
+
+        @Override
+        public void setThreadPriority(int priority) {
+            ((PrioritizedActorThread) unwrap(this)).setThreadPriority(priority);
+        }
+
+        @Override
+        public int getThreadPriority() {
+            return ((PrioritizedActorThread) unwrap(this)).getThreadPriority();
+        }
+    }
+}
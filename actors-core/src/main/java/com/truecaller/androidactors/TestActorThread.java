@@ -17,6 +17,9 @@
 package com.truecaller.androidactors;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.TimeUnit;
 
 /**
  * Special actor thread for using in tests.
@@ -47,5 +50,53 @@ public class TestActorThread implements ActorThread {
         public T tell() {
             return mImpl;
         }
+
+        @Override
+        public T tell(int priority) {
+            return mImpl;
+        }
+
+        @Nullable
+        @Override
+        public MailboxStatus mailbox() {
+            return null;
+        }
+
+        /**
+         * Calls are invoked immediately, delay is ignored
+         */
+        @NonNull
+        @Override
+        public ScheduledRef<T> tellAfter(long delay, @NonNull TimeUnit unit) {
+            return new TestScheduledRef<>(mImpl);
+        }
+
+        /**
+         * Calls are invoked once immediately, they are not repeated
+         */
+        @NonNull
+        @Override
+        public ScheduledRef<T> tellAtFixedRate(long initialDelay, long period, @NonNull TimeUnit unit) {
+            return new TestScheduledRef<>(mImpl);
+        }
+    }
+
+    private static class TestScheduledRef<T> implements ScheduledRef<T> {
+
+        @NonNull
+        private final T mImpl;
+
+        private TestScheduledRef(@NonNull T impl) {
+            mImpl = impl;
+        }
+
+        @Override
+        public T tell() {
+            return mImpl;
+        }
+
+        @Override
+        public void forget() {
+        }
     }
 }
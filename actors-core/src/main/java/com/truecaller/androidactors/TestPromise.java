@@ -19,6 +19,8 @@ package com.truecaller.androidactors;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * Promise for using in test. Will always provide result on same thread
  *
@@ -70,6 +72,12 @@ public class TestPromise<R> extends Promise<R> implements TestActionHandle {
         return mResult;
     }
 
+    @Nullable
+    @Override
+    public R get(long timeout, @NonNull TimeUnit unit) throws InterruptedException {
+        return get();
+    }
+
     @Override
     public void forget() {
         mAction |= ACTION_FORGET;
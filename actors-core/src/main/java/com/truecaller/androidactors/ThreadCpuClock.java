@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * CPU time of the current thread. Default clock uses {@link ThreadMXBean} where it is available,
+ * other platforms report -1 unless they install their own clock.
+ */
+/* package */ abstract class ThreadCpuClock {
+
+    /* package */ static final ThreadCpuClock UNSUPPORTED = new ThreadCpuClock() {
+        @Override
+        /* package */ long currentThreadCpuNanos() {
+            return -1;
+        }
+    };
+
+    /**
+     * @return CPU time of the current thread in nanoseconds, -1 if it isn't supported
+     */
+    /* package */ abstract long currentThreadCpuNanos();
+
+    @NonNull
+    /* package */ static ThreadCpuClock createDefault() {
+        try {
+            // Android has no java.lang.management, don't even load the class there
+            Class.forName("java.lang.management.ManagementFactory");
+        } catch (ClassNotFoundException e) {
+            return UNSUPPORTED;
+        }
+        return ManagementClock.create();
+    }
+
+    private static class ManagementClock extends ThreadCpuClock {
+        @NonNull
+        private final ThreadMXBean mThreads;
+
+        private ManagementClock(@NonNull ThreadMXBean threads) {
+            mThreads = threads;
+        }
+
+        @NonNull
+        private static ThreadCpuClock create() {
+            final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            if (!threads.isCurrentThreadCpuTimeSupported()) {
+                return UNSUPPORTED;
+            }
+            try {
+                if (!threads.isThreadCpuTimeEnabled()) {
+                    threads.setThreadCpuTimeEnabled(true);
+                }
+            } catch (SecurityException e) {
+                return UNSUPPORTED;
+            }
+            return new ManagementClock(threads);
+        }
+
+        @Override
+        /* package */ long currentThreadCpuNanos() {
+            return mThreads.getCurrentThreadCpuTime();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Actor thread which gives every bound actor its own lock-free mailbox and consumer thread.
+ * Consumer threads come from the given factory, park while the mailbox is empty and stop when
+ * they were idle longer than stop delay. Meant for factories of cheap threads, like virtual
+ * threads, so actors can block without holding up each other.
+ */
+/* package */ class ThreadPerActorThread implements WatchableActorThread {
+
+    @NonNull
+    private final ProxyFactory mProxyFactory;
+
+    @NonNull
+    private final FailureHandler mFailureHandler;
+
+    @NonNull
+    private final ThreadFactory mThreadFactory;
+
+    private final long mStopDelay;
+
+    @Nullable
+    private final MailboxConfig mMailbox;
+
+    /* package */ ThreadPerActorThread(@NonNull ProxyFactory proxyFactory, @NonNull FailureHandler failureHandler,
+                                       @NonNull ThreadFactory threadFactory, long stopDelay,
+                                       @Nullable MailboxConfig mailbox) {
+        mProxyFactory = proxyFactory;
+        mFailureHandler = failureHandler;
+        mThreadFactory = threadFactory;
+        mStopDelay = stopDelay;
+        mMailbox = mailbox;
+    }
+
+    @NonNull
+    @Override
+    public <T> ActorRef<T> bind(@NonNull Class<T> cls, @NonNull T impl) {
+        return bind(cls, impl, null);
+    }
+
+    @NonNull
+    @Override
+    public <T> ActorRef<T> bind(@NonNull Class<T> cls, @NonNull T impl, @Nullable Supervisor supervisor) {
+        final LockFreeActorThread thread = new LockFreeActorThread(mProxyFactory, mFailureHandler,
+                cls.getSimpleName(), mStopDelay, ThreadPriority.DEFAULT, mMailbox, mThreadFactory);
+        return thread.bind(cls, impl, supervisor);
+    }
+}
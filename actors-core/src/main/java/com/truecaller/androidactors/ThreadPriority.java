@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Linux priorities of threads owned by the library. On Android they are applied with
+ * {@code android.os.Process.setThreadPriority()}, other platforms accept and ignore them.
+ */
+/* package */ final class ThreadPriority {
+    /**
+     * Same as {@code android.os.Process.THREAD_PRIORITY_DEFAULT}
+     */
+    /* package */ static final int DEFAULT = 0;
+
+    /**
+     * Same as {@code android.os.Process.THREAD_PRIORITY_BACKGROUND}
+     */
+    /* package */ static final int BACKGROUND = 10;
+
+    /**
+     * Thread id which is never used by Linux, also returned by {@link #myTid()} outside of Android
+     */
+    /* package */ static final int NO_TID = -1;
+
+    private ThreadPriority() {
+    }
+
+    /**
+     * Change priority of the calling thread
+     */
+    /* package */ static void setCurrent(int priority) {
+        invoke(AndroidProcess.SET_THREAD_PRIORITY, priority);
+    }
+
+    /**
+     * Change priority of any thread of this process by its Linux thread id
+     */
+    /* package */ static void set(int tid, int priority) {
+        if (tid == NO_TID) {
+            return;
+        }
+        try {
+            invoke(AndroidProcess.SET_TID_PRIORITY, tid, priority);
+        } catch (IllegalArgumentException e) {
+            // Thread has just stopped, the next one will get new priority
+        }
+    }
+
+    /**
+     * @return Linux id of the calling thread or {@link #NO_TID} if platform doesn't support priorities
+     */
+    /* package */ static int myTid() {
+        final Object tid = invoke(AndroidProcess.MY_TID);
+        return tid instanceof Integer ? (Integer) tid : NO_TID;
+    }
+
+    @Nullable
+    private static Object invoke(@Nullable Method method, Object... args) {
+        if (method == null) {
+            return null;
+        }
+
+        try {
+            return method.invoke(null, args);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Priority of a thread which can be started later or replaced by another one. New value is applied
+     * right away by thread id from any thread, attached thread applies the current value itself.
+     */
+    /* package */ static final class Tracker {
+        // Both guarded by this
+        private int mPriority;
+
+        private int mTid = NO_TID;
+
+        /* package */ Tracker(int priority) {
+            mPriority = priority;
+        }
+
+        /* package */ synchronized int get() {
+            return mPriority;
+        }
+
+        /* package */ synchronized void set(int priority) {
+            mPriority = priority;
+            ThreadPriority.set(mTid, priority);
+        }
+
+        /**
+         * Must be called from the thread which runs with the tracked priority
+         */
+        /* package */ synchronized void attachCurrent() {
+            mTid = myTid();
+            setCurrent(mPriority);
+        }
+
+        /**
+         * Must be called from the attached thread, does nothing if another thread has attached since then
+         */
+        /* package */ synchronized void detachCurrent() {
+            if (mTid == myTid()) {
+                mTid = NO_TID;
+            }
+        }
+    }
+
+    private static class AndroidProcess {
+        @Nullable
+        private static final Method SET_THREAD_PRIORITY = find("setThreadPriority", int.class);
+
+        @Nullable
+        private static final Method SET_TID_PRIORITY = find("setThreadPriority", int.class, int.class);
+
+        @Nullable
+        private static final Method MY_TID = find("myTid");
+
+        @Nullable
+        private static Method find(@NonNull String name, Class<?>... parameters) {
+            try {
+                return Class.forName("android.os.Process").getMethod(name, parameters);
+            } catch (ClassNotFoundException e) {
+                return null;
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+        }
+    }
+}
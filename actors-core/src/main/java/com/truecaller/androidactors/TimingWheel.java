@@ -0,0 +1,345 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashed timing wheel for delayed and periodic calls. Time is split into ticks and every timeout
+ * is put into the bucket of the tick it expires on, so scheduling and cancellation cost O(1)
+ * regardless of number of pending timeouts. Timeouts further than one revolution of the wheel
+ * wait there for the required number of rounds.
+ *
+ * Single worker thread wakes up only for ticks which have timeouts in their buckets and stops
+ * when there is nothing to wait for. Tasks are executed on the worker thread, so they have to be short.
+ */
+/* package */ class TimingWheel {
+
+    @VisibleForTesting
+    /* package */ static final long DEFAULT_TICK_MILLIS = 10;
+
+    @VisibleForTesting
+    /* package */ static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private static final long NOT_WAITING = Long.MAX_VALUE;
+
+    @NonNull
+    private final String mName;
+
+    private final long mTickNanos;
+
+    private final int mMask;
+
+    @NonNull
+    private final Timeout[] mBuckets;
+
+    private final long mStartTime = System.nanoTime();
+
+    // Next tick to process, guarded by this
+    private long mTick = 0;
+
+    // Tick worker is waiting for, guarded by this
+    private long mWakeTick = NOT_WAITING;
+
+    private int mPending = 0;
+
+    @Nullable
+    private Thread mWorker = null;
+
+    /**
+     * @param wheelSize number of buckets, rounded up to the power of two
+     */
+    /* package */ TimingWheel(@NonNull String name, long tick, @NonNull TimeUnit unit, int wheelSize) {
+        if (tick <= 0) {
+            throw new IllegalArgumentException("Tick must be positive");
+        }
+        if (wheelSize <= 0 || wheelSize > (1 << 30)) {
+            throw new IllegalArgumentException("Wheel size must be between 1 and 2^30");
+        }
+        int size = 1;
+        while (size < wheelSize) {
+            size <<= 1;
+        }
+
+        mName = name;
+        mTickNanos = unit.toNanos(tick);
+        mMask = size - 1;
+        mBuckets = new Timeout[size];
+    }
+
+    /**
+     * @return wheel shared by all actor references in the process
+     */
+    @NonNull
+    /* package */ static TimingWheel shared() {
+        return SharedHolder.INSTANCE;
+    }
+
+    /**
+     * @param delay delay before the first execution in nanoseconds
+     * @param period period of repeating in nanoseconds, 0 for one shot timeout
+     */
+    @NonNull
+    /* package */ Timeout schedule(@NonNull Runnable task, long delay, long period) {
+        if (period < 0) {
+            throw new IllegalArgumentException("Period can't be negative");
+        }
+
+        final Timeout timeout = new Timeout(this, task, elapsed() + Math.max(0, delay), period);
+        synchronized (this) {
+            insert(timeout);
+            ++mPending;
+
+            if (mWorker == null) {
+                startWorker();
+            } else if (timeout.mTick < mWakeTick) {
+                // Worker sleeps until the later tick
+                notifyAll();
+            }
+        }
+        return timeout;
+    }
+
+    /* package */ synchronized int pending() {
+        return mPending;
+    }
+
+    // Has to be called with lock held
+    private void startWorker() {
+        mWorker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                work();
+            }
+        }, mName);
+        mWorker.setDaemon(true);
+        mWorker.start();
+    }
+
+    private long elapsed() {
+        return System.nanoTime() - mStartTime;
+    }
+
+    // Has to be called with lock held
+    private void insert(@NonNull Timeout timeout) {
+        final long calculated = timeout.mDeadline / mTickNanos;
+        final long tick = Math.max(calculated, mTick);
+        timeout.mRounds = (calculated - mTick) >> Long.numberOfTrailingZeros(mMask + 1);
+        timeout.mTick = tick;
+
+        final int index = (int) (tick & mMask);
+        final Timeout head = mBuckets[index];
+        timeout.mNext = head;
+        timeout.mPrev = null;
+        if (head != null) {
+            head.mPrev = timeout;
+        }
+        mBuckets[index] = timeout;
+        timeout.mScheduled = true;
+    }
+
+    // Has to be called with lock held
+    private void unlink(@NonNull Timeout timeout) {
+        final int index = (int) (timeout.mTick & mMask);
+        if (timeout.mPrev == null) {
+            mBuckets[index] = timeout.mNext;
+        } else {
+            timeout.mPrev.mNext = timeout.mNext;
+        }
+        if (timeout.mNext != null) {
+            timeout.mNext.mPrev = timeout.mPrev;
+        }
+        timeout.mNext = null;
+        timeout.mPrev = null;
+        timeout.mScheduled = false;
+    }
+
+    private void cancel(@NonNull Timeout timeout) {
+        synchronized (this) {
+            timeout.mCancelled = true;
+            if (timeout.mScheduled) {
+                unlink(timeout);
+                --mPending;
+            }
+        }
+    }
+
+    private void work() {
+        final ArrayList<Timeout> expired = new ArrayList<>();
+        boolean finished = false;
+        try {
+            while (true) {
+                synchronized (this) {
+                    if (!awaitTick(expired)) {
+                        finished = true;
+                        return;
+                    }
+                }
+
+                for (int index = 0; index < expired.size(); ++index) {
+                    expired.get(index).mTask.run();
+                }
+                expired.clear();
+            }
+        } finally {
+            if (!finished) {
+                // Task has crashed, don't leave other timeouts without worker
+                onWorkerCrashed();
+            }
+        }
+    }
+
+    private void onWorkerCrashed() {
+        synchronized (this) {
+            mWorker = null;
+            if (mPending > 0) {
+                startWorker();
+            }
+        }
+    }
+
+    /**
+     * Wait for the closest tick which has timeouts and collect expired ones. Has to be called with lock held.
+     *
+     * @return false if there are no timeouts left and worker has to stop
+     */
+    private boolean awaitTick(@NonNull ArrayList<Timeout> expired) {
+        while (true) {
+            if (mPending == 0) {
+                mWorker = null;
+                return false;
+            }
+
+            // Buckets before the first non empty one have nothing to process
+            long tick = mTick;
+            while (mBuckets[(int) (tick & mMask)] == null) {
+                ++tick;
+            }
+
+            final long wakeAt = (tick + 1) * mTickNanos;
+            final long now = elapsed();
+            if (now < wakeAt) {
+                final long timeout = wakeAt - now;
+                mWakeTick = tick;
+                try {
+                    wait(timeout / 1000000L, (int) (timeout % 1000000L));
+                } catch (InterruptedException e) {
+                    // Nobody interrupts worker, just check the wheel again
+                } finally {
+                    mWakeTick = NOT_WAITING;
+                }
+                continue;
+            }
+
+            mTick = tick + 1;
+            expire((int) (tick & mMask), now, expired);
+            if (!expired.isEmpty()) {
+                return true;
+            }
+        }
+    }
+
+    // Has to be called with lock held
+    private void expire(int index, long now, @NonNull ArrayList<Timeout> expired) {
+        Timeout timeout = mBuckets[index];
+        while (timeout != null) {
+            final Timeout next = timeout.mNext;
+            if (timeout.mRounds > 0) {
+                --timeout.mRounds;
+            } else {
+                unlink(timeout);
+                expired.add(timeout);
+            }
+            timeout = next;
+        }
+
+        // Periodic timeouts go back after the whole bucket was processed, they could land in the same bucket
+        for (int position = 0; position < expired.size(); ++position) {
+            final Timeout item = expired.get(position);
+            if (item.mPeriod == 0) {
+                --mPending;
+                continue;
+            }
+
+            // Fixed rate, runs missed while worker was late are skipped
+            long deadline = item.mDeadline + item.mPeriod;
+            if (deadline <= now) {
+                deadline += ((now - deadline) / item.mPeriod + 1) * item.mPeriod;
+            }
+            item.mDeadline = deadline;
+            insert(item);
+        }
+    }
+
+    /* package */ static class Timeout implements ActionHandle {
+        @NonNull
+        private final TimingWheel mWheel;
+
+        @NonNull
+        private final Runnable mTask;
+
+        private final long mPeriod;
+
+        // Fields below are guarded by the wheel
+        private long mDeadline;
+
+        private long mTick;
+
+        private long mRounds;
+
+        private boolean mScheduled;
+
+        private boolean mCancelled;
+
+        @Nullable
+        private Timeout mPrev;
+
+        @Nullable
+        private Timeout mNext;
+
+        private Timeout(@NonNull TimingWheel wheel, @NonNull Runnable task, long deadline, long period) {
+            mWheel = wheel;
+            mTask = task;
+            mDeadline = deadline;
+            mPeriod = period;
+        }
+
+        /**
+         * Cancel the timeout, task could still run once if it has just expired
+         */
+        @Override
+        public void forget() {
+            mWheel.cancel(this);
+        }
+
+        /* package */ boolean isCancelled() {
+            synchronized (mWheel) {
+                return mCancelled;
+            }
+        }
+    }
+
+    private static class SharedHolder {
+        private static final TimingWheel INSTANCE = new TimingWheel("ActorsTimer", DEFAULT_TICK_MILLIS,
+                TimeUnit.MILLISECONDS, DEFAULT_WHEEL_SIZE);
+    }
+}
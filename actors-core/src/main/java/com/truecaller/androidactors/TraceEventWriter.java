@@ -0,0 +1,372 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Observer which streams every actor call as an event of Chrome JSON trace format, so traces
+ * captured in unit tests or on JVM can be opened in ui.perfetto.dev or chrome://tracing.
+ * <pre>
+ * TraceEventWriter trace = new TraceEventWriter(new File("actors.json"));
+ * Instrumentation.install(trace);
+ * ...
+ * Instrumentation.install(null);
+ * trace.close();
+ * </pre>
+ * Every thread records calls into its own lock-free ring buffer, so recording never blocks and doesn't
+ * allocate. Buffers are written to the stream by a background thread. Calls which don't fit into a full
+ * buffer are dropped, see {@link #getDroppedEvents()}.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class TraceEventWriter implements ActorsObserver, Closeable {
+
+    /* package */ static final int DEFAULT_BUFFER_EVENTS = 4096;
+
+    @VisibleForTesting
+    /* package */ static final long FLUSH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    // All actor threads are shown as threads of one process
+    private static final int PID = 1;
+
+    // Start, duration, method id with failure flag, queue time
+    private static final int FIELDS = 4;
+
+    private final long mOrigin = System.nanoTime();
+
+    private final int mCapacity;
+
+    @NonNull
+    private final Writer mOut;
+
+    @NonNull
+    private final ThreadLocal<EventBuffer> mLocalBuffers = new ThreadLocal<>();
+
+    @NonNull
+    private final CopyOnWriteArrayList<EventBuffer> mBuffers = new CopyOnWriteArrayList<>();
+
+    @NonNull
+    private final AtomicLong mDropped = new AtomicLong();
+
+    @NonNull
+    private final Thread mWriter;
+
+    private volatile boolean mClosed = false;
+
+    // Fields below are accessed by the writing thread only
+    @NonNull
+    private final StringBuilder mLine = new StringBuilder();
+
+    @Nullable
+    private IOException mError = null;
+
+    public TraceEventWriter(@NonNull File file) throws FileNotFoundException {
+        this(new FileOutputStream(file), DEFAULT_BUFFER_EVENTS);
+    }
+
+    public TraceEventWriter(@NonNull OutputStream out) {
+        this(out, DEFAULT_BUFFER_EVENTS);
+    }
+
+    /**
+     * @param bufferEvents max number of calls every thread keeps until they are written, rounded up to
+     *                     the power of two
+     */
+    public TraceEventWriter(@NonNull OutputStream out, int bufferEvents) {
+        if (bufferEvents <= 0 || bufferEvents > (1 << 24)) {
+            throw new IllegalArgumentException("Buffer size must be between 1 and 2^24");
+        }
+        int capacity = 1;
+        while (capacity < bufferEvents) {
+            capacity <<= 1;
+        }
+        mCapacity = capacity;
+        mOut = new BufferedWriter(new OutputStreamWriter(out, Charset.forName("UTF-8")));
+        write("{\"traceEvents\":[\n{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":" + PID
+                + ",\"tid\":0,\"args\":{\"name\":\"actors\"}}");
+
+        mWriter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (!mClosed) {
+                    writeBuffers();
+                    LockSupport.parkNanos(this, FLUSH_INTERVAL_NANOS);
+                }
+            }
+        }, "actors-trace-writer");
+        mWriter.setDaemon(true);
+        mWriter.start();
+    }
+
+    @Override
+    public void onEnqueued(int methodId) {
+    }
+
+    @Override
+    public void onStarted(int methodId, long queueTimeNanos) {
+        EventBuffer buffer = mLocalBuffers.get();
+        if (buffer == null) {
+            buffer = new EventBuffer(Thread.currentThread(), mCapacity);
+            mLocalBuffers.set(buffer);
+            mBuffers.add(buffer);
+        }
+        buffer.push(System.nanoTime());
+    }
+
+    @Override
+    public void onCompleted(int methodId, long queueTimeNanos, long wallTimeNanos, long cpuTimeNanos,
+                            boolean failed) {
+        final long finished = System.nanoTime();
+        final EventBuffer buffer = mLocalBuffers.get();
+        if (buffer == null || buffer.mDepth == 0) {
+            return;
+        }
+        final long started = buffer.pop();
+        if (!buffer.offer(started - mOrigin, finished - started, methodId, failed, queueTimeNanos)) {
+            mDropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return number of calls which were not written because buffer of their thread was full
+     */
+    public long getDroppedEvents() {
+        return mDropped.get();
+    }
+
+    /**
+     * Write calls recorded so far and finish the trace. Calls completed after that are ignored
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (mClosed) {
+            return;
+        }
+        mClosed = true;
+        LockSupport.unpark(mWriter);
+        boolean interrupted = false;
+        while (true) {
+            try {
+                mWriter.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        writeBuffers();
+        write("\n]}\n");
+        try {
+            mOut.close();
+        } catch (IOException e) {
+            if (mError == null) {
+                mError = e;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (mError != null) {
+            throw mError;
+        }
+    }
+
+    private void writeBuffers() {
+        boolean written = false;
+        for (EventBuffer buffer : mBuffers) {
+            written |= writeBuffer(buffer);
+            if (!buffer.mThread.isAlive() && buffer.mTail == buffer.mHead.get()) {
+                // Dead thread won't record anything anymore
+                mBuffers.remove(buffer);
+            }
+        }
+        if (written && mError == null) {
+            try {
+                mOut.flush();
+            } catch (IOException e) {
+                mError = e;
+            }
+        }
+    }
+
+    private boolean writeBuffer(@NonNull EventBuffer buffer) {
+        final long head = buffer.mHead.get();
+        long tail = buffer.mTail;
+        if (tail == head) {
+            return false;
+        }
+
+        final long tid = buffer.mThread.getId();
+        if (!buffer.mNamed) {
+            buffer.mNamed = true;
+            mLine.setLength(0);
+            mLine.append(",\n{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":").append(PID)
+                    .append(",\"tid\":").append(tid).append(",\"args\":{\"name\":");
+            appendString(mLine, buffer.mThread.getName());
+            mLine.append("}}");
+            write(mLine);
+        }
+
+        final long[] events = buffer.mEvents;
+        for (; tail < head; ++tail) {
+            final int index = (int) (tail & buffer.mMask) * FIELDS;
+            final int methodId = (int) (events[index + 2] >> 1);
+            final String name = ActorMethods.nameOf(methodId);
+
+            mLine.setLength(0);
+            mLine.append(",\n{\"name\":");
+            appendString(mLine, name != null ? name : ActorsTracer.UNKNOWN_SECTION);
+            mLine.append(",\"cat\":\"actors\",\"ph\":\"X\",\"ts\":");
+            appendMicros(mLine, events[index]);
+            mLine.append(",\"dur\":");
+            appendMicros(mLine, events[index + 1]);
+            mLine.append(",\"pid\":").append(PID).append(",\"tid\":").append(tid).append(",\"args\":{");
+            if (events[index + 3] >= 0) {
+                mLine.append("\"queue_us\":");
+                appendMicros(mLine, events[index + 3]);
+                mLine.append(',');
+            }
+            mLine.append("\"failed\":").append((events[index + 2] & 1) != 0).append("}}");
+            write(mLine);
+        }
+        buffer.mTail = tail;
+        return true;
+    }
+
+    private void write(@NonNull CharSequence text) {
+        if (mError != null) {
+            return;
+        }
+        try {
+            mOut.append(text);
+        } catch (IOException e) {
+            mError = e;
+        }
+    }
+
+    private static void appendMicros(@NonNull StringBuilder builder, long nanos) {
+        builder.append(nanos / 1000).append('.');
+        final long fraction = nanos % 1000;
+        if (fraction < 100) {
+            builder.append('0');
+        }
+        if (fraction < 10) {
+            builder.append('0');
+        }
+        builder.append(fraction);
+    }
+
+    private static void appendString(@NonNull StringBuilder builder, @NonNull String value) {
+        builder.append('"');
+        for (int index = 0; index < value.length(); ++index) {
+            final char c = value.charAt(index);
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c < 0x20) {
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        builder.append('"');
+    }
+
+    /**
+     * Single producer, single consumer ring of calls completed by one thread
+     */
+    private static final class EventBuffer {
+        @NonNull
+        private final Thread mThread;
+
+        @NonNull
+        private final long[] mEvents;
+
+        private final int mMask;
+
+        // Number of recorded events, written by the producer only
+        @NonNull
+        private final AtomicLong mHead = new AtomicLong();
+
+        // Number of written events, written by the consumer only
+        private volatile long mTail = 0;
+
+        // Fields below are accessed by the producer only
+        private long mCachedTail = 0;
+
+        // Start times of calls which are running, calls are nested when actors call same-thread actors
+        @NonNull
+        private long[] mStarts = new long[4];
+
+        private int mDepth = 0;
+
+        // Accessed by the consumer only
+        private boolean mNamed = false;
+
+        private EventBuffer(@NonNull Thread thread, int capacity) {
+            mThread = thread;
+            mEvents = new long[capacity * FIELDS];
+            mMask = capacity - 1;
+        }
+
+        private void push(long started) {
+            if (mDepth == mStarts.length) {
+                mStarts = Arrays.copyOf(mStarts, mDepth * 2);
+            }
+            mStarts[mDepth++] = started;
+        }
+
+        private long pop() {
+            return mStarts[--mDepth];
+        }
+
+        private boolean offer(long start, long duration, int methodId, boolean failed, long queueTime) {
+            final long head = mHead.get();
+            if (head - mCachedTail > mMask) {
+                mCachedTail = mTail;
+                if (head - mCachedTail > mMask) {
+                    return false;
+                }
+            }
+            final int index = (int) (head & mMask) * FIELDS;
+            mEvents[index] = start;
+            mEvents[index + 1] = duration;
+            mEvents[index + 2] = ((long) methodId << 1) | (failed ? 1 : 0);
+            mEvents[index + 3] = queueTime;
+            // Consumer reads fields only after it sees the new head
+            mHead.lazySet(head + 1);
+            return true;
+        }
+    }
+}
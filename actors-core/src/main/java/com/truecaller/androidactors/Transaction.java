@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.concurrent.CancellationException;
+
+/* package */  class Transaction {
+    @VisibleForTesting
+    /* package */ static final int DEFAULT_POOL_SIZE = 32;
+
+    @NonNull
+    /* package */ static final ObjectPool<Transaction> sPool = new ObjectPool<>(new ObjectPool.Factory<Transaction>() {
+        @NonNull
+        @Override
+        public Transaction create() {
+            return new Transaction();
+        }
+    }, DEFAULT_POOL_SIZE);
+
+    Message message;
+
+    Object impl;
+
+    FailureHandler failureHandler;
+
+    // Set only for actors bound through the supervised thread, see Watchdog and MailboxMonitor
+    Supervisor supervisor;
+
+    // Set while the call is in the monitored mailbox
+    MailboxMonitor.PendingCall pending;
+
+    int priority = Priority.NORMAL;
+
+    // Estimated weight, set by bounded mailboxes only
+    long weight;
+
+    // Set only while calls are observed, see Instrumentation
+    int methodId;
+
+    long enqueuedAt;
+
+    // Link to the next transaction in mailbox
+    @Nullable
+    /* package */ volatile Transaction next;
+
+    private Transaction() {
+    }
+
+    /**
+     * Invoke the message on the actor implementation, report failures to the
+     * failure handler and recycle transaction
+     */
+    /* package */ void execute() {
+        leaveMailbox();
+        if (MessageBase.isCancelled(message)) {
+            skip();
+            return;
+        }
+
+        final ActorsObserver observer = Instrumentation.observer();
+        try {
+            if (observer == null) {
+                invoke();
+            } else {
+                executeObserved(observer);
+            }
+        } finally {
+            recycle();
+        }
+    }
+
+    private void executeObserved(@NonNull ActorsObserver observer) {
+        final long started = System.nanoTime();
+        final long queueTime = enqueuedAt != 0 ? started - enqueuedAt : -1;
+        final int id = enqueuedAt != 0 ? methodId : MessageBase.methodIdOf(message);
+        observer.onStarted(id, queueTime);
+
+        final long cpuStarted = Instrumentation.currentThreadCpuNanos();
+        boolean succeeded = false;
+        try {
+            succeeded = invoke();
+        } finally {
+            // Failure handler may rethrow, the call is still reported
+            final long cpuTime = cpuStarted < 0 ? -1 : Instrumentation.currentThreadCpuNanos() - cpuStarted;
+            observer.onCompleted(id, queueTime, System.nanoTime() - started, cpuTime, !succeeded);
+        }
+    }
+
+    /**
+     * @return false if the actor's method has thrown
+     */
+    @SuppressWarnings("unchecked")
+    private boolean invoke() {
+        try {
+            final Watchdog watchdog = supervisor != null ? supervisor.mWatchdog : null;
+            if (watchdog == null) {
+                message.invoke(impl);
+            } else {
+                watchdog.invoke(message, impl);
+            }
+            MessageBase.recycleDelivered(message);
+            return true;
+        } catch (Throwable e) {
+            ActorInvokeException call = message.exception();
+            call.initCause(e);
+            failureHandler.onUncaughtException(impl, message, call);
+            return false;
+        }
+    }
+
+    /**
+     * Throw away the transaction of the cancelled call without executing it
+     */
+    private void skip() {
+        if (message instanceof PromiseProxy) {
+            ((PromiseProxy) message).onDropped(new CancellationException("Call " + message + " was cancelled"));
+        } else {
+            MessageBase.recycleDelivered(message);
+        }
+        recycle();
+    }
+
+    /**
+     * Throw away the transaction which didn't fit into the mailbox without executing it
+     */
+    /* package */ void drop() {
+        leaveMailbox();
+        if (message instanceof PromiseProxy) {
+            ((PromiseProxy) message).onDropped(
+                    new MailboxOverflowException("Mailbox is full, call " + message + " was dropped"));
+        } else {
+            MessageBase.recycleDelivered(message);
+        }
+        recycle();
+    }
+
+    /**
+     * Throw away the transaction which nobody is going to execute
+     *
+     * @param reason exception for callers waiting for the result
+     */
+    /* package */ void reject(@NonNull RuntimeException reason) {
+        leaveMailbox();
+        if (message instanceof PromiseProxy) {
+            ((PromiseProxy) message).onDropped(reason);
+        } else {
+            MessageBase.recycleDelivered(message);
+        }
+        recycle();
+    }
+
+    /**
+     * Throw away the transaction which was replaced by a newer call of the same {@link Coalesce} method
+     *
+     * @param by transaction which took the place of this one
+     */
+    /* package */ void supersede(@NonNull Transaction by) {
+        leaveMailbox();
+        if (message instanceof PromiseProxy) {
+            ((PromiseProxy) by.message).supersede((PromiseProxy) message);
+        } else {
+            MessageBase.recycleDelivered(message);
+        }
+        recycle();
+    }
+
+    private void leaveMailbox() {
+        if (pending != null) {
+            supervisor.mMonitor.onTaken(pending);
+            pending = null;
+        }
+    }
+
+    /* package */ void recycle() {
+        message = null;
+        impl = null;
+        failureHandler = null;
+        supervisor = null;
+        pending = null;
+        priority = Priority.NORMAL;
+        weight = 0;
+        methodId = ActorMethods.UNKNOWN;
+        enqueuedAt = 0;
+        next = null;
+
+        sPool.release(this);
+    }
+
+    @NonNull
+    /* package */ static <T> Transaction obtain(@NonNull T impl, @NonNull Message<T, ?> message,
+                                                @NonNull FailureHandler failureHandler) {
+        return obtain(impl, message, failureHandler, null);
+    }
+
+    @NonNull
+    /* package */ static <T> Transaction obtain(@NonNull T impl, @NonNull Message<T, ?> message,
+                                                @NonNull FailureHandler failureHandler,
+                                                @Nullable Supervisor supervisor) {
+        Transaction transaction = obtain();
+        transaction.impl = impl;
+        transaction.message = message;
+        transaction.failureHandler = failureHandler;
+        transaction.supervisor = supervisor;
+        transaction.priority = MessageBase.priorityOf(message);
+
+        final ActorsObserver observer = Instrumentation.observer();
+        if (observer != null) {
+            transaction.methodId = MessageBase.methodIdOf(message);
+            transaction.enqueuedAt = System.nanoTime();
+            observer.onEnqueued(transaction.methodId);
+        }
+        if (supervisor != null && supervisor.mMonitor != null) {
+            final int id = observer != null ? transaction.methodId : MessageBase.methodIdOf(message);
+            transaction.pending = supervisor.mMonitor.onSent(message, id);
+        }
+        return transaction;
+    }
+
+    @VisibleForTesting
+    /* package */ static void clearPool() {
+        sPool.clear();
+    }
+
+    @NonNull
+    /* package */ static Transaction obtain() {
+        return sPool.acquire();
+    }
+}
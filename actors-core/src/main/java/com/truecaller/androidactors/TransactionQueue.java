@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free multi-producer/single-consumer queue of transactions. Transactions are linked
+ * through their own {@link Transaction#next} field, so the queue doesn't allocate anything
+ * except the initial stub.
+ *
+ * Any thread can call {@link #offer(Transaction)}, but only one thread at a time is allowed
+ * to call {@link #poll()} and {@link #isEmpty()}. Order of transactions from the same producer is preserved.
+ */
+/* package */ class TransactionQueue {
+
+    @NonNull
+    private final AtomicReference<Transaction> mTail;
+
+    // Accessed by consumer only. Head is always a stub which doesn't hold any data
+    @NonNull
+    private Transaction mHead;
+
+    /* package */ TransactionQueue() {
+        mHead = Transaction.obtain();
+        mTail = new AtomicReference<>(mHead);
+    }
+
+    /* package */ void offer(@NonNull Transaction transaction) {
+        transaction.next = null;
+        Transaction prev = mTail.getAndSet(transaction);
+        prev.next = transaction;
+    }
+
+    /**
+     * @return next transaction or null if there are no transactions which are ready to be consumed.
+     *         Returned object isn't the same instance which was passed to {@link #offer(Transaction)},
+     *         but it holds the same data.
+     */
+    @Nullable
+    /* package */ Transaction poll() {
+        final Transaction head = mHead;
+        final Transaction next = head.next;
+        if (next == null) {
+            return null;
+        }
+
+        // Next node becomes new stub, so move its data to the current one and return it
+        head.impl = next.impl;
+        head.message = next.message;
+        head.failureHandler = next.failureHandler;
+        head.supervisor = next.supervisor;
+        head.pending = next.pending;
+        head.priority = next.priority;
+        head.weight = next.weight;
+        head.methodId = next.methodId;
+        head.enqueuedAt = next.enqueuedAt;
+        next.impl = null;
+        next.message = null;
+        next.failureHandler = null;
+        next.supervisor = null;
+        next.pending = null;
+        next.enqueuedAt = 0;
+
+        mHead = next;
+        head.next = null;
+        return head;
+    }
+
+    /**
+     * @return true if there are no transactions in the queue, including the ones which are
+     *         being added right now
+     */
+    /* package */ boolean isEmpty() {
+        final Transaction head = mHead;
+        return head.next == null && mTail.get() == head;
+    }
+}
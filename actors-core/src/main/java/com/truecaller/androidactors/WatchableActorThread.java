@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Actor thread which is able to execute calls under {@link Watchdog} and {@link MailboxMonitor}. All
+ * actor threads created by the library implement it.
+ */
+/* package */ interface WatchableActorThread extends ActorThread {
+    /**
+     * Bind actor implementation to a thread
+     *
+     * @param supervisor diagnostics of every call to the actor, null to bind without them
+     */
+    @NonNull
+    <T> ActorRef<T> bind(@NonNull Class<T> cls, @NonNull T impl, @Nullable Supervisor supervisor);
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Detector of slow and stuck actor calls. Calls which take longer than the execution budget are
+ * reported right after they complete, calls which are still running after the stuck threshold are
+ * reported with the stack of the actor's thread. Calls are identified by their {@code toString()},
+ * so parameters are hidden according to {@link SecureParameter}.
+ * <pre>
+ * Watchdog watchdog = Watchdog.builder(16, TimeUnit.MILLISECONDS, reporter)
+ *         .setStuckThreshold(2, TimeUnit.SECONDS)
+ *         .build();
+ * ActorThread ui = watchdog.watch(actors.ui());
+ * </pre>
+ * Only actors bound through the returned thread are watched. Stuck calls are tracked by the single
+ * timer thread shared with delayed calls, see {@link ActorRef#tellAfter(long, TimeUnit)}.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class Watchdog {
+
+    /* package */ static final long NO_THRESHOLD = 0;
+
+    public interface Reporter {
+        /**
+         * Call took longer than the execution budget. Called on the actor's thread right after
+         * the call, so it has to be fast
+         *
+         * @param call string representation of the call
+         * @param elapsedMillis time the call took
+         */
+        void onSlowCall(@NonNull String call, long elapsedMillis);
+
+        /**
+         * Call is still running after the stuck threshold. Called on the timer thread, so it
+         * has to be fast
+         *
+         * @param call string representation of the call
+         * @param elapsedMillis time since the call was started
+         * @param thread thread which executes the call
+         * @param stack stack of the thread at the moment of the check
+         */
+        void onStuckCall(@NonNull String call, long elapsedMillis, @NonNull Thread thread,
+                         @NonNull StackTraceElement[] stack);
+    }
+
+    private final long mBudgetNanos;
+
+    private final long mStuckNanos;
+
+    @NonNull
+    private final Reporter mReporter;
+
+    @NonNull
+    private final TimingWheel mWheel;
+
+    private Watchdog(@NonNull Builder builder, @NonNull TimingWheel wheel) {
+        mBudgetNanos = builder.mBudgetNanos;
+        mStuckNanos = builder.mStuckNanos;
+        mReporter = builder.mReporter;
+        mWheel = wheel;
+    }
+
+    /**
+     * @param budget max time a call is expected to take, longer calls are reported as slow
+     * @param reporter receiver of reports
+     */
+    @NonNull
+    public static Builder builder(long budget, @NonNull TimeUnit unit, @NonNull Reporter reporter) {
+        return new Builder(budget, unit, reporter);
+    }
+
+    /**
+     * Watch calls of actors bound to the thread
+     *
+     * @param thread one of the threads created by the generated builder
+     * @return thread which binds actors under this watchdog, actors bound to the original thread
+     *         are not watched. It is a {@link PrioritizedActorThread} if the original thread is one
+     */
+    @NonNull
+    public ActorThread watch(@NonNull ActorThread thread) {
+        return Supervisor.watch(thread, this);
+    }
+
+    /**
+     * Invoke the message on the actor implementation and report it if it is slow or gets stuck.
+     * Has to be called on the thread which executes the call
+     */
+    @SuppressWarnings("unchecked")
+    /* package */ void invoke(@NonNull Message message, @NonNull Object impl) {
+        final long started = System.nanoTime();
+        Watch watch = null;
+        if (mStuckNanos != NO_THRESHOLD) {
+            watch = new Watch(message, Thread.currentThread(), started);
+            watch.mTimeout = mWheel.schedule(watch, mStuckNanos, 0);
+        }
+
+        try {
+            message.invoke(impl);
+        } finally {
+            if (watch != null) {
+                watch.finish();
+            }
+            final long elapsed = System.nanoTime() - started;
+            if (elapsed > mBudgetNanos) {
+                mReporter.onSlowCall(message.toString(), TimeUnit.NANOSECONDS.toMillis(elapsed));
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Watchdog{budget=" + TimeUnit.NANOSECONDS.toMillis(mBudgetNanos) + "ms, stuck="
+                + TimeUnit.NANOSECONDS.toMillis(mStuckNanos) + "ms}";
+    }
+
+    /**
+     * Call which is being executed. Stuck check runs on the timer thread, so the message is read
+     * under the lock, the call can't complete and recycle its message in the meantime
+     */
+    private class Watch implements Runnable {
+        @Nullable
+        private Message mMessage;
+
+        @NonNull
+        private final Thread mThread;
+
+        private final long mStarted;
+
+        // Written and read by the actor's thread only
+        @Nullable
+        private TimingWheel.Timeout mTimeout;
+
+        private Watch(@NonNull Message message, @NonNull Thread thread, long started) {
+            mMessage = message;
+            mThread = thread;
+            mStarted = started;
+        }
+
+        @Override
+        public void run() {
+            final String call;
+            final StackTraceElement[] stack;
+            synchronized (this) {
+                if (mMessage == null) {
+                    return;
+                }
+                call = mMessage.toString();
+                stack = mThread.getStackTrace();
+            }
+            mReporter.onStuckCall(call, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - mStarted), mThread, stack);
+        }
+
+        private void finish() {
+            synchronized (this) {
+                mMessage = null;
+            }
+            if (mTimeout != null) {
+                mTimeout.forget();
+            }
+        }
+    }
+
+    public static final class Builder {
+        private final long mBudgetNanos;
+
+        @NonNull
+        private final Reporter mReporter;
+
+        private long mStuckNanos = NO_THRESHOLD;
+
+        @Nullable
+        private TimingWheel mWheel = null;
+
+        private Builder(long budget, @NonNull TimeUnit unit, @NonNull Reporter reporter) {
+            if (budget < 0) {
+                throw new IllegalArgumentException("Budget can't be negative");
+            }
+            mBudgetNanos = unit.toNanos(budget);
+            mReporter = reporter;
+        }
+
+        /**
+         * @param threshold time after which running call is reported as stuck, by default calls are not
+         *                  checked while they are running
+         */
+        @NonNull
+        public Builder setStuckThreshold(long threshold, @NonNull TimeUnit unit) {
+            if (threshold <= 0) {
+                throw new IllegalArgumentException("Stuck threshold must be positive");
+            }
+            mStuckNanos = unit.toNanos(threshold);
+            return this;
+        }
+
+        @VisibleForTesting
+        @NonNull
+        /* package */ Builder setWheel(@NonNull TimingWheel wheel) {
+            mWheel = wheel;
+            return this;
+        }
+
+        @NonNull
+        public Watchdog build() {
+            return new Watchdog(this, mWheel != null ? mWheel : TimingWheel.shared());
+        }
+    }
+}
@@ -16,6 +16,7 @@
 
 package com.truecaller.androidactors;
 
+import org.junit.After;
 import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -39,4 +40,40 @@ public class ActorMethodInvokeExceptionTest {
         String exceptionMessage = exception.getMessage();
         Assert.assertNull(exceptionMessage);
     }
+
+    @After
+    public void tearDown() {
+        CallSiteCapturePolicy.install(CallSiteCapturePolicy.always());
+    }
+
+    @Test
+    public void capture_fillStackTrace_policyAllows() {
+        CallSiteCapturePolicy.install(CallSiteCapturePolicy.always());
+        ActorMethodInvokeException exception = ActorMethodInvokeException.capture(Runnable.class);
+
+        Assert.assertTrue(exception.isCallSiteCaptured());
+        Assert.assertTrue(exception.getStackTrace().length > 0);
+    }
+
+    @Test
+    public void capture_skipStackTrace_policyDenies() {
+        CallSiteCapturePolicy.install(CallSiteCapturePolicy.off());
+        ActorMethodInvokeException exception = ActorMethodInvokeException.capture(Runnable.class);
+
+        Assert.assertFalse(exception.isCallSiteCaptured());
+        Assert.assertEquals(0, exception.getStackTrace().length);
+    }
+
+    @Test
+    public void messageInitialized_mentionPolicy_callSiteNotCaptured() {
+        Message message = Mockito.mock(Message.class);
+        //noinspection ResultOfMethodCallIgnored
+        Mockito.doReturn(".run()").when(message).toString();
+        ActorInvokeException exception = new ActorInvokeException("EXCEPTION TEST:", false);
+        exception.setMethodSignature(Runnable.class, message);
+
+        String exceptionMessage = exception.getMessage();
+        Assert.assertTrue(exceptionMessage.startsWith("EXCEPTION TEST: Runnable.run()"));
+        Assert.assertTrue(exceptionMessage.contains("CallSiteCapturePolicy"));
+    }
 }
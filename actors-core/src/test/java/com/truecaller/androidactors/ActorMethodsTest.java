@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ActorMethodsTest {
+
+    @Test
+    public void register_consecutiveIds_severalMethods() {
+        int base = ActorMethods.register(Runnable.class, "run", "stop");
+
+        Assert.assertTrue(base > ActorMethods.UNKNOWN);
+        Assert.assertEquals(base + 2, ActorMethods.count());
+        Assert.assertSame(Runnable.class, ActorMethods.interfaceOf(base));
+        Assert.assertEquals("run", ActorMethods.methodOf(base));
+        Assert.assertSame(Runnable.class, ActorMethods.interfaceOf(base + 1));
+        Assert.assertEquals("stop", ActorMethods.methodOf(base + 1));
+        Assert.assertEquals("Runnable.run", ActorMethods.nameOf(base));
+        Assert.assertEquals("Runnable.stop", ActorMethods.nameOf(base + 1));
+    }
+
+    @Test
+    public void register_differentIds_sameInterfaceTwice() {
+        int first = ActorMethods.register(Runnable.class, "run");
+        int second = ActorMethods.register(Runnable.class, "run");
+
+        Assert.assertNotEquals(first, second);
+    }
+
+    @Test
+    public void interfaceOf_null_unknownIds() {
+        Assert.assertNull(ActorMethods.interfaceOf(ActorMethods.UNKNOWN));
+        Assert.assertNull(ActorMethods.methodOf(ActorMethods.UNKNOWN));
+        Assert.assertNull(ActorMethods.interfaceOf(-1));
+        Assert.assertNull(ActorMethods.methodOf(ActorMethods.count()));
+        Assert.assertNull(ActorMethods.nameOf(ActorMethods.UNKNOWN));
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.util.concurrent.TimeUnit;
+
+public class ActorRefImplTest {
+    /**
+     * Just check that reference is always the same
+     */
+    @Test
+    public void referenceTest() {
+        ProxyFactory proxyFactory = Mockito.mock(ProxyFactory.class);
+        MessageSender sender = Mockito.mock(MessageSender.class);
+        Runnable proxy = Mockito.mock(Runnable.class);
+        Mockito.doReturn(proxy).when(proxyFactory).newProxy(Runnable.class, sender);
+
+        ActorRefImpl<Runnable> ref = new ActorRefImpl<>(proxyFactory, Runnable.class, sender);
+        Assert.assertSame(proxy, ref.tell());
+        Assert.assertSame(proxy, ref.tell());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void tell_overridePriority_prioritizedProxy() {
+        ProxyFactory proxyFactory = Mockito.mock(ProxyFactory.class);
+        MessageSender sender = Mockito.mock(MessageSender.class);
+        Runnable proxy = Mockito.mock(Runnable.class);
+        Runnable highProxy = Mockito.mock(Runnable.class);
+        Mockito.doReturn(highProxy).when(proxyFactory).newProxy(Mockito.eq(Runnable.class),
+                Mockito.<MessageSender>any());
+        Mockito.doReturn(proxy).when(proxyFactory).newProxy(Runnable.class, sender);
+
+        ActorRefImpl<Runnable> ref = new ActorRefImpl<>(proxyFactory, Runnable.class, sender);
+        Assert.assertSame(proxy, ref.tell());
+        Assert.assertSame(highProxy, ref.tell(Priority.HIGH));
+        // Proxy is created once per priority
+        Assert.assertSame(highProxy, ref.tell(Priority.HIGH));
+
+        ArgumentCaptor<MessageSender> captor = ArgumentCaptor.forClass(MessageSender.class);
+        Mockito.verify(proxyFactory, Mockito.times(2)).newProxy(Mockito.eq(Runnable.class), captor.capture());
+        PooledRunnableMessage message = PooledRunnableMessage.obtain(null);
+        captor.getAllValues().get(1).deliver(message);
+
+        Mockito.verify(sender).deliver(message);
+        Assert.assertEquals(Priority.HIGH, message.getPriority());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tell_throw_unknownPriority() {
+        ProxyFactory proxyFactory = Mockito.mock(ProxyFactory.class);
+        MessageSender sender = Mockito.mock(MessageSender.class);
+        new ActorRefImpl<>(proxyFactory, Runnable.class, sender).tell(Priority.HIGH + 1);
+    }
+
+    @Test
+    public void tellAfter_scheduleOnWheel_delayInNanos() {
+        ProxyFactory proxyFactory = Mockito.mock(ProxyFactory.class);
+        MessageSender sender = Mockito.mock(MessageSender.class);
+        TimingWheel wheel = Mockito.mock(TimingWheel.class);
+        ActorRefImpl<Runnable> ref = new ActorRefImpl<>(proxyFactory, Runnable.class, sender, null, wheel);
+
+        ScheduledRef<Runnable> scheduled = ref.tellAfter(5, TimeUnit.MILLISECONDS);
+        ((MessageSender) scheduled).deliver(PooledRunnableMessage.obtain(null));
+
+        Mockito.verify(wheel).schedule(Mockito.any(Runnable.class), Mockito.eq(TimeUnit.MILLISECONDS.toNanos(5)),
+                Mockito.eq(0L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tellAtFixedRate_throw_zeroPeriod() {
+        ProxyFactory proxyFactory = Mockito.mock(ProxyFactory.class);
+        MessageSender sender = Mockito.mock(MessageSender.class);
+        new ActorRefImpl<>(proxyFactory, Runnable.class, sender).tellAtFixedRate(0, 0, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class ActorThreadConfigTest {
+
+    @Test
+    public void build_defaultValues_nothingSet() {
+        ActorThreadConfig config = ActorThreadConfig.builder().build();
+
+        Assert.assertEquals(LockFreeActorThread.NO_DELAY, config.mStopDelayMillis);
+        Assert.assertEquals(ActorThreadConfig.NO_PRIORITY, config.mThreadPriority);
+        Assert.assertEquals(ThreadPriority.DEFAULT, config.threadPriority());
+        Assert.assertNull(config.mMailbox);
+        Assert.assertEquals(0, config.mMaxBatchSize);
+        Assert.assertEquals(-1, config.mMaxBatchTimeMillis);
+    }
+
+    @Test
+    public void build_keepValues_allValuesSet() {
+        MailboxConfig mailbox = MailboxConfig.builder(10).build();
+        ActorThreadConfig config = ActorThreadConfig.builder()
+                .setStopDelay(2, TimeUnit.SECONDS)
+                .setThreadPriority(ThreadPriority.BACKGROUND)
+                .setMailbox(mailbox)
+                .setBatching(16, 8, TimeUnit.MILLISECONDS)
+                .build();
+
+        Assert.assertEquals(2000, config.mStopDelayMillis);
+        Assert.assertEquals(ThreadPriority.BACKGROUND, config.threadPriority());
+        Assert.assertSame(mailbox, config.mMailbox);
+        Assert.assertEquals(16, config.mMaxBatchSize);
+        Assert.assertEquals(8, config.mMaxBatchTimeMillis);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setStopDelay_throw_negativeDelay() {
+        ActorThreadConfig.builder().setStopDelay(-1, TimeUnit.MILLISECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setBatching_throw_zeroBatchSize() {
+        ActorThreadConfig.builder().setBatching(0, 10, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class ActorThreadPoolConfigTest {
+
+    @Test
+    public void build_defaultValues_onlyMaxThreads() {
+        ActorThreadPoolConfig config = ActorThreadPoolConfig.builder(4).build();
+
+        Assert.assertEquals(1, config.mCoreThreads);
+        Assert.assertEquals(4, config.mMaxThreads);
+        Assert.assertEquals(ActorThreadPoolConfig.QueueType.UNBOUNDED, config.mQueueType);
+        Assert.assertEquals(ExecutorActorThread.DEFAULT_THROUGHPUT, config.mThroughput);
+        Assert.assertEquals(ThreadPriority.DEFAULT, config.mThreadPriority);
+        Assert.assertNull(config.mMailbox);
+    }
+
+    @Test
+    public void build_keepValues_allValuesSet() {
+        MailboxConfig mailbox = MailboxConfig.builder(10).build();
+        ActorThreadPoolConfig config = ActorThreadPoolConfig.builder(8)
+                .setCoreThreads(2)
+                .setKeepAlive(3, TimeUnit.SECONDS)
+                .setQueue(ActorThreadPoolConfig.QueueType.BOUNDED, 100)
+                .setGrowAfter(10, TimeUnit.MILLISECONDS)
+                .setThroughput(5)
+                .setThreadPriority(ThreadPriority.BACKGROUND)
+                .setMailbox(mailbox)
+                .build();
+
+        Assert.assertEquals(2, config.mCoreThreads);
+        Assert.assertSame(mailbox, config.mMailbox);
+        Assert.assertEquals(8, config.mMaxThreads);
+        Assert.assertEquals(3000, config.mKeepAliveMillis);
+        Assert.assertEquals(ActorThreadPoolConfig.QueueType.BOUNDED, config.mQueueType);
+        Assert.assertEquals(100, config.mQueueCapacity);
+        Assert.assertEquals(10, config.mGrowAfterMillis);
+        Assert.assertEquals(5, config.mThroughput);
+        Assert.assertEquals(ThreadPriority.BACKGROUND, config.mThreadPriority);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void builder_throw_zeroMaxThreads() {
+        ActorThreadPoolConfig.builder(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setCoreThreads_throw_moreThanMax() {
+        ActorThreadPoolConfig.builder(2).setCoreThreads(3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setQueue_throw_boundedWithoutCapacity() {
+        ActorThreadPoolConfig.builder(2).setQueue(ActorThreadPoolConfig.QueueType.BOUNDED, 0);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class ActorsMetricsTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_throw_noMethods() {
+        new ActorsMetrics(0);
+    }
+
+    @Test
+    public void snapshot_empty_nothingCalled() {
+        Assert.assertTrue(new ActorsMetrics().snapshot().isEmpty());
+    }
+
+    @Test
+    public void snapshot_aggregatePerMethod_severalCalls() {
+        int base = ActorMethods.register(Runnable.class, "run", "stop");
+        ActorsMetrics metrics = new ActorsMetrics(base + 2);
+
+        metrics.onEnqueued(base);
+        metrics.onEnqueued(base);
+        metrics.onEnqueued(base + 1);
+        metrics.onCompleted(base, 100, 1000, 500, false);
+        metrics.onCompleted(base, 200, 2000, -1, true);
+        metrics.onCompleted(base + 1, -1, 3000, 3000, false);
+
+        List<ActorsMetrics.MethodSnapshot> snapshot = metrics.snapshot();
+        Assert.assertEquals(2, snapshot.size());
+
+        ActorsMetrics.MethodSnapshot run = snapshot.get(0);
+        Assert.assertEquals(base, run.getMethodId());
+        Assert.assertSame(Runnable.class, run.getActorInterface());
+        Assert.assertEquals("run", run.getMethod());
+        Assert.assertEquals(2, run.getEnqueued());
+        Assert.assertEquals(1, run.getFailures());
+        Assert.assertEquals(2, run.getQueueTime().getCount());
+        Assert.assertEquals(200, run.getQueueTime().getMax());
+        Assert.assertEquals(2, run.getWallTime().getCount());
+        Assert.assertEquals(3000, run.getWallTime().getSum());
+        // CPU time wasn't available for the second call
+        Assert.assertEquals(1, run.getCpuTime().getCount());
+
+        ActorsMetrics.MethodSnapshot stop = snapshot.get(1);
+        Assert.assertEquals("stop", stop.getMethod());
+        Assert.assertEquals(1, stop.getEnqueued());
+        Assert.assertEquals(0, stop.getFailures());
+        Assert.assertEquals(0, stop.getQueueTime().getCount());
+    }
+
+    @Test
+    public void snapshot_countAsUnknown_idsOutOfRange() {
+        ActorsMetrics metrics = new ActorsMetrics(4);
+
+        metrics.onEnqueued(100);
+        metrics.onEnqueued(-5);
+        metrics.onEnqueued(ActorMethods.UNKNOWN);
+
+        List<ActorsMetrics.MethodSnapshot> snapshot = metrics.snapshot();
+        Assert.assertEquals(1, snapshot.size());
+        Assert.assertEquals(ActorMethods.UNKNOWN, snapshot.get(0).getMethodId());
+        Assert.assertNull(snapshot.get(0).getActorInterface());
+        Assert.assertEquals(3, snapshot.get(0).getEnqueued());
+    }
+
+    @Test
+    public void execute_recordCall_metricsInstalled() {
+        final int base = ActorMethods.register(Runnable.class, "run");
+        ActorsMetrics metrics = new ActorsMetrics();
+        Instrumentation.install(metrics);
+        try {
+            Transaction transaction = Transaction.obtain(new Object(), new MessageBase<Object, Void>(null) {
+                @Override
+                public Promise<Void> invoke(Object target) {
+                    return null;
+                }
+
+                @Override
+                public int getMethodId() {
+                    return base;
+                }
+            }, new CrashEarlyFailureHandler());
+            transaction.execute();
+        } finally {
+            Instrumentation.install(null);
+        }
+
+        List<ActorsMetrics.MethodSnapshot> snapshot = metrics.snapshot();
+        Assert.assertEquals(1, snapshot.size());
+        Assert.assertEquals(base, snapshot.get(0).getMethodId());
+        Assert.assertEquals(1, snapshot.get(0).getEnqueued());
+        Assert.assertEquals(1, snapshot.get(0).getWallTime().getCount());
+        Assert.assertEquals(1, snapshot.get(0).getQueueTime().getCount());
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ActorsTracerTest {
+
+    @Test
+    public void onStarted_beginSection_registeredMethod() {
+        int base = ActorMethods.register(Runnable.class, "run");
+        RecordingTracer tracer = new RecordingTracer();
+
+        tracer.onEnqueued(base);
+        tracer.onStarted(base, 10);
+        tracer.onCompleted(base, 10, 20, 20, false);
+
+        Assert.assertEquals(2, tracer.mSections.size());
+        Assert.assertEquals("Runnable.run", tracer.mSections.get(0));
+        Assert.assertEquals("end", tracer.mSections.get(1));
+    }
+
+    @Test
+    public void onStarted_defaultSection_unknownMethod() {
+        RecordingTracer tracer = new RecordingTracer();
+
+        tracer.onStarted(ActorMethods.UNKNOWN, -1);
+        tracer.onCompleted(ActorMethods.UNKNOWN, -1, 20, 20, true);
+
+        Assert.assertEquals(ActorsTracer.UNKNOWN_SECTION, tracer.mSections.get(0));
+        Assert.assertEquals("end", tracer.mSections.get(1));
+    }
+
+    private static class RecordingTracer extends ActorsTracer {
+        private final List<String> mSections = new ArrayList<>();
+
+        @Override
+        protected void beginSection(@NonNull String name) {
+            mSections.add(name);
+        }
+
+        @Override
+        protected void endSection() {
+            mSections.add("end");
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class BlockingCallsTest {
+
+    @Mock
+    private BlockingCalls.Reporter mReporter;
+
+    @Mock
+    private MessageSender mSender;
+
+    @Mock
+    private Message<Object, Object> mMessage;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        Mockito.doReturn("Storage.get()").when(mMessage).toString();
+    }
+
+    @After
+    public void tearDown() {
+        BlockingCalls.stop();
+    }
+
+    @Test
+    public void onWait_report_detectedThread() {
+        BlockingCalls.detect(Thread.currentThread(), mReporter);
+
+        BlockingCalls.onWait("Storage.get()");
+
+        ArgumentCaptor<Throwable> captor = ArgumentCaptor.forClass(Throwable.class);
+        Mockito.verify(mReporter).onBlockingCall(Mockito.eq("Storage.get()"), captor.capture());
+        Assert.assertEquals("onWait_report_detectedThread", captor.getValue().getStackTrace()[1].getMethodName());
+    }
+
+    @Test
+    public void onWait_ignore_otherThread() {
+        BlockingCalls.detect(new Thread(), mReporter);
+
+        BlockingCalls.onWait("Storage.get()");
+
+        Mockito.verifyZeroInteractions(mReporter);
+    }
+
+    @Test
+    public void onWait_ignore_stopped() {
+        BlockingCalls.detect(Thread.currentThread(), mReporter);
+        BlockingCalls.stop();
+
+        BlockingCalls.onWait("Storage.get()");
+
+        Mockito.verifyZeroInteractions(mReporter);
+    }
+
+    @Test(timeout = 2000)
+    public void get_report_resultNotReady() throws Exception {
+        BlockingCalls.detect(Thread.currentThread(), mReporter);
+        PromiseProxy<Object, Object> promise = new PromiseProxy<>(mSender, mMessage);
+
+        try {
+            promise.get(1, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // nobody delivers the result
+        }
+
+        Mockito.verify(mReporter).onBlockingCall(Mockito.eq("Storage.get()"), Mockito.<Throwable>any());
+    }
+
+    @Test
+    public void get_notReport_resultReady() throws Exception {
+        BlockingCalls.detect(Thread.currentThread(), mReporter);
+
+        Assert.assertEquals(42, (int) Promise.wrap(1).map(new Mapper<Integer, Integer>() {
+            @Override
+            public Integer map(Integer value) {
+                return 42;
+            }
+        }).get());
+
+        Mockito.verifyZeroInteractions(mReporter);
+    }
+}
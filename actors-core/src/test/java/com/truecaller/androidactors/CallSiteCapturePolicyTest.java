@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class CallSiteCapturePolicyTest {
+
+    @After
+    public void tearDown() {
+        CallSiteCapturePolicy.install(CallSiteCapturePolicy.always());
+    }
+
+    @Test
+    public void always_capture_anyInterface() {
+        Assert.assertTrue(CallSiteCapturePolicy.always().shouldCapture(Runnable.class));
+        Assert.assertTrue(CallSiteCapturePolicy.always().shouldCapture(ResultListener.class));
+    }
+
+    @Test
+    public void off_neverCapture_anyInterface() {
+        Assert.assertFalse(CallSiteCapturePolicy.off().shouldCapture(Runnable.class));
+        Assert.assertFalse(CallSiteCapturePolicy.off().shouldCapture(ResultListener.class));
+    }
+
+    @Test
+    public void sampled_captureOneOfN_singleThread() {
+        CallSiteCapturePolicy policy = CallSiteCapturePolicy.sampled(4);
+        int captured = 0;
+        for (int index = 0; index < 100; ++index) {
+            if (policy.shouldCapture(Runnable.class)) {
+                ++captured;
+            }
+        }
+        Assert.assertEquals(25, captured);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sampled_throw_invalidRate() {
+        CallSiteCapturePolicy.sampled(0);
+    }
+
+    @Test
+    public void forInterfaces_captureListedOnly_always() {
+        CallSiteCapturePolicy policy = CallSiteCapturePolicy.forInterfaces(Runnable.class);
+        Assert.assertTrue(policy.shouldCapture(Runnable.class));
+        Assert.assertFalse(policy.shouldCapture(ResultListener.class));
+    }
+
+    @Test
+    public void constructor_keepPolicy_anotherThreadsCreated() {
+        CallSiteCapturePolicy policy = CallSiteCapturePolicy.off();
+        CallSiteCapturePolicy.install(policy);
+        new CoreActorsThreadsBase(Mockito.mock(ProxyFactory.class), new CrashEarlyFailureHandler()) {};
+        Assert.assertSame(policy, CallSiteCapturePolicy.current());
+    }
+}
@@ -0,0 +1,448 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import java.util.concurrent.TimeUnit;
+
+@SuppressWarnings("unchecked")
+public class ComposedPromiseTest {
+
+    private static final Mapper<Integer, Integer> DOUBLE = new Mapper<Integer, Integer>() {
+        @Override
+        public Integer map(Integer value) {
+            return value * 2;
+        }
+    };
+
+    private static final Mapper<Integer, Integer> FAILING = new Mapper<Integer, Integer>() {
+        @Override
+        public Integer map(Integer value) {
+            throw new IllegalStateException("Failed to map " + value);
+        }
+    };
+
+    @Mock
+    private ResultListener<Integer> mListener;
+
+    @Mock
+    private ResourceCleaner<Integer> mCleaner;
+
+    @Mock
+    private ActorThread mThread;
+
+    @Mock
+    private ResultListener<Integer> mHop;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        Mockito.doReturn(new ActorRef<ResultListener<Integer>>() {
+            @Override
+            public ResultListener<Integer> tell() {
+                return mHop;
+            }
+
+            @Override
+            public ResultListener<Integer> tell(int priority) {
+                return mHop;
+            }
+
+            @Override
+            public MailboxStatus mailbox() {
+                return null;
+            }
+
+            @Override
+            public ScheduledRef<ResultListener<Integer>> tellAfter(long delay, TimeUnit unit) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public ScheduledRef<ResultListener<Integer>> tellAtFixedRate(long initialDelay, long period, TimeUnit unit) {
+                throw new UnsupportedOperationException();
+            }
+        }).when(mThread).bind(Mockito.same(ResultListener.class), Mockito.<ResultListener>any());
+    }
+
+    @Test
+    public void map_deliverConverted_withListener() {
+        Promise.wrap(21).map(DOUBLE).then(mListener);
+
+        Mockito.verify(mListener).onResult(42);
+    }
+
+    @Test
+    public void map_notCallSource_untilThen() {
+        ManualPromise<Integer> source = new ManualPromise<>();
+
+        Promise<Integer> mapped = source.map(DOUBLE);
+
+        Assert.assertNull(source.mListener);
+        mapped.thenNothing();
+        Assert.assertNotNull(source.mListener);
+    }
+
+    @Test
+    public void map_sendOnce_chainOnThread() {
+        Promise.wrap(1).map(DOUBLE).map(DOUBLE).map(DOUBLE).then(mThread, mListener);
+
+        Mockito.verify(mThread, Mockito.times(1)).bind(Mockito.same(ResultListener.class), Mockito.<ResultListener>any());
+        Mockito.verify(mHop).onResult(8);
+        Mockito.verifyZeroInteractions(mListener);
+        deliverHop().onResult(8);
+        Mockito.verify(mListener).onResult(8);
+    }
+
+    @Test
+    public void map_cleanSource_forgottenBeforeResult() {
+        ManualPromise<Integer> source = new ManualPromise<>();
+        Mapper<Integer, Integer> mapper = Mockito.mock(Mapper.class);
+
+        source.map(mapper).then(mListener).forget();
+        source.complete(1, mCleaner);
+
+        Mockito.verify(mCleaner).clean(1);
+        Mockito.verifyZeroInteractions(mapper, mListener);
+    }
+
+    @Test
+    public void forget_cancelSource_pendingCall() {
+        PromiseProxy<Object, Integer> source = new PromiseProxy<>(Mockito.mock(MessageSender.class),
+                Mockito.mock(Message.class));
+
+        source.map(DOUBLE).map(DOUBLE).then(mListener).forget();
+
+        Assert.assertTrue(source.isCancelled());
+    }
+
+    @Test
+    public void forget_cancelNext_flatMapped() {
+        ManualPromise<Integer> source = new ManualPromise<>();
+        final PromiseProxy<Object, Integer> next = new PromiseProxy<>(Mockito.mock(MessageSender.class),
+                Mockito.mock(Message.class));
+
+        ActionHandle handle = source.flatMap(new Mapper<Integer, Promise<Integer>>() {
+            @Override
+            public Promise<Integer> map(Integer value) {
+                return next;
+            }
+        }).then(mListener);
+        source.complete(1, null);
+        Assert.assertFalse(next.isCancelled());
+
+        handle.forget();
+
+        Assert.assertTrue(next.isCancelled());
+    }
+
+    @Test
+    public void map_notCleanSource_mapped() {
+        ManualPromise<Integer> source = new ManualPromise<>();
+
+        source.map(DOUBLE).then(mListener);
+        source.complete(1, mCleaner);
+
+        Mockito.verify(mListener).onResult(2);
+        Mockito.verifyZeroInteractions(mCleaner);
+    }
+
+    @Test
+    public void map_passCleaner_forgottenBeforeHop() {
+        ManualPromise<Integer> source = new ManualPromise<>();
+        ResourceCleaner<Integer> cleaner = Mockito.mock(ResourceCleaner.class);
+
+        ActionHandle handle = source.flatMap(new Mapper<Integer, Promise<Integer>>() {
+            @Override
+            public Promise<Integer> map(Integer value) {
+                return Promise.wrap(value + 1, mCleaner);
+            }
+        }).then(mThread, mListener);
+        source.complete(1, cleaner);
+        handle.forget();
+        deliverHop().onResult(2);
+
+        Mockito.verify(mCleaner).clean(2);
+        Mockito.verifyZeroInteractions(cleaner, mListener);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void map_rethrow_mapperFailedWithoutRecover() {
+        Promise.wrap(1).map(FAILING).then(mListener);
+    }
+
+    @Test
+    public void flatMap_deliverNextResult_withListener() {
+        ManualPromise<Integer> source = new ManualPromise<>();
+        final ManualPromise<Integer> next = new ManualPromise<>();
+
+        source.flatMap(new Mapper<Integer, Promise<Integer>>() {
+            @Override
+            public Promise<Integer> map(Integer value) {
+                return next;
+            }
+        }).then(mListener);
+        Assert.assertNull(next.mListener);
+        source.complete(1, null);
+        next.complete(2, null);
+
+        Mockito.verify(mListener).onResult(2);
+    }
+
+    @Test
+    public void flatMap_cleanNext_forgottenBeforeNextResult() {
+        ManualPromise<Integer> source = new ManualPromise<>();
+        final ManualPromise<Integer> next = new ManualPromise<>();
+
+        ActionHandle handle = source.flatMap(new Mapper<Integer, Promise<Integer>>() {
+            @Override
+            public Promise<Integer> map(Integer value) {
+                return next;
+            }
+        }).then(mListener);
+        source.complete(1, null);
+        handle.forget();
+        next.complete(2, mCleaner);
+
+        Mockito.verify(mCleaner).clean(2);
+        Mockito.verifyZeroInteractions(mListener);
+    }
+
+    @Test
+    public void flatMap_completeWithNull_nullPromise() {
+        Promise.wrap(1).flatMap(new Mapper<Integer, Promise<Integer>>() {
+            @Override
+            public Promise<Integer> map(Integer value) {
+                return null;
+            }
+        }).then(mListener);
+
+        Mockito.verify(mListener).onResult(null);
+    }
+
+    @Test
+    public void thenNothing_runChain_withoutListener() {
+        final Mapper<Integer, Promise<Integer>> save = Mockito.mock(Mapper.class);
+        Mockito.doReturn(Promise.wrap(2, mCleaner)).when(save).map(1);
+
+        Promise.wrap(1).flatMap(save).thenNothing();
+
+        Mockito.verify(save).map(1);
+        Mockito.verify(mCleaner).clean(2);
+    }
+
+    @Test
+    public void zip_combine_bothResults() {
+        ManualPromise<Integer> first = new ManualPromise<>();
+        ManualPromise<String> second = new ManualPromise<>();
+        ResultListener<String> listener = Mockito.mock(ResultListener.class);
+
+        first.zip(second, new Combiner<Integer, String, String>() {
+            @Override
+            public String combine(Integer a, String b) {
+                return a + b;
+            }
+        }).then(listener);
+        Assert.assertNotNull(first.mListener);
+        Assert.assertNotNull(second.mListener);
+        second.complete("b", null);
+        Mockito.verifyZeroInteractions(listener);
+        first.complete(1, null);
+
+        Mockito.verify(listener).onResult("1b");
+    }
+
+    @Test
+    public void zip_cleanBoth_forgottenBetweenResults() {
+        ManualPromise<Integer> first = new ManualPromise<>();
+        ManualPromise<Integer> second = new ManualPromise<>();
+        Combiner<Integer, Integer, Integer> combiner = Mockito.mock(Combiner.class);
+
+        ActionHandle handle = first.zip(second, combiner).then(mListener);
+        first.complete(1, mCleaner);
+        handle.forget();
+        second.complete(2, mCleaner);
+
+        Mockito.verify(mCleaner).clean(1);
+        Mockito.verify(mCleaner).clean(2);
+        Mockito.verifyZeroInteractions(combiner, mListener);
+    }
+
+    @Test
+    public void zip_cleanArrived_otherFailed() {
+        ManualPromise<Integer> first = new ManualPromise<>();
+        ManualPromise<Integer> second = new ManualPromise<>();
+        Combiner<Integer, Integer, Integer> combiner = Mockito.mock(Combiner.class);
+
+        first.zip(second, combiner).recover(new Mapper<Throwable, Integer>() {
+            @Override
+            public Integer map(Throwable value) {
+                return -1;
+            }
+        }).then(mListener);
+        first.complete(1, mCleaner);
+        second.fail(new MailboxOverflowException("full"));
+
+        Mockito.verify(mCleaner).clean(1);
+        Mockito.verify(mListener).onResult(-1);
+        Mockito.verifyZeroInteractions(combiner);
+    }
+
+    @Test
+    public void recover_passResult_noFailure() {
+        Promise.wrap(1).recover(Mockito.mock(Mapper.class)).then(mListener);
+
+        Mockito.verify(mListener).onResult(1);
+    }
+
+    @Test
+    public void recover_deliverFallback_mapperFailed() {
+        final Throwable[] failure = new Throwable[1];
+        Promise.wrap(1).map(FAILING).map(DOUBLE).recover(new Mapper<Throwable, Integer>() {
+            @Override
+            public Integer map(Throwable value) {
+                failure[0] = value;
+                return 0;
+            }
+        }).then(mListener);
+
+        Mockito.verify(mListener).onResult(0);
+        Assert.assertTrue(failure[0] instanceof IllegalStateException);
+    }
+
+    @Test
+    public void recover_deliverFallback_callDropped() {
+        MessageSender sender = new MessageSender() {
+            @Override
+            public void deliver(Message message) {
+                ((PromiseProxy) message).onDropped(new MailboxOverflowException("full"));
+            }
+        };
+        Message<Object, Integer> message = Mockito.mock(Message.class);
+
+        Promise.wrap(sender, message).recover(new Mapper<Throwable, Integer>() {
+            @Override
+            public Integer map(Throwable value) {
+                return value instanceof MailboxOverflowException ? -1 : 0;
+            }
+        }).then(mListener);
+
+        Mockito.verify(mListener).onResult(-1);
+        Mockito.verify(message, Mockito.never()).invoke(Mockito.any());
+    }
+
+    @Test
+    public void recover_deliverFallback_actorThrows() {
+        final Object impl = new Object();
+        final boolean[] rethrown = new boolean[1];
+        MessageSender sender = new MessageSender() {
+            @Override
+            public void deliver(Message message) {
+                try {
+                    message.invoke(impl);
+                } catch (IllegalStateException e) {
+                    rethrown[0] = true;
+                }
+            }
+        };
+        Message<Object, Integer> message = Mockito.mock(Message.class);
+        Mockito.doThrow(new IllegalStateException()).when(message).invoke(impl);
+
+        Promise.wrap(sender, message).recover(new Mapper<Throwable, Integer>() {
+            @Override
+            public Integer map(Throwable value) {
+                return -1;
+            }
+        }).then(mListener);
+
+        Mockito.verify(mListener).onResult(-1);
+        // Recovered failure doesn't go to the failure handler
+        Assert.assertFalse(rethrown[0]);
+    }
+
+    @Test
+    public void recover_dontCrash_crashEarlyFailureHandler() {
+        final Object impl = new Object();
+        MessageSender sender = new MessageSender() {
+            @Override
+            public void deliver(Message message) {
+                Transaction.obtain(impl, message, new CrashEarlyFailureHandler()).execute();
+            }
+        };
+        Message<Object, Integer> message = Mockito.mock(Message.class);
+        Mockito.doThrow(new IllegalStateException()).when(message).invoke(impl);
+        Mockito.doReturn(new ActorInvokeException("call")).when(message).exception();
+
+        Promise.wrap(sender, message).recover(new Mapper<Throwable, Integer>() {
+            @Override
+            public Integer map(Throwable value) {
+                return -1;
+            }
+        }).then(mListener);
+
+        Mockito.verify(mListener).onResult(-1);
+    }
+
+    @Test(expected = ActorInvokeException.class)
+    public void map_crash_crashEarlyFailureHandler() {
+        final Object impl = new Object();
+        MessageSender sender = new MessageSender() {
+            @Override
+            public void deliver(Message message) {
+                Transaction.obtain(impl, message, new CrashEarlyFailureHandler()).execute();
+            }
+        };
+        Message<Object, Integer> message = Mockito.mock(Message.class);
+        Mockito.doThrow(new IllegalStateException()).when(message).invoke(impl);
+        Mockito.doReturn(new ActorInvokeException("call")).when(message).exception();
+
+        // Nobody recovers, so the failure still crashes
+        Promise.wrap(sender, message).map(DOUBLE).then(mListener);
+    }
+
+    @Test
+    public void get_returnConverted_always() throws Exception {
+        Assert.assertEquals(Integer.valueOf(4), Promise.wrap(2).map(DOUBLE).get());
+    }
+
+    @Test(expected = MailboxOverflowException.class)
+    public void get_throw_failedWithoutRecover() throws Exception {
+        ManualPromise<Integer> source = new ManualPromise<Integer>() {
+            @Override
+            public ActionHandle then(ResultListener<Integer> listener) {
+                super.then(listener);
+                fail(new MailboxOverflowException("full"));
+                return this;
+            }
+        };
+
+        source.map(DOUBLE).get();
+    }
+
+    private ResultListener<Integer> deliverHop() {
+        ArgumentCaptor<ResultListener> captor = ArgumentCaptor.forClass(ResultListener.class);
+        Mockito.verify(mThread).bind(Mockito.same(ResultListener.class), captor.capture());
+        return captor.getValue();
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+public class CompositeActorsObserverTest {
+
+    @Test
+    public void notifyAll_observersInOrder() {
+        ActorsObserver first = Mockito.mock(ActorsObserver.class);
+        ActorsObserver second = Mockito.mock(ActorsObserver.class);
+        ActorsObserver observer = new CompositeActorsObserver(first, second);
+
+        observer.onEnqueued(1);
+        observer.onStarted(1, 10);
+        observer.onCompleted(1, 10, 20, 30, true);
+
+        InOrder order = Mockito.inOrder(first, second);
+        order.verify(first).onEnqueued(1);
+        order.verify(second).onEnqueued(1);
+        order.verify(first).onStarted(1, 10);
+        order.verify(second).onStarted(1, 10);
+        // Completed in reverse order, so sections of tracers are nested
+        order.verify(second).onCompleted(1, 10, 20, 30, true);
+        order.verify(first).onCompleted(1, 10, 20, 30, true);
+    }
+}
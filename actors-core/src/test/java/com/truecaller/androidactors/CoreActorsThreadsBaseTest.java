@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+public class CoreActorsThreadsBaseTest {
+    @Mock
+    private ProxyFactory mProxyFactory;
+
+    @Mock
+    private FailureHandler mFailureHandler;
+
+    @Mock
+    private Executor mExecutor;
+
+    private CoreActorsThreads mThreads;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        mThreads = new CoreActorsThreadsBase(mProxyFactory, mFailureHandler) {};
+    }
+
+    @Test
+    public void createThread_lockFreeThread() {
+        Assert.assertTrue(mThreads.createThread("Actor") instanceof LockFreeActorThread);
+        Assert.assertTrue(mThreads.createThread("Actor", 1000) instanceof LockFreeActorThread);
+        Assert.assertTrue(mThreads.createThread("Actor", 1000, ThreadPriority.BACKGROUND) instanceof LockFreeActorThread);
+        Assert.assertTrue(mThreads.createThread("Actor", 1000, MailboxConfig.builder(8).build())
+                instanceof LockFreeActorThread);
+    }
+
+    @Test
+    public void createThread_keepPriority_configGiven() {
+        PrioritizedActorThread thread = mThreads.createThread("Actor", ActorThreadConfig.builder()
+                .setStopDelay(1, TimeUnit.SECONDS)
+                .setThreadPriority(ThreadPriority.BACKGROUND)
+                .setMailbox(MailboxConfig.builder(8).build())
+                .build());
+
+        Assert.assertTrue(thread instanceof LockFreeActorThread);
+        Assert.assertEquals(ThreadPriority.BACKGROUND, thread.getThreadPriority());
+    }
+
+    @Test
+    public void constructor_keepObserver_anotherThreadsCreated() {
+        ActorsObserver observer = Mockito.mock(ActorsObserver.class);
+        try {
+            Instrumentation.install(observer);
+
+            new CoreActorsThreadsBase(mProxyFactory, mFailureHandler) {};
+            Assert.assertSame(observer, Instrumentation.observer());
+        } finally {
+            Instrumentation.install(null);
+        }
+    }
+
+    @Test
+    public void createThread_executorThread() {
+        Assert.assertTrue(mThreads.createThread(mExecutor) instanceof ExecutorActorThread);
+    }
+
+    @Test
+    public void createThreadPerActor_threadPerActor() {
+        ThreadFactory factory = Executors.defaultThreadFactory();
+        Assert.assertTrue(mThreads.createThreadPerActor(factory, 1000) instanceof ThreadPerActorThread);
+        Assert.assertTrue(mThreads.createThreadPerActor(factory, 1000, MailboxConfig.builder(8).build())
+                instanceof ThreadPerActorThread);
+    }
+
+    @Test
+    public void createSameThread_sameThread() {
+        Assert.assertTrue(mThreads.createSameThread() instanceof SameThreadActorThread);
+    }
+
+    @Test
+    public void createPooledThread_pooledThread() {
+        Assert.assertTrue(mThreads.createPooledThread("Pool", 2) instanceof PooledActorThread);
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class ElasticThreadPoolExecutorTest {
+
+    private final CountDownLatch mRelease = new CountDownLatch(1);
+
+    private ElasticThreadPoolExecutor mExecutor;
+
+    @After
+    public void tearDown() {
+        mRelease.countDown();
+        if (mExecutor != null) {
+            mExecutor.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void execute_grow_tasksWaitInQueue() throws Exception {
+        mExecutor = createExecutor(ActorThreadPoolConfig.builder(4)
+                .setCoreThreads(0)
+                .setGrowAfter(0, TimeUnit.MILLISECONDS)
+                .build());
+
+        final CountDownLatch started = new CountDownLatch(4);
+        for (int index = 0; index < 8; ++index) {
+            mExecutor.execute(new BlockingTask(started));
+        }
+
+        // All four threads have to start, otherwise the test times out
+        started.await();
+        Assert.assertEquals(4, mExecutor.getPoolSize());
+    }
+
+    @Test(timeout = 10000)
+    public void execute_grow_longTasksWithoutNewSubmissions() throws Exception {
+        mExecutor = createExecutor(ActorThreadPoolConfig.builder(4)
+                .setCoreThreads(1)
+                .setGrowAfter(50, TimeUnit.MILLISECONDS)
+                .build());
+
+        // Nothing is submitted or finished after that, only timer can notice the backlog
+        final CountDownLatch started = new CountDownLatch(3);
+        for (int index = 0; index < 3; ++index) {
+            mExecutor.execute(new BlockingTask(started));
+        }
+
+        // Tasks must overlap while none of them has finished
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(3, mExecutor.getPoolSize());
+    }
+
+    @Test(timeout = 10000)
+    public void execute_dontGrow_tasksDontWait() throws Exception {
+        mExecutor = createExecutor(ActorThreadPoolConfig.builder(4)
+                .setCoreThreads(1)
+                .setGrowAfter(1, TimeUnit.MINUTES)
+                .build());
+
+        for (int index = 0; index < 10; ++index) {
+            final CountDownLatch done = new CountDownLatch(1);
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    done.countDown();
+                }
+            });
+            done.await();
+        }
+
+        Assert.assertEquals(1, mExecutor.getPoolSize());
+    }
+
+    @Test(timeout = 10000)
+    public void afterExecute_shrink_queueDrained() throws Exception {
+        mExecutor = createExecutor(ActorThreadPoolConfig.builder(4)
+                .setCoreThreads(0)
+                .setKeepAlive(10, TimeUnit.MILLISECONDS)
+                .setGrowAfter(0, TimeUnit.MILLISECONDS)
+                .build());
+
+        final CountDownLatch started = new CountDownLatch(4);
+        for (int index = 0; index < 8; ++index) {
+            mExecutor.execute(new BlockingTask(started));
+        }
+        started.await();
+        mRelease.countDown();
+
+        while (mExecutor.getPoolSize() > 0) {
+            Thread.sleep(5);
+        }
+        Assert.assertEquals(0, mExecutor.getCorePoolSize());
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void execute_reject_synchronousQueueAllThreadsBusy() {
+        mExecutor = createExecutor(ActorThreadPoolConfig.builder(2)
+                .setQueue(ActorThreadPoolConfig.QueueType.SYNCHRONOUS, 0)
+                .build());
+
+        final CountDownLatch started = new CountDownLatch(2);
+        for (int index = 0; index < 3; ++index) {
+            mExecutor.execute(new BlockingTask(started));
+        }
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void execute_reject_boundedQueueFull() {
+        mExecutor = createExecutor(ActorThreadPoolConfig.builder(1)
+                .setQueue(ActorThreadPoolConfig.QueueType.BOUNDED, 1)
+                .setGrowAfter(1, TimeUnit.HOURS)
+                .build());
+
+        final CountDownLatch started = new CountDownLatch(1);
+        for (int index = 0; index < 3; ++index) {
+            mExecutor.execute(new BlockingTask(started));
+        }
+    }
+
+    @Test
+    public void setThreadPriority_keepPriority_always() {
+        mExecutor = new ElasticThreadPoolExecutor(ActorThreadPoolConfig.builder(1).setThreadPriority(10).build(),
+                Executors.defaultThreadFactory());
+        Assert.assertEquals(10, mExecutor.getThreadPriority());
+
+        mExecutor.setThreadPriority(-2);
+        Assert.assertEquals(-2, mExecutor.getThreadPriority());
+    }
+
+    private ElasticThreadPoolExecutor createExecutor(ActorThreadPoolConfig config) {
+        return new ElasticThreadPoolExecutor(config, Executors.defaultThreadFactory());
+    }
+
+    private class BlockingTask implements Runnable {
+        private final CountDownLatch mStarted;
+
+        private BlockingTask(CountDownLatch started) {
+            mStarted = started;
+        }
+
+        @Override
+        public void run() {
+            mStarted.countDown();
+            try {
+                mRelease.await();
+            } catch (InterruptedException e) {
+                // Pool is shutting down
+            }
+        }
+    }
+}
@@ -0,0 +1,545 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ExecutorActorThreadTest {
+    @Mock
+    private Executor mExecutor;
+
+    @Mock
+    private ProxyFactory mProxyFactory;
+
+    @Mock
+    private FailureHandler mFailureHandler;
+
+    @Mock
+    private Runnable mActorImpl;
+
+    @Mock
+    private Runnable mProxy;
+
+    private ExecutorActorThread mThread;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+
+        Mockito.doReturn(mProxy).when(mProxyFactory).newProxy(Mockito.<Class>any(), Mockito.<MessageSender>any());
+
+        mThread = new ExecutorActorThread(mExecutor, mProxyFactory, mFailureHandler);
+
+        Transaction.clearPool();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void messageDeliverTest() throws Exception {
+        ActorRef<Runnable> runnableRef = mThread.bind(Runnable.class, mActorImpl);
+        // Check that we provided correct proxy class
+        Assert.assertSame(mProxy, runnableRef.tell());
+        // Grab postman and check it
+        ArgumentCaptor<MessageSender> postmanCaptor = ArgumentCaptor.forClass(MessageSender.class);
+        Mockito.verify(mProxyFactory).newProxy(Mockito.<Class>any(), postmanCaptor.capture());
+
+        final Message message = Mockito.mock(Message.class);
+        final MessageSender postman = postmanCaptor.getValue();
+        postman.deliver(message);
+
+        ArgumentCaptor<Runnable> runnableCaptor = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(mExecutor).execute(runnableCaptor.capture());
+        Runnable runnable = runnableCaptor.getValue();
+        Assert.assertNotNull(runnable);
+
+        // Check that we tried to invoke method
+        runnable.run();
+
+        Mockito.verify(message).invoke(mActorImpl);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void deliverInline_invoke_actorThread() {
+        mThread.bind(Runnable.class, mActorImpl);
+        ArgumentCaptor<MessageSender> postmanCaptor = ArgumentCaptor.forClass(MessageSender.class);
+        Mockito.verify(mProxyFactory).newProxy(Mockito.<Class>any(), postmanCaptor.capture());
+        final InlineMessageSender postman = (InlineMessageSender) postmanCaptor.getValue();
+
+        final Message inner = Mockito.mock(Message.class);
+        final Message outer = Mockito.mock(Message.class);
+        final AtomicBoolean inlined = new AtomicBoolean(false);
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                inlined.set(postman.deliverInline(inner));
+                return null;
+            }
+        }).when(outer).invoke(mActorImpl);
+
+        Assert.assertFalse(postman.deliverInline(inner));
+        postman.deliver(outer);
+        ArgumentCaptor<Runnable> runnableCaptor = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(mExecutor).execute(runnableCaptor.capture());
+        runnableCaptor.getValue().run();
+
+        Assert.assertTrue(inlined.get());
+        Mockito.verify(inner).invoke(mActorImpl);
+    }
+
+    @SuppressWarnings({"unchecked", "ThrowableNotThrown"})
+    @Test
+    public void messageExceptionTest() throws Exception {
+        ActorRef<Runnable> runnableRef = mThread.bind(Runnable.class, mActorImpl);
+        // Check that we provided correct proxy class
+        Assert.assertSame(mProxy, runnableRef.tell());
+        // Grab postman and check it
+        ArgumentCaptor<MessageSender> postmanCaptor = ArgumentCaptor.forClass(MessageSender.class);
+        Mockito.verify(mProxyFactory).newProxy(Mockito.<Class>any(), postmanCaptor.capture());
+
+        final Message message = Mockito.mock(Message.class);
+        final RuntimeException exception = Mockito.mock(RuntimeException.class);
+        final ActorMethodInvokeException callException = Mockito.mock(ActorMethodInvokeException.class);
+        Mockito.doThrow(exception).when(message).invoke(Mockito.any());
+        Mockito.doReturn(callException).when(message).exception();
+        final MessageSender postman = postmanCaptor.getValue();
+        postman.deliver(message);
+
+        ArgumentCaptor<Runnable> runnableCaptor = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(mExecutor).execute(runnableCaptor.capture());
+        Runnable runnable = runnableCaptor.getValue();
+        Assert.assertNotNull(runnable);
+
+        // Check that we tried to invoke method
+        runnable.run();
+        // Check that we pass exception to handler
+        Mockito.verify(mFailureHandler).onUncaughtException(mActorImpl, message, callException);
+        Mockito.verify(callException).initCause(exception);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void deliver_scheduleOnce_severalMessages() throws Exception {
+        mThread.bind(Runnable.class, mActorImpl);
+        MessageSender postman = capturePostman();
+
+        final Message[] messages = new Message[] {
+                Mockito.mock(Message.class), Mockito.mock(Message.class), Mockito.mock(Message.class)};
+        for (Message message : messages) {
+            postman.deliver(message);
+        }
+
+        ArgumentCaptor<Runnable> runnableCaptor = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(mExecutor).execute(runnableCaptor.capture());
+        runnableCaptor.getValue().run();
+
+        InOrder order = Mockito.inOrder((Object[]) messages);
+        for (Message message : messages) {
+            order.verify(message).invoke(mActorImpl);
+        }
+        // Mailbox is empty, nothing to reschedule
+        Mockito.verify(mExecutor).execute(Mockito.<Runnable>any());
+    }
+
+    @Test
+    public void run_higherPriorityFirst_severalMessages() throws Exception {
+        mThread.bind(Runnable.class, mActorImpl);
+        MessageSender postman = capturePostman();
+
+        final List<String> calls = new ArrayList<>();
+        postman.deliver(new RecordingMessage(calls, "low", Priority.LOW));
+        postman.deliver(new RecordingMessage(calls, "first", Priority.NORMAL));
+        postman.deliver(new RecordingMessage(calls, "high", Priority.HIGH));
+        postman.deliver(new RecordingMessage(calls, "second", Priority.NORMAL));
+
+        ArgumentCaptor<Runnable> runnableCaptor = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(mExecutor).execute(runnableCaptor.capture());
+        runnableCaptor.getValue().run();
+
+        Assert.assertEquals(Arrays.asList("high", "first", "second", "low"), calls);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void run_reschedule_throughputExhausted() throws Exception {
+        ExecutorActorThread thread = new ExecutorActorThread(mExecutor, mProxyFactory, mFailureHandler, 2);
+        thread.bind(Runnable.class, mActorImpl);
+        MessageSender postman = capturePostman();
+
+        final Message first = Mockito.mock(Message.class);
+        final Message second = Mockito.mock(Message.class);
+        final Message third = Mockito.mock(Message.class);
+        postman.deliver(first);
+        postman.deliver(second);
+        postman.deliver(third);
+
+        ArgumentCaptor<Runnable> runnableCaptor = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(mExecutor).execute(runnableCaptor.capture());
+        Runnable mailbox = runnableCaptor.getValue();
+        mailbox.run();
+
+        Mockito.verify(first).invoke(mActorImpl);
+        Mockito.verify(second).invoke(mActorImpl);
+        Mockito.verify(third, Mockito.never()).invoke(Mockito.any());
+        Mockito.verify(mExecutor, Mockito.times(2)).execute(mailbox);
+
+        mailbox.run();
+        Mockito.verify(third).invoke(mActorImpl);
+    }
+
+    @SuppressWarnings({"unchecked", "ThrowableNotThrown"})
+    @Test
+    public void run_reschedule_failureHandlerThrows() throws Exception {
+        ExecutorActorThread thread = new ExecutorActorThread(mExecutor, mProxyFactory, new CrashEarlyFailureHandler());
+        thread.bind(Runnable.class, mActorImpl);
+        MessageSender postman = capturePostman();
+
+        final Message failed = Mockito.mock(Message.class);
+        final Message next = Mockito.mock(Message.class);
+        Mockito.doThrow(new IllegalStateException()).when(failed).invoke(Mockito.any());
+        Mockito.doReturn(new ActorMethodInvokeException()).when(failed).exception();
+        postman.deliver(failed);
+        postman.deliver(next);
+
+        ArgumentCaptor<Runnable> runnableCaptor = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(mExecutor).execute(runnableCaptor.capture());
+        Runnable mailbox = runnableCaptor.getValue();
+        try {
+            mailbox.run();
+            Assert.fail("Failure handler should throw");
+        } catch (ActorInvokeException e) {
+            // expected
+        }
+
+        Mockito.verify(mExecutor, Mockito.times(2)).execute(mailbox);
+        mailbox.run();
+        Mockito.verify(next).invoke(mActorImpl);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void deliver_dropCall_executorRejected() throws Exception {
+        mThread.bind(Runnable.class, mActorImpl);
+        MessageSender postman = capturePostman();
+        Mockito.doThrow(new RejectedExecutionException()).doNothing().when(mExecutor).execute(Mockito.<Runnable>any());
+
+        final Message rejected = Mockito.mock(Message.class);
+        try {
+            postman.deliver(rejected);
+            Assert.fail("Rejection should be reported to caller");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+
+        final Message message = Mockito.mock(Message.class);
+        postman.deliver(message);
+        ArgumentCaptor<Runnable> runnableCaptor = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(mExecutor, Mockito.times(2)).execute(runnableCaptor.capture());
+        runnableCaptor.getValue().run();
+        Mockito.verify(rejected, Mockito.never()).invoke(Mockito.any());
+        Mockito.verify(message).invoke(mActorImpl);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test(expected = RejectedExecutionException.class, timeout = 2000)
+    public void get_throw_executorRejected() throws Exception {
+        mThread.bind(Runnable.class, mActorImpl);
+        MessageSender postman = capturePostman();
+        Mockito.doThrow(new RejectedExecutionException()).when(mExecutor).execute(Mockito.<Runnable>any());
+
+        new PromiseProxy(postman, Mockito.mock(Message.class)).get();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test(timeout = 2000)
+    public void run_retryLater_executorRejectedReschedule() throws Exception {
+        final ExecutorActorThread thread = new ExecutorActorThread(mExecutor, mProxyFactory, mFailureHandler, 1);
+        thread.bind(Runnable.class, mActorImpl);
+        MessageSender postman = capturePostman();
+        final CountDownLatch retried = new CountDownLatch(1);
+        Mockito.doNothing().doThrow(new RejectedExecutionException()).doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                retried.countDown();
+                return null;
+            }
+        }).when(mExecutor).execute(Mockito.<Runnable>any());
+
+        final Message first = Mockito.mock(Message.class);
+        final Message second = Mockito.mock(Message.class);
+        postman.deliver(first);
+        postman.deliver(second);
+
+        ArgumentCaptor<Runnable> runnableCaptor = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(mExecutor).execute(runnableCaptor.capture());
+        final Runnable mailbox = runnableCaptor.getValue();
+        // Quota is exhausted and executor is saturated, worker must not die
+        mailbox.run();
+
+        retried.await();
+        Mockito.verify(mExecutor, Mockito.times(3)).execute(mailbox);
+        mailbox.run();
+        Mockito.verify(first).invoke(mActorImpl);
+        Mockito.verify(second).invoke(mActorImpl);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void deliver_dropPendingCalls_executorShutdown() throws Exception {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>());
+        executor.shutdown();
+        final ExecutorActorThread thread = new ExecutorActorThread(executor, mProxyFactory, mFailureHandler);
+        thread.bind(Runnable.class, mActorImpl);
+        MessageSender postman = capturePostman();
+
+        final Message message = Mockito.mock(Message.class);
+        try {
+            postman.deliver(message);
+            Assert.fail("Rejection should be reported to caller");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+        Mockito.verify(message, Mockito.never()).invoke(Mockito.any());
+    }
+
+    @Test(timeout = 20000)
+    public void deliver_serialPerActor_sharedPool() throws Exception {
+        final int actors = 8;
+        final int calls = 2000;
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(4, 4, 1, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>());
+        final List<MessageSender> postmen = new ArrayList<>();
+        final ProxyFactory factory = new ProxyFactory() {
+            @NonNull
+            @Override
+            public <T> T newProxy(@NonNull Class<T> cls, @NonNull MessageSender sender) {
+                postmen.add(sender);
+                return null;
+            }
+        };
+        final ExecutorActorThread thread = new ExecutorActorThread(executor, factory, mFailureHandler, 4);
+        final AtomicInteger failures = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(actors * calls);
+
+        for (int actor = 0; actor < actors; ++actor) {
+            thread.bind(SerialActor.class, new SerialActor(failures, done));
+        }
+
+        for (int call = 0; call < calls; ++call) {
+            for (MessageSender postman : postmen) {
+                postman.deliver(new SerialActorMessage(call));
+            }
+        }
+
+        done.await();
+        executor.shutdown();
+        Assert.assertEquals(0, failures.get());
+    }
+
+    @Test
+    public void deliver_throw_mailboxFull() throws Exception {
+        ExecutorActorThread thread = new ExecutorActorThread(mExecutor, mProxyFactory, mFailureHandler,
+                ExecutorActorThread.DEFAULT_THROUGHPUT, MailboxConfig.builder(1).build());
+        ActorRef<Runnable> ref = thread.bind(Runnable.class, mActorImpl);
+        MessageSender postman = capturePostman();
+        MailboxStatus status = ref.mailbox();
+        Assert.assertNotNull(status);
+
+        postman.deliver(Mockito.mock(Message.class));
+        Assert.assertTrue(status.isFull());
+        try {
+            postman.deliver(Mockito.mock(Message.class));
+            Assert.fail("Call doesn't fit into the mailbox");
+        } catch (MailboxOverflowException e) {
+            // expected
+        }
+
+        ArgumentCaptor<Runnable> runnableCaptor = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(mExecutor).execute(runnableCaptor.capture());
+        runnableCaptor.getValue().run();
+        Assert.assertEquals(0, status.size());
+    }
+
+    @Test
+    public void deliver_dropOldest_mailboxOverflown() throws Exception {
+        ExecutorActorThread thread = new ExecutorActorThread(mExecutor, mProxyFactory, mFailureHandler,
+                ExecutorActorThread.DEFAULT_THROUGHPUT, MailboxConfig.builder(2)
+                .setOverflowPolicy(MailboxConfig.OverflowPolicy.DROP_OLDEST).build());
+        thread.bind(Runnable.class, mActorImpl);
+        MessageSender postman = capturePostman();
+        final List<String> calls = new ArrayList<>();
+
+        postman.deliver(new RecordingMessage(calls, "first", Priority.NORMAL));
+        postman.deliver(new RecordingMessage(calls, "second", Priority.NORMAL));
+        postman.deliver(new RecordingMessage(calls, "third", Priority.NORMAL));
+
+        ArgumentCaptor<Runnable> runnableCaptor = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(mExecutor).execute(runnableCaptor.capture());
+        runnableCaptor.getValue().run();
+
+        Assert.assertEquals(Arrays.asList("second", "third"), calls);
+    }
+
+    @Test
+    public void bind_noMailboxStatus_unboundedMailbox() {
+        Assert.assertNull(mThread.bind(Runnable.class, mActorImpl).mailbox());
+    }
+
+    @NonNull
+    private MessageSender capturePostman() {
+        ArgumentCaptor<MessageSender> postmanCaptor = ArgumentCaptor.forClass(MessageSender.class);
+        Mockito.verify(mProxyFactory).newProxy(Mockito.<Class>any(), postmanCaptor.capture());
+        return postmanCaptor.getValue();
+    }
+
+    @Test
+    public void deliver_noAllocations_voidMessagesWithoutCallSiteCapture() {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        // The default policy allocates the captured exception on every call
+        CallSiteCapturePolicy.install(CallSiteCapturePolicy.off());
+        try {
+            final CountingRunnable actor = new CountingRunnable();
+            ExecutorActorThread thread = new ExecutorActorThread(new Executor() {
+                @Override
+                public void execute(@NonNull Runnable command) {
+                    command.run();
+                }
+            }, mProxyFactory, mFailureHandler);
+            thread.bind(Runnable.class, actor);
+            final MessageSender postman = capturePostman();
+            final long threadId = Thread.currentThread().getId();
+
+            // Warm up pools and let the code be compiled
+            for (int index = 0; index < 10000; ++index) {
+                postman.deliver(PooledRunnableMessage.obtain(ActorMethodInvokeException.captureIfNeeded(Runnable.class)));
+            }
+            threads.getThreadAllocatedBytes(threadId);
+
+            final long allocated = threads.getThreadAllocatedBytes(threadId);
+            for (int index = 0; index < 10000; ++index) {
+                postman.deliver(PooledRunnableMessage.obtain(ActorMethodInvokeException.captureIfNeeded(Runnable.class)));
+            }
+            final long perCall = (threads.getThreadAllocatedBytes(threadId) - allocated) / 10000;
+
+            Assert.assertEquals(20000, actor.mCalls);
+            // Less than a byte per call, the measurement itself may allocate a few bytes
+            Assert.assertEquals(0, perCall);
+        } finally {
+            CallSiteCapturePolicy.install(CallSiteCapturePolicy.always());
+        }
+    }
+
+    private static class CountingRunnable implements Runnable {
+        private int mCalls = 0;
+
+        @Override
+        public void run() {
+            ++mCalls;
+        }
+    }
+
+    private static class SerialActor {
+        @NonNull
+        private final AtomicInteger mFailures;
+
+        @NonNull
+        private final CountDownLatch mDone;
+
+        private final AtomicBoolean mRunning = new AtomicBoolean(false);
+
+        private int mExpected = 0;
+
+        private SerialActor(@NonNull AtomicInteger failures, @NonNull CountDownLatch done) {
+            mFailures = failures;
+            mDone = done;
+        }
+
+        void call(int index) {
+            if (!mRunning.compareAndSet(false, true)) {
+                mFailures.incrementAndGet();
+            }
+            if (index != mExpected++) {
+                mFailures.incrementAndGet();
+            }
+            mRunning.set(false);
+            mDone.countDown();
+        }
+    }
+
+    private static class SerialActorMessage extends MessageBase<SerialActor, Void> {
+        private final int mIndex;
+
+        private SerialActorMessage(int index) {
+            mIndex = index;
+        }
+
+        @Override
+        public Promise<Void> invoke(@NonNull SerialActor target) {
+            target.call(mIndex);
+            return null;
+        }
+    }
+
+    private static class RecordingMessage extends MessageBase<Runnable, Void> {
+        @NonNull
+        private final List<String> mCalls;
+
+        @NonNull
+        private final String mName;
+
+        private RecordingMessage(@NonNull List<String> calls, @NonNull String name, int priority) {
+            mCalls = calls;
+            mName = name;
+            setPriority(priority);
+        }
+
+        @Override
+        public Promise<Void> invoke(@NonNull Runnable target) {
+            mCalls.add(mName);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@SuppressWarnings("unchecked")
+public class GatheredPromiseTest {
+
+    private static final Mapper<Throwable, Integer> FALLBACK = new Mapper<Throwable, Integer>() {
+        @Override
+        public Integer map(Throwable value) {
+            return -1;
+        }
+    };
+
+    @Mock
+    private ResultListener<List<Integer>> mListListener;
+
+    @Mock
+    private ResultListener<List<Settled<Integer>>> mSettledListener;
+
+    @Mock
+    private ResultListener<Integer> mListener;
+
+    @Mock
+    private ResourceCleaner<Integer> mCleaner;
+
+    private TimingWheel mWheel;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mWheel = new TimingWheel("test-gathered", 1, TimeUnit.MILLISECONDS, 64);
+    }
+
+    @Test
+    public void all_deliverInOrder_allFulfilled() {
+        ManualPromise<Integer> first = new ManualPromise<>();
+        ManualPromise<Integer> second = new ManualPromise<>();
+
+        Promise.all(Arrays.<Promise<Integer>>asList(first, second)).then(mListListener);
+        second.complete(2, null);
+        Mockito.verifyZeroInteractions(mListListener);
+        first.complete(1, null);
+
+        Mockito.verify(mListListener).onResult(Arrays.asList(1, 2));
+    }
+
+    @Test
+    public void all_deliverEmpty_noPromises() {
+        Promise.all(Collections.<Promise<Integer>>emptyList()).then(mListListener);
+
+        Mockito.verify(mListListener).onResult(Collections.<Integer>emptyList());
+    }
+
+    @Test
+    public void all_failAndClean_oneFailed() {
+        ManualPromise<Integer> first = new ManualPromise<>();
+        ManualPromise<Integer> second = new ManualPromise<>();
+        final Throwable[] failure = new Throwable[1];
+
+        Promise.all(Arrays.<Promise<Integer>>asList(first, second)).map(new Mapper<List<Integer>, Integer>() {
+            @Override
+            public Integer map(List<Integer> value) {
+                return value.size();
+            }
+        }).recover(new Mapper<Throwable, Integer>() {
+            @Override
+            public Integer map(Throwable value) {
+                failure[0] = value;
+                return -1;
+            }
+        }).then(mListener);
+        first.complete(1, mCleaner);
+        second.fail(new MailboxOverflowException("full"));
+
+        Mockito.verify(mListener).onResult(-1);
+        Mockito.verify(mCleaner).clean(1);
+        Assert.assertTrue(failure[0] instanceof MailboxOverflowException);
+    }
+
+    @Test
+    public void all_cancelNotStarted_oneFailed() {
+        CapturingSender sender = new CapturingSender();
+        Message<Object, Integer> message = Mockito.mock(Message.class);
+        ManualPromise<Integer> failing = new ManualPromise<>();
+
+        Promise.all(Arrays.asList(failing, Promise.wrap(sender, message))).thenNothing();
+        failing.fail(new MailboxOverflowException("full"));
+        sender.mMessage.invoke(new Object());
+
+        Mockito.verify(message, Mockito.never()).invoke(Mockito.any());
+    }
+
+    @Test
+    public void all_cleanValues_forgotten() {
+        ManualPromise<Integer> first = new ManualPromise<>();
+        ManualPromise<Integer> second = new ManualPromise<>();
+
+        ActionHandle handle = Promise.all(Arrays.<Promise<Integer>>asList(first, second)).then(mListListener);
+        first.complete(1, mCleaner);
+        handle.forget();
+        second.complete(2, mCleaner);
+
+        Mockito.verify(mCleaner).clean(1);
+        Mockito.verify(mCleaner).clean(2);
+        Mockito.verifyZeroInteractions(mListListener);
+    }
+
+    @Test
+    public void any_deliverFirst_cleanLate() {
+        ManualPromise<Integer> first = new ManualPromise<>();
+        ManualPromise<Integer> second = new ManualPromise<>();
+
+        Promise.any(Arrays.<Promise<Integer>>asList(first, second)).then(mListener);
+        second.complete(2, mCleaner);
+        first.complete(1, mCleaner);
+
+        Mockito.verify(mListener).onResult(2);
+        Mockito.verify(mCleaner).clean(1);
+        Mockito.verify(mCleaner, Mockito.never()).clean(2);
+    }
+
+    @Test
+    public void any_skipFailed_oneFulfilled() {
+        ManualPromise<Integer> first = new ManualPromise<>();
+        ManualPromise<Integer> second = new ManualPromise<>();
+
+        Promise.any(Arrays.<Promise<Integer>>asList(first, second)).then(mListener);
+        first.fail(new MailboxOverflowException("full"));
+        second.complete(2, null);
+
+        Mockito.verify(mListener).onResult(2);
+    }
+
+    @Test
+    public void any_fail_allFailed() {
+        ManualPromise<Integer> first = new ManualPromise<>();
+        ManualPromise<Integer> second = new ManualPromise<>();
+
+        Promise.any(Arrays.<Promise<Integer>>asList(first, second)).recover(FALLBACK).then(mListener);
+        first.fail(new MailboxOverflowException("full"));
+        Mockito.verifyZeroInteractions(mListener);
+        second.fail(new MailboxOverflowException("full"));
+
+        Mockito.verify(mListener).onResult(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void any_throw_noPromises() {
+        Promise.any(Collections.<Promise<Integer>>emptyList());
+    }
+
+    @Test
+    public void allSettled_deliverOutcomes_beforeDeadline() {
+        ManualPromise<Integer> first = new ManualPromise<>();
+        ManualPromise<Integer> second = new ManualPromise<>();
+
+        new GatheredPromise.AllSettled<>(Arrays.<Promise<Integer>>asList(first, second),
+                TimeUnit.SECONDS.toNanos(10), mWheel).then(new TestActorThread(), mSettledListener);
+        first.complete(1, null);
+        second.fail(new MailboxOverflowException("full"));
+
+        List<Settled<Integer>> outcomes = captureSettled();
+        Assert.assertTrue(outcomes.get(0).isFulfilled());
+        Assert.assertEquals(Integer.valueOf(1), outcomes.get(0).getValue());
+        Assert.assertTrue(outcomes.get(1).isFailed());
+        Assert.assertTrue(outcomes.get(1).getFailure() instanceof MailboxOverflowException);
+        Assert.assertEquals(0, mWheel.pending());
+    }
+
+    @Test
+    public void allSettled_deliverArrived_deadlinePassed() {
+        ManualPromise<Integer> first = new ManualPromise<>();
+        ManualPromise<Integer> second = new ManualPromise<>();
+        CapturingSender sender = new CapturingSender();
+        Message<Object, Integer> message = Mockito.mock(Message.class);
+
+        new GatheredPromise.AllSettled<>(Arrays.asList(first, second, Promise.wrap(sender, message)),
+                TimeUnit.MILLISECONDS.toNanos(20), mWheel).then(new TestActorThread(), mSettledListener);
+        first.complete(1, null);
+
+        List<Settled<Integer>> outcomes = captureSettled();
+        Assert.assertTrue(outcomes.get(0).isFulfilled());
+        Assert.assertTrue(outcomes.get(1).isTimedOut());
+        Assert.assertTrue(outcomes.get(2).isTimedOut());
+
+        second.complete(2, mCleaner);
+        Mockito.verify(mCleaner).clean(2);
+        sender.mMessage.invoke(new Object());
+        Mockito.verify(message, Mockito.never()).invoke(Mockito.any());
+    }
+
+    @Test
+    public void allSettled_cleanValues_forgottenBeforeDelivery() {
+        ManualPromise<Integer> first = new ManualPromise<>();
+        ManualPromise<Integer> second = new ManualPromise<>();
+
+        ActionHandle handle = new GatheredPromise.AllSettled<>(Arrays.<Promise<Integer>>asList(first, second),
+                TimeUnit.SECONDS.toNanos(10), mWheel).then(new TestActorThread(), mSettledListener);
+        first.complete(1, mCleaner);
+        handle.forget();
+        second.complete(2, mCleaner);
+
+        Mockito.verify(mCleaner).clean(1);
+        Mockito.verify(mCleaner).clean(2);
+        Mockito.verifyZeroInteractions(mSettledListener);
+    }
+
+    @Test
+    public void allSettled_returnOutcomes_waitingCaller() throws Exception {
+        ManualPromise<Integer> first = new ManualPromise<>();
+
+        List<Settled<Integer>> outcomes = new GatheredPromise.AllSettled<>(Arrays.<Promise<Integer>>asList(first),
+                TimeUnit.MILLISECONDS.toNanos(20), mWheel).get();
+
+        Assert.assertTrue(outcomes.get(0).isTimedOut());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void allSettled_throw_listenerWithoutThread() {
+        new GatheredPromise.AllSettled<>(Arrays.<Promise<Integer>>asList(new ManualPromise<Integer>()),
+                TimeUnit.SECONDS.toNanos(10), mWheel).then(mSettledListener);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void allSettled_throw_mappedWithoutThread() {
+        new GatheredPromise.AllSettled<>(Arrays.<Promise<Integer>>asList(new ManualPromise<Integer>()),
+                TimeUnit.SECONDS.toNanos(10), mWheel).map(new Mapper<List<Settled<Integer>>, Integer>() {
+            @Override
+            public Integer map(List<Settled<Integer>> value) {
+                return value.size();
+            }
+        }).then(new TestActorThread(), mListener);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void allSettled_throw_zeroDeadline() {
+        Promise.allSettled(Collections.<Promise<Integer>>emptyList(), 0, TimeUnit.MILLISECONDS);
+    }
+
+    private List<Settled<Integer>> captureSettled() {
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(mSettledListener, Mockito.timeout(1000)).onResult(captor.capture());
+        return captor.getValue();
+    }
+
+    private static class CapturingSender implements MessageSender {
+        private Message mMessage;
+
+        @Override
+        public void deliver(Message message) {
+            mMessage = message;
+        }
+    }
+}
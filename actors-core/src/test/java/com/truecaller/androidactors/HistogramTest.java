@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HistogramTest {
+
+    @Test
+    public void bucketOf_valueWithinBucket_anyValue() {
+        long[] values = new long[] {0, 1, 7, 8, 9, 15, 16, 17, 100, 1000, 123456789L, Long.MAX_VALUE};
+        for (long value : values) {
+            int bucket = Histogram.bucketOf(value);
+            Assert.assertTrue(bucket >= 0 && bucket < Histogram.BUCKETS);
+            Assert.assertTrue(String.valueOf(value), value <= Histogram.upperBoundOf(bucket));
+            if (bucket > 0) {
+                Assert.assertTrue(String.valueOf(value), value > Histogram.upperBoundOf(bucket - 1));
+            }
+        }
+    }
+
+    @Test
+    public void bucketOf_monotonic_consecutiveBuckets() {
+        for (int bucket = 1; bucket < Histogram.BUCKETS; ++bucket) {
+            long lower = Histogram.upperBoundOf(bucket - 1) + 1;
+            Assert.assertEquals(bucket, Histogram.bucketOf(lower));
+            Assert.assertEquals(bucket, Histogram.bucketOf(Histogram.upperBoundOf(bucket)));
+        }
+    }
+
+    @Test
+    public void snapshot_empty_nothingRecorded() {
+        Histogram.Snapshot snapshot = new Histogram().snapshot();
+
+        Assert.assertEquals(0, snapshot.getCount());
+        Assert.assertEquals(0, snapshot.getSum());
+        Assert.assertEquals(0, snapshot.getMax());
+        Assert.assertEquals(0, snapshot.getMean(), 0);
+        Assert.assertEquals(0, snapshot.getPercentile(99));
+    }
+
+    @Test
+    public void record_ignore_negativeValues() {
+        Histogram histogram = new Histogram();
+        histogram.record(-1);
+        histogram.record(Long.MIN_VALUE);
+
+        Assert.assertEquals(0, histogram.snapshot().getCount());
+    }
+
+    @Test
+    public void snapshot_percentilesWithinPrecision_uniformValues() {
+        Histogram histogram = new Histogram();
+        for (long value = 1; value <= 1000; ++value) {
+            histogram.record(value * 1000);
+        }
+
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        Assert.assertEquals(1000, snapshot.getCount());
+        Assert.assertEquals(1000000, snapshot.getMax());
+        Assert.assertEquals(500500, snapshot.getMean(), 0.001);
+
+        assertWithinPrecision(500000, snapshot.getPercentile(50));
+        assertWithinPrecision(990000, snapshot.getPercentile(99));
+        Assert.assertEquals(1000000, snapshot.getPercentile(100));
+        assertWithinPrecision(1000, snapshot.getPercentile(0));
+    }
+
+    @Test
+    public void snapshot_notAffected_laterRecords() {
+        Histogram histogram = new Histogram();
+        histogram.record(10);
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        histogram.record(20);
+
+        Assert.assertEquals(1, snapshot.getCount());
+        Assert.assertEquals(10, snapshot.getMax());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getPercentile_throw_outOfRange() {
+        new Histogram().snapshot().getPercentile(101);
+    }
+
+    @Test(timeout = 10000)
+    public void record_countAll_concurrentWriters() throws Exception {
+        final Histogram histogram = new Histogram();
+        final int writers = 4;
+        final int count = 10000;
+        Thread[] threads = new Thread[writers];
+        for (int index = 0; index < writers; ++index) {
+            final int writer = index;
+            threads[index] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int value = 0; value < count; ++value) {
+                        histogram.record(writer * count + value);
+                    }
+                }
+            });
+            threads[index].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        Assert.assertEquals(writers * count, snapshot.getCount());
+        Assert.assertEquals(writers * count - 1, snapshot.getMax());
+    }
+
+    private static void assertWithinPrecision(long expected, long actual) {
+        Assert.assertTrue(expected + " ~ " + actual, Math.abs(expected - actual) <= expected / Histogram.SUB_BUCKETS);
+    }
+}
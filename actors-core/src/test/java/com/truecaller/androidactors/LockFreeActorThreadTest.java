@@ -0,0 +1,279 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+@SuppressWarnings("unchecked")
+public class LockFreeActorThreadTest {
+
+    @Mock
+    private ProxyFactory mProxyFactory;
+
+    @Mock
+    private FailureHandler mFailureHandler;
+
+    @Mock
+    private Runnable mImpl;
+
+    @Mock
+    private Runnable mImplProxy;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        Mockito.doReturn(mImplProxy).when(mProxyFactory).newProxy(Mockito.eq(Runnable.class), Mockito.<MessageSender>any());
+    }
+
+    private MessageSender bind(LockFreeActorThread thread) {
+        ActorRef<Runnable> ref = thread.bind(Runnable.class, mImpl);
+        Assert.assertSame(mImplProxy, ref.tell());
+
+        ArgumentCaptor<MessageSender> captor = ArgumentCaptor.forClass(MessageSender.class);
+        Mockito.verify(mProxyFactory).newProxy(Mockito.eq(Runnable.class), captor.capture());
+        return captor.getValue();
+    }
+
+    private Message countDownMessage(final CountDownLatch latch, final List<Thread> threads) {
+        Message message = Mockito.mock(Message.class);
+        Mockito.doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                threads.add(Thread.currentThread());
+                latch.countDown();
+                return null;
+            }
+        }).when(message).invoke(Mockito.any());
+        return message;
+    }
+
+    @Test(timeout = 5000)
+    public void deliver_invokeOnConsumerThread_always() throws Exception {
+        LockFreeActorThread thread = new LockFreeActorThread(mProxyFactory, mFailureHandler, "test",
+                LockFreeActorThread.NO_DELAY);
+        MessageSender sender = bind(thread);
+
+        CountDownLatch latch = new CountDownLatch(1);
+        List<Thread> threads = Collections.synchronizedList(new ArrayList<Thread>());
+        Message message = countDownMessage(latch, threads);
+
+        sender.deliver(message);
+        latch.await();
+
+        Mockito.verify(message).invoke(mImpl);
+        Assert.assertNotSame(Thread.currentThread(), threads.get(0));
+        Assert.assertEquals("test", threads.get(0).getName());
+    }
+
+    @Test(timeout = 5000)
+    public void deliver_invokeOnFactoryThread_withThreadFactory() throws Exception {
+        ThreadFactory factory = new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                return new Thread(runnable, "factory");
+            }
+        };
+        LockFreeActorThread thread = new LockFreeActorThread(mProxyFactory, mFailureHandler, "test",
+                LockFreeActorThread.NO_DELAY, ThreadPriority.DEFAULT, null, factory);
+        MessageSender sender = bind(thread);
+
+        CountDownLatch latch = new CountDownLatch(1);
+        List<Thread> threads = Collections.synchronizedList(new ArrayList<Thread>());
+        sender.deliver(countDownMessage(latch, threads));
+        latch.await();
+
+        Assert.assertEquals("factory", threads.get(0).getName());
+    }
+
+    @Test(timeout = 10000)
+    public void deliver_keepOrderPerProducer_concurrentProducers() throws Exception {
+        final int producers = 8;
+        final int count = 2000;
+        final LockFreeActorThread thread = new LockFreeActorThread(mProxyFactory, mFailureHandler, "test",
+                LockFreeActorThread.NO_DELAY);
+        final MessageSender sender = bind(thread);
+        final CountDownLatch latch = new CountDownLatch(producers * count);
+        final int[] expected = new int[producers];
+        final boolean[] failed = new boolean[1];
+
+        Thread[] threads = new Thread[producers];
+        for (int producer = 0; producer < producers; ++producer) {
+            final int id = producer;
+            threads[producer] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int index = 0; index < count; ++index) {
+                        sender.deliver(new OrderedMessage(id, index, expected, failed, latch));
+                    }
+                }
+            });
+            threads[producer].start();
+        }
+
+        latch.await();
+        Assert.assertFalse(failed[0]);
+        for (int producer = 0; producer < producers; ++producer) {
+            Assert.assertEquals(count, expected[producer]);
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void deliver_throw_mailboxFull() throws Exception {
+        LockFreeActorThread thread = new LockFreeActorThread(mProxyFactory, mFailureHandler, "test",
+                LockFreeActorThread.NO_DELAY, ThreadPriority.DEFAULT, MailboxConfig.builder(1).build());
+        ActorRef<Runnable> ref = thread.bind(Runnable.class, mImpl);
+        ArgumentCaptor<MessageSender> captor = ArgumentCaptor.forClass(MessageSender.class);
+        Mockito.verify(mProxyFactory).newProxy(Mockito.eq(Runnable.class), captor.capture());
+        MessageSender sender = captor.getValue();
+        MailboxStatus status = ref.mailbox();
+        Assert.assertNotNull(status);
+
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Message blocking = Mockito.mock(Message.class);
+        Mockito.doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                started.countDown();
+                release.await();
+                return null;
+            }
+        }).when(blocking).invoke(Mockito.any());
+
+        sender.deliver(blocking);
+        started.await();
+        // Consumer is busy, next call waits in the mailbox
+        sender.deliver(Mockito.mock(Message.class));
+        Assert.assertEquals(1, status.size());
+        try {
+            sender.deliver(Mockito.mock(Message.class));
+            Assert.fail("Call doesn't fit into the mailbox");
+        } catch (MailboxOverflowException e) {
+            // expected
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void consumer_stopAndRestart_idleThread() throws Exception {
+        LockFreeActorThread thread = new LockFreeActorThread(mProxyFactory, mFailureHandler, "test", 0);
+        MessageSender sender = bind(thread);
+
+        CountDownLatch latch = new CountDownLatch(1);
+        List<Thread> threads = Collections.synchronizedList(new ArrayList<Thread>());
+        sender.deliver(countDownMessage(latch, threads));
+        latch.await();
+
+        threads.get(0).join();
+        Assert.assertEquals(LockFreeActorThread.STATE_STOPPED, thread.mState.get());
+
+        latch = new CountDownLatch(1);
+        sender.deliver(countDownMessage(latch, threads));
+        latch.await();
+
+        Assert.assertNotSame(threads.get(0), threads.get(1));
+    }
+
+    @Test(timeout = 5000)
+    public void consumer_keepAlive_stopDelayNotPassed() throws Exception {
+        LockFreeActorThread thread = new LockFreeActorThread(mProxyFactory, mFailureHandler, "test",
+                TimeUnit.MINUTES.toMillis(1));
+        MessageSender sender = bind(thread);
+
+        CountDownLatch latch = new CountDownLatch(2);
+        List<Thread> threads = Collections.synchronizedList(new ArrayList<Thread>());
+        sender.deliver(countDownMessage(latch, threads));
+        Thread.sleep(100);
+        sender.deliver(countDownMessage(latch, threads));
+        latch.await();
+
+        Assert.assertSame(threads.get(0), threads.get(1));
+        Assert.assertTrue(threads.get(0).isAlive());
+    }
+
+    @SuppressWarnings("ThrowableNotThrown")
+    @Test(timeout = 5000)
+    public void deliver_callFailureHandler_methodThrows() throws Exception {
+        LockFreeActorThread thread = new LockFreeActorThread(mProxyFactory, mFailureHandler, "test",
+                LockFreeActorThread.NO_DELAY);
+        MessageSender sender = bind(thread);
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        final RuntimeException exception = new RuntimeException();
+        final ActorMethodInvokeException callException = Mockito.mock(ActorMethodInvokeException.class);
+        Message message = Mockito.mock(Message.class);
+        Mockito.doThrow(exception).when(message).invoke(Mockito.any());
+        Mockito.doReturn(callException).when(message).exception();
+        Mockito.doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                latch.countDown();
+                return null;
+            }
+        }).when(mFailureHandler).onUncaughtException(Mockito.any(), Mockito.<Message>any(),
+                Mockito.<ActorInvokeException>any());
+
+        sender.deliver(message);
+        latch.await();
+
+        Mockito.verify(mFailureHandler).onUncaughtException(mImpl, message, callException);
+        Mockito.verify(callException).initCause(exception);
+    }
+
+    private static class OrderedMessage extends MessageBase<Object, Void> {
+        private final int mProducer;
+        private final int mIndex;
+        private final int[] mExpected;
+        private final boolean[] mFailed;
+        private final CountDownLatch mLatch;
+
+        private OrderedMessage(int producer, int index, int[] expected, boolean[] failed, CountDownLatch latch) {
+            super(new ActorMethodInvokeException());
+            mProducer = producer;
+            mIndex = index;
+            mExpected = expected;
+            mFailed = failed;
+            mLatch = latch;
+        }
+
+        @Override
+        public Promise<Void> invoke(Object target) {
+            // Invoked on the single consumer thread, latch guarantees visibility for the test thread
+            if (mExpected[mProducer]++ != mIndex) {
+                mFailed[0] = true;
+            }
+            mLatch.countDown();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class MailboxConfigTest {
+
+    @Test
+    public void build_useDefaults_onlyCapacity() {
+        MailboxConfig config = MailboxConfig.builder(10).build();
+
+        Assert.assertEquals(10, config.mCapacity);
+        Assert.assertEquals(Long.MAX_VALUE, config.mMaxWeight);
+        Assert.assertNull(config.mWeigher);
+        Assert.assertEquals(MailboxConfig.OverflowPolicy.REJECT, config.mPolicy);
+        Assert.assertEquals(MailboxConfig.NO_TIMEOUT, config.mBlockTimeoutNanos);
+    }
+
+    @Test
+    public void build_keepValues_allValuesSet() {
+        MessageWeigher weigher = new MessageWeigher() {
+            @Override
+            public long weigh(Message<?, ?> message) {
+                return 1;
+            }
+        };
+        MailboxConfig config = MailboxConfig.builder(10)
+                .setMaxWeight(1024, weigher)
+                .setOverflowPolicy(MailboxConfig.OverflowPolicy.BLOCK)
+                .setBlockTimeout(5, TimeUnit.MILLISECONDS)
+                .build();
+
+        Assert.assertEquals(1024, config.mMaxWeight);
+        Assert.assertSame(weigher, config.mWeigher);
+        Assert.assertEquals(MailboxConfig.OverflowPolicy.BLOCK, config.mPolicy);
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(5), config.mBlockTimeoutNanos);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void builder_throw_zeroCapacity() {
+        MailboxConfig.builder(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setMaxWeight_throw_zeroWeight() {
+        MailboxConfig.builder(1).setMaxWeight(0, new MessageWeigher() {
+            @Override
+            public long weigh(Message<?, ?> message) {
+                return 1;
+            }
+        });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setBlockTimeout_throw_negativeTimeout() {
+        MailboxConfig.builder(1).setBlockTimeout(-1, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@SuppressWarnings("unchecked")
+public class MailboxLimiterTest {
+
+    @Mock
+    private FailureHandler mFailureHandler;
+
+    @Mock
+    private Message mMessage;
+
+    @Mock
+    private Message mHeavyMessage;
+
+    private final Object mImpl = new Object();
+
+    private final MessageWeigher mWeigher = new MessageWeigher() {
+        @Override
+        public long weigh(Message<?, ?> message) {
+            return message == mHeavyMessage ? 100 : 10;
+        }
+    };
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @Test
+    public void create_returnNull_noConfig() {
+        Assert.assertNull(MailboxLimiter.create(null));
+    }
+
+    @Test
+    public void admit_acceptTransactions_notFull() {
+        MailboxLimiter limiter = create(MailboxConfig.builder(2));
+
+        Assert.assertTrue(limiter.admit(obtain(mMessage), false));
+        Assert.assertFalse(limiter.isFull());
+        Assert.assertTrue(limiter.admit(obtain(mMessage), false));
+        Assert.assertTrue(limiter.isFull());
+        Assert.assertEquals(2, limiter.size());
+    }
+
+    @Test(expected = MailboxOverflowException.class)
+    public void admit_throw_rejectPolicyAndFull() {
+        MailboxLimiter limiter = create(MailboxConfig.builder(1));
+        limiter.admit(obtain(mMessage), false);
+
+        limiter.admit(obtain(mMessage), false);
+    }
+
+    @Test
+    public void admit_returnFalse_dropNewestPolicyAndFull() {
+        MailboxLimiter limiter = create(MailboxConfig.builder(1)
+                .setOverflowPolicy(MailboxConfig.OverflowPolicy.DROP_NEWEST));
+        Assert.assertTrue(limiter.admit(obtain(mMessage), false));
+
+        Assert.assertFalse(limiter.admit(obtain(mMessage), false));
+        Assert.assertEquals(1, limiter.size());
+    }
+
+    @Test
+    public void trim_dropOldest_dropOldestPolicyAndFull() {
+        MailboxLimiter limiter = create(MailboxConfig.builder(2)
+                .setOverflowPolicy(MailboxConfig.OverflowPolicy.DROP_OLDEST));
+        PriorityMailbox mailbox = new PriorityMailbox();
+        Message oldest = Mockito.mock(Message.class);
+        Message newest = Mockito.mock(Message.class);
+
+        for (Message message : new Message[] {oldest, mMessage, newest}) {
+            Transaction transaction = obtain(message);
+            Assert.assertTrue(limiter.admit(transaction, false));
+            mailbox.offer(transaction);
+        }
+        Assert.assertTrue(limiter.isOverflown());
+
+        limiter.trim(mailbox);
+
+        Assert.assertFalse(limiter.isOverflown());
+        Assert.assertEquals(2, limiter.size());
+        Assert.assertEquals(2, mailbox.size());
+        Assert.assertSame(mMessage, mailbox.poll().message);
+        Assert.assertSame(newest, mailbox.poll().message);
+    }
+
+    @Test
+    public void admit_acceptHeavyTransaction_emptyMailbox() {
+        MailboxLimiter limiter = create(MailboxConfig.builder(10).setMaxWeight(50, mWeigher));
+
+        Assert.assertTrue(limiter.admit(obtain(mHeavyMessage), false));
+        Assert.assertEquals(100, limiter.weight());
+        Assert.assertEquals(1f, limiter.fullness(), 0.001f);
+    }
+
+    @Test(expected = MailboxOverflowException.class)
+    public void admit_throw_weightExceeded() {
+        MailboxLimiter limiter = create(MailboxConfig.builder(10).setMaxWeight(50, mWeigher));
+        limiter.admit(obtain(mMessage), false);
+
+        limiter.admit(obtain(mHeavyMessage), false);
+    }
+
+    @Test
+    public void release_freeSpace_always() {
+        MailboxLimiter limiter = create(MailboxConfig.builder(10).setMaxWeight(100, mWeigher));
+        Transaction first = obtain(mMessage);
+        Transaction second = obtain(mMessage);
+        limiter.admit(first, false);
+        limiter.admit(second, false);
+        Assert.assertEquals(20, limiter.weight());
+        Assert.assertEquals(0.2f, limiter.fullness(), 0.001f);
+
+        limiter.release(first);
+
+        Assert.assertEquals(1, limiter.size());
+        Assert.assertEquals(10, limiter.weight());
+        Assert.assertEquals(0.1f, limiter.fullness(), 0.001f);
+    }
+
+    @Test(expected = MailboxOverflowException.class, timeout = 2000)
+    public void admit_throw_blockPolicyAndTimeoutExpired() {
+        MailboxLimiter limiter = create(MailboxConfig.builder(1)
+                .setOverflowPolicy(MailboxConfig.OverflowPolicy.BLOCK)
+                .setBlockTimeout(50, TimeUnit.MILLISECONDS));
+        limiter.admit(obtain(mMessage), false);
+
+        limiter.admit(obtain(mMessage), false);
+    }
+
+    @Test(expected = MailboxOverflowException.class, timeout = 2000)
+    public void admit_throw_blockPolicyAndConsumerThread() {
+        MailboxLimiter limiter = create(MailboxConfig.builder(1)
+                .setOverflowPolicy(MailboxConfig.OverflowPolicy.BLOCK));
+        limiter.admit(obtain(mMessage), false);
+
+        limiter.admit(obtain(mMessage), true);
+    }
+
+    @Test(timeout = 5000)
+    public void admit_waitForSpace_blockPolicyAndFull() throws Exception {
+        final MailboxLimiter limiter = create(MailboxConfig.builder(1)
+                .setOverflowPolicy(MailboxConfig.OverflowPolicy.BLOCK));
+        final Transaction first = obtain(mMessage);
+        limiter.admit(first, false);
+
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicBoolean admitted = new AtomicBoolean(false);
+        Thread producer = new Thread() {
+            @Override
+            public void run() {
+                started.countDown();
+                admitted.set(limiter.admit(obtain(mMessage), false));
+            }
+        };
+        producer.start();
+        started.await();
+
+        // Let producer wait for the space
+        Thread.sleep(100);
+        Assert.assertFalse(admitted.get());
+
+        limiter.release(first);
+        producer.join();
+
+        Assert.assertTrue(admitted.get());
+        Assert.assertEquals(1, limiter.size());
+    }
+
+    private MailboxLimiter create(MailboxConfig.Builder builder) {
+        return new MailboxLimiter(builder.build());
+    }
+
+    private Transaction obtain(Message message) {
+        return Transaction.<Object>obtain(mImpl, message, mFailureHandler);
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+@SuppressWarnings("unchecked")
+public class MailboxMonitorTest {
+    @Mock
+    private ProxyFactory mProxyFactory;
+
+    @Mock
+    private FailureHandler mFailureHandler;
+
+    @Mock
+    private Runnable mActorImpl;
+
+    private final List<Runnable> mScheduled = new ArrayList<>();
+
+    private final Executor mExecutor = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            mScheduled.add(command);
+        }
+    };
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @Test
+    public void snapshot_empty_noCalls() {
+        MailboxMonitor.Snapshot snapshot = new MailboxMonitor().snapshot(10);
+
+        Assert.assertEquals(0, snapshot.getDepth());
+        Assert.assertEquals(0, snapshot.getOldestAgeMillis());
+        Assert.assertTrue(snapshot.getPendingByMethod().isEmpty());
+        Assert.assertTrue(snapshot.getCalls().isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void snapshot_throw_negativeCalls() {
+        new MailboxMonitor().snapshot(-1);
+    }
+
+    @Test
+    public void snapshot_countPendingCalls_monitoredThread() {
+        int base = ActorMethods.register(Runnable.class, "run", "stop");
+        MailboxMonitor monitor = new MailboxMonitor();
+        MessageSender postman = bind(monitor.monitor(new ExecutorActorThread(mExecutor, mProxyFactory, mFailureHandler)));
+
+        postman.deliver(message(base, "Runnable.run(1)"));
+        postman.deliver(message(base, "Runnable.run(2)"));
+        postman.deliver(message(base + 1, "Runnable.stop()"));
+
+        Assert.assertEquals(3, monitor.depth());
+        MailboxMonitor.Snapshot snapshot = monitor.snapshot(2);
+        Assert.assertEquals(3, snapshot.getDepth());
+        Assert.assertEquals(Integer.valueOf(2), snapshot.getPendingByMethod().get("Runnable.run"));
+        Assert.assertEquals(Integer.valueOf(1), snapshot.getPendingByMethod().get("Runnable.stop"));
+        Assert.assertEquals(2, snapshot.getCalls().size());
+        Assert.assertEquals("Runnable.run(1)", snapshot.getCalls().get(0));
+        Assert.assertEquals("Runnable.run(2)", snapshot.getCalls().get(1));
+    }
+
+    @Test
+    public void snapshot_skipCalls_zeroCalls() {
+        MailboxMonitor monitor = new MailboxMonitor();
+        MessageSender postman = bind(monitor.monitor(new ExecutorActorThread(mExecutor, mProxyFactory, mFailureHandler)));
+
+        postman.deliver(message(ActorMethods.UNKNOWN, "Runnable.run()"));
+
+        MailboxMonitor.Snapshot snapshot = monitor.snapshot(0);
+        Assert.assertEquals(1, snapshot.getDepth());
+        Assert.assertEquals(Integer.valueOf(1), snapshot.getPendingByMethod().get("unknown"));
+        Assert.assertTrue(snapshot.getCalls().isEmpty());
+    }
+
+    @Test
+    public void depth_decrease_callsExecuted() {
+        MailboxMonitor monitor = new MailboxMonitor();
+        MessageSender postman = bind(monitor.monitor(new ExecutorActorThread(mExecutor, mProxyFactory, mFailureHandler)));
+
+        postman.deliver(message(ActorMethods.UNKNOWN, "Runnable.run(1)"));
+        postman.deliver(message(ActorMethods.UNKNOWN, "Runnable.run(2)"));
+        Assert.assertEquals(2, monitor.depth());
+        runScheduled();
+
+        Assert.assertEquals(0, monitor.depth());
+        Assert.assertEquals(0, monitor.oldestAge(TimeUnit.NANOSECONDS));
+        Assert.assertTrue(monitor.snapshot(10).getPendingByMethod().isEmpty());
+    }
+
+    @Test
+    public void oldestAge_grow_callPending() throws Exception {
+        MailboxMonitor monitor = new MailboxMonitor();
+        MessageSender postman = bind(monitor.monitor(new ExecutorActorThread(mExecutor, mProxyFactory, mFailureHandler)));
+
+        postman.deliver(message(ActorMethods.UNKNOWN, "Runnable.run()"));
+        Thread.sleep(20);
+
+        Assert.assertTrue(monitor.oldestAge(TimeUnit.MILLISECONDS) >= 20);
+        Assert.assertTrue(monitor.snapshot(0).getOldestAgeMillis() >= 20);
+    }
+
+    @Test
+    public void onTaken_keepOrder_callTakenFromMiddle() {
+        MailboxMonitor monitor = new MailboxMonitor();
+        Message first = message(ActorMethods.UNKNOWN, "first");
+        Message second = message(ActorMethods.UNKNOWN, "second");
+        Message third = message(ActorMethods.UNKNOWN, "third");
+
+        monitor.onSent(first, ActorMethods.UNKNOWN);
+        MailboxMonitor.PendingCall middle = monitor.onSent(second, ActorMethods.UNKNOWN);
+        MailboxMonitor.PendingCall last = monitor.onSent(third, ActorMethods.UNKNOWN);
+        monitor.onTaken(middle);
+        Assert.assertEquals(2, monitor.depth());
+        Assert.assertEquals("[first, third]", monitor.snapshot(10).getCalls().toString());
+
+        monitor.onTaken(last);
+        monitor.onSent(second, ActorMethods.UNKNOWN);
+        Assert.assertEquals("[first, second]", monitor.snapshot(10).getCalls().toString());
+    }
+
+    @Test
+    public void monitor_keepWatchdog_watchedThread() {
+        Watchdog watchdog = Watchdog.builder(1, TimeUnit.SECONDS, Mockito.mock(Watchdog.Reporter.class)).build();
+        MailboxMonitor monitor = new MailboxMonitor();
+        WatchableActorThread thread = Mockito.mock(WatchableActorThread.class);
+
+        monitor.monitor(watchdog.watch(thread)).bind(Runnable.class, mActorImpl);
+
+        ArgumentCaptor<Supervisor> supervisor = ArgumentCaptor.forClass(Supervisor.class);
+        Mockito.verify(thread).bind(Mockito.eq(Runnable.class), Mockito.same(mActorImpl), supervisor.capture());
+        Assert.assertSame(watchdog, supervisor.getValue().mWatchdog);
+        Assert.assertSame(monitor, supervisor.getValue().mMonitor);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void monitor_throw_unknownThread() {
+        new MailboxMonitor().monitor(Mockito.mock(ActorThread.class));
+    }
+
+    private MessageSender bind(ActorThread thread) {
+        thread.bind(Runnable.class, mActorImpl);
+        ArgumentCaptor<MessageSender> postman = ArgumentCaptor.forClass(MessageSender.class);
+        Mockito.verify(mProxyFactory).newProxy(Mockito.<Class>any(), postman.capture());
+        return postman.getValue();
+    }
+
+    private void runScheduled() {
+        while (!mScheduled.isEmpty()) {
+            mScheduled.remove(0).run();
+        }
+    }
+
+    private static Message message(final int methodId, final String description) {
+        return new MessageBase<Runnable, Void>(null) {
+            @Override
+            public Promise<Void> invoke(Runnable target) {
+                target.run();
+                return null;
+            }
+
+            @Override
+            public int getMethodId() {
+                return methodId;
+            }
+
+            @Override
+            public String toString() {
+                return description;
+            }
+        };
+    }
+}
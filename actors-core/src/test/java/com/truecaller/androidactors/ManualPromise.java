@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Source which gives out its result when the test says so, the same way actor's result does
+ */
+@SuppressWarnings("unchecked")
+/* package */ class ManualPromise<R> extends Promise<R> implements ActionHandle {
+    /* package */ ResultListener<R> mListener;
+
+    @Override
+    public void thenNothing() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ActionHandle then(ResultListener<R> listener) {
+        mListener = listener;
+        return this;
+    }
+
+    @Override
+    public ActionHandle then(ActorThread thread, ResultListener<R> listener) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public R get() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public R get(long timeout, @NonNull TimeUnit unit) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void forget() {
+        mListener = null;
+    }
+
+    /* package */ void complete(R result, ResourceCleaner<R> cleaner) {
+        new PromiseImpl<>(result, cleaner).then(mListener);
+    }
+
+    /* package */ void fail(RuntimeException error) {
+        ((StageListener<R>) mListener).onFailure(error);
+    }
+}
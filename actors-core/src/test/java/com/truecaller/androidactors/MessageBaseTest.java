@@ -21,14 +21,10 @@ import androidx.annotation.Nullable;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
-import org.junit.runner.RunWith;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
-import org.robolectric.RobolectricTestRunner;
-import org.robolectric.annotation.Config;
 
-@RunWith(RobolectricTestRunner.class)
-@Config(manifest = Config.NONE)
 public class MessageBaseTest {
     @Mock
     private ActorInvokeException mException;
@@ -48,6 +44,118 @@ public class MessageBaseTest {
         Assert.assertSame(mException, message.exception());
     }
 
+    @Test
+    public void exception_createLazily_callSiteNotCaptured() {
+        MessageBase message = new MockMessageBase(null);
+
+        ActorInvokeException exception = message.exception();
+        Assert.assertNotNull(exception);
+        Assert.assertFalse(exception.isCallSiteCaptured());
+        Assert.assertSame(exception, message.exception());
+    }
+
+    @Test
+    public void recycleDelivered_returnToPool_pooledMessage() {
+        PooledRunnableMessage.sPool.clear();
+        PooledRunnableMessage message = PooledRunnableMessage.obtain(null);
+
+        MessageBase.recycleDelivered(message);
+
+        Assert.assertSame(message, PooledRunnableMessage.obtain(null));
+    }
+
+    @Test
+    public void priorityOf_returnPriority_messageBase() {
+        MessageBase message = new MockMessageBase(mException);
+        Assert.assertEquals(Priority.NORMAL, MessageBase.priorityOf(message));
+
+        message.setPriority(Priority.HIGH);
+        Assert.assertEquals(Priority.HIGH, message.getPriority());
+        Assert.assertEquals(Priority.HIGH, MessageBase.priorityOf(message));
+    }
+
+    @Test
+    public void priorityOf_returnPriority_promiseProxy() {
+        MessageBase<Object, Object> message = new MockMessageBase<>(mException);
+        Message<Object, Object> proxy = new PromiseProxy<>(Mockito.mock(MessageSender.class), message);
+
+        MessageBase.setPriority(proxy, Priority.LOW);
+        Assert.assertEquals(Priority.LOW, message.getPriority());
+        Assert.assertEquals(Priority.LOW, MessageBase.priorityOf(proxy));
+    }
+
+    @Test
+    public void priorityOf_returnNormal_otherMessage() {
+        Assert.assertEquals(Priority.NORMAL, MessageBase.priorityOf(Mockito.mock(Message.class)));
+    }
+
+    @Test
+    public void coalesces_returnTrue_latestMode() {
+        Assert.assertTrue(MessageBase.coalesces(new CoalescingMessage(Coalesce.LATEST, "first"),
+                new CoalescingMessage(Coalesce.LATEST, "second")));
+    }
+
+    @Test
+    public void coalesces_compareArguments_sameArgumentsMode() {
+        Assert.assertTrue(MessageBase.coalesces(new CoalescingMessage(Coalesce.SAME_ARGUMENTS, "key"),
+                new CoalescingMessage(Coalesce.SAME_ARGUMENTS, "key")));
+        Assert.assertFalse(MessageBase.coalesces(new CoalescingMessage(Coalesce.SAME_ARGUMENTS, "key"),
+                new CoalescingMessage(Coalesce.SAME_ARGUMENTS, "other")));
+    }
+
+    @Test
+    public void coalesces_returnFalse_notCoalescingMessage() {
+        Assert.assertFalse(MessageBase.coalesces(new CoalescingMessage(Coalesce.NONE, "first"),
+                new CoalescingMessage(Coalesce.NONE, "first")));
+        Assert.assertFalse(MessageBase.coalesces(new MockMessageBase<>(mException),
+                new CoalescingMessage(Coalesce.LATEST, "first")));
+        Assert.assertFalse(MessageBase.isCoalescing(Mockito.mock(Message.class)));
+    }
+
+    @Test
+    public void bindCancellationToken_createToken_nullToken() {
+        MessageBase message = new MockMessageBase(null);
+
+        CancellationToken token = message.bindCancellationToken(null);
+
+        Assert.assertNotNull(token);
+        Assert.assertSame(token, MessageBase.cancellationTokenOf(message));
+    }
+
+    @Test
+    public void isCancelled_returnTrue_tokenCancelled() {
+        MessageBase message = new MockMessageBase(null);
+        CancellationToken token = new CancellationToken();
+        Assert.assertSame(token, message.bindCancellationToken(token));
+        Assert.assertFalse(MessageBase.isCancelled(message));
+
+        token.cancel();
+
+        Assert.assertTrue(MessageBase.isCancelled(message));
+        Assert.assertFalse(MessageBase.isCancelled(new MockMessageBase(null)));
+    }
+
+    @Test
+    public void recycleDelivered_releaseToken_always() {
+        MessageBase message = new MockMessageBase(null);
+        message.bindCancellationToken(null);
+
+        MessageBase.recycleDelivered(message);
+
+        Assert.assertNull(MessageBase.cancellationTokenOf(message));
+    }
+
+    @Test
+    public void coalesces_unwrapPromise_promiseProxy() {
+        MessageSender sender = Mockito.mock(MessageSender.class);
+        Message pending = new PromiseProxy<>(sender, new CoalescingMessage(Coalesce.LATEST, "first"));
+        Message incoming = new PromiseProxy<>(sender, new CoalescingMessage(Coalesce.LATEST, "second"));
+
+        Assert.assertTrue(MessageBase.isCoalescing(incoming));
+        Assert.assertTrue(MessageBase.coalesces(pending, incoming));
+        Assert.assertFalse(MessageBase.coalesces(pending, new CoalescingMessage(Coalesce.LATEST, "second")));
+    }
+
     @Test(expected = AssertionError.class)
     public void verifyResult_throw_nullResult() {
         MessageBase<Object, Object> message = new MockMessageBase<>(mException);
@@ -160,8 +268,22 @@ public class MessageBaseTest {
         Assert.assertEquals("<value>", MessageBase.logParam(value, SecureParameter.LEVEL_NO_INFO));
     }
 
+    @Test
+    public void methodIdOf_unknown_notGeneratedMessage() {
+        Assert.assertEquals(ActorMethods.UNKNOWN, MessageBase.methodIdOf(new MockMessageBase(null)));
+        Assert.assertEquals(ActorMethods.UNKNOWN, MessageBase.methodIdOf(Mockito.mock(Message.class)));
+    }
+
+    @Test
+    public void methodIdOf_messageId_generatedMessage() {
+        MessageBase message = Mockito.spy(new MockMessageBase(null));
+        Mockito.doReturn(42).when(message).getMethodId();
+
+        Assert.assertEquals(42, MessageBase.methodIdOf(message));
+    }
+
     private static class MockMessageBase<T, R> extends MessageBase<T, R> {
-        private MockMessageBase(@NonNull ActorInvokeException exception) {
+        private MockMessageBase(@Nullable ActorInvokeException exception) {
             super(exception);
         }
 
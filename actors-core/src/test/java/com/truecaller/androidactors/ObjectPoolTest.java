@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ObjectPoolTest {
+
+    private final AtomicInteger mCreated = new AtomicInteger();
+
+    private ObjectPool<Object> mPool;
+
+    @Before
+    public void setUp() {
+        mCreated.set(0);
+        mPool = new ObjectPool<>(new ObjectPool.Factory<Object>() {
+            @Override
+            public Object create() {
+                mCreated.incrementAndGet();
+                return new Object();
+            }
+        }, 4);
+    }
+
+    @Test
+    public void acquire_createNew_emptyPool() {
+        Object first = mPool.acquire();
+        Object second = mPool.acquire();
+
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals(2, mCreated.get());
+        Assert.assertEquals(2, mPool.getMissCount());
+        Assert.assertEquals(0, mPool.getHitCount());
+    }
+
+    @Test
+    public void acquire_reuse_releasedObject() {
+        Object item = mPool.acquire();
+        Assert.assertTrue(mPool.release(item));
+
+        Assert.assertSame(item, mPool.acquire());
+        Assert.assertEquals(1, mCreated.get());
+        Assert.assertEquals(1, mPool.getHitCount());
+        Assert.assertEquals(1, mPool.getMissCount());
+    }
+
+    @Test
+    public void release_drop_fullPool() {
+        for (int index = 0; index < mPool.getCapacity(); ++index) {
+            Assert.assertTrue(mPool.release(new Object()));
+        }
+
+        Assert.assertFalse(mPool.release(new Object()));
+        Assert.assertEquals(1, mPool.getDropCount());
+    }
+
+    @Test
+    public void release_drop_zeroCapacity() {
+        mPool.setCapacity(0);
+        Object item = mPool.acquire();
+
+        Assert.assertFalse(mPool.release(item));
+        Assert.assertNotSame(item, mPool.acquire());
+    }
+
+    @Test
+    public void clear_dropObjectsAndCounters_always() {
+        Object item = mPool.acquire();
+        mPool.release(item);
+        mPool.clear();
+
+        Assert.assertEquals(4, mPool.getCapacity());
+        Assert.assertEquals(0, mPool.getMissCount());
+        Assert.assertNotSame(item, mPool.acquire());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setCapacity_throw_negativeCapacity() {
+        mPool.setCapacity(-1);
+    }
+
+    @Test(timeout = 10000)
+    public void acquire_neverShareObject_concurrentThreads() throws Exception {
+        final int threads = 4;
+        final int iterations = 10000;
+        final Set<Object> inUse = new HashSet<>();
+        final AtomicInteger failures = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+
+        for (int thread = 0; thread < threads; ++thread) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int index = 0; index < iterations; ++index) {
+                            Object item = mPool.acquire();
+                            synchronized (inUse) {
+                                if (!inUse.add(item)) {
+                                    failures.incrementAndGet();
+                                }
+                            }
+                            synchronized (inUse) {
+                                inUse.remove(item);
+                            }
+                            mPool.release(item);
+                        }
+                    } catch (InterruptedException e) {
+                        failures.incrementAndGet();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+
+        start.countDown();
+        done.await();
+
+        Assert.assertEquals(0, failures.get());
+        Assert.assertEquals(threads * iterations, mPool.getHitCount() + mPool.getMissCount());
+    }
+}
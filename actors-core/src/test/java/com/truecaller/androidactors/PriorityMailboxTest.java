@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+@SuppressWarnings("unchecked")
+public class PriorityMailboxTest {
+
+    @Mock
+    private FailureHandler mFailureHandler;
+
+    private final Object mImpl = new Object();
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @Test
+    public void poll_returnNull_emptyMailbox() {
+        PriorityMailbox mailbox = new PriorityMailbox();
+        Assert.assertTrue(mailbox.isEmpty());
+        Assert.assertNull(mailbox.poll());
+    }
+
+    @Test
+    public void poll_keepOrder_samePriority() {
+        PriorityMailbox mailbox = new PriorityMailbox();
+        Message[] messages = new Message[] {Mockito.mock(Message.class), Mockito.mock(Message.class),
+                Mockito.mock(Message.class)};
+
+        for (Message message : messages) {
+            mailbox.offer(obtain(message, Priority.NORMAL));
+        }
+        Assert.assertEquals(3, mailbox.size());
+
+        for (Message message : messages) {
+            Transaction transaction = mailbox.poll();
+            Assert.assertNotNull(transaction);
+            Assert.assertSame(message, transaction.message);
+            Assert.assertNull(transaction.next);
+        }
+        Assert.assertTrue(mailbox.isEmpty());
+    }
+
+    @Test
+    public void poll_higherPriorityFirst_differentPriorities() {
+        PriorityMailbox mailbox = new PriorityMailbox();
+        Message low = Mockito.mock(Message.class);
+        Message normal = Mockito.mock(Message.class);
+        Message firstHigh = Mockito.mock(Message.class);
+        Message secondHigh = Mockito.mock(Message.class);
+
+        mailbox.offer(obtain(low, Priority.LOW));
+        mailbox.offer(obtain(firstHigh, Priority.HIGH));
+        mailbox.offer(obtain(normal, Priority.NORMAL));
+        mailbox.offer(obtain(secondHigh, Priority.HIGH));
+
+        Assert.assertSame(firstHigh, mailbox.poll().message);
+        Assert.assertSame(secondHigh, mailbox.poll().message);
+        Assert.assertSame(normal, mailbox.poll().message);
+        Assert.assertSame(low, mailbox.poll().message);
+        Assert.assertNull(mailbox.poll());
+    }
+
+    @Test
+    public void poll_takeAgedTransaction_thresholdReached() {
+        PriorityMailbox mailbox = new PriorityMailbox(2);
+        Message low = Mockito.mock(Message.class);
+        Message high = Mockito.mock(Message.class);
+
+        mailbox.offer(obtain(low, Priority.LOW));
+        for (int index = 0; index < 5; ++index) {
+            mailbox.offer(obtain(high, Priority.HIGH));
+        }
+
+        Assert.assertSame(high, mailbox.poll().message);
+        Assert.assertSame(high, mailbox.poll().message);
+        // Low priority transaction was skipped twice, now it's its turn
+        Assert.assertSame(low, mailbox.poll().message);
+        Assert.assertSame(high, mailbox.poll().message);
+    }
+
+    @Test
+    public void poll_clampPriority_unknownPriority() {
+        PriorityMailbox mailbox = new PriorityMailbox();
+        Message normal = Mockito.mock(Message.class);
+        Message tooHigh = Mockito.mock(Message.class);
+        Message tooLow = Mockito.mock(Message.class);
+
+        mailbox.offer(obtain(tooLow, -10));
+        mailbox.offer(obtain(normal, Priority.NORMAL));
+        mailbox.offer(obtain(tooHigh, 100));
+
+        Assert.assertSame(tooHigh, mailbox.poll().message);
+        Assert.assertSame(normal, mailbox.poll().message);
+        Assert.assertSame(tooLow, mailbox.poll().message);
+    }
+
+    @Test
+    public void remove_unlinkTransaction_transactionInMailbox() {
+        PriorityMailbox mailbox = new PriorityMailbox();
+        Message first = Mockito.mock(Message.class);
+        Message last = Mockito.mock(Message.class);
+        Transaction removed = obtain(Mockito.mock(Message.class), Priority.NORMAL);
+
+        mailbox.offer(obtain(first, Priority.NORMAL));
+        mailbox.offer(removed);
+        mailbox.offer(obtain(last, Priority.NORMAL));
+
+        Assert.assertTrue(mailbox.remove(removed));
+        Assert.assertFalse(mailbox.remove(removed));
+        Assert.assertEquals(2, mailbox.size());
+        Assert.assertSame(first, mailbox.poll().message);
+        Assert.assertSame(last, mailbox.poll().message);
+    }
+
+    @Test
+    public void remove_returnTransaction_messageInMailbox() {
+        PriorityMailbox mailbox = new PriorityMailbox();
+        Message kept = Mockito.mock(Message.class);
+        Message message = Mockito.mock(Message.class);
+        Transaction transaction = obtain(message, Priority.HIGH);
+
+        mailbox.offer(obtain(kept, Priority.NORMAL));
+        mailbox.offer(transaction);
+
+        Assert.assertSame(transaction, mailbox.remove(message));
+        Assert.assertNull(mailbox.remove(message));
+        Assert.assertEquals(1, mailbox.size());
+        Assert.assertSame(kept, mailbox.poll().message);
+    }
+
+    @Test
+    public void evict_removeOldestOfLowestPriority_mixedPriorities() {
+        PriorityMailbox mailbox = new PriorityMailbox();
+        Message firstNormal = Mockito.mock(Message.class);
+        Message secondNormal = Mockito.mock(Message.class);
+        Message high = Mockito.mock(Message.class);
+
+        mailbox.offer(obtain(high, Priority.HIGH));
+        mailbox.offer(obtain(firstNormal, Priority.NORMAL));
+        mailbox.offer(obtain(secondNormal, Priority.NORMAL));
+
+        Assert.assertSame(firstNormal, mailbox.evict().message);
+        Assert.assertSame(secondNormal, mailbox.evict().message);
+        Assert.assertSame(high, mailbox.evict().message);
+        Assert.assertNull(mailbox.evict());
+        Assert.assertTrue(mailbox.isEmpty());
+    }
+
+    @Test
+    public void offer_replaceInPlace_coalescingMessage() {
+        PriorityMailbox mailbox = new PriorityMailbox();
+        Message first = Mockito.mock(Message.class);
+        Message last = Mockito.mock(Message.class);
+        CoalescingMessage replaced = new CoalescingMessage(Coalesce.LATEST, "first");
+        CoalescingMessage replacing = new CoalescingMessage(Coalesce.LATEST, "second");
+
+        mailbox.offer(obtain(first, Priority.NORMAL));
+        mailbox.offer(obtain(replaced, Priority.NORMAL));
+        mailbox.offer(obtain(last, Priority.NORMAL));
+        mailbox.offer(obtain(replacing, Priority.NORMAL));
+
+        Assert.assertEquals(3, mailbox.size());
+        Assert.assertSame(first, mailbox.poll().message);
+        Assert.assertSame(replacing, mailbox.poll().message);
+        Assert.assertSame(last, mailbox.poll().message);
+        Assert.assertTrue(mailbox.isEmpty());
+    }
+
+    @Test
+    public void offer_keepBoth_differentActors() {
+        PriorityMailbox mailbox = new PriorityMailbox();
+
+        mailbox.offer(obtain(new CoalescingMessage(Coalesce.LATEST, "first"), Priority.NORMAL));
+        Transaction other = obtain(new CoalescingMessage(Coalesce.LATEST, "second"), Priority.NORMAL);
+        other.impl = new Object();
+        mailbox.offer(other);
+
+        Assert.assertEquals(2, mailbox.size());
+    }
+
+    @Test
+    public void offer_keepBoth_differentPriorities() {
+        PriorityMailbox mailbox = new PriorityMailbox();
+
+        mailbox.offer(obtain(new CoalescingMessage(Coalesce.LATEST, "first"), Priority.NORMAL));
+        mailbox.offer(obtain(new CoalescingMessage(Coalesce.LATEST, "second"), Priority.HIGH));
+
+        Assert.assertEquals(2, mailbox.size());
+    }
+
+    @Test
+    public void offer_releaseReplacedTransaction_boundedMailbox() {
+        PriorityMailbox mailbox = new PriorityMailbox();
+        MailboxLimiter limiter = new MailboxLimiter(MailboxConfig.builder(10).build());
+
+        for (String key : new String[] {"first", "second", "third"}) {
+            Transaction transaction = obtain(new CoalescingMessage(Coalesce.LATEST, key), Priority.NORMAL);
+            Assert.assertTrue(limiter.admit(transaction, false));
+            mailbox.offer(transaction, limiter);
+        }
+
+        Assert.assertEquals(1, mailbox.size());
+        Assert.assertEquals(1, limiter.size());
+    }
+
+    @Test
+    public void drain_moveAllTransactions_queueWithTransactions() {
+        PriorityMailbox mailbox = new PriorityMailbox();
+        TransactionQueue queue = new TransactionQueue();
+        Message normal = Mockito.mock(Message.class);
+        Message high = Mockito.mock(Message.class);
+
+        queue.offer(obtain(normal, Priority.NORMAL));
+        queue.offer(obtain(high, Priority.HIGH));
+        mailbox.drain(queue);
+
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertSame(high, mailbox.poll().message);
+        Assert.assertSame(normal, mailbox.poll().message);
+    }
+
+    private Transaction obtain(Message message, int priority) {
+        Transaction transaction = Transaction.<Object>obtain(mImpl, message, mFailureHandler);
+        transaction.priority = priority;
+        return transaction;
+    }
+}
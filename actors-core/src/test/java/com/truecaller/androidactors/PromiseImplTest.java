@@ -25,6 +25,8 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
+import java.util.concurrent.TimeUnit;
+
 
 public class PromiseImplTest {
 
@@ -47,6 +49,26 @@ public class PromiseImplTest {
         public ResultListener<Object> tell() {
             return mProxy;
         }
+
+        @Override
+        public ResultListener<Object> tell(int priority) {
+            return mProxy;
+        }
+
+        @Override
+        public MailboxStatus mailbox() {
+            return null;
+        }
+
+        @Override
+        public ScheduledRef<ResultListener<Object>> tellAfter(long delay, TimeUnit unit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ScheduledRef<ResultListener<Object>> tellAtFixedRate(long initialDelay, long period, TimeUnit unit) {
+            throw new UnsupportedOperationException();
+        }
     };
 
     @Captor
@@ -81,6 +103,16 @@ public class PromiseImplTest {
         Mockito.verify(mListener).onResult(mResult);
     }
 
+    @SuppressWarnings("unchecked")
+    @Test
+    public void then_passCleaner_stageListener() throws Exception {
+        StageListener<Object> listener = Mockito.mock(StageListener.class);
+        PromiseImpl<Object> promise = new PromiseImpl<>(mResult, mCleaner);
+        promise.then(listener);
+        Mockito.verify(listener).onResult(mResult, mCleaner);
+        Mockito.verifyZeroInteractions(mCleaner);
+    }
+
     @Test
     public void then_cleanResultOnSameThread_withoutThreadAndListener() throws Exception {
         PromiseImpl<Object> promise = new PromiseImpl<>(mResult, mCleaner);
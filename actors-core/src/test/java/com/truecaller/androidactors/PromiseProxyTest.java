@@ -0,0 +1,552 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@SuppressWarnings("unchecked")
+public class PromiseProxyTest {
+
+    private Object mImpl = new Object();
+
+    @Mock
+    private MessageSender mSender;
+
+    @Mock
+    private Message<Object, Object> mMessage;
+
+    @Mock
+    private ActorThread mThread;
+
+    @Mock
+    private ResultListener<Object> mListener;
+
+    @Mock
+    private Promise<Object> mResultPromise;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    @Test
+    public void toString_returnFromMessage_always() {
+        Mockito.doReturn("TEXT FROM MESSAGE").when(mMessage).toString();
+        PromiseProxy promise = new PromiseProxy(mSender, mMessage);
+        Assert.assertEquals("TEXT FROM MESSAGE", promise.toString());
+    }
+
+    @SuppressWarnings("ThrowableNotThrown")
+    @Test
+    public void exception_returnFromMessage_always() {
+        final ActorInvokeException exception = Mockito.mock(ActorInvokeException.class);
+        Mockito.doReturn(exception).when(mMessage).exception();
+        PromiseProxy promise = new PromiseProxy(mSender, mMessage);
+        Assert.assertSame(exception, promise.exception());
+    }
+
+    @Test
+    public void thenNothing_deliverSelf_always() throws Exception {
+        PromiseProxy promise = new PromiseProxy(mSender, mMessage);
+        promise.thenNothing();
+
+        Mockito.verify(mSender).deliver(promise);
+    }
+
+    @Test
+    public void then_deliverSelf_withListener() throws Exception {
+        PromiseProxy promise = new PromiseProxy(mSender, mMessage);
+        promise.then(mListener);
+
+        Mockito.verify(mSender).deliver(promise);
+    }
+
+    @Test
+    public void then_deliverSelf_withListenerAndThread() throws Exception {
+        PromiseProxy promise = new PromiseProxy(mSender, mMessage);
+        promise.then(mThread, mListener);
+
+        Mockito.verify(mSender).deliver(promise);
+    }
+
+    @Test(timeout = 2000)
+    public void get_deliverResult_nonNullResult() throws Exception {
+        final Object result = new Object();
+        final CountDownLatch latch = new CountDownLatch(1);
+        PromiseProxy promise = new PromiseProxy(mSender, mMessage);
+        ResultDeliveryThread thread = new ResultDeliveryThread(promise, latch, null);
+        Mockito.doAnswer(thread).when(mSender).deliver(Mockito.<Message>any());
+
+        thread.start();
+        latch.await();
+
+        promise.onResult(result);
+        thread.join();
+
+        Assert.assertSame(result, thread.delivered());
+    }
+
+    @Test(timeout = 2000)
+    public void get_deliverResult_nullResult() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        PromiseProxy promise = new PromiseProxy(mSender, mMessage);
+        ResultDeliveryThread thread = new ResultDeliveryThread(promise, latch, new Object());
+        Mockito.doAnswer(thread).when(mSender).deliver(Mockito.<Message>any());
+
+        thread.start();
+        latch.await();
+
+        // Allow thread to fall a sleep
+        Thread.sleep(200);
+        promise.onResult(null);
+        thread.join();
+
+        Assert.assertNull(thread.delivered());
+    }
+
+    @Test(expected = ResultListenerIsNotSpecifiedException.class)
+    public void onResult_throw_withoutListener() {
+        PromiseProxy promise = new PromiseProxy(mSender, mMessage);
+        promise.onResult(new Object());
+    }
+
+    @Test
+    public void onResult_provideResult_withListener() {
+        final Object result = new Object();
+        PromiseProxy promise = new PromiseProxy(mSender, mMessage);
+        promise.then(mListener);
+        promise.onResult(result);
+
+        Mockito.verify(mListener).onResult(result);
+    }
+
+    @Test(expected = ResultListenerIsNotSpecifiedException.class)
+    public void forget_clearListener_always() {
+        PromiseProxy promise = new PromiseProxy(mSender, mMessage);
+        promise.then(mListener);
+
+        promise.forget();
+        promise.onResult(new Object());
+    }
+
+    @Test
+    public void invoke_invokeMessage_withoutResult() {
+        PromiseProxy promise = new PromiseProxy(mSender, mMessage);
+
+        promise.invoke(mImpl);
+
+        Mockito.verify(mMessage).invoke(mImpl);
+    }
+
+    @Test
+    public void invoke_invokeMessage_withoutListener() {
+        PromiseProxy promise = new PromiseProxy(mSender, mMessage);
+        Mockito.doReturn(mResultPromise).when(mMessage).invoke(mImpl);
+
+        promise.invoke(mImpl);
+
+        Mockito.verify(mResultPromise).then(null);
+    }
+
+    @Test
+    public void invoke_invokeMessageAndCallListener_withoutActorThread() {
+        PromiseProxy promise = new PromiseProxy(mSender, mMessage);
+        promise.then(mListener);
+        Mockito.doReturn(mResultPromise).when(mMessage).invoke(mImpl);
+
+        promise.invoke(mImpl);
+
+        Mockito.verify(mResultPromise).then(mListener);
+    }
+
+    @Test
+    public void invoke_invokeMessageAndCallListener_withActorThread() {
+        PromiseProxy promise = new PromiseProxy(mSender, mMessage);
+        promise.then(mThread, mListener);
+        Mockito.doReturn(mResultPromise).when(mMessage).invoke(mImpl);
+
+        promise.invoke(mImpl);
+
+        Mockito.verify(mResultPromise).then(mThread, promise);
+    }
+
+    @Test(expected = MailboxOverflowException.class, timeout = 2000)
+    public void get_throw_callDropped() throws Exception {
+        final PromiseProxy promise = new PromiseProxy(mSender, mMessage);
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                promise.onDropped(new MailboxOverflowException("Dropped"));
+                return null;
+            }
+        }).when(mSender).deliver(Mockito.<Message>any());
+
+        promise.get();
+    }
+
+    @Test(timeout = 2000)
+    public void get_throwAndCancel_timeout() throws Exception {
+        PromiseProxy promise = new PromiseProxy(mSender, mMessage);
+
+        try {
+            promise.get(10, TimeUnit.MILLISECONDS);
+            Assert.fail("Call must time out");
+        } catch (TimeoutException e) {
+            // expected
+        }
+
+        Assert.assertTrue(promise.isCancelled());
+    }
+
+    @Test(timeout = 2000)
+    public void get_returnResult_beforeTimeout() throws Exception {
+        final Object result = new Object();
+        final PromiseProxy promise = new PromiseProxy(mSender, mMessage);
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                promise.onResult(result);
+                return null;
+            }
+        }).when(mSender).deliver(promise);
+
+        Assert.assertSame(result, promise.get(1, TimeUnit.SECONDS));
+        Assert.assertFalse(promise.isCancelled());
+    }
+
+    @Test(timeout = 2000)
+    public void get_invokeInline_inlineSender() throws Exception {
+        final Object result = new Object();
+        final InlineMessageSender sender = Mockito.mock(InlineMessageSender.class);
+        final PromiseProxy promise = new PromiseProxy(sender, mMessage);
+        Mockito.doReturn(Promise.wrap(result)).when(mMessage).invoke(mImpl);
+        Mockito.doAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) {
+                promise.invoke(mImpl);
+                return true;
+            }
+        }).when(sender).deliverInline(promise);
+
+        Assert.assertSame(result, promise.get());
+        Mockito.verify(sender, Mockito.never()).deliver(Mockito.<Message>any());
+    }
+
+    @Test
+    public void get_deliver_inlineSenderOnOtherThread() throws Exception {
+        final InlineMessageSender sender = Mockito.mock(InlineMessageSender.class);
+        final PromiseProxy promise = new PromiseProxy(sender, mMessage);
+
+        try {
+            promise.get(0, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // nobody delivers the result
+        }
+
+        Mockito.verify(sender).deliverInline(promise);
+        Mockito.verify(sender).deliver(promise);
+    }
+
+    @Test(timeout = 2000)
+    public void get_throwActorException_actorThrows() throws Exception {
+        final IllegalStateException failure = new IllegalStateException();
+        final PromiseProxy promise = new PromiseProxy(mSender, mMessage);
+        Mockito.doThrow(failure).when(mMessage).invoke(mImpl);
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                try {
+                    promise.invoke(mImpl);
+                } catch (IllegalStateException e) {
+                    // Goes to failure handler
+                }
+                return null;
+            }
+        }).when(mSender).deliver(promise);
+
+        try {
+            promise.get();
+            Assert.fail("Exception of the actor must be thrown");
+        } catch (IllegalStateException e) {
+            Assert.assertSame(failure, e);
+        }
+    }
+
+    @Test(timeout = 2000)
+    public void get_throwWithoutFailureHandler_actorThrows() throws Exception {
+        final IllegalStateException failure = new IllegalStateException();
+        final FailureHandler handler = Mockito.mock(FailureHandler.class);
+        final PromiseProxy promise = new PromiseProxy(mSender, mMessage);
+        Mockito.doThrow(failure).when(mMessage).invoke(mImpl);
+        Mockito.doReturn(new ActorInvokeException("call")).when(mMessage).exception();
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                Transaction.obtain(mImpl, promise, handler).execute();
+                return null;
+            }
+        }).when(mSender).deliver(promise);
+
+        try {
+            promise.get();
+            Assert.fail("Exception of the actor must be thrown");
+        } catch (IllegalStateException e) {
+            Assert.assertSame(failure, e);
+        }
+        Mockito.verifyZeroInteractions(handler);
+    }
+
+    @Test(timeout = 2000)
+    public void get_throwWrappedError_actorThrowsError() throws Exception {
+        final AssertionError failure = new AssertionError();
+        final FailureHandler handler = Mockito.mock(FailureHandler.class);
+        final PromiseProxy promise = new PromiseProxy(mSender, mMessage);
+        final CountDownLatch waiting = new CountDownLatch(1);
+        Mockito.doThrow(failure).when(mMessage).invoke(mImpl);
+        Mockito.doReturn(new ActorInvokeException("call")).when(mMessage).exception();
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                waiting.countDown();
+                return null;
+            }
+        }).when(mSender).deliver(promise);
+
+        final Thread actor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    waiting.await();
+                    // Give the caller time to park
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                Transaction.obtain(mImpl, promise, handler).execute();
+            }
+        });
+        actor.start();
+
+        try {
+            promise.get();
+            Assert.fail("Error of the actor must be thrown");
+        } catch (RuntimeException e) {
+            Assert.assertSame(failure, e.getCause());
+        }
+        actor.join();
+
+        final ArgumentCaptor<ActorInvokeException> captor = ArgumentCaptor.forClass(ActorInvokeException.class);
+        Mockito.verify(handler).onUncaughtException(Mockito.same(mImpl), Mockito.same((Message) promise), captor.capture());
+        Assert.assertSame(failure, captor.getValue().getCause());
+    }
+
+    @Test(expected = InterruptedException.class, timeout = 2000)
+    public void get_throw_interrupted() throws Exception {
+        PromiseProxy promise = new PromiseProxy(mSender, mMessage);
+        Thread.currentThread().interrupt();
+
+        promise.get();
+    }
+
+    @Test
+    public void onDropped_notCallListener_withListener() {
+        PromiseProxy promise = new PromiseProxy(mSender, mMessage);
+        promise.then(mListener);
+
+        promise.onDropped(new MailboxOverflowException("Dropped"));
+
+        Mockito.verifyZeroInteractions(mListener);
+    }
+
+    @Test
+    public void invoke_shareResult_supersededCalls() {
+        final List<String> calls = new ArrayList<>();
+        ResultListener<String> first = Mockito.mock(ResultListener.class);
+        ResultListener<String> second = Mockito.mock(ResultListener.class);
+        ResultListener<String> third = Mockito.mock(ResultListener.class);
+        PromiseProxy<List<String>, String> firstCall = new PromiseProxy<>(mSender,
+                new CoalescingMessage(Coalesce.LATEST, "first"));
+        PromiseProxy<List<String>, String> secondCall = new PromiseProxy<>(mSender,
+                new CoalescingMessage(Coalesce.LATEST, "second"));
+        PromiseProxy<List<String>, String> thirdCall = new PromiseProxy<>(mSender,
+                new CoalescingMessage(Coalesce.LATEST, "third"));
+        firstCall.then(first);
+        secondCall.then(second);
+        thirdCall.then(third);
+
+        secondCall.supersede(firstCall);
+        thirdCall.supersede(secondCall);
+        thirdCall.invoke(calls);
+
+        Assert.assertEquals(Collections.singletonList("third"), calls);
+        Mockito.verify(first).onResult("third");
+        Mockito.verify(second).onResult("third");
+        Mockito.verify(third).onResult("third");
+    }
+
+    @Test
+    public void invoke_skipForgottenListener_supersededCalls() {
+        ResultListener<String> forgotten = Mockito.mock(ResultListener.class);
+        ResultListener<String> listener = Mockito.mock(ResultListener.class);
+        PromiseProxy<List<String>, String> replaced = new PromiseProxy<>(mSender,
+                new CoalescingMessage(Coalesce.LATEST, "first"));
+        PromiseProxy<List<String>, String> replacing = new PromiseProxy<>(mSender,
+                new CoalescingMessage(Coalesce.LATEST, "second"));
+        replaced.then(forgotten).forget();
+        replacing.then(listener);
+
+        replacing.supersede(replaced);
+        replacing.invoke(new ArrayList<String>());
+
+        Mockito.verify(listener).onResult("second");
+        Mockito.verifyZeroInteractions(forgotten);
+    }
+
+    @Test
+    public void forget_cancelToken_notSupersededCall() {
+        CancellingMessage message = new CancellingMessage();
+        PromiseProxy<Object, Object> promise = new PromiseProxy<>(mSender, message);
+        CancellationToken token = message.bindCancellationToken(null);
+
+        promise.then(mListener).forget();
+
+        Assert.assertTrue(token.isCancelled());
+        Assert.assertTrue(promise.isCancelled());
+    }
+
+    @Test
+    public void forget_keepToken_supersededCallWaits() {
+        CancellingMessage message = new CancellingMessage();
+        PromiseProxy<Object, Object> replaced = new PromiseProxy<>(mSender, new CancellingMessage());
+        PromiseProxy<Object, Object> replacing = new PromiseProxy<>(mSender, message);
+        CancellationToken token = message.bindCancellationToken(null);
+        replaced.then(mListener);
+        replacing.then(mListener);
+        replacing.supersede(replaced);
+
+        replacing.forget();
+
+        Assert.assertFalse(token.isCancelled());
+        Assert.assertFalse(replacing.isCancelled());
+    }
+
+    @Test(expected = CancellationException.class)
+    public void get_throw_tokenCancelledBeforeStart() throws Exception {
+        final CancellingMessage message = new CancellingMessage();
+        final PromiseProxy<Object, Object> promise = new PromiseProxy<>(mSender, message);
+        message.bindCancellationToken(null).cancel();
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                promise.invoke(mImpl);
+                return null;
+            }
+        }).when(mSender).deliver(promise);
+
+        promise.get();
+    }
+
+    @Test
+    public void invoke_skipMessage_cancelled() {
+        PromiseProxy promise = new PromiseProxy(mSender, mMessage);
+        promise.then(mListener);
+
+        promise.cancel();
+        promise.invoke(mImpl);
+
+        Mockito.verify(mMessage, Mockito.never()).invoke(mImpl);
+        Mockito.verifyZeroInteractions(mListener);
+    }
+
+    @Test
+    public void invoke_shareResult_cancelledWithSupersededCalls() {
+        ResultListener<String> listener = Mockito.mock(ResultListener.class);
+        PromiseProxy<List<String>, String> replaced = new PromiseProxy<>(mSender,
+                new CoalescingMessage(Coalesce.LATEST, "first"));
+        PromiseProxy<List<String>, String> replacing = new PromiseProxy<>(mSender,
+                new CoalescingMessage(Coalesce.LATEST, "second"));
+        replaced.then(listener);
+        replacing.thenNothing();
+
+        replacing.supersede(replaced);
+        replacing.cancel();
+        replacing.invoke(new ArrayList<String>());
+
+        Mockito.verify(listener).onResult("second");
+    }
+
+    private static class CancellingMessage extends MessageBase<Object, Object> {
+        @Override
+        public Promise<Object> invoke(@NonNull Object target) {
+            return Promise.wrap(target);
+        }
+    }
+
+    private static class ResultDeliveryThread<T, R> extends Thread implements Answer<Void> {
+
+        @NonNull
+        private final PromiseProxy<T, R> mPromise;
+
+        @NonNull
+        private final CountDownLatch mStartCountdown;
+
+        private R mDeliveredResult = null;
+
+        private ResultDeliveryThread(@NonNull PromiseProxy<T, R> promise, @NonNull CountDownLatch startCountdown, R initial) {
+            mPromise = promise;
+            mStartCountdown = startCountdown;
+            mDeliveredResult = initial;
+        }
+
+        @Override
+        public void run() {
+            try {
+                mDeliveredResult = mPromise.get();
+            } catch (InterruptedException e) {
+                // nothing here
+            }
+        }
+
+        R delivered() {
+            return mDeliveredResult;
+        }
+
+        @Override
+        public Void answer(InvocationOnMock invocation) throws Throwable {
+            mStartCountdown.countDown();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class SameThreadActorThreadTest {
+    @Mock
+    private ProxyFactory mProxyFactory;
+
+    @Mock
+    private FailureHandler mFailureHandler;
+
+    @Mock
+    private Runnable mActorImpl;
+
+    private MessageSender mPostman;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+
+        SameThreadActorThread thread = new SameThreadActorThread(mProxyFactory, mFailureHandler);
+        thread.bind(Runnable.class, mActorImpl);
+
+        ArgumentCaptor<MessageSender> postmanCaptor = ArgumentCaptor.forClass(MessageSender.class);
+        Mockito.verify(mProxyFactory).newProxy(Mockito.<Class>any(), postmanCaptor.capture());
+        mPostman = postmanCaptor.getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void deliver_invokeInCallingThread() {
+        final AtomicReference<Thread> invoked = new AtomicReference<>();
+        Message message = Mockito.mock(Message.class);
+        Mockito.doAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                invoked.set(Thread.currentThread());
+                return null;
+            }
+        }).when(message).invoke(mActorImpl);
+
+        mPostman.deliver(message);
+
+        Assert.assertSame(Thread.currentThread(), invoked.get());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void deliver_invokeAfterCurrentCall_callFromActor() {
+        final Message inner = Mockito.mock(Message.class);
+        final Message outer = Mockito.mock(Message.class);
+        Mockito.doAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                mPostman.deliver(inner);
+                // Actor is still busy, nested call has to wait
+                Mockito.verify(inner, Mockito.never()).invoke(Mockito.any());
+                return null;
+            }
+        }).when(outer).invoke(mActorImpl);
+
+        mPostman.deliver(outer);
+
+        InOrder order = Mockito.inOrder(outer, inner);
+        order.verify(outer).invoke(mActorImpl);
+        order.verify(inner).invoke(mActorImpl);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void deliver_busyThreadInvokes_callFromOtherThread() throws Exception {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicReference<Thread> invoked = new AtomicReference<>();
+
+        final Message first = Mockito.mock(Message.class);
+        Mockito.doAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                entered.countDown();
+                release.await();
+                return null;
+            }
+        }).when(first).invoke(mActorImpl);
+
+        Message second = Mockito.mock(Message.class);
+        Mockito.doAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                invoked.set(Thread.currentThread());
+                return null;
+            }
+        }).when(second).invoke(mActorImpl);
+
+        Thread busy = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                mPostman.deliver(first);
+            }
+        });
+        busy.start();
+        Assert.assertTrue(entered.await(1, TimeUnit.SECONDS));
+
+        mPostman.deliver(second);
+        Assert.assertNull(invoked.get());
+
+        release.countDown();
+        busy.join(1000);
+        Assert.assertSame(busy, invoked.get());
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ScheduledActorRefTest {
+    @Mock
+    private ProxyFactory mProxyFactory;
+
+    @Mock
+    private MessageSender mSender;
+
+    @Mock
+    private TimingWheel mWheel;
+
+    @Mock
+    private TimingWheel.Timeout mTimeout;
+
+    @Mock
+    private Message<Runnable, String> mMessage;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        Mockito.doReturn(mTimeout).when(mWheel).schedule(Mockito.any(Runnable.class), Mockito.anyLong(), Mockito.anyLong());
+    }
+
+    @Test
+    public void tell_returnProxy_forScheduledSender() {
+        Runnable proxy = Mockito.mock(Runnable.class);
+        Mockito.doReturn(proxy).when(mProxyFactory).newProxy(Mockito.eq(Runnable.class), Mockito.<MessageSender>any());
+
+        ScheduledActorRef<Runnable> ref = new ScheduledActorRef<>(mProxyFactory, Runnable.class, mSender, mWheel, 10, 0);
+
+        Assert.assertSame(proxy, ref.tell());
+        Mockito.verify(mProxyFactory).newProxy(Runnable.class, ref);
+    }
+
+    @Test
+    public void deliver_sendMessage_whenDue() {
+        ScheduledActorRef<Runnable> ref = new ScheduledActorRef<>(mProxyFactory, Runnable.class, mSender, mWheel, 10, 0);
+        PooledRunnableMessage message = PooledRunnableMessage.obtain(null);
+
+        ref.deliver(message);
+        Mockito.verifyZeroInteractions(mSender);
+
+        Runnable task = captureTask(10, 0);
+        task.run();
+        Mockito.verify(mSender).deliver(message);
+
+        // Sent calls can't be cancelled
+        ref.forget();
+        Mockito.verify(mTimeout, Mockito.never()).forget();
+        task.run();
+        Mockito.verify(mSender).deliver(message);
+    }
+
+    @Test
+    public void forget_cancelCalls_notSentYet() {
+        ScheduledActorRef<Runnable> ref = new ScheduledActorRef<>(mProxyFactory, Runnable.class, mSender, mWheel, 10, 0);
+        PooledRunnableMessage message = PooledRunnableMessage.obtain(null);
+        ref.deliver(message);
+        Runnable task = captureTask(10, 0);
+
+        ref.forget();
+        Mockito.verify(mTimeout).forget();
+
+        // Call which has just expired on the wheel is not sent either
+        task.run();
+        Mockito.verifyZeroInteractions(mSender);
+    }
+
+    @Test
+    public void deliver_sendRepeatedly_periodic() {
+        ScheduledActorRef<Runnable> ref = new ScheduledActorRef<>(mProxyFactory, Runnable.class, mSender, mWheel, 0, 20);
+        PooledRunnableMessage message = PooledRunnableMessage.obtain(null);
+        ref.deliver(message);
+        Runnable task = captureTask(0, 20);
+
+        task.run();
+        task.run();
+
+        ArgumentCaptor<Message> captor = ArgumentCaptor.forClass(Message.class);
+        Mockito.verify(mSender, Mockito.times(2)).deliver(captor.capture());
+        Assert.assertSame(captor.getAllValues().get(0), captor.getAllValues().get(1));
+        // Delivered message is never returned to the pool
+        Assert.assertTrue(captor.getValue() instanceof PeriodicMessage);
+        Assert.assertSame(message, ((PeriodicMessage) captor.getValue()).mMessage);
+
+        ref.forget();
+        task.run();
+        Mockito.verify(mSender, Mockito.times(2)).deliver(Mockito.<Message>any());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void deliver_throw_periodicPromise() {
+        ScheduledActorRef<Runnable> ref = new ScheduledActorRef<>(mProxyFactory, Runnable.class, mSender, mWheel, 0, 20);
+        ref.deliver(new PromiseProxy<>(ref, mMessage));
+    }
+
+    @Test
+    public void deliver_dropCall_rejected() {
+        ScheduledActorRef<Runnable> ref = new ScheduledActorRef<>(mProxyFactory, Runnable.class, mSender, mWheel, 10, 0);
+        ResultListener<String> listener = Mockito.mock(ResultListener.class);
+        Mockito.doThrow(new MailboxOverflowException("Full")).when(mSender).deliver(Mockito.<Message>any());
+        new PromiseProxy<>(ref, mMessage).then(listener);
+
+        captureTask(10, 0).run();
+
+        Mockito.verifyZeroInteractions(listener);
+    }
+
+    @Test(expected = CancellationException.class, timeout = 2000)
+    public void get_throw_cancelled() throws Throwable {
+        final CountDownLatch scheduled = new CountDownLatch(1);
+        Mockito.doAnswer(new Answer<TimingWheel.Timeout>() {
+            @Override
+            public TimingWheel.Timeout answer(InvocationOnMock invocation) throws Throwable {
+                scheduled.countDown();
+                return mTimeout;
+            }
+        }).when(mWheel).schedule(Mockito.any(Runnable.class), Mockito.anyLong(), Mockito.anyLong());
+        final ScheduledActorRef<Runnable> ref = new ScheduledActorRef<>(mProxyFactory, Runnable.class, mSender, mWheel,
+                TimeUnit.SECONDS.toNanos(10), 0);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread caller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    new PromiseProxy<>(ref, mMessage).get();
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            }
+        });
+        caller.start();
+        scheduled.await();
+
+        ref.forget();
+        caller.join();
+
+        Mockito.verifyZeroInteractions(mSender);
+        throw failure.get();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void create_throw_negativeDelay() {
+        new ScheduledActorRef<>(mProxyFactory, Runnable.class, mSender, mWheel, -1, 0);
+    }
+
+    private Runnable captureTask(long delay, long period) {
+        ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(mWheel).schedule(captor.capture(), Mockito.eq(delay), Mockito.eq(period));
+        return captor.getValue();
+    }
+}
@@ -21,6 +21,8 @@ import org.junit.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.util.concurrent.TimeUnit;
+
 public class TestActorThreadTest {
 
     @Mock
@@ -42,4 +44,12 @@ public class TestActorThreadTest {
         ActorRef<Runnable> ref = thread.bind(Runnable.class, mImpl);
         Assert.assertSame(mImpl, ref.tell());
     }
+
+    @Test
+    public void refTellAfter_sameInstance_always() {
+        TestActorThread thread = new TestActorThread();
+        ActorRef<Runnable> ref = thread.bind(Runnable.class, mImpl);
+        Assert.assertSame(mImpl, ref.tellAfter(1, TimeUnit.SECONDS).tell());
+        Assert.assertSame(mImpl, ref.tellAtFixedRate(0, 1, TimeUnit.SECONDS).tell());
+    }
 }
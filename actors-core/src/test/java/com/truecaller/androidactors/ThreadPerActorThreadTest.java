@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@SuppressWarnings("unchecked")
+public class ThreadPerActorThreadTest {
+
+    @Mock
+    private ProxyFactory mProxyFactory;
+
+    @Mock
+    private FailureHandler mFailureHandler;
+
+    private final AtomicInteger mCreated = new AtomicInteger();
+
+    private ThreadPerActorThread mThread;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        ThreadFactory factory = new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                return new Thread(runnable, "actor-" + mCreated.getAndIncrement());
+            }
+        };
+        mThread = new ThreadPerActorThread(mProxyFactory, mFailureHandler, factory, LockFreeActorThread.NO_DELAY, null);
+    }
+
+    private MessageSender bind(Runnable impl) {
+        mThread.bind(Runnable.class, impl);
+        ArgumentCaptor<MessageSender> captor = ArgumentCaptor.forClass(MessageSender.class);
+        Mockito.verify(mProxyFactory, Mockito.atLeastOnce()).newProxy(Mockito.eq(Runnable.class), captor.capture());
+        List<MessageSender> senders = captor.getAllValues();
+        return senders.get(senders.size() - 1);
+    }
+
+    @Test(timeout = 5000)
+    public void deliver_notBlockOtherActors_actorBlocked() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        MessageSender blocked = bind(Mockito.mock(Runnable.class));
+        MessageSender free = bind(Mockito.mock(Runnable.class));
+
+        Message blocking = Mockito.mock(Message.class);
+        Mockito.doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                release.await();
+                return null;
+            }
+        }).when(blocking).invoke(Mockito.any());
+        Message message = Mockito.mock(Message.class);
+        Mockito.doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                done.countDown();
+                return null;
+            }
+        }).when(message).invoke(Mockito.any());
+
+        blocked.deliver(blocking);
+        free.deliver(message);
+
+        Assert.assertTrue(done.await(1, TimeUnit.SECONDS));
+        Assert.assertEquals(2, mCreated.get());
+        release.countDown();
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TimingWheelTest {
+    private TimingWheel mWheel;
+
+    @Before
+    public void setUp() {
+        mWheel = new TimingWheel("TestTimer", 1, TimeUnit.MILLISECONDS, 8);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        // Worker stops by itself when nothing is pending
+        Thread.sleep(5);
+    }
+
+    @Test
+    public void schedule_runTask_afterDelay() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final long start = System.nanoTime();
+        mWheel.schedule(new LatchTask(latch), TimeUnit.MILLISECONDS.toNanos(20), 0);
+
+        Assert.assertTrue(latch.await(1, TimeUnit.SECONDS));
+        Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+        Assert.assertEquals(0, mWheel.pending());
+    }
+
+    @Test
+    public void schedule_runTask_delayLongerThanWheel() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final long start = System.nanoTime();
+        // 8 ticks per round, it takes several rounds
+        mWheel.schedule(new LatchTask(latch), TimeUnit.MILLISECONDS.toNanos(30), 0);
+
+        Assert.assertTrue(latch.await(1, TimeUnit.SECONDS));
+        Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(30));
+    }
+
+    @Test
+    public void schedule_runInOrder_differentDelays() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(2);
+        final StringBuffer order = new StringBuffer();
+        mWheel.schedule(new Runnable() {
+            @Override
+            public void run() {
+                order.append("late");
+                latch.countDown();
+            }
+        }, TimeUnit.MILLISECONDS.toNanos(40), 0);
+        mWheel.schedule(new Runnable() {
+            @Override
+            public void run() {
+                order.append("early");
+                latch.countDown();
+            }
+        }, TimeUnit.MILLISECONDS.toNanos(5), 0);
+
+        Assert.assertTrue(latch.await(1, TimeUnit.SECONDS));
+        Assert.assertEquals("earlylate", order.toString());
+    }
+
+    @Test
+    public void forget_doNotRun_cancelled() throws Exception {
+        final AtomicInteger counter = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(1);
+        TimingWheel.Timeout timeout = mWheel.schedule(new Runnable() {
+            @Override
+            public void run() {
+                counter.incrementAndGet();
+            }
+        }, TimeUnit.MILLISECONDS.toNanos(10), 0);
+        mWheel.schedule(new LatchTask(latch), TimeUnit.MILLISECONDS.toNanos(20), 0);
+        Assert.assertEquals(2, mWheel.pending());
+
+        timeout.forget();
+        Assert.assertTrue(timeout.isCancelled());
+        Assert.assertEquals(1, mWheel.pending());
+
+        Assert.assertTrue(latch.await(1, TimeUnit.SECONDS));
+        Assert.assertEquals(0, counter.get());
+    }
+
+    @Test
+    public void schedule_repeat_periodic() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(3);
+        TimingWheel.Timeout timeout = mWheel.schedule(new LatchTask(latch), 0, TimeUnit.MILLISECONDS.toNanos(5));
+
+        Assert.assertTrue(latch.await(1, TimeUnit.SECONDS));
+        Assert.assertEquals(1, mWheel.pending());
+        timeout.forget();
+        Assert.assertEquals(0, mWheel.pending());
+    }
+
+    @Test
+    public void schedule_restartWorker_afterIdle() throws Exception {
+        final CountDownLatch first = new CountDownLatch(1);
+        mWheel.schedule(new LatchTask(first), 0, 0);
+        Assert.assertTrue(first.await(1, TimeUnit.SECONDS));
+        Thread.sleep(10);
+
+        final CountDownLatch second = new CountDownLatch(1);
+        mWheel.schedule(new LatchTask(second), TimeUnit.MILLISECONDS.toNanos(2), 0);
+        Assert.assertTrue(second.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void schedule_wakeWorker_earlierTimeout() throws Exception {
+        final CountDownLatch late = new CountDownLatch(1);
+        mWheel.schedule(new LatchTask(late), TimeUnit.SECONDS.toNanos(10), 0);
+        Thread.sleep(5);
+
+        final CountDownLatch early = new CountDownLatch(1);
+        mWheel.schedule(new LatchTask(early), TimeUnit.MILLISECONDS.toNanos(5), 0);
+        Assert.assertTrue(early.await(1, TimeUnit.SECONDS));
+        Assert.assertEquals(1, late.getCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void schedule_throw_negativePeriod() {
+        mWheel.schedule(new LatchTask(new CountDownLatch(1)), 0, -1);
+    }
+
+    private static class LatchTask implements Runnable {
+        private final CountDownLatch mLatch;
+
+        private LatchTask(CountDownLatch latch) {
+            mLatch = latch;
+        }
+
+        @Override
+        public void run() {
+            mLatch.countDown();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class TraceEventWriterTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_throw_emptyBuffer() {
+        new TraceEventWriter(new ByteArrayOutputStream(), 0);
+    }
+
+    @Test
+    public void close_validTrace_noCalls() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TraceEventWriter writer = new TraceEventWriter(out);
+        writer.close();
+        // Second close does nothing
+        writer.close();
+
+        String trace = out.toString("UTF-8");
+        Assert.assertTrue(trace, trace.startsWith("{\"traceEvents\":["));
+        Assert.assertTrue(trace, trace.endsWith("]}\n"));
+        Assert.assertTrue(trace, trace.contains("\"process_name\""));
+    }
+
+    @Test
+    public void close_writeCompleteEvents_severalThreads() throws Exception {
+        final int base = ActorMethods.register(Runnable.class, "run", "stop");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final TraceEventWriter writer = new TraceEventWriter(out);
+
+        writer.onStarted(base, 1500);
+        writer.onCompleted(base, 1500, 10, 10, false);
+
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writer.onStarted(base + 1, -1);
+                writer.onCompleted(base + 1, -1, 10, 10, true);
+            }
+        }, "trace \"quoted\" thread");
+        thread.start();
+        thread.join();
+        writer.close();
+
+        String trace = out.toString("UTF-8");
+        Assert.assertTrue(trace, trace.contains("\"name\":\"Runnable.run\",\"cat\":\"actors\",\"ph\":\"X\""));
+        Assert.assertTrue(trace, trace.contains("\"args\":{\"queue_us\":1.500,\"failed\":false}"));
+        Assert.assertTrue(trace, trace.contains("\"name\":\"Runnable.stop\""));
+        Assert.assertTrue(trace, trace.contains("\"args\":{\"failed\":true}"));
+        Assert.assertTrue(trace, trace.contains("\"tid\":" + thread.getId()));
+        Assert.assertTrue(trace, trace.contains("\"args\":{\"name\":\"trace \\\"quoted\\\" thread\"}"));
+        Assert.assertEquals(0, writer.getDroppedEvents());
+    }
+
+    @Test
+    public void onCompleted_nestedCalls_sameThread() throws Exception {
+        final int base = ActorMethods.register(Runnable.class, "run", "stop");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TraceEventWriter writer = new TraceEventWriter(out);
+
+        writer.onStarted(base, -1);
+        writer.onStarted(base + 1, -1);
+        writer.onCompleted(base + 1, -1, 10, 10, false);
+        writer.onCompleted(base, -1, 10, 10, false);
+        // Completed without start, like calls which were running when writer was installed
+        writer.onCompleted(base, -1, 10, 10, false);
+        writer.close();
+
+        String trace = out.toString("UTF-8");
+        Assert.assertTrue(trace.indexOf("Runnable.stop") < trace.indexOf("Runnable.run"));
+        Assert.assertEquals(trace.indexOf("Runnable.run"), trace.lastIndexOf("Runnable.run"));
+    }
+
+    @Test
+    public void onCompleted_dropEvents_fullBuffer() throws Exception {
+        TraceEventWriter writer = new TraceEventWriter(new ByteArrayOutputStream(), 1);
+        for (int index = 0; index < 100; ++index) {
+            writer.onStarted(ActorMethods.UNKNOWN, -1);
+            writer.onCompleted(ActorMethods.UNKNOWN, -1, 10, 10, false);
+        }
+        writer.close();
+
+        Assert.assertTrue(writer.getDroppedEvents() > 0);
+    }
+
+    @Test(timeout = 10000)
+    public void writeBuffers_flushInBackground_openWriter() throws Exception {
+        final CountDownLatch written = new CountDownLatch(1);
+        OutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void flush() throws IOException {
+                if (toString("UTF-8").contains("\"ph\":\"X\"")) {
+                    written.countDown();
+                }
+            }
+        };
+        TraceEventWriter writer = new TraceEventWriter(out);
+        writer.onStarted(ActorMethods.UNKNOWN, -1);
+        writer.onCompleted(ActorMethods.UNKNOWN, -1, 10, 10, false);
+
+        Assert.assertTrue(written.await(5, TimeUnit.SECONDS));
+        writer.close();
+    }
+
+    @Test(expected = IOException.class)
+    public void close_throw_streamFailed() throws Exception {
+        OutputStream out = Mockito.mock(OutputStream.class);
+        Mockito.doThrow(new IOException()).when(out).write(Mockito.any(byte[].class), Mockito.anyInt(), Mockito.anyInt());
+        TraceEventWriter writer = new TraceEventWriter(out);
+        writer.close();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void execute_traceCall_writerInstalled() throws Exception {
+        final int base = ActorMethods.register(Runnable.class, "run");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TraceEventWriter writer = new TraceEventWriter(out);
+        Instrumentation.install(writer);
+        try {
+            Transaction.obtain(new Object(), new MessageBase<Object, Void>(null) {
+                @Override
+                public Promise<Void> invoke(@NonNull Object target) {
+                    return null;
+                }
+
+                @Override
+                public int getMethodId() {
+                    return base;
+                }
+            }, new CrashEarlyFailureHandler()).execute();
+        } finally {
+            Instrumentation.install(null);
+        }
+        writer.close();
+
+        Assert.assertTrue(out.toString("UTF-8").contains("\"name\":\"Runnable.run\""));
+    }
+}
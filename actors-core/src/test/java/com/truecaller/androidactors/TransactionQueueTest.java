@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import java.util.concurrent.TimeUnit;
+
+@SuppressWarnings("unchecked")
+public class TransactionQueueTest {
+
+    @Mock
+    private Message mMessage;
+
+    @Mock
+    private FailureHandler mFailureHandler;
+
+    private final Object mImpl = new Object();
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @Test
+    public void poll_returnNull_emptyQueue() {
+        TransactionQueue queue = new TransactionQueue();
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertNull(queue.poll());
+    }
+
+    @Test
+    public void poll_keepOrder_severalTransactions() {
+        TransactionQueue queue = new TransactionQueue();
+        Message[] messages = new Message[] {mMessage, Mockito.mock(Message.class), Mockito.mock(Message.class)};
+
+        for (Message message : messages) {
+            queue.offer(Transaction.obtain(mImpl, message, mFailureHandler));
+        }
+        Assert.assertFalse(queue.isEmpty());
+
+        for (Message message : messages) {
+            Transaction transaction = queue.poll();
+            Assert.assertNotNull(transaction);
+            Assert.assertSame(message, transaction.message);
+            Assert.assertSame(mImpl, transaction.impl);
+            Assert.assertSame(mFailureHandler, transaction.failureHandler);
+            Assert.assertNull(transaction.next);
+        }
+
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertNull(queue.poll());
+    }
+
+    @Test
+    public void poll_keepCallFields_always() {
+        Watchdog watchdog = Watchdog.builder(1, TimeUnit.SECONDS, Mockito.mock(Watchdog.Reporter.class)).build();
+        TransactionQueue queue = new TransactionQueue();
+        Transaction transaction = Transaction.obtain(mImpl, mMessage, mFailureHandler);
+        transaction.methodId = 5;
+        transaction.enqueuedAt = 1234;
+        transaction.supervisor = new Supervisor(watchdog, new MailboxMonitor());
+        transaction.pending = transaction.supervisor.mMonitor.onSent(mMessage, 5);
+        queue.offer(transaction);
+
+        Transaction polled = queue.poll();
+        Assert.assertNotNull(polled);
+        Assert.assertEquals(5, polled.methodId);
+        Assert.assertEquals(1234, polled.enqueuedAt);
+        Assert.assertSame(watchdog, polled.supervisor.mWatchdog);
+        Assert.assertNotNull(polled.pending);
+    }
+
+    @Test(timeout = 10000)
+    public void poll_keepOrderPerProducer_concurrentProducers() throws Exception {
+        final int producers = 4;
+        final int count = 10000;
+        final TransactionQueue queue = new TransactionQueue();
+        final Message[][] messages = new Message[producers][count];
+        for (int producer = 0; producer < producers; ++producer) {
+            for (int index = 0; index < count; ++index) {
+                messages[producer][index] = new IndexedMessage(producer, index);
+            }
+        }
+
+        Thread[] threads = new Thread[producers];
+        for (int producer = 0; producer < producers; ++producer) {
+            final Message[] items = messages[producer];
+            threads[producer] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (Message item : items) {
+                        queue.offer(Transaction.obtain(mImpl, item, mFailureHandler));
+                    }
+                }
+            });
+            threads[producer].start();
+        }
+
+        int[] expected = new int[producers];
+        int received = 0;
+        while (received < producers * count) {
+            Transaction transaction = queue.poll();
+            if (transaction == null) {
+                Thread.yield();
+                continue;
+            }
+            IndexedMessage message = (IndexedMessage) transaction.message;
+            Assert.assertEquals(expected[message.producer]++, message.index);
+            transaction.recycle();
+            ++received;
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertTrue(queue.isEmpty());
+    }
+
+    private static class IndexedMessage extends MessageBase<Object, Void> {
+        private final int producer;
+        private final int index;
+
+        private IndexedMessage(int producer, int index) {
+            super(new ActorMethodInvokeException());
+            this.producer = producer;
+            this.index = index;
+        }
+
+        @Override
+        public Promise<Void> invoke(Object target) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@SuppressWarnings("unchecked")
+public class TransactionTest {
+
+    @Mock
+    private Message mMessage;
+
+    @Mock
+    private Object mImpl;
+
+    @Mock
+    private FailureHandler mFailureHandler;
+
+    @Before
+    public void startUp() {
+        Transaction.clearPool();
+    }
+
+    @After
+    public void tearDown() {
+        Instrumentation.install(null);
+    }
+
+    @Test
+    public void reusingTest() {
+        Transaction transaction = Transaction.obtain(mImpl, mMessage, mFailureHandler);
+        transaction.recycle();
+        Assert.assertSame(transaction, Transaction.obtain(mImpl, mMessage, mFailureHandler));
+    }
+
+    @Test
+    public void recycle_clearFields_always() {
+        Transaction transaction = Transaction.obtain(mImpl, mMessage, mFailureHandler);
+        transaction.next = Transaction.obtain(mImpl, mMessage, mFailureHandler);
+        transaction.recycle();
+
+        Assert.assertNull(transaction.impl);
+        Assert.assertNull(transaction.message);
+        Assert.assertNull(transaction.failureHandler);
+        Assert.assertNull(transaction.next);
+    }
+
+    @Test
+    public void recycle_limitPool_always() {
+        Set<Transaction> transactions = new HashSet<>();
+        for (int index = 0; index < Transaction.DEFAULT_POOL_SIZE + 2; ++index) {
+            transactions.add(Transaction.obtain(mImpl, mMessage, mFailureHandler));
+        }
+
+        for (Transaction transaction : transactions) {
+            transaction.recycle();
+        }
+
+        Assert.assertEquals(2, Transaction.sPool.getDropCount());
+
+        Set<Transaction> reused = new HashSet<>();
+        for (int index = 0; index < Transaction.DEFAULT_POOL_SIZE; ++index) {
+            reused.add(Transaction.obtain(mImpl, mMessage, mFailureHandler));
+        }
+        Assert.assertEquals(Transaction.DEFAULT_POOL_SIZE, reused.size());
+        Assert.assertTrue(transactions.containsAll(reused));
+
+        Assert.assertFalse(transactions.contains(Transaction.obtain(mImpl, mMessage, mFailureHandler)));
+    }
+
+    @Test
+    public void execute_notifyObserver_observerInstalled() throws Exception {
+        ActorsObserver observer = Mockito.mock(ActorsObserver.class);
+        Instrumentation.install(observer);
+        Message message = Mockito.mock(Message.class);
+
+        Transaction transaction = Transaction.obtain(mImpl, message, mFailureHandler);
+        Mockito.verify(observer).onEnqueued(ActorMethods.UNKNOWN);
+        Thread.sleep(2);
+        transaction.execute();
+
+        Mockito.verify(message).invoke(mImpl);
+        ArgumentCaptor<Long> queueTime = ArgumentCaptor.forClass(Long.class);
+        Mockito.verify(observer).onStarted(Mockito.eq(ActorMethods.UNKNOWN), queueTime.capture());
+        Assert.assertTrue(queueTime.getValue() >= 2000000);
+
+        ArgumentCaptor<Long> wallTime = ArgumentCaptor.forClass(Long.class);
+        Mockito.verify(observer).onCompleted(Mockito.eq(ActorMethods.UNKNOWN), Mockito.eq(queueTime.getValue()),
+                wallTime.capture(), Mockito.anyLong(), Mockito.eq(false));
+        Assert.assertTrue(wallTime.getValue() >= 0);
+    }
+
+    @Test
+    public void execute_reportFailed_messageThrows() {
+        ActorsObserver observer = Mockito.mock(ActorsObserver.class);
+        Instrumentation.install(observer);
+        FailureHandler handler = Mockito.mock(FailureHandler.class);
+        Message message = Mockito.mock(Message.class);
+        Mockito.doThrow(new IllegalStateException()).when(message).invoke(mImpl);
+        Mockito.doReturn(new ActorMethodInvokeException()).when(message).exception();
+
+        Transaction.obtain(mImpl, message, handler).execute();
+
+        Mockito.verify(handler).onUncaughtException(Mockito.eq(mImpl), Mockito.eq(message),
+                Mockito.any(ActorInvokeException.class));
+        Mockito.verify(observer).onCompleted(Mockito.eq(ActorMethods.UNKNOWN), Mockito.anyLong(),
+                Mockito.anyLong(), Mockito.anyLong(), Mockito.eq(true));
+    }
+
+    @Test
+    public void execute_unknownQueueTime_obtainedBeforeInstall() {
+        Transaction transaction = Transaction.obtain(mImpl, Mockito.mock(Message.class), mFailureHandler);
+        Assert.assertEquals(0, transaction.enqueuedAt);
+
+        ActorsObserver observer = Mockito.mock(ActorsObserver.class);
+        Instrumentation.install(observer);
+        transaction.execute();
+
+        Mockito.verify(observer, Mockito.never()).onEnqueued(Mockito.anyInt());
+        Mockito.verify(observer).onStarted(ActorMethods.UNKNOWN, -1);
+        Mockito.verify(observer).onCompleted(Mockito.eq(ActorMethods.UNKNOWN), Mockito.eq(-1L),
+                Mockito.anyLong(), Mockito.anyLong(), Mockito.eq(false));
+    }
+
+    @Test
+    public void execute_skipObserver_observerRemoved() {
+        ActorsObserver observer = Mockito.mock(ActorsObserver.class);
+        Instrumentation.install(observer);
+        Message message = Mockito.mock(Message.class);
+        Transaction transaction = Transaction.obtain(mImpl, message, mFailureHandler);
+
+        Instrumentation.install(null);
+        transaction.execute();
+
+        Mockito.verify(message).invoke(mImpl);
+        Mockito.verify(observer).onEnqueued(ActorMethods.UNKNOWN);
+        Mockito.verifyNoMoreInteractions(observer);
+    }
+
+    @Test
+    public void recycle_clearObservedFields_always() {
+        Instrumentation.install(Mockito.mock(ActorsObserver.class));
+        Transaction transaction = Transaction.obtain(mImpl, Mockito.mock(Message.class), mFailureHandler);
+        transaction.methodId = 7;
+        Assert.assertNotEquals(0, transaction.enqueuedAt);
+
+        transaction.recycle();
+
+        Assert.assertEquals(ActorMethods.UNKNOWN, transaction.methodId);
+        Assert.assertEquals(0, transaction.enqueuedAt);
+    }
+
+    @Test
+    public void execute_skip_forgottenCall() {
+        Message message = Mockito.mock(Message.class);
+        PromiseProxy promise = new PromiseProxy(Mockito.mock(MessageSender.class), message);
+        promise.then(Mockito.mock(ResultListener.class)).forget();
+
+        Transaction.obtain(mImpl, promise, mFailureHandler).execute();
+
+        Mockito.verify(message, Mockito.never()).invoke(mImpl);
+    }
+
+    @Test
+    public void execute_skipAndRecycle_cancelledToken() {
+        CancellationToken token = new CancellationToken();
+        PooledRunnableMessage.sPool.clear();
+        PooledRunnableMessage message = PooledRunnableMessage.obtain(null);
+        message.bindCancellationToken(token);
+        token.cancel();
+        Runnable impl = Mockito.mock(Runnable.class);
+
+        Transaction.obtain(impl, message, mFailureHandler).execute();
+
+        Mockito.verify(impl, Mockito.never()).run();
+        Assert.assertSame(message, PooledRunnableMessage.obtain(null));
+    }
+
+    @Test
+    public void execute_invokeUnderWatchdog_watchedActor() {
+        Watchdog.Reporter reporter = Mockito.mock(Watchdog.Reporter.class);
+        Watchdog watchdog = Watchdog.builder(0, TimeUnit.MILLISECONDS, reporter).build();
+        Message message = Mockito.mock(Message.class);
+
+        Supervisor supervisor = new Supervisor(watchdog, null);
+
+        Transaction transaction = Transaction.obtain(mImpl, message, mFailureHandler, supervisor);
+        Assert.assertSame(supervisor, transaction.supervisor);
+        Assert.assertNull(transaction.pending);
+        transaction.execute();
+
+        Mockito.verify(message).invoke(mImpl);
+        Mockito.verify(reporter).onSlowCall(Mockito.anyString(), Mockito.anyLong());
+        Assert.assertNull(transaction.supervisor);
+    }
+
+    @Test
+    public void execute_leaveMailbox_monitoredActor() {
+        MailboxMonitor monitor = new MailboxMonitor();
+        Message message = Mockito.mock(Message.class);
+
+        Transaction transaction = Transaction.obtain(mImpl, message, mFailureHandler, new Supervisor(null, monitor));
+        Assert.assertNotNull(transaction.pending);
+        Assert.assertEquals(1, monitor.depth());
+        transaction.execute();
+
+        Mockito.verify(message).invoke(mImpl);
+        Assert.assertEquals(0, monitor.depth());
+        Assert.assertNull(transaction.pending);
+    }
+
+    @Test
+    public void drop_leaveMailbox_monitoredActor() {
+        MailboxMonitor monitor = new MailboxMonitor();
+        Message message = Mockito.mock(Message.class);
+
+        Transaction transaction = Transaction.obtain(mImpl, message, mFailureHandler, new Supervisor(null, monitor));
+        transaction.drop();
+
+        Mockito.verify(message, Mockito.never()).invoke(mImpl);
+        Assert.assertEquals(0, monitor.depth());
+    }
+
+    @Test
+    public void supersede_leaveMailbox_monitoredActor() {
+        MailboxMonitor monitor = new MailboxMonitor();
+        Supervisor supervisor = new Supervisor(null, monitor);
+
+        Transaction first = Transaction.obtain(mImpl, Mockito.mock(Message.class), mFailureHandler, supervisor);
+        Transaction second = Transaction.obtain(mImpl, Mockito.mock(Message.class), mFailureHandler, supervisor);
+        Assert.assertEquals(2, monitor.depth());
+        first.supersede(second);
+
+        Assert.assertEquals(1, monitor.depth());
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@SuppressWarnings("unchecked")
+public class WatchdogTest {
+    @Mock
+    private Watchdog.Reporter mReporter;
+
+    @Mock
+    private ProxyFactory mProxyFactory;
+
+    @Mock
+    private FailureHandler mFailureHandler;
+
+    @Mock
+    private Runnable mActorImpl;
+
+    private TimingWheel mWheel;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mWheel = new TimingWheel("test-watchdog", 1, TimeUnit.MILLISECONDS, 64);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void builder_throw_negativeBudget() {
+        Watchdog.builder(-1, TimeUnit.MILLISECONDS, mReporter);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void builder_throw_zeroStuckThreshold() {
+        Watchdog.builder(1, TimeUnit.MILLISECONDS, mReporter).setStuckThreshold(0, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void invoke_notReport_fastCall() {
+        Watchdog watchdog = Watchdog.builder(1, TimeUnit.SECONDS, mReporter).build();
+        Message message = Mockito.mock(Message.class);
+
+        watchdog.invoke(message, mActorImpl);
+
+        Mockito.verify(message).invoke(mActorImpl);
+        Mockito.verifyZeroInteractions(mReporter);
+    }
+
+    @Test
+    public void invoke_reportSlow_callOverBudget() {
+        Watchdog watchdog = Watchdog.builder(5, TimeUnit.MILLISECONDS, mReporter).build();
+        Message message = sleepingMessage(20);
+
+        watchdog.invoke(message, mActorImpl);
+
+        ArgumentCaptor<Long> elapsed = ArgumentCaptor.forClass(Long.class);
+        Mockito.verify(mReporter).onSlowCall(Mockito.eq("Runnable.run()"), elapsed.capture());
+        Assert.assertTrue(elapsed.getValue() >= 20);
+    }
+
+    @Test
+    public void invoke_reportSlow_callThrows() {
+        Watchdog watchdog = Watchdog.builder(0, TimeUnit.MILLISECONDS, mReporter).build();
+        Message message = Mockito.mock(Message.class);
+        Mockito.doThrow(new IllegalStateException()).when(message).invoke(mActorImpl);
+
+        try {
+            watchdog.invoke(message, mActorImpl);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        Mockito.verify(mReporter).onSlowCall(Mockito.anyString(), Mockito.anyLong());
+    }
+
+    @Test(timeout = 10000)
+    public void invoke_reportStuck_callStillRunning() throws Exception {
+        final Watchdog watchdog = Watchdog.builder(1, TimeUnit.SECONDS, mReporter)
+                .setStuckThreshold(20, TimeUnit.MILLISECONDS)
+                .setWheel(mWheel)
+                .build();
+        final CountDownLatch reported = new CountDownLatch(1);
+        Mockito.doAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                reported.countDown();
+                return null;
+            }
+        }).when(mReporter).onStuckCall(Mockito.anyString(), Mockito.anyLong(), Mockito.any(Thread.class),
+                Mockito.any(StackTraceElement[].class));
+
+        final Message message = Mockito.mock(Message.class);
+        Mockito.doReturn("Runnable.run()").when(message).toString();
+        Mockito.doAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                reported.await();
+                return null;
+            }
+        }).when(message).invoke(mActorImpl);
+
+        Thread actor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watchdog.invoke(message, mActorImpl);
+            }
+        });
+        actor.start();
+        actor.join();
+
+        ArgumentCaptor<Long> elapsed = ArgumentCaptor.forClass(Long.class);
+        ArgumentCaptor<StackTraceElement[]> stack = ArgumentCaptor.forClass(StackTraceElement[].class);
+        Mockito.verify(mReporter).onStuckCall(Mockito.eq("Runnable.run()"), elapsed.capture(), Mockito.eq(actor),
+                stack.capture());
+        Assert.assertTrue(elapsed.getValue() >= 20);
+        Assert.assertTrue(stack.getValue().length > 0);
+    }
+
+    @Test
+    public void invoke_cancelStuckCheck_callCompleted() {
+        Watchdog watchdog = Watchdog.builder(1, TimeUnit.SECONDS, mReporter)
+                .setStuckThreshold(1, TimeUnit.SECONDS)
+                .setWheel(mWheel)
+                .build();
+
+        watchdog.invoke(Mockito.mock(Message.class), mActorImpl);
+
+        Assert.assertEquals(0, mWheel.pending());
+        Mockito.verifyZeroInteractions(mReporter);
+    }
+
+    @Test
+    public void watch_reportSlow_sameThreadActor() {
+        Watchdog watchdog = Watchdog.builder(5, TimeUnit.MILLISECONDS, mReporter).build();
+        ActorThread thread = watchdog.watch(new SameThreadActorThread(mProxyFactory, mFailureHandler));
+        thread.bind(Runnable.class, mActorImpl);
+
+        ArgumentCaptor<MessageSender> postman = ArgumentCaptor.forClass(MessageSender.class);
+        Mockito.verify(mProxyFactory).newProxy(Mockito.<Class>any(), postman.capture());
+        postman.getValue().deliver(sleepingMessage(20));
+
+        Mockito.verify(mReporter).onSlowCall(Mockito.eq("Runnable.run()"), Mockito.anyLong());
+    }
+
+    @Test
+    public void watch_bindWithWatchdog_watchableThread() {
+        Watchdog watchdog = Watchdog.builder(5, TimeUnit.MILLISECONDS, mReporter).build();
+        WatchableActorThread thread = Mockito.mock(WatchableActorThread.class);
+
+        watchdog.watch(thread).bind(Runnable.class, mActorImpl);
+
+        ArgumentCaptor<Supervisor> supervisor = ArgumentCaptor.forClass(Supervisor.class);
+        Mockito.verify(thread).bind(Mockito.eq(Runnable.class), Mockito.same(mActorImpl), supervisor.capture());
+        Assert.assertSame(watchdog, supervisor.getValue().mWatchdog);
+    }
+
+    @Test
+    public void watch_replaceWatchdog_watchedThread() {
+        Watchdog first = Watchdog.builder(5, TimeUnit.MILLISECONDS, mReporter).build();
+        Watchdog second = Watchdog.builder(10, TimeUnit.MILLISECONDS, mReporter).build();
+        WatchableActorThread thread = Mockito.mock(WatchableActorThread.class);
+
+        second.watch(first.watch(thread)).bind(Runnable.class, mActorImpl);
+
+        ArgumentCaptor<Supervisor> supervisor = ArgumentCaptor.forClass(Supervisor.class);
+        Mockito.verify(thread).bind(Mockito.eq(Runnable.class), Mockito.same(mActorImpl), supervisor.capture());
+        Assert.assertSame(second, supervisor.getValue().mWatchdog);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void watch_throw_unknownThread() {
+        Watchdog.builder(5, TimeUnit.MILLISECONDS, mReporter).build().watch(Mockito.mock(ActorThread.class));
+    }
+
+    private Message sleepingMessage(final long millis) {
+        Message message = Mockito.mock(Message.class);
+        Mockito.doReturn("Runnable.run()").when(message).toString();
+        Mockito.doAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                Thread.sleep(millis);
+                return null;
+            }
+        }).when(message).invoke(mActorImpl);
+        return message;
+    }
+}
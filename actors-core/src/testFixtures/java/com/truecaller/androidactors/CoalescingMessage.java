@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.List;
+
+/**
+ * Message for {@code Promise<String> update(String key)} annotated by {@link Coalesce},
+ * written the same way as the annotation processor generates it
+ */
+/* package */ final class CoalescingMessage extends MessageBase<List<String>, String> {
+
+    @Nullable
+    private final String mKey;
+
+    /* package */ CoalescingMessage(int mode, @Nullable String key) {
+        setCoalesce(mode);
+        mKey = key;
+    }
+
+    @Override
+    protected boolean hasSameArguments(@NonNull MessageBase<List<String>, String> other) {
+        CoalescingMessage _message = (CoalescingMessage) other;
+        return equal(this.mKey, _message.mKey);
+    }
+
+    @NonNull
+    @Override
+    public Promise<String> invoke(@NonNull List<String> target) {
+        target.add(mKey);
+        return verifyResult(Promise.wrap(mKey));
+    }
+
+    @Override
+    public String toString() {
+        return ".update(" + logParam(mKey, SecureParameter.LEVEL_FULL_INFO) + ")";
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Message for {@link Runnable#run()} written the same way as the annotation processor generates
+ * messages for void methods
+ */
+/* package */ final class PooledRunnableMessage extends MessageBase<Runnable, Void> {
+
+    /* package */ static final ObjectPool<PooledRunnableMessage> sPool = new ObjectPool<>(
+            new ObjectPool.Factory<PooledRunnableMessage>() {
+                @NonNull
+                @Override
+                public PooledRunnableMessage create() {
+                    return new PooledRunnableMessage();
+                }
+            }, DEFAULT_POOL_SIZE);
+
+    private PooledRunnableMessage() {
+    }
+
+    /* package */ static PooledRunnableMessage obtain(@Nullable ActorMethodInvokeException exception) {
+        PooledRunnableMessage message = sPool.acquire();
+        message.setExceptionTemplate(exception);
+        return message;
+    }
+
+    @Override
+    public void recycle() {
+        setExceptionTemplate(null);
+        setPriority(Priority.NORMAL);
+        sPool.release(this);
+    }
+
+    @Override
+    public Promise<Void> invoke(@NonNull Runnable target) {
+        target.run();
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return ".run()";
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Actor threads on top of JDK 21 virtual threads. Every bound actor gets its own mailbox which is drained
+ * by a virtual thread, the thread parks when the mailbox is empty. Actors which block, for example
+ * in {@link Promise#get()} on another actor, release the carrier thread, so a process can run hundreds
+ * of thousands of actors.
+ * <p>
+ * Library is built for older Java versions, so virtual threads are created by reflection.
+ * Use {@link #isSupported()} to check that current JVM has them.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class VirtualActorThreads {
+
+    /**
+     * Delay in milliseconds after which idle actor's virtual thread ends, next call starts a new one
+     */
+    public static final long DEFAULT_STOP_DELAY = 60000L;
+
+    private VirtualActorThreads() {
+    }
+
+    public static boolean isSupported() {
+        return VirtualThreadBuilder.OF_VIRTUAL != null;
+    }
+
+    /**
+     * Create factory of virtual threads named prefix0, prefix1, ...
+     *
+     * @throws UnsupportedOperationException if current JVM has no virtual threads
+     */
+    @NonNull
+    public static ThreadFactory newThreadFactory(@NonNull String prefix) {
+        final Method ofVirtual = VirtualThreadBuilder.OF_VIRTUAL;
+        if (ofVirtual == null) {
+            throw new UnsupportedOperationException("Virtual threads need Java 21 or newer");
+        }
+        try {
+            Object builder = ofVirtual.invoke(null);
+            builder = VirtualThreadBuilder.NAME.invoke(builder, prefix, 0L);
+            return (ThreadFactory) VirtualThreadBuilder.FACTORY.invoke(builder);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Create actor thread where every bound actor runs on its own virtual thread
+     *
+     * @param threads actor threads created by the generated builder
+     * @param name prefix of virtual thread names
+     */
+    @NonNull
+    public static ActorThread createThread(@NonNull CoreActorsThreads threads, @NonNull String name) {
+        return createThread(threads, name, DEFAULT_STOP_DELAY);
+    }
+
+    /**
+     * @param stopDelay delay in milliseconds before idle actor's virtual thread ends, -1 to keep it parked forever
+     */
+    @NonNull
+    public static ActorThread createThread(@NonNull CoreActorsThreads threads, @NonNull String name,
+                                           long stopDelay) {
+        return threads.createThreadPerActor(newThreadFactory(name), stopDelay);
+    }
+
+    /**
+     * Same as {@link #createThread(CoreActorsThreads, String, long)}, but mailbox of every bound actor is bounded
+     */
+    @NonNull
+    public static ActorThread createThread(@NonNull CoreActorsThreads threads, @NonNull String name,
+                                           long stopDelay, @NonNull MailboxConfig mailbox) {
+        return threads.createThreadPerActor(newThreadFactory(name), stopDelay, mailbox);
+    }
+
+    // Holder class, methods are looked up on first use
+    private static class VirtualThreadBuilder {
+        @Nullable
+        private static final Method OF_VIRTUAL;
+
+        @Nullable
+        private static final Method NAME;
+
+        @Nullable
+        private static final Method FACTORY;
+
+        static {
+            Method ofVirtual = null;
+            Method name = null;
+            Method factory = null;
+            try {
+                final Class<?> builder = Class.forName("java.lang.Thread$Builder");
+                name = builder.getMethod("name", String.class, long.class);
+                factory = builder.getMethod("factory");
+                ofVirtual = Thread.class.getMethod("ofVirtual");
+            } catch (ClassNotFoundException e) {
+                // Not available on this JVM
+            } catch (NoSuchMethodException e) {
+                // Not available on this JVM
+            }
+            OF_VIRTUAL = ofVirtual;
+            NAME = name;
+            FACTORY = factory;
+        }
+    }
+}
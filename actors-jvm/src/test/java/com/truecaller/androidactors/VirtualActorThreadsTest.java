@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+public class VirtualActorThreadsTest {
+
+    private static final int ACTORS = 10000;
+
+    private CoreActorsThreads mThreads;
+
+    @Before
+    public void setup() {
+        mThreads = new CoreActorsThreadsBase(new WorkerProxyFactory()) {};
+    }
+
+    @Test
+    public void newThreadFactory_virtualThreads() throws Exception {
+        Assume.assumeTrue(VirtualActorThreads.isSupported());
+
+        ThreadFactory factory = VirtualActorThreads.newThreadFactory("Actor");
+        Thread thread = factory.newThread(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+
+        Assert.assertTrue(isVirtual(thread));
+        Assert.assertEquals("Actor0", thread.getName());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void newThreadFactory_throw_notSupported() {
+        Assume.assumeFalse(VirtualActorThreads.isSupported());
+
+        VirtualActorThreads.newThreadFactory("Actor");
+    }
+
+    @Test(timeout = 5000)
+    public void createThread_invokeOnVirtualThread() throws Exception {
+        Assume.assumeTrue(VirtualActorThreads.isSupported());
+
+        ActorThread thread = VirtualActorThreads.createThread(mThreads, "Worker", 100);
+        Worker worker = thread.bind(Worker.class, new WorkerImpl()).tell();
+
+        String result = worker.run(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return String.valueOf(isVirtual(Thread.currentThread()));
+            }
+        }).get();
+
+        Assert.assertEquals("true", result);
+    }
+
+    @Test(timeout = 10000)
+    public void createThread_runConcurrently_blockingActors() throws Exception {
+        Assume.assumeTrue(VirtualActorThreads.isSupported());
+
+        ActorThread thread = VirtualActorThreads.createThread(mThreads, "Worker", 100);
+        final CountDownLatch done = new CountDownLatch(ACTORS);
+        for (int i = 0; i < ACTORS; ++i) {
+            Worker worker = thread.bind(Worker.class, new WorkerImpl()).tell();
+            worker.run(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    Thread.sleep(500);
+                    done.countDown();
+                    return null;
+                }
+            }).thenNothing();
+        }
+
+        // Actors which pinned their carriers would need ACTORS / cores * 500 ms
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test(timeout = 10000)
+    public void createThread_runConcurrently_actorsWaitForOtherActors() throws Exception {
+        Assume.assumeTrue(VirtualActorThreads.isSupported());
+
+        ActorThread thread = VirtualActorThreads.createThread(mThreads, "Worker", 100);
+        final CountDownLatch done = new CountDownLatch(ACTORS);
+        for (int i = 0; i < ACTORS; ++i) {
+            final Worker slow = thread.bind(Worker.class, new WorkerImpl()).tell();
+            Worker caller = thread.bind(Worker.class, new WorkerImpl()).tell();
+            caller.run(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    String result = slow.run(new Callable<String>() {
+                        @Override
+                        public String call() throws Exception {
+                            Thread.sleep(500);
+                            return "slow";
+                        }
+                    }).get();
+                    Assert.assertEquals("slow", result);
+                    done.countDown();
+                    return result;
+                }
+            }).thenNothing();
+        }
+
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    private static boolean isVirtual(@NonNull Thread thread) throws Exception {
+        Method isVirtual = Thread.class.getMethod("isVirtual");
+        return (Boolean) isVirtual.invoke(thread);
+    }
+
+    private interface Worker {
+        @NonNull
+        Promise<String> run(@NonNull Callable<String> body);
+    }
+
+    private static class WorkerImpl implements Worker {
+        @NonNull
+        @Override
+        public Promise<String> run(@NonNull Callable<String> body) {
+            try {
+                return Promise.wrap(body.call());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * Written the same way as the annotation processor generates messages
+     */
+    private static class RunMessage extends MessageBase<Worker, String> {
+        @NonNull
+        private final Callable<String> mBody;
+
+        private RunMessage(@NonNull Callable<String> body) {
+            mBody = body;
+        }
+
+        @Nullable
+        @Override
+        public Promise<String> invoke(@NonNull Worker target) {
+            return verifyResult(target.run(mBody));
+        }
+
+        @Override
+        public String toString() {
+            return ".run(" + logParam(mBody, SecureParameter.LEVEL_NULL_OR_EMPTY_STRING) + ")";
+        }
+    }
+
+    private static class WorkerProxy implements Worker {
+        @NonNull
+        private final MessageSender mSender;
+
+        private WorkerProxy(@NonNull MessageSender sender) {
+            mSender = sender;
+        }
+
+        @NonNull
+        @Override
+        public Promise<String> run(@NonNull Callable<String> body) {
+            return new PromiseProxy<>(mSender, new RunMessage(body));
+        }
+    }
+
+    private static class WorkerProxyFactory extends ProxyFactoryBase {
+        @SuppressWarnings("unchecked")
+        @NonNull
+        @Override
+        public <T> T newProxy(@NonNull Class<T> cls, @NonNull MessageSender sender) {
+            if (Worker.class.equals(cls)) {
+                return (T) new WorkerProxy(sender);
+            }
+            return defaultProxy(cls, sender);
+        }
+    }
+}
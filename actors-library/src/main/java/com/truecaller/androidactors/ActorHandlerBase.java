@@ -21,6 +21,7 @@ import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
 import android.os.PowerManager;
+import android.os.SystemClock;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
@@ -29,81 +30,258 @@ import androidx.annotation.VisibleForTesting;
 
     /* package */ static final long NO_DELAY = -1L;
 
-    @VisibleForTesting
-    /* package */ static final int MSG_TRANSACTION = 1;
+    /* package */ static final int NO_BATCHING = 0;
 
     @VisibleForTesting
     /* package */ static final int MSG_POISON_PILL = 2;
 
+    @VisibleForTesting
+    /* package */ static final int MSG_DRAIN = 3;
+
     @Nullable
     private final PowerManager.WakeLock mWakeLock;
 
-    private final long mStopDelay;
+    // Null if thread never stops
+    @Nullable
+    private final IdleTracker mIdleTracker;
+
+    private final int mMaxBatchSize;
+
+    private final long mMaxBatchTime;
+
+    // Guarded by this
+    private boolean mStopped = false;
+
+    // Accessed only from the looper thread
+    private boolean mPillScheduled = false;
 
-    private volatile int mLastId = 0;
+    // Guarded by this
+    @NonNull
+    private final PriorityMailbox mMailbox = new PriorityMailbox();
+
+    private boolean mDrainScheduled = false;
+
+    @Nullable
+    private final MailboxLimiter mLimiter;
+
+    // Accessed only from the looper thread
+    @NonNull
+    private final InlineCallStack mCallStack = new InlineCallStack();
 
     /* package */ ActorHandlerBase(Looper looper, long stopDelay, @Nullable PowerManager.WakeLock wakeLock) {
+        this(looper, stopDelay, wakeLock, NO_BATCHING, NO_DELAY);
+    }
+
+    /* package */ ActorHandlerBase(Looper looper, long stopDelay, @Nullable PowerManager.WakeLock wakeLock,
+                                   int maxBatchSize, long maxBatchTime) {
+        this(looper, stopDelay, wakeLock, maxBatchSize, maxBatchTime, null);
+    }
+
+    /**
+     * @param maxBatchSize max number of transactions handled by one looper message,
+     *                     {@link #NO_BATCHING} to handle one transaction per looper message
+     * @param maxBatchTime max time in milliseconds one looper message can spend on transactions,
+     *                     {@link #NO_DELAY} if only batch size should be taken into account
+     * @param limiter limits of the mailbox, null for unbounded mailbox. Limiter can be shared
+     *                by handlers which replace each other
+     */
+    /* package */ ActorHandlerBase(Looper looper, long stopDelay, @Nullable PowerManager.WakeLock wakeLock,
+                                   int maxBatchSize, long maxBatchTime, @Nullable MailboxLimiter limiter) {
+        this(looper, stopDelay == NO_DELAY ? null : new IdleTracker(stopDelay), wakeLock, maxBatchSize, maxBatchTime,
+                limiter);
+    }
+
+    /**
+     * @param idleTracker decides when idle thread stops, null if thread never stops. Tracker can be shared
+     *                    by handlers which replace each other
+     */
+    /* package */ ActorHandlerBase(Looper looper, @Nullable IdleTracker idleTracker,
+                                   @Nullable PowerManager.WakeLock wakeLock, int maxBatchSize, long maxBatchTime,
+                                   @Nullable MailboxLimiter limiter) {
         super(looper);
+        mLimiter = limiter;
         mWakeLock = wakeLock;
-        mStopDelay = stopDelay;
+        mIdleTracker = idleTracker;
+        mMaxBatchSize = maxBatchSize == NO_BATCHING ? 1 : maxBatchSize;
+        mMaxBatchTime = maxBatchTime;
     }
 
+    /**
+     * Put transaction to the mailbox. Transactions are handled in order of their {@link Priority}
+     * and in order they were sent within the same priority.
+     *
+     * @return false if handler was stopped and caller has to find another way to deliver the transaction
+     * @throws MailboxOverflowException if mailbox is bounded and transaction was rejected
+     */
     /* package */ boolean sendTransaction(@NonNull Transaction transaction) {
-        final int id;
+        final int maxInlineDepth = getMaxInlineDepth();
+        if (maxInlineDepth > 0 && Looper.myLooper() == getLooper() && executeInline(transaction, maxInlineDepth)) {
+            return true;
+        }
+
+        final MailboxLimiter limiter = mLimiter;
+        if (limiter != null && !limiter.admit(transaction, Looper.myLooper() == getLooper())) {
+            transaction.drop();
+            return true;
+        }
+
+        synchronized (this) {
+            if (mStopped) {
+                if (limiter != null) {
+                    limiter.release(transaction);
+                }
+                return false;
+            }
+
+            mMailbox.offer(transaction, limiter);
+            if (limiter != null) {
+                limiter.trim(mMailbox);
+            }
+
+            if (mDrainScheduled) {
+                return true;
+            }
+            mDrainScheduled = true;
+
+            if (mIdleTracker != null) {
+                mIdleTracker.onBusy(SystemClock.uptimeMillis());
+            }
+        }
+
+        if (sendMessage(obtainMessage(MSG_DRAIN))) {
+            return true;
+        }
+
+        // Looper is already dead, caller has to find another way to deliver the transaction
         synchronized (this) {
-            if (mLastId == -1) {
+            mDrainScheduled = false;
+            if (mMailbox.remove(transaction) && limiter != null) {
+                limiter.release(transaction);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Calls between actors of this handler are executed right away if nothing waits in the mailbox,
+     * so they keep their order
+     */
+    private boolean executeInline(@NonNull Transaction transaction, int maxDepth) {
+        synchronized (this) {
+            if (!mMailbox.isEmpty()) {
                 return false;
             }
-            id = ++mLastId;
         }
+        return mCallStack.executeInline(transaction, maxDepth);
+    }
 
-        return sendMessage(obtainMessage(MSG_TRANSACTION, id, 0, transaction));
+    /**
+     * @return max number of nested calls between actors of this handler executed without the mailbox,
+     *         0 if every call goes through the mailbox
+     */
+    protected int getMaxInlineDepth() {
+        return 0;
     }
 
     @Override
     public void handleMessage(@NonNull Message msg) {
         switch (msg.what) {
-            case MSG_TRANSACTION:
-                handleTransaction((Transaction) msg.obj, msg.arg1);
-                break;
             case MSG_POISON_PILL:
-                handlePoisonPill(msg.arg1);
+                handlePoisonPill();
+                break;
+            case MSG_DRAIN:
+                handleDrain();
                 break;
         }
     }
 
-    @SuppressWarnings("unchecked")
-    private void handleTransaction(@NonNull Transaction transaction, int id) {
+    private void handleDrain() {
+        final long deadline = mMaxBatchTime == NO_DELAY ? Long.MAX_VALUE : SystemClock.uptimeMillis() + mMaxBatchTime;
+        int handled = 0;
+        boolean drained = false;
+
         acquireWakelock();
         try {
-            transaction.message.invoke(transaction.impl);
-        } catch (Throwable e) {
-            ActorInvokeException call = transaction.message.exception();
-            call.initCause(e);
-            transaction.failureHandler.onUncaughtException(transaction.impl, transaction.message, call);
+            while (true) {
+                final Transaction transaction;
+                synchronized (this) {
+                    if (mMailbox.isEmpty()) {
+                        mDrainScheduled = false;
+                        drained = true;
+                        if (mIdleTracker != null) {
+                            mIdleTracker.onIdle(SystemClock.uptimeMillis());
+                        }
+                        break;
+                    }
+
+                    if (handled >= mMaxBatchSize || (handled > 0 && SystemClock.uptimeMillis() >= deadline)) {
+                        break;
+                    }
+
+                    transaction = mMailbox.poll();
+                }
+
+                if (mLimiter != null) {
+                    mLimiter.release(transaction);
+                }
+
+                ++handled;
+                mCallStack.execute(transaction);
+            }
         } finally {
             releaseWakelock();
-            transaction.recycle();
+            if (!drained) {
+                // Give other looper messages a chance and continue with the rest later
+                sendMessage(obtainMessage(MSG_DRAIN));
+            }
         }
 
-        if (mStopDelay != NO_DELAY) {
-            removeMessages(MSG_POISON_PILL);
-            sendMessageDelayed(obtainMessage(MSG_POISON_PILL, id, 0), mStopDelay);
+        if (drained && mIdleTracker != null && !mPillScheduled) {
+            schedulePoisonPill(mIdleTracker.getStopDelay());
         }
     }
 
-    private void handlePoisonPill(int id) {
-        boolean doStopThread = false;
+    /**
+     * Only one pill is pending at a time. It checks how long the thread has been idle
+     * and goes back to the queue if the thread got calls in the meantime
+     */
+    private void schedulePoisonPill(long delay) {
+        mPillScheduled = true;
+        sendMessageDelayed(obtainMessage(MSG_POISON_PILL), delay);
+    }
+
+    private void handlePoisonPill() {
+        mPillScheduled = false;
+        final IdleTracker tracker = mIdleTracker;
+        if (tracker == null) {
+            return;
+        }
+
+        final long remaining;
         synchronized (this) {
-            if (mLastId == id) {
-                doStopThread = true;
-                mLastId = -1;
+            if (mDrainScheduled || mStopped) {
+                // Thread is busy, the drain schedules a new pill when it's done
+                return;
+            }
+
+            remaining = tracker.getRemainingDelay(SystemClock.uptimeMillis());
+            if (remaining <= 0) {
+                mStopped = true;
             }
         }
 
-        if (doStopThread) {
-            stopThread();
+        if (remaining > 0) {
+            schedulePoisonPill(remaining);
+            return;
         }
+        stopThread();
+    }
+
+    /**
+     * @return true if the thread was stopped because it was idle and the handler doesn't accept transactions
+     */
+    /* package */ synchronized boolean isStopped() {
+        return mStopped;
     }
 
     private void acquireWakelock() {
@@ -28,10 +28,13 @@ import android.os.IBinder;
 import android.os.IInterface;
 import android.os.Looper;
 import android.os.PowerManager;
+import android.os.Process;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.Callable;
 
 /**
@@ -54,6 +57,9 @@ public class ActorService extends Service {
     /* package */ static final String LOCAL_SENDER_INTERFACE = "ServiceMessageSender";
     /* package */ static final String ACTION_DIRECT_START = "com.truecaller.androidactors.ActorService";
 
+    // System creates a new service instance for every start, so gaps between calls have to outlive it
+    private static final Map<Class<?>, IdleTracker> sIdleTrackers = new HashMap<>();
+
     @NonNull
     private final String mServiceName;
 
@@ -61,9 +67,18 @@ public class ActorService extends Service {
 
     private final long mStopDelay;
 
+    private final int mMaxBatchSize;
+
+    private final long mMaxBatchTime;
+
+    private volatile int mPriority;
+
     @VisibleForTesting
     /* package */ HandlerThread mThread;
 
+    @Nullable
+    private ActorHandlerBase mHandler;
+
     @Nullable
     private Binder mBinder;
 
@@ -100,10 +115,46 @@ public class ActorService extends Service {
      */
     @SuppressWarnings({"unused", "WeakerAccess"})
     protected ActorService(@NonNull String name, long stopDelay, boolean useWakeLocks) {
+        this(name, stopDelay, useWakeLocks, ActorHandlerBase.NO_BATCHING, ActorHandlerBase.NO_DELAY);
+    }
+
+    /**
+     * Service constructor
+     *
+     * @param name name for the background thread, covered by this service
+     * @param stopDelay delay in milliseconds before the service stops itself. In most cases can be 0.
+     * @param useWakeLocks true if all calls to the actor implementation should be covered by a partial wake lock
+     * @param maxBatchSize max number of calls handled in one go before the thread's looper gets control back.
+     *                     0 disables batching and every call is posted as a separate looper message
+     * @param maxBatchTime max time in milliseconds spent on one batch, -1 for no time limit
+     */
+    @SuppressWarnings({"unused", "WeakerAccess"})
+    protected ActorService(@NonNull String name, long stopDelay, boolean useWakeLocks,
+                           int maxBatchSize, long maxBatchTime) {
+        this(name, stopDelay, useWakeLocks, maxBatchSize, maxBatchTime, Process.THREAD_PRIORITY_DEFAULT);
+    }
+
+    /**
+     * Service constructor
+     *
+     * @param name name for the background thread, covered by this service
+     * @param stopDelay delay in milliseconds before the service stops itself. In most cases can be 0.
+     * @param useWakeLocks true if all calls to the actor implementation should be covered by a partial wake lock
+     * @param maxBatchSize max number of calls handled in one go before the thread's looper gets control back.
+     *                     0 disables batching and every call is posted as a separate looper message
+     * @param maxBatchTime max time in milliseconds spent on one batch, -1 for no time limit
+     * @param priority Linux priority of the background thread, see {@link #setThreadPriority(int)}
+     */
+    @SuppressWarnings({"unused", "WeakerAccess"})
+    protected ActorService(@NonNull String name, long stopDelay, boolean useWakeLocks,
+                           int maxBatchSize, long maxBatchTime, int priority) {
         super();
+        mPriority = priority;
         mServiceName = name;
         mUseWakelocks = useWakeLocks;
         mStopDelay = stopDelay;
+        mMaxBatchSize = maxBatchSize;
+        mMaxBatchTime = maxBatchTime;
     }
 
     @Override
@@ -120,8 +171,7 @@ public class ActorService extends Service {
     public void onCreate() {
         super.onCreate();
 
-        mThread = new HandlerThread(mServiceName);
-        mThread.start();
+        mThread = WarmThreadCache.shared().obtain(mServiceName, mPriority);
 
         PowerManager.WakeLock wl = null;
 
@@ -131,11 +181,33 @@ public class ActorService extends Service {
             wl.setReferenceCounted(false);
         }
 
-        ServiceMessageSender messageSender = new ServiceMessageSender(new ServiceActorHandler(mThread.getLooper(), mStopDelay, wl));
+        mHandler = new ServiceActorHandler(mThread.getLooper(), obtainIdleTracker(getClass(), mStopDelay), wl,
+                mMaxBatchSize, mMaxBatchTime);
+        ServiceMessageSender messageSender = new ServiceMessageSender(mHandler);
         mBinder = new Binder();
         mBinder.attachInterface(messageSender, LOCAL_SENDER_INTERFACE);
     }
 
+    /**
+     * Change priority of the background thread
+     *
+     * @param priority Linux priority of the thread, one of {@link Process} THREAD_PRIORITY_* constants
+     *                 or a custom value from -20 (highest) to 19 (lowest)
+     */
+    @SuppressWarnings({"unused", "WeakerAccess"})
+    public void setThreadPriority(int priority) {
+        mPriority = priority;
+        final HandlerThread thread = mThread;
+        if (thread != null && thread.getThreadId() != -1) {
+            Process.setThreadPriority(thread.getThreadId(), priority);
+        }
+    }
+
+    @SuppressWarnings({"unused", "WeakerAccess"})
+    public int getThreadPriority() {
+        return mPriority;
+    }
+
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
         return START_NOT_STICKY;
@@ -149,13 +221,35 @@ public class ActorService extends Service {
         if (binder != null) {
             binder.attachInterface(null, null);
         }
-        mThread.quit();
+        final ActorHandlerBase handler = mHandler;
+        if (handler != null && handler.isStopped()) {
+            // All calls were handled, thread can serve the next start
+            WarmThreadCache.shared().recycle(mThread);
+        } else {
+            mThread.quit();
+        }
 
         if (mJobEngine != null) {
             mJobEngine.reportServerStop();
         }
     }
 
+    @Nullable
+    private static IdleTracker obtainIdleTracker(@NonNull Class<?> cls, long stopDelay) {
+        if (stopDelay == ActorHandlerBase.NO_DELAY) {
+            return null;
+        }
+
+        synchronized (sIdleTrackers) {
+            IdleTracker tracker = sIdleTrackers.get(cls);
+            if (tracker == null) {
+                tracker = new IdleTracker(stopDelay);
+                sIdleTrackers.put(cls, tracker);
+            }
+            return tracker;
+        }
+    }
+
     private IBinder getLegacyBinder() {
         return mBinder;
     }
@@ -188,6 +282,11 @@ public class ActorService extends Service {
             return mHandler.sendTransaction(transaction);
         }
 
+        @Override
+        public void setThreadPriority(int priority) {
+            ActorService.this.setThreadPriority(priority);
+        }
+
         @Override
         public IBinder asBinder() {
             return mBinder;
@@ -196,11 +295,14 @@ public class ActorService extends Service {
 
     /* package */ interface RemoteMessageSender extends IInterface {
         boolean deliver(@NonNull Transaction transaction);
+
+        void setThreadPriority(int priority);
     }
 
     private class ServiceActorHandler extends ActorHandlerBase {
-        ServiceActorHandler(Looper looper, long stopDelay, @Nullable PowerManager.WakeLock wakeLock) {
-            super(looper, stopDelay, wakeLock);
+        ServiceActorHandler(Looper looper, @Nullable IdleTracker idleTracker, @Nullable PowerManager.WakeLock wakeLock,
+                            int maxBatchSize, long maxBatchTime) {
+            super(looper, idleTracker, wakeLock, maxBatchSize, maxBatchTime, null);
         }
 
         @Override
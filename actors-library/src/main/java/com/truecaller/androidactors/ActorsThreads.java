@@ -20,18 +20,35 @@ import android.content.Context;
 import android.os.Looper;
 import androidx.annotation.NonNull;
 
-import java.util.concurrent.Executor;
-
+/**
+ * Actor threads available on Android. Threads created by {@link #createThread(String)} and its
+ * overloads are looper threads here.
+ */
 @SuppressWarnings({"unused", "SameParameterValue"})
-public interface ActorsThreads {
+public interface ActorsThreads extends CoreActorsThreads {
     @NonNull
     ActorThread ui();
 
+    /**
+     * Create thread which collects calls in its own mailbox and executes them in batches,
+     * so one looper message can serve many calls.
+     *
+     * @param name name of the thread
+     * @param stopDelay delay in milliseconds before the idle thread stops itself, -1 to never stop it
+     * @param maxBatchSize max number of calls executed in one batch, must be positive
+     * @param maxBatchTime max time in milliseconds spent on one batch, -1 for no time limit
+     */
     @NonNull
-    ActorThread createThread(@NonNull String name);
+    ActorThread createThread(@NonNull String name, long stopDelay, int maxBatchSize, long maxBatchTime);
 
+    /**
+     * Same as {@link #createThread(String, long, int, long)}, but thread runs with the given priority
+     *
+     * @param priority Linux priority of the thread, see {@link PrioritizedActorThread#setThreadPriority(int)}
+     */
     @NonNull
-    ActorThread createThread(@NonNull String name, long stopDelay);
+    PrioritizedActorThread createThread(@NonNull String name, long stopDelay, int maxBatchSize, long maxBatchTime,
+                                        int priority);
 
     @NonNull
     ActorThread createThread(@NonNull Looper looper);
@@ -39,9 +56,20 @@ public interface ActorsThreads {
     @NonNull
     ActorThread createThread(@NonNull Context context, @NonNull Class<? extends ActorService> service, int jobId);
 
+    /**
+     * Same as {@link #createThread(Context, Class, int)}, but calls waiting for the service connection
+     * are bounded. Service itself runs actors on its own thread with unbounded mailbox
+     */
     @NonNull
-    ActorThread createThread(@NonNull Executor executor);
+    ActorThread createThread(@NonNull Context context, @NonNull Class<? extends ActorService> service, int jobId,
+                             @NonNull MailboxConfig mailbox);
 
+    /**
+     * Same as {@link #createThread(Context, Class, int)}, but with options, see {@link ActorThreadConfig}.
+     * Mailbox bounds calls waiting for the service connection and priority is applied to the service
+     * thread once connected. Stop delay and batching are defined by the service itself
+     */
     @NonNull
-    ActorThread createPooledThread(@NonNull String name, int maxThreads);
+    ActorThread createThread(@NonNull Context context, @NonNull Class<? extends ActorService> service, int jobId,
+                             @NonNull ActorThreadConfig config);
 }
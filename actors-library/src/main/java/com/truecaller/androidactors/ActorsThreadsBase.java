@@ -19,36 +19,28 @@ package com.truecaller.androidactors;
 import android.annotation.TargetApi;
 import android.content.Context;
 import android.os.Build;
-import android.os.HandlerThread;
 import android.os.Looper;
+import android.os.Process;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import java.util.concurrent.Executor;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
-
 @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
 @SuppressWarnings({"unused", "WeakerAccess", "SameParameterValue"})
-public abstract class ActorsThreadsBase implements ActorsThreads {
-
-    @NonNull
-    private final ProxyFactory mProxyFactory;
+public abstract class ActorsThreadsBase extends CoreActorsThreadsBase implements ActorsThreads {
 
-    @NonNull
-    private final FailureHandler mFailureHandler;
+    static {
+        Instrumentation.setCpuClock(new AndroidThreadCpuClock());
+    }
 
     @Nullable
     private volatile ActorThread mUiThread = null;
 
     public ActorsThreadsBase(@NonNull ProxyFactory proxyFactory) {
-        this(proxyFactory, new CrashEarlyFailureHandler());
+        super(proxyFactory);
     }
 
     public ActorsThreadsBase(@NonNull ProxyFactory proxyFactory, @NonNull FailureHandler failureHandler) {
-        mProxyFactory = proxyFactory;
-        mFailureHandler = failureHandler;
+        super(proxyFactory, failureHandler);
     }
 
     @Override
@@ -78,6 +70,44 @@ public abstract class ActorsThreadsBase implements ActorsThreads {
         return new DefaultActorThread(mProxyFactory, mFailureHandler, name, stopDelay);
     }
 
+    @Override
+    @NonNull
+    public PrioritizedActorThread createThread(@NonNull String name, long stopDelay, int priority) {
+        return new DefaultActorThread(mProxyFactory, mFailureHandler, name, stopDelay,
+                ActorHandlerBase.NO_BATCHING, ActorHandlerBase.NO_DELAY, priority);
+    }
+
+    @Override
+    @NonNull
+    public ActorThread createThread(@NonNull String name, long stopDelay, int maxBatchSize, long maxBatchTime) {
+        return createThread(name, stopDelay, maxBatchSize, maxBatchTime, Process.THREAD_PRIORITY_DEFAULT);
+    }
+
+    @Override
+    @NonNull
+    public PrioritizedActorThread createThread(@NonNull String name, long stopDelay, int maxBatchSize,
+                                               long maxBatchTime, int priority) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        return new DefaultActorThread(mProxyFactory, mFailureHandler, name, stopDelay, maxBatchSize, maxBatchTime,
+                priority);
+    }
+
+    @Override
+    @NonNull
+    public ActorThread createThread(@NonNull String name, long stopDelay, @NonNull MailboxConfig mailbox) {
+        return new DefaultActorThread(mProxyFactory, mFailureHandler, name, stopDelay, ActorHandlerBase.NO_BATCHING,
+                ActorHandlerBase.NO_DELAY, Process.THREAD_PRIORITY_DEFAULT, mailbox);
+    }
+
+    @Override
+    @NonNull
+    public PrioritizedActorThread createThread(@NonNull String name, @NonNull ActorThreadConfig config) {
+        return new DefaultActorThread(mProxyFactory, mFailureHandler, name, config.mStopDelayMillis,
+                config.mMaxBatchSize, config.mMaxBatchTimeMillis, config.threadPriority(), config.mMailbox);
+    }
+
     @Override
     @NonNull
     public ActorThread createThread(@NonNull Looper looper) {
@@ -92,15 +122,16 @@ public abstract class ActorsThreadsBase implements ActorsThreads {
 
     @Override
     @NonNull
-    public ActorThread createThread(@NonNull Executor executor) {
-        return new ExecutorActorThread(executor,mProxyFactory, mFailureHandler);
+    public ActorThread createThread(@NonNull Context context, @NonNull Class<? extends ActorService> service, int jobId,
+                                    @NonNull MailboxConfig mailbox) {
+        return new ServiceActorThread(context, mProxyFactory, mFailureHandler, service, jobId, mailbox);
     }
 
     @Override
     @NonNull
-    public ActorThread createPooledThread(@NonNull String name, int maxThreads) {
-        final Executor executor = new ThreadPoolExecutor(0, maxThreads,5, TimeUnit.MINUTES,
-                new LinkedBlockingQueue<Runnable>(), new ActorThreadPoolThreadsFactory(name));
-        return new ExecutorActorThread(executor, mProxyFactory, mFailureHandler);
+    public ActorThread createThread(@NonNull Context context, @NonNull Class<? extends ActorService> service, int jobId,
+                                    @NonNull ActorThreadConfig config) {
+        return new ServiceActorThread(context, mProxyFactory, mFailureHandler, service, jobId, config.mMailbox,
+                config.mThreadPriority);
     }
 }
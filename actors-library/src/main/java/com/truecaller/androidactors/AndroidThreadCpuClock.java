@@ -16,18 +16,14 @@
 
 package com.truecaller.androidactors;
 
-import androidx.annotation.NonNull;
+import android.os.Debug;
 
-/* package */ class ActorRefImpl<T> implements ActorRef<T> {
-    @NonNull
-    private final T mInstance;
-
-    /* package */ ActorRefImpl(@NonNull T instance) {
-        mInstance = instance;
-    }
-
-    @NonNull
-    public T tell() {
-        return mInstance;
+/**
+ * CPU time of the current thread on Android, where {@code java.lang.management} isn't available
+ */
+/* package */ class AndroidThreadCpuClock extends ThreadCpuClock {
+    @Override
+    /* package */ long currentThreadCpuNanos() {
+        return Debug.threadCpuTimeNanos();
     }
 }
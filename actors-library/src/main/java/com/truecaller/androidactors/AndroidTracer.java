@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Trace;
+import androidx.annotation.NonNull;
+
+/**
+ * Tracer which shows actor calls as sections of the system trace, so they can be seen in systrace
+ * and Perfetto next to frames. Install it for the whole process:
+ * <pre>
+ * Instrumentation.install(new AndroidTracer());
+ * </pre>
+ * Does nothing before Android 4.3, where system trace isn't available to apps.
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+public class AndroidTracer extends ActorsTracer {
+
+    // Platform rejects longer section names
+    /* package */ static final int MAX_SECTION_NAME_LENGTH = 127;
+
+    @Override
+    protected void beginSection(@NonNull String name) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.beginSection(name.length() > MAX_SECTION_NAME_LENGTH ? name.substring(0, MAX_SECTION_NAME_LENGTH) : name);
+        }
+    }
+
+    @Override
+    protected void endSection() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.endSection();
+        }
+    }
+}
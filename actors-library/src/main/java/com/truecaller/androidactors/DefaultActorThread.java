@@ -18,11 +18,12 @@ package com.truecaller.androidactors;
 
 import android.os.HandlerThread;
 import android.os.Looper;
+import android.os.Process;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
-public class DefaultActorThread implements ActorThread {
+public class DefaultActorThread implements PrioritizedActorThread, WatchableActorThread {
 
     @NonNull
     private final ThreadFactory mThreadFactory;
@@ -38,6 +39,25 @@ public class DefaultActorThread implements ActorThread {
 
     private final long mStopDelay;
 
+    private final int mMaxBatchSize;
+
+    private final long mMaxBatchTime;
+
+    private volatile int mPriority;
+
+    private volatile int mMaxInlineDepth = 0;
+
+    // Shared by all handlers, so limits survive thread restarts
+    @Nullable
+    private final MailboxLimiter mLimiter;
+
+    // Shared by all handlers, so gaps between calls are tracked across thread restarts
+    @Nullable
+    private final IdleTracker mIdleTracker;
+
+    @NonNull
+    private final WarmThreadCache mThreadCache;
+
     @VisibleForTesting
     @Nullable
     /* package */ ActorHandlerBase mHandler;
@@ -49,11 +69,35 @@ public class DefaultActorThread implements ActorThread {
 
     /* package */ DefaultActorThread(@NonNull ProxyFactory proxyFactory,
                                      @NonNull FailureHandler failureHandler, @NonNull String threadName, long stopDelay) {
+        this(proxyFactory, failureHandler, threadName, stopDelay, ActorHandler.NO_BATCHING, ActorHandler.NO_DELAY);
+    }
+
+    /* package */ DefaultActorThread(@NonNull ProxyFactory proxyFactory, @NonNull FailureHandler failureHandler,
+                                     @NonNull String threadName, long stopDelay, int maxBatchSize, long maxBatchTime) {
+        this(proxyFactory, failureHandler, threadName, stopDelay, maxBatchSize, maxBatchTime,
+                Process.THREAD_PRIORITY_DEFAULT);
+    }
+
+    /* package */ DefaultActorThread(@NonNull ProxyFactory proxyFactory, @NonNull FailureHandler failureHandler,
+                                     @NonNull String threadName, long stopDelay, int maxBatchSize, long maxBatchTime,
+                                     int priority) {
+        this(proxyFactory, failureHandler, threadName, stopDelay, maxBatchSize, maxBatchTime, priority, null);
+    }
+
+    /* package */ DefaultActorThread(@NonNull ProxyFactory proxyFactory, @NonNull FailureHandler failureHandler,
+                                     @NonNull String threadName, long stopDelay, int maxBatchSize, long maxBatchTime,
+                                     int priority, @Nullable MailboxConfig mailbox) {
+        mLimiter = MailboxLimiter.create(mailbox);
+        mIdleTracker = stopDelay == ActorHandler.NO_DELAY ? null : new IdleTracker(stopDelay);
+        mThreadCache = WarmThreadCache.shared();
+        mPriority = priority;
         mThreadFactory = new DefaultThreadFactory();
         mProxyFactory = proxyFactory;
         mFailureHandler = failureHandler;
         mThreadName = threadName;
         mStopDelay = stopDelay;
+        mMaxBatchSize = maxBatchSize;
+        mMaxBatchTime = maxBatchTime;
     }
 
     @VisibleForTesting
@@ -64,14 +108,25 @@ public class DefaultActorThread implements ActorThread {
         mFailureHandler = failureHandler;
         mThreadName = threadName;
         mStopDelay = stopDelay;
+        mMaxBatchSize = ActorHandler.NO_BATCHING;
+        mMaxBatchTime = ActorHandler.NO_DELAY;
+        mPriority = Process.THREAD_PRIORITY_DEFAULT;
+        mLimiter = null;
+        mIdleTracker = stopDelay == ActorHandler.NO_DELAY ? null : new IdleTracker(stopDelay);
+        mThreadCache = WarmThreadCache.shared();
     }
 
     @NonNull
     @Override
     public <T> ActorRef<T> bind(@NonNull Class<T> cls, @NonNull T impl) {
-        MessageSenderProxy<T> postman = new MessageSenderProxy<>(mFailureHandler, impl);
-        T instance = mProxyFactory.newProxy(cls, postman);
-        return new ActorRefImpl<>(instance);
+        return bind(cls, impl, null);
+    }
+
+    @NonNull
+    @Override
+    public <T> ActorRef<T> bind(@NonNull Class<T> cls, @NonNull T impl, @Nullable Supervisor supervisor) {
+        MessageSenderProxy<T> postman = new MessageSenderProxy<>(mFailureHandler, impl, supervisor);
+        return new ActorRefImpl<>(mProxyFactory, cls, postman, mLimiter);
     }
 
     @VisibleForTesting
@@ -86,15 +141,47 @@ public class DefaultActorThread implements ActorThread {
                 return;
             }
 
-            // start thread and schedule transaction
-            HandlerThread thread = new HandlerThread(mThreadName);
-            thread.start();
+            // start thread, or reuse a warm one, and schedule transaction
+            HandlerThread thread = mThreadCache.obtain(mThreadName, mPriority);
 
             mHandler = mThreadFactory.createThread(thread.getLooper(), mStopDelay);
             mHandler.sendTransaction(transaction);
         }
     }
 
+    @Override
+    public void setThreadPriority(int priority) {
+        synchronized (this) {
+            mPriority = priority;
+            final ActorHandlerBase handler = mHandler;
+            if (handler == null) {
+                // New thread will be started with the new priority
+                return;
+            }
+
+            final Thread thread = handler.getLooper().getThread();
+            if (thread instanceof HandlerThread) {
+                try {
+                    Process.setThreadPriority(((HandlerThread) thread).getThreadId(), priority);
+                } catch (IllegalArgumentException e) {
+                    // Thread has just stopped, the next one will get new priority
+                }
+            }
+        }
+    }
+
+    @Override
+    public int getThreadPriority() {
+        return mPriority;
+    }
+
+    /**
+     * @see SameThreadCalls#enable(ActorThread, int)
+     */
+    /* package */ void setMaxInlineDepth(int depth) {
+        mMaxInlineDepth = depth;
+    }
+
     private void stopThread(@NonNull Looper looper) {
         ActorHandlerBase handler = mHandler;
         synchronized (this) {
@@ -102,10 +189,15 @@ public class DefaultActorThread implements ActorThread {
                 mHandler = null;
             }
         }
-        looper.quit();
+        final Thread thread = looper.getThread();
+        if (thread instanceof HandlerThread) {
+            mThreadCache.recycle((HandlerThread) thread);
+        } else {
+            looper.quit();
+        }
     }
 
-    private class MessageSenderProxy<T> implements MessageSender {
+    private class MessageSenderProxy<T> implements InlineMessageSender {
 
         @NonNull
         private final FailureHandler mFailureHandler;
@@ -113,34 +205,56 @@ public class DefaultActorThread implements ActorThread {
         @NonNull
         private final T mActorImpl;
 
-        private MessageSenderProxy(@NonNull FailureHandler failureHandler, @NonNull T actorImpl) {
+        @Nullable
+        private final Supervisor mSupervisor;
+
+        private MessageSenderProxy(@NonNull FailureHandler failureHandler, @NonNull T actorImpl,
+                                   @Nullable Supervisor supervisor) {
             mActorImpl = actorImpl;
             mFailureHandler = failureHandler;
+            mSupervisor = supervisor;
         }
 
         @Override
         public void deliver(@NonNull Message message) {
-            Transaction transaction = Transaction.<T>obtain(mActorImpl, message, mFailureHandler);
+            Transaction transaction = Transaction.<T>obtain(mActorImpl, message, mFailureHandler, mSupervisor);
             sendTransaction(transaction);
         }
+
+        @Override
+        public boolean deliverInline(@NonNull Message message) {
+            // Thread can't stop while it is running one of its calls
+            final ActorHandlerBase handler = mHandler;
+            if (handler == null || Looper.myLooper() != handler.getLooper()) {
+                return false;
+            }
+            Transaction.<T>obtain(mActorImpl, message, mFailureHandler, mSupervisor).execute();
+            return true;
+        }
     }
 
     private class ActorHandler extends ActorHandlerBase {
 
-        ActorHandler(Looper looper, long stopDelay) {
-            super(looper, stopDelay, null);
+        // Stop delay is tracked by the thread's idle tracker
+        ActorHandler(Looper looper) {
+            super(looper, mIdleTracker, null, mMaxBatchSize, mMaxBatchTime, mLimiter);
         }
 
         @Override
         protected void stopThread() {
             DefaultActorThread.this.stopThread(getLooper());
         }
+
+        @Override
+        protected int getMaxInlineDepth() {
+            return mMaxInlineDepth;
+        }
     }
 
     private class DefaultThreadFactory implements ThreadFactory {
         @Override
         public ActorHandlerBase createThread(Looper looper, long stopDelay) {
-            return new ActorHandler(looper, stopDelay);
+            return new ActorHandler(looper);
         }
     }
 
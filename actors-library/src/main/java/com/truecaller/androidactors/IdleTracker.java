@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+/**
+ * Tracks idle periods of an actor thread and adapts the delay before the idle thread is stopped
+ * to the observed gaps between bursts of calls. Can be shared by handlers which replace each other,
+ * so gaps which outlived a stopped thread are counted as well.
+ */
+/* package */ class IdleTracker {
+    // Stop delay never grows beyond this factor of the configured one
+    /* package */ static final int MAX_FACTOR = 4;
+
+    // Weight of the newest gap in the running average is 1 / 2^SMOOTHING_SHIFT
+    private static final int SMOOTHING_SHIFT = 2;
+
+    private static final long NOT_IDLE = -1;
+
+    private final long mStopDelay;
+
+    // Fields below are guarded by this
+    private long mIdleSince = NOT_IDLE;
+
+    private long mAverageGap = NOT_IDLE;
+
+    /**
+     * @param stopDelay configured delay in milliseconds before the idle thread is stopped
+     */
+    /* package */ IdleTracker(long stopDelay) {
+        mStopDelay = stopDelay;
+    }
+
+    /**
+     * Thread has handled all calls
+     *
+     * @param now {@link android.os.SystemClock#uptimeMillis()}
+     */
+    /* package */ synchronized void onIdle(long now) {
+        mIdleSince = now;
+    }
+
+    /**
+     * Thread got a call after being idle
+     *
+     * @param now {@link android.os.SystemClock#uptimeMillis()}
+     */
+    /* package */ synchronized void onBusy(long now) {
+        if (mIdleSince == NOT_IDLE) {
+            return;
+        }
+
+        // Any gap beyond the limit means the same, a single very long one shouldn't outweigh the history
+        final long gap = Math.min(Math.max(0, now - mIdleSince), mStopDelay * MAX_FACTOR * 2);
+        mIdleSince = NOT_IDLE;
+        mAverageGap = mAverageGap == NOT_IDLE ? gap : mAverageGap + ((gap - mAverageGap) >> SMOOTHING_SHIFT);
+    }
+
+    /**
+     * @return delay in milliseconds the idle thread should wait for the next call
+     */
+    /* package */ synchronized long getStopDelay() {
+        if (mAverageGap <= mStopDelay) {
+            // Configured delay already covers usual gaps
+            return mStopDelay;
+        }
+
+        final long maxDelay = mStopDelay * MAX_FACTOR;
+        if (mAverageGap <= maxDelay) {
+            // Keep thread a bit longer than usual gap, so the next burst finds it running
+            return Math.min(maxDelay, mAverageGap + (mAverageGap >> 2));
+        }
+
+        // Next call is expected long after any reasonable delay, waiting only keeps the thread
+        return mStopDelay / 2;
+    }
+
+    /**
+     * @param now {@link android.os.SystemClock#uptimeMillis()}
+     * @return time in milliseconds left before the idle thread should stop, zero or negative if it should stop now
+     */
+    /* package */ synchronized long getRemainingDelay(long now) {
+        if (mIdleSince == NOT_IDLE) {
+            return getStopDelay();
+        }
+        return mIdleSince + getStopDelay() - now;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Actors whose calls are being executed on the actor thread right now. Lets a call from one of them
+ * to another actor of the same thread run right away instead of going through the looper, see
+ * {@link SameThreadCalls}. Accessed only from the actor thread.
+ */
+/* package */ final class InlineCallStack {
+
+    @NonNull
+    private Object[] mActors = new Object[1];
+
+    private int mDepth = 0;
+
+    // Thrown by the failure handler during inline call, rethrown once the outermost call is over
+    @Nullable
+    private RuntimeException mFailure = null;
+
+    /**
+     * Execute transaction taken from the mailbox
+     */
+    /* package */ void execute(@NonNull Transaction transaction) {
+        if (mDepth == 0) {
+            mFailure = null;
+        }
+        push(transaction.impl);
+        try {
+            transaction.execute();
+        } finally {
+            pop();
+        }
+
+        final RuntimeException failure = mFailure;
+        if (mDepth == 0 && failure != null) {
+            // Thread crashes after the caller, as it would if the call was queued
+            mFailure = null;
+            throw failure;
+        }
+    }
+
+    /**
+     * Execute transaction sent by one of the actors on the stack
+     *
+     * @param maxDepth max number of inline calls on the stack
+     * @return false if the caller isn't an actor of this thread, the target actor is already on
+     *         the stack or the stack is too deep, transaction has to go through the mailbox then
+     */
+    /* package */ boolean executeInline(@NonNull Transaction transaction, int maxDepth) {
+        if (mDepth == 0 || mDepth > maxDepth || contains(transaction.impl)) {
+            return false;
+        }
+
+        push(transaction.impl);
+        try {
+            transaction.execute();
+        } catch (RuntimeException e) {
+            // Failure handler has thrown, don't let the caller think it was its own failure
+            if (mFailure == null) {
+                mFailure = e;
+            }
+        } finally {
+            pop();
+        }
+        return true;
+    }
+
+    private boolean contains(@NonNull Object actor) {
+        for (int index = 0; index < mDepth; ++index) {
+            if (mActors[index] == actor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void push(@NonNull Object actor) {
+        if (mDepth == mActors.length) {
+            final Object[] actors = new Object[mActors.length * 2];
+            System.arraycopy(mActors, 0, actors, 0, mDepth);
+            mActors = actors;
+        }
+        mActors[mDepth++] = actor;
+    }
+
+    private void pop() {
+        mActors[--mDepth] = null;
+    }
+}
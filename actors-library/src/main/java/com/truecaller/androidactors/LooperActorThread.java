@@ -19,8 +19,9 @@ package com.truecaller.androidactors;
 import android.os.Handler;
 import android.os.Looper;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
-/* package */ class LooperActorThread implements ActorThread {
+/* package */ class LooperActorThread implements WatchableActorThread {
 
     @NonNull
     private final FailureHandler mFailureHandler;
@@ -31,6 +32,12 @@ import androidx.annotation.NonNull;
     @NonNull
     private final Looper mLooper;
 
+    // Shared by all actors of this thread, accessed only from the looper thread
+    @NonNull
+    /* package */ final InlineCallStack mCallStack = new InlineCallStack();
+
+    /* package */ volatile int mMaxInlineDepth = 0;
+
     /* package */ LooperActorThread(@NonNull ProxyFactory proxyFactory, @NonNull FailureHandler failureHandler,
                                     @NonNull Looper looper) {
         mProxyFactory = proxyFactory;
@@ -41,12 +48,30 @@ import androidx.annotation.NonNull;
     @NonNull
     @Override
     public <T> ActorRef<T> bind(@NonNull Class<T> cls, @NonNull T impl) {
-        MessageSender postman = new LooperMessageSender<>(mLooper, mFailureHandler, impl);
-        T instance = mProxyFactory.newProxy(cls, postman);
-        return new ActorRefImpl<>(instance);
+        return bind(cls, impl, null);
+    }
+
+    @NonNull
+    @Override
+    public <T> ActorRef<T> bind(@NonNull Class<T> cls, @NonNull T impl, @Nullable Supervisor supervisor) {
+        // Looper isn't owned by us, so calls are executed in order they were made regardless of priority
+        MessageSender postman = new LooperMessageSender<>(this, mFailureHandler, impl, supervisor);
+        return new ActorRefImpl<>(mProxyFactory, cls, postman);
     }
 
-    private static class LooperMessageSender<T> extends Handler implements MessageSender {
+    /**
+     * @see SameThreadCalls#enable(ActorThread, int)
+     */
+    /* package */ void setMaxInlineDepth(int depth) {
+        mMaxInlineDepth = depth;
+    }
+
+    private static class LooperMessageSender<T> extends Handler implements InlineMessageSender {
+
+        private static final int MSG_TRANSACTION = 0;
+
+        @NonNull
+        private final LooperActorThread mThread;
 
         @NonNull
         private final FailureHandler mFailureHandler;
@@ -54,30 +79,42 @@ import androidx.annotation.NonNull;
         @NonNull
         private final T mImpl;
 
-        /* package */ LooperMessageSender(@NonNull Looper looper, @NonNull FailureHandler failureHandler,
-                                          @NonNull T impl) {
-            super(looper);
+        @Nullable
+        private final Supervisor mSupervisor;
+
+        /* package */ LooperMessageSender(@NonNull LooperActorThread thread, @NonNull FailureHandler failureHandler,
+                                          @NonNull T impl, @Nullable Supervisor supervisor) {
+            super(thread.mLooper);
+            mThread = thread;
             mFailureHandler = failureHandler;
             mImpl = impl;
+            mSupervisor = supervisor;
         }
 
         @Override
         public void deliver(@NonNull Message message) {
-            android.os.Message msg = obtainMessage(0, message);
-            msg.sendToTarget();
+            final Transaction transaction = Transaction.obtain(mImpl, message, mFailureHandler, mSupervisor);
+            final int maxInlineDepth = mThread.mMaxInlineDepth;
+            // Call is executed right away only if it doesn't overtake earlier calls to the same actor
+            if (maxInlineDepth > 0 && Looper.myLooper() == getLooper() && !hasMessages(MSG_TRANSACTION)
+                    && mThread.mCallStack.executeInline(transaction, maxInlineDepth)) {
+                return;
+            }
+            obtainMessage(MSG_TRANSACTION, transaction).sendToTarget();
         }
 
-        @SuppressWarnings("unchecked")
         @Override
-        public void handleMessage(@NonNull android.os.Message msg) {
-            Message<T, ?> message = (Message<T, ?>) msg.obj;
-            try {
-                message.invoke(mImpl);
-            } catch (Throwable e) {
-                ActorInvokeException call = message.exception();
-                call.initCause(e);
-                mFailureHandler.onUncaughtException(mImpl, message, call);
+        public boolean deliverInline(@NonNull Message message) {
+            if (Looper.myLooper() != getLooper()) {
+                return false;
             }
+            Transaction.obtain(mImpl, message, mFailureHandler, mSupervisor).execute();
+            return true;
+        }
+
+        @Override
+        public void handleMessage(@NonNull android.os.Message msg) {
+            mThread.mCallStack.execute((Transaction) msg.obj);
         }
     }
 }
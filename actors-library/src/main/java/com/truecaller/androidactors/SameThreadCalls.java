@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Same thread fast path for actors which live on the same thread and call each other, for
+ * example a repository and its cache:
+ *
+ * <pre>
+ * ActorThread storage = SameThreadCalls.enable(actors.createThread("storage"));
+ * ActorRef&lt;Cache&gt; cache = storage.bind(Cache.class, new CacheImpl());
+ * ActorRef&lt;Repository&gt; repository = storage.bind(Repository.class, new RepositoryImpl(cache));
+ * </pre>
+ *
+ * A call made by one actor of the thread to another one is executed right away, inside the caller's
+ * method, if no earlier calls wait in the mailbox. Call to an actor which is already on the stack of
+ * the thread, a call made outside of any actor's method and calls nested deeper than the limit go
+ * through the mailbox as usual. If the actor's method throws, the exception goes to
+ * {@link FailureHandler} as usual, exception thrown by the failure handler is rethrown when the
+ * outermost call is over.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class SameThreadCalls {
+
+    public static final int DEFAULT_MAX_DEPTH = 4;
+
+    private SameThreadCalls() {
+    }
+
+    /**
+     * Enable fast path with {@link #DEFAULT_MAX_DEPTH} nested calls
+     */
+    @NonNull
+    public static ActorThread enable(@NonNull ActorThread thread) {
+        return enable(thread, DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     * Enable fast path for calls between actors of the thread created by {@link CoreActorsThreads#createThread(String)}
+     * or {@link ActorsThreads#createThread(android.os.Looper)} and their variants
+     *
+     * @param maxDepth max number of nested calls executed right away, 0 to send every call through the mailbox
+     * @return the same thread
+     * @throws IllegalArgumentException if the thread doesn't support fast path
+     */
+    @NonNull
+    public static ActorThread enable(@NonNull ActorThread thread, int maxDepth) {
+        if (maxDepth < 0) {
+            throw new IllegalArgumentException("Max depth can't be negative");
+        }
+
+        final ActorThread target = Supervisor.unwrap(thread);
+        if (target instanceof DefaultActorThread) {
+            ((DefaultActorThread) target).setMaxInlineDepth(maxDepth);
+        } else if (target instanceof LooperActorThread) {
+            ((LooperActorThread) target).setMaxInlineDepth(maxDepth);
+        } else {
+            throw new IllegalArgumentException("Thread " + thread + " doesn't support same thread calls");
+        }
+        return thread;
+    }
+}
@@ -23,6 +23,7 @@ import android.content.Intent;
 import android.content.ServiceConnection;
 import android.os.Build;
 import android.os.IBinder;
+import android.os.Looper;
 import android.os.RemoteException;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -31,11 +32,9 @@ import android.util.SparseArray;
 import com.truecaller.androidactors.ActorService.RemoteMessageSender;
 
 import java.lang.ref.WeakReference;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
 
 @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
-/* package */ class ServiceActorThread implements ActorThread {
+/* package */ class ServiceActorThread implements WatchableActorThread {
 
     private static final SparseArray<WeakReference<ServiceConnection>> sSenders = new SparseArray<>();
 
@@ -53,9 +52,35 @@ import java.util.concurrent.ConcurrentLinkedQueue;
     @NonNull
     private final Class<? extends ActorService> mService;
 
+    @Nullable
+    private final MailboxConfig mMailboxConfig;
+
+    private final int mPriority;
+
     /* package */ ServiceActorThread(@NonNull Context context, @NonNull ProxyFactory proxyFactory,
                                      @NonNull FailureHandler failureHandler, @NonNull Class<? extends ActorService> service,
                                      int jobId) {
+        this(context, proxyFactory, failureHandler, service, jobId, null);
+    }
+
+    /**
+     * @param mailbox limits of calls waiting for the service connection, null for unbounded
+     */
+    /* package */ ServiceActorThread(@NonNull Context context, @NonNull ProxyFactory proxyFactory,
+                                     @NonNull FailureHandler failureHandler, @NonNull Class<? extends ActorService> service,
+                                     int jobId, @Nullable MailboxConfig mailbox) {
+        this(context, proxyFactory, failureHandler, service, jobId, mailbox, ActorThreadConfig.NO_PRIORITY);
+    }
+
+    /**
+     * @param priority priority applied to the service thread when connected,
+     *                 {@link ActorThreadConfig#NO_PRIORITY} to keep priority of the service
+     */
+    /* package */ ServiceActorThread(@NonNull Context context, @NonNull ProxyFactory proxyFactory,
+                                     @NonNull FailureHandler failureHandler, @NonNull Class<? extends ActorService> service,
+                                     int jobId, @Nullable MailboxConfig mailbox, int priority) {
+        mMailboxConfig = mailbox;
+        mPriority = priority;
         mContext = context.getApplicationContext();
         mProxyFactory = proxyFactory;
         mFailureHandler = failureHandler;
@@ -66,9 +91,16 @@ import java.util.concurrent.ConcurrentLinkedQueue;
     @NonNull
     @Override
     public <T> ActorRef<T> bind(@NonNull Class<T> cls, @NonNull T impl) {
-        ServiceMessageSenderProxy<T> postman = new ServiceMessageSenderProxy<>(mContext, mFailureHandler, mService, mJobId, impl);
-        T instance = mProxyFactory.newProxy(cls, postman);
-        return new ActorRefImpl<>(instance);
+        return bind(cls, impl, null);
+    }
+
+    @NonNull
+    @Override
+    public <T> ActorRef<T> bind(@NonNull Class<T> cls, @NonNull T impl, @Nullable Supervisor supervisor) {
+        final MailboxLimiter limiter = MailboxLimiter.create(mMailboxConfig);
+        ServiceMessageSenderProxy<T> postman = new ServiceMessageSenderProxy<>(mContext, mFailureHandler, mService, mJobId,
+                impl, limiter, supervisor, mPriority);
+        return new ActorRefImpl<>(mProxyFactory, cls, postman, limiter);
     }
 
     @Nullable
@@ -97,18 +129,32 @@ import java.util.concurrent.ConcurrentLinkedQueue;
         @NonNull
         private final FailureHandler mFailureHandler;
 
+        @Nullable
+        private final Supervisor mSupervisor;
+
         @Nullable
         private RemoteMessageSender mSender;
 
         private boolean mRestartAttempt;
 
-        private final Queue<Transaction> mTransactionsQueue = new ConcurrentLinkedQueue<>();
+        // Transactions waiting for the service connection, guarded by itself
+        private final PriorityMailbox mTransactionsQueue = new PriorityMailbox();
 
         private boolean mServiceBound;
 
+        // Limits only transactions waiting for the service connection
+        @Nullable
+        private final MailboxLimiter mLimiter;
+
+        private final int mPriority;
+
         private ServiceMessageSenderProxy(@NonNull Context context, @NonNull FailureHandler failureHandler,
                                           @NonNull Class<? extends ActorService> service, int jobId,
-                                          @NonNull T actorImpl) {
+                                          @NonNull T actorImpl, @Nullable MailboxLimiter limiter,
+                                          @Nullable Supervisor supervisor, int priority) {
+            mLimiter = limiter;
+            mPriority = priority;
+            mSupervisor = supervisor;
             mContext = context;
             mFailureHandler = failureHandler;
             mIntent = new Intent(mContext, service);
@@ -119,7 +165,7 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 
         @Override
         public void deliver(@NonNull Message message) {
-            Transaction transaction = Transaction.<T>obtain(mActorImpl, message, mFailureHandler);
+            Transaction transaction = Transaction.<T>obtain(mActorImpl, message, mFailureHandler, mSupervisor);
             final RemoteMessageSender sender;
 
             synchronized (this) {
@@ -127,7 +173,7 @@ import java.util.concurrent.ConcurrentLinkedQueue;
             }
 
             if (sender == null) {
-                mTransactionsQueue.add(transaction);
+                enqueue(transaction);
                 startService();
                 return;
             }
@@ -136,7 +182,7 @@ import java.util.concurrent.ConcurrentLinkedQueue;
                 return;
             }
 
-            mTransactionsQueue.add(transaction);
+            enqueue(transaction);
             stopActorService();
             startService();
         }
@@ -152,9 +198,13 @@ import java.util.concurrent.ConcurrentLinkedQueue;
                 }
                 return;
             }
-            // Deliver queued messages
+            if (mPriority != ActorThreadConfig.NO_PRIORITY) {
+                // Service thread starts with priority of the service, this thread asked for another one
+                sender.setThreadPriority(mPriority);
+            }
+            // Deliver queued messages, service keeps their priorities
             Transaction transaction;
-            while ((transaction = mTransactionsQueue.poll()) != null) {
+            while ((transaction = dequeue()) != null) {
                 sender.deliver(transaction);
             }
 
@@ -168,6 +218,34 @@ import java.util.concurrent.ConcurrentLinkedQueue;
             mServiceBound = false;
         }
 
+        private void enqueue(@NonNull Transaction transaction) {
+            final MailboxLimiter limiter = mLimiter;
+            // Service connection comes to the main thread, it must never wait for it
+            if (limiter != null && !limiter.admit(transaction, Looper.myLooper() == Looper.getMainLooper())) {
+                transaction.drop();
+                return;
+            }
+
+            synchronized (mTransactionsQueue) {
+                mTransactionsQueue.offer(transaction, limiter);
+                if (limiter != null) {
+                    limiter.trim(mTransactionsQueue);
+                }
+            }
+        }
+
+        @Nullable
+        private Transaction dequeue() {
+            final Transaction transaction;
+            synchronized (mTransactionsQueue) {
+                transaction = mTransactionsQueue.poll();
+            }
+            if (transaction != null && mLimiter != null) {
+                mLimiter.release(transaction);
+            }
+            return transaction;
+        }
+
         private void startService() {
             try {
                 mContext.startService(mIntent);
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+
+/**
+ * Small cache of looper threads which were stopped by idle actor threads. Starting an actor thread
+ * takes a warm thread from the cache instead of creating a new one. Threads which stay in the cache
+ * longer than {@link #KEEP_ALIVE} quit.
+ */
+/* package */ class WarmThreadCache {
+    /* package */ static final int MAX_SIZE = 2;
+
+    /* package */ static final long KEEP_ALIVE = 30000;
+
+    /* package */ static final String IDLE_THREAD_NAME = "ActorsWarmThread";
+
+    private final int mMaxSize;
+
+    private final long mKeepAlive;
+
+    // Guarded by this, the most recently used thread is the last one
+    @NonNull
+    private final ArrayList<Entry> mThreads = new ArrayList<>();
+
+    @VisibleForTesting
+    /* package */ WarmThreadCache(int maxSize, long keepAlive) {
+        mMaxSize = maxSize;
+        mKeepAlive = keepAlive;
+    }
+
+    @NonNull
+    /* package */ static WarmThreadCache shared() {
+        return SharedHolder.INSTANCE;
+    }
+
+    /**
+     * @return started looper thread with the given name and priority
+     */
+    @NonNull
+    /* package */ HandlerThread obtain(@NonNull String name, int priority) {
+        Entry entry;
+        synchronized (this) {
+            do {
+                final int size = mThreads.size();
+                entry = size > 0 ? mThreads.remove(size - 1) : null;
+                // Cached threads quit only through expiration, but someone else could have quit the looper
+            } while (entry != null && !entry.mThread.isAlive());
+        }
+
+        if (entry == null) {
+            final HandlerThread thread = new HandlerThread(name, priority);
+            thread.start();
+            return thread;
+        }
+
+        entry.mHandler.removeCallbacks(entry);
+        entry.mThread.setName(name);
+        setPriority(entry.mThread, priority);
+        return entry.mThread;
+    }
+
+    /**
+     * Put the thread to the cache or quit it if the cache is full. Looper of the thread
+     * can't have messages of its previous owner which are still to be handled.
+     */
+    /* package */ void recycle(@NonNull HandlerThread thread) {
+        final Looper looper = thread.getLooper();
+        if (looper == null) {
+            // Thread has already quit
+            return;
+        }
+
+        final Entry entry = new Entry(thread, looper);
+        synchronized (this) {
+            if (mThreads.size() >= mMaxSize) {
+                looper.quit();
+                return;
+            }
+            thread.setName(IDLE_THREAD_NAME);
+            setPriority(thread, Process.THREAD_PRIORITY_DEFAULT);
+            mThreads.add(entry);
+        }
+        entry.mHandler.postDelayed(entry, mKeepAlive);
+    }
+
+    /* package */ synchronized int size() {
+        return mThreads.size();
+    }
+
+    private void expire(@NonNull Entry entry) {
+        synchronized (this) {
+            if (!mThreads.remove(entry)) {
+                // Thread was taken from the cache in the meantime
+                return;
+            }
+        }
+        entry.mHandler.getLooper().quit();
+    }
+
+    private static void setPriority(@NonNull HandlerThread thread, int priority) {
+        try {
+            Process.setThreadPriority(thread.getThreadId(), priority);
+        } catch (IllegalArgumentException e) {
+            // Thread keeps its current priority
+        }
+    }
+
+    private class Entry implements Runnable {
+        @NonNull
+        private final HandlerThread mThread;
+
+        @NonNull
+        private final Handler mHandler;
+
+        private Entry(@NonNull HandlerThread thread, @NonNull Looper looper) {
+            mThread = thread;
+            mHandler = new Handler(looper);
+        }
+
+        @Override
+        public void run() {
+            expire(this);
+        }
+    }
+
+    private static class SharedHolder {
+        private static final WarmThreadCache INSTANCE = new WarmThreadCache(MAX_SIZE, KEEP_ALIVE);
+    }
+}
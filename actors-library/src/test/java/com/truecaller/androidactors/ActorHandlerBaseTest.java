@@ -25,9 +25,12 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.Shadows;
 import org.robolectric.annotation.Config;
@@ -35,6 +38,8 @@ import org.robolectric.shadows.ShadowApplication;
 import org.robolectric.shadows.ShadowLooper;
 import org.robolectric.shadows.ShadowPowerManager;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 @SuppressWarnings("unchecked")
@@ -69,10 +74,10 @@ public class ActorHandlerBaseTest {
                 Mockito.withSettings()
                         .useConstructor(ShadowLooper.getMainLooper(), timeout, wakeLock));
         Mockito.doCallRealMethod().when(handler).handleMessage(Mockito.<android.os.Message>any());
+        Mockito.doCallRealMethod().when(handler).isStopped();
         Mockito.doCallRealMethod().when(handler).sendTransaction(Mockito.<Transaction>any());
+        Mockito.doCallRealMethod().when(handler).obtainMessage(Mockito.anyInt());
         Mockito.doCallRealMethod().when(handler).obtainMessage(Mockito.anyInt(), Mockito.anyInt(), Mockito.anyInt());
-        Mockito.doCallRealMethod().when(handler).obtainMessage(Mockito.anyInt(), Mockito.anyInt(),
-                Mockito.anyInt(), Mockito.any());
         Mockito.doReturn(true).when(handler).sendMessage(Mockito.<android.os.Message>any());
 
         return handler;
@@ -82,15 +87,45 @@ public class ActorHandlerBaseTest {
         return createHandler(timeout, null);
     }
 
+    private ActorHandlerBase createBatchHandler(long timeout, int maxBatchSize, long maxBatchTime) {
+        ActorHandlerBase handler = Mockito.mock(ActorHandlerBase.class,
+                Mockito.withSettings()
+                        .useConstructor(ShadowLooper.getMainLooper(), timeout, null, maxBatchSize, maxBatchTime));
+        Mockito.doCallRealMethod().when(handler).handleMessage(Mockito.<android.os.Message>any());
+        Mockito.doCallRealMethod().when(handler).sendTransaction(Mockito.<Transaction>any());
+        Mockito.doCallRealMethod().when(handler).obtainMessage(Mockito.anyInt());
+        Mockito.doCallRealMethod().when(handler).obtainMessage(Mockito.anyInt(), Mockito.anyInt(), Mockito.anyInt());
+        Mockito.doReturn(true).when(handler).sendMessage(Mockito.<android.os.Message>any());
+
+        return handler;
+    }
+
+    private ActorHandlerBase createLimitedHandler(MailboxLimiter limiter) {
+        ActorHandlerBase handler = Mockito.mock(ActorHandlerBase.class,
+                Mockito.withSettings()
+                        .useConstructor(ShadowLooper.getMainLooper(), ActorHandlerBase.NO_DELAY, null,
+                                ActorHandlerBase.NO_BATCHING, ActorHandlerBase.NO_DELAY, limiter));
+        Mockito.doCallRealMethod().when(handler).handleMessage(Mockito.<android.os.Message>any());
+        Mockito.doCallRealMethod().when(handler).sendTransaction(Mockito.<Transaction>any());
+        Mockito.doCallRealMethod().when(handler).obtainMessage(Mockito.anyInt());
+        Mockito.doCallRealMethod().when(handler).obtainMessage(Mockito.anyInt(), Mockito.anyInt(), Mockito.anyInt());
+        Mockito.doReturn(true).when(handler).sendMessage(Mockito.<android.os.Message>any());
+
+        return handler;
+    }
+
+    private void handleTransaction(ActorHandlerBase handler, Transaction transaction) {
+        Assert.assertTrue(handler.sendTransaction(transaction));
+        Mockito.verify(handler, Mockito.atLeastOnce()).sendMessage(mMessageCaptor.capture());
+        handler.handleMessage(mMessageCaptor.getValue());
+    }
+
     @Test
     public void handleMessage_callMethod_methodTransaction() {
         ActorHandlerBase handler = createHandler(ActorHandlerBase.NO_DELAY);
 
         Transaction transaction = Transaction.<Object>obtain(mImpl, mMessage, mFailureHandler);
-        android.os.Message message = android.os.Message.obtain(handler, ActorHandlerBase.MSG_TRANSACTION,
-                10, 0, transaction);
-
-        handler.handleMessage(message);
+        handleTransaction(handler, transaction);
 
         Mockito.verify(mMessage).invoke(mImpl);
         // transaction should always be recycled
@@ -101,14 +136,13 @@ public class ActorHandlerBaseTest {
     public void handleMessage_noPoisonPill_methodTransaction() {
         ActorHandlerBase handler = createHandler(ActorHandlerBase.NO_DELAY);
 
-        Transaction transaction = Transaction.<Object>obtain(mImpl, mMessage, mFailureHandler);
-        android.os.Message message = android.os.Message.obtain(handler, ActorHandlerBase.MSG_TRANSACTION,
-                10, 0, transaction);
-
-        handler.handleMessage(message);
+        handleTransaction(handler, Transaction.<Object>obtain(mImpl, mMessage, mFailureHandler));
 
         Mockito.verify(handler, Mockito.never()).removeMessages(ActorHandlerBase.MSG_POISON_PILL);
-        Mockito.verify(handler, Mockito.never()).sendMessage(Mockito.<android.os.Message>any());
+        Mockito.verify(handler, Mockito.never()).sendMessageDelayed(Mockito.<android.os.Message>any(),
+                Mockito.anyLong());
+        // Only drain message was sent
+        Mockito.verify(handler, Mockito.times(1)).sendMessage(Mockito.<android.os.Message>any());
     }
 
     @SuppressWarnings("ThrowableNotThrown")
@@ -117,13 +151,11 @@ public class ActorHandlerBaseTest {
         ActorHandlerBase handler = createHandler(ActorHandlerBase.NO_DELAY);
 
         Transaction transaction = Transaction.<Object>obtain(mImpl, mMessage, mFailureHandler);
-        android.os.Message message = android.os.Message.obtain(handler, ActorHandlerBase.MSG_TRANSACTION,
-                10, 0, transaction);
 
         RuntimeException exception = new RuntimeException();
         Mockito.doThrow(exception).when(mMessage).invoke(Mockito.any());
         Mockito.doReturn(mException).when(mMessage).exception();
-        handler.handleMessage(message);
+        handleTransaction(handler, transaction);
 
         Mockito.verify(mFailureHandler).onUncaughtException(mImpl, mMessage, mException);
         Mockito.verify(mException).initCause(exception);
@@ -135,13 +167,9 @@ public class ActorHandlerBaseTest {
     public void handleMessage_takePoisonPill_methodTransaction() {
         ActorHandlerBase handler = createHandler(60000);
 
-        Transaction transaction = Transaction.<Object>obtain(mImpl, mMessage, mFailureHandler);
-        android.os.Message message = android.os.Message.obtain(handler, ActorHandlerBase.MSG_TRANSACTION,
-                10, 0, transaction);
-
-        handler.handleMessage(message);
+        handleTransaction(handler, Transaction.<Object>obtain(mImpl, mMessage, mFailureHandler));
 
-        Mockito.verify(handler).removeMessages(ActorHandlerBase.MSG_POISON_PILL);
+        Mockito.verify(handler, Mockito.never()).removeMessages(ActorHandlerBase.MSG_POISON_PILL);
         Mockito.verify(handler).sendMessageDelayed(mMessageCaptor.capture(), mTimeoutCaptor.capture());
 
         Assert.assertEquals(60000L, (long) mTimeoutCaptor.getValue());
@@ -149,23 +177,18 @@ public class ActorHandlerBaseTest {
         android.os.Message poisonPill = mMessageCaptor.getValue();
         Assert.assertNotNull(poisonPill);
         Assert.assertEquals(ActorHandlerBase.MSG_POISON_PILL, poisonPill.what);
-        Assert.assertEquals(10, poisonPill.arg1);
     }
 
     @Test
     public void handleMessage_takePoisonPill_methodTransactionThrows() {
         ActorHandlerBase handler = createHandler(60000);
 
-        Transaction transaction = Transaction.<Object>obtain(mImpl, mMessage, mFailureHandler);
-        android.os.Message message = android.os.Message.obtain(handler, ActorHandlerBase.MSG_TRANSACTION,
-                10, 0, transaction);
-
         RuntimeException exception = new RuntimeException();
         Mockito.doThrow(exception).when(mMessage).invoke(Mockito.any());
         Mockito.doReturn(mException).when(mMessage).exception();
-        handler.handleMessage(message);
+        handleTransaction(handler, Transaction.<Object>obtain(mImpl, mMessage, mFailureHandler));
 
-        Mockito.verify(handler).removeMessages(ActorHandlerBase.MSG_POISON_PILL);
+        Mockito.verify(handler, Mockito.never()).removeMessages(ActorHandlerBase.MSG_POISON_PILL);
         Mockito.verify(handler).sendMessageDelayed(mMessageCaptor.capture(), mTimeoutCaptor.capture());
 
         Assert.assertEquals(60000L, (long) mTimeoutCaptor.getValue());
@@ -173,33 +196,89 @@ public class ActorHandlerBaseTest {
         android.os.Message poisonPill = mMessageCaptor.getValue();
         Assert.assertNotNull(poisonPill);
         Assert.assertEquals(ActorHandlerBase.MSG_POISON_PILL, poisonPill.what);
-        Assert.assertEquals(10, poisonPill.arg1);
     }
 
     @Test
-    public void handleMessage_doNothing_outdatedPoisonPill() {
+    public void handleMessage_reschedulePoisonPill_activeSincePillWasSent() {
         ActorHandlerBase handler = createHandler(10000);
+        handleTransaction(handler, Transaction.<Object>obtain(mImpl, mMessage, mFailureHandler));
+        Mockito.verify(handler).sendMessageDelayed(mMessageCaptor.capture(), Mockito.eq(10000L));
+        android.os.Message poisonPill = mMessageCaptor.getValue();
 
-        Transaction transaction = Transaction.<Object>obtain(mImpl, mMessage, mFailureHandler);
-        android.os.Message message = android.os.Message.obtain(handler, ActorHandlerBase.MSG_POISON_PILL,
-                10, 0, transaction);
+        ShadowLooper.idleMainLooper(4000);
+        handleTransaction(handler, Transaction.<Object>obtain(mImpl, mMessage, mFailureHandler));
+        // Pill is still pending, the drain doesn't send another one
+        Mockito.verify(handler, Mockito.times(1)).sendMessageDelayed(Mockito.<android.os.Message>any(),
+                Mockito.anyLong());
 
-        handler.handleMessage(message);
+        ShadowLooper.idleMainLooper(6000);
+        handler.handleMessage(poisonPill);
 
         Mockito.verify(handler, Mockito.never()).stopThread();
+        Mockito.verify(handler).sendMessageDelayed(Mockito.<android.os.Message>any(), Mockito.eq(4000L));
     }
 
     @Test
-    public void handleMessage_stopThread_validPoisonPill() {
+    public void handleMessage_stopThread_idleForStopDelay() {
         ActorHandlerBase handler = createHandler(10000);
+        handleTransaction(handler, Transaction.<Object>obtain(mImpl, mMessage, mFailureHandler));
+        Mockito.verify(handler).sendMessageDelayed(mMessageCaptor.capture(), Mockito.eq(10000L));
 
-        Transaction transaction = Transaction.<Object>obtain(mImpl, mMessage, mFailureHandler);
-        android.os.Message message = android.os.Message.obtain(handler, ActorHandlerBase.MSG_POISON_PILL,
-                0, 0, transaction);
-
-        handler.handleMessage(message);
+        ShadowLooper.idleMainLooper(10000);
+        handler.handleMessage(mMessageCaptor.getValue());
 
         Mockito.verify(handler).stopThread();
+        Assert.assertTrue(handler.isStopped());
+    }
+
+    @Test
+    public void handleMessage_keepThread_busyWhenPillArrives() {
+        ActorHandlerBase handler = createHandler(10000);
+        handleTransaction(handler, Transaction.<Object>obtain(mImpl, mMessage, mFailureHandler));
+        Mockito.verify(handler).sendMessageDelayed(mMessageCaptor.capture(), Mockito.eq(10000L));
+        android.os.Message poisonPill = mMessageCaptor.getValue();
+
+        ShadowLooper.idleMainLooper(10000);
+        Assert.assertTrue(handler.sendTransaction(Transaction.<Object>obtain(mImpl, mMessage, mFailureHandler)));
+        handler.handleMessage(poisonPill);
+
+        Mockito.verify(handler, Mockito.never()).stopThread();
+        Assert.assertFalse(handler.isStopped());
+    }
+
+    @Test
+    public void sendTransaction_executeInline_callFromActorOfHandler() {
+        final ShadowLooper looper = Shadows.shadowOf(ShadowLooper.getMainLooper());
+        looper.pause();
+        final ActorHandlerBase handler = new ActorHandlerBase(ShadowLooper.getMainLooper(), ActorHandlerBase.NO_DELAY,
+                null) {
+            @Override
+            protected int getMaxInlineDepth() {
+                return 4;
+            }
+
+            @Override
+            protected void stopThread() {
+            }
+        };
+        final Object cache = new Object();
+        final Message cacheCall = Mockito.mock(Message.class);
+        final List<Boolean> sent = new ArrayList<>();
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                sent.add(handler.sendTransaction(Transaction.obtain(cache, cacheCall, mFailureHandler)));
+                return null;
+            }
+        }).when(mMessage).invoke(mImpl);
+
+        Assert.assertTrue(handler.sendTransaction(Transaction.<Object>obtain(mImpl, mMessage, mFailureHandler)));
+        looper.runOneTask();
+
+        Assert.assertEquals(Collections.singletonList(true), sent);
+        Mockito.verify(cacheCall).invoke(cache);
+        // Only the caller went through the looper
+        Assert.assertFalse(handler.hasMessages(ActorHandlerBase.MSG_DRAIN));
     }
 
     @Test
@@ -215,43 +294,44 @@ public class ActorHandlerBaseTest {
         android.os.Message message = mMessageCaptor.getValue();
         Assert.assertNotNull(message);
 
-        Assert.assertEquals(ActorHandlerBase.MSG_TRANSACTION, message.what);
-        Assert.assertSame(transaction, message.obj);
+        Assert.assertEquals(ActorHandlerBase.MSG_DRAIN, message.what);
     }
 
     @Test
-    public void sendTransaction_increaseLastId_validHandler() {
+    public void handleMessage_invokeOneTransactionPerMessage_noBatching() {
         ActorHandlerBase handler = createHandler(ActorHandlerBase.NO_DELAY);
 
         Assert.assertTrue(handler.sendTransaction(Transaction.<Object>obtain(mImpl, mMessage, mFailureHandler)));
         Assert.assertTrue(handler.sendTransaction(Transaction.<Object>obtain(mImpl, mMessage, mFailureHandler)));
+        Mockito.verify(handler).sendMessage(mMessageCaptor.capture());
 
+        handler.handleMessage(mMessageCaptor.getValue());
+        Mockito.verify(mMessage, Mockito.times(1)).invoke(mImpl);
         Mockito.verify(handler, Mockito.times(2)).sendMessage(mMessageCaptor.capture());
 
-        List<android.os.Message> messages = mMessageCaptor.getAllValues();
-        Assert.assertEquals(2, messages.size());
-
-        Assert.assertNotEquals(messages.get(0).arg1, messages.get(1).arg1);
+        handler.handleMessage(mMessageCaptor.getValue());
+        Mockito.verify(mMessage, Mockito.times(2)).invoke(mImpl);
+        Mockito.verify(handler, Mockito.times(2)).sendMessage(Mockito.<android.os.Message>any());
     }
 
     @Test
     public void sendTransaction_doNothing_stoppedHandler() {
         ActorHandlerBase handler = createHandler(10000);
+        handleTransaction(handler, Transaction.<Object>obtain(mImpl, mMessage, mFailureHandler));
+        Mockito.verify(handler).sendMessageDelayed(mMessageCaptor.capture(), Mockito.anyLong());
 
-        Transaction transaction = Transaction.<Object>obtain(mImpl, mMessage, mFailureHandler);
-        android.os.Message message = android.os.Message.obtain(handler, ActorHandlerBase.MSG_POISON_PILL,
-                0, 0, transaction);
-        handler.handleMessage(message);
+        ShadowLooper.idleMainLooper(10000);
+        handler.handleMessage(mMessageCaptor.getValue());
 
         /**
          *  At this point handler should stop thread. This logic makes test dependent
-         *  from {@link #handleMessage_takePoisonPill_methodTransaction()}
+         *  from {@link #handleMessage_stopThread_idleForStopDelay()}
          */
 
         boolean result = handler.sendTransaction(Transaction.<Object>obtain(mImpl, mMessage, mFailureHandler));
 
         Assert.assertEquals(false, result);
-        Mockito.verify(handler, Mockito.never()).sendMessageDelayed(Mockito.<android.os.Message>any(), Mockito.anyLong());
+        Mockito.verify(handler, Mockito.times(1)).sendMessage(Mockito.<android.os.Message>any());
     }
 
     @Test
@@ -260,13 +340,203 @@ public class ActorHandlerBaseTest {
         final PowerManager.WakeLock wakeLock = Shadows.shadowOf(pm).newWakeLock(0, "test-wakelock");
         ActorHandlerBase handler = createHandler(ActorHandlerBase.NO_DELAY, wakeLock);
 
-        Transaction transaction = Transaction.<Object>obtain(mImpl, mMessage, mFailureHandler);
-        android.os.Message message = android.os.Message.obtain(handler, ActorHandlerBase.MSG_TRANSACTION,
-                10, 0, transaction);
-
-        handler.handleMessage(message);
+        handleTransaction(handler, Transaction.<Object>obtain(mImpl, mMessage, mFailureHandler));
 
         Assert.assertSame(wakeLock, ShadowPowerManager.getLatestWakeLock());
         Assert.assertEquals(false, wakeLock.isHeld());
     }
+
+    @Test
+    public void sendTransaction_sendOneDrainMessage_batchMode() {
+        ActorHandlerBase handler = createBatchHandler(ActorHandlerBase.NO_DELAY, 10, ActorHandlerBase.NO_DELAY);
+
+        Assert.assertTrue(handler.sendTransaction(Transaction.<Object>obtain(mImpl, mMessage, mFailureHandler)));
+        Assert.assertTrue(handler.sendTransaction(Transaction.<Object>obtain(mImpl, mMessage, mFailureHandler)));
+        Assert.assertTrue(handler.sendTransaction(Transaction.<Object>obtain(mImpl, mMessage, mFailureHandler)));
+
+        Mockito.verify(handler).sendMessage(mMessageCaptor.capture());
+        Assert.assertEquals(ActorHandlerBase.MSG_DRAIN, mMessageCaptor.getValue().what);
+        Mockito.verify(mMessage, Mockito.never()).invoke(Mockito.any());
+    }
+
+    @Test
+    public void handleMessage_invokeAllTransactions_batchMode() {
+        ActorHandlerBase handler = createBatchHandler(ActorHandlerBase.NO_DELAY, 10, ActorHandlerBase.NO_DELAY);
+        Message second = Mockito.mock(Message.class);
+
+        handler.sendTransaction(Transaction.<Object>obtain(mImpl, mMessage, mFailureHandler));
+        handler.sendTransaction(Transaction.<Object>obtain(mImpl, second, mFailureHandler));
+        Mockito.verify(handler).sendMessage(mMessageCaptor.capture());
+
+        handler.handleMessage(mMessageCaptor.getValue());
+
+        InOrder order = Mockito.inOrder(mMessage, second);
+        order.verify(mMessage).invoke(mImpl);
+        order.verify(second).invoke(mImpl);
+
+        // Mailbox is empty, so next transaction should schedule new drain
+        handler.sendTransaction(Transaction.<Object>obtain(mImpl, mMessage, mFailureHandler));
+        Mockito.verify(handler, Mockito.times(2)).sendMessage(Mockito.<android.os.Message>any());
+    }
+
+    @Test
+    public void handleMessage_rescheduleDrain_batchSizeExceeded() {
+        ActorHandlerBase handler = createBatchHandler(ActorHandlerBase.NO_DELAY, 2, ActorHandlerBase.NO_DELAY);
+
+        for (int index = 0; index < 3; ++index) {
+            handler.sendTransaction(Transaction.<Object>obtain(mImpl, mMessage, mFailureHandler));
+        }
+        Mockito.verify(handler).sendMessage(mMessageCaptor.capture());
+
+        handler.handleMessage(mMessageCaptor.getValue());
+
+        Mockito.verify(mMessage, Mockito.times(2)).invoke(mImpl);
+        Mockito.verify(handler, Mockito.times(2)).sendMessage(mMessageCaptor.capture());
+        android.os.Message drain = mMessageCaptor.getValue();
+        Assert.assertEquals(ActorHandlerBase.MSG_DRAIN, drain.what);
+
+        handler.handleMessage(drain);
+        Mockito.verify(mMessage, Mockito.times(3)).invoke(mImpl);
+        Mockito.verify(handler, Mockito.times(2)).sendMessage(Mockito.<android.os.Message>any());
+    }
+
+    @Test
+    public void handleMessage_takePoisonPillOnce_batchMode() {
+        ActorHandlerBase handler = createBatchHandler(60000, 10, ActorHandlerBase.NO_DELAY);
+
+        handler.sendTransaction(Transaction.<Object>obtain(mImpl, mMessage, mFailureHandler));
+        handler.sendTransaction(Transaction.<Object>obtain(mImpl, mMessage, mFailureHandler));
+        Mockito.verify(handler).sendMessage(mMessageCaptor.capture());
+
+        handler.handleMessage(mMessageCaptor.getValue());
+
+        Mockito.verify(handler).sendMessageDelayed(mMessageCaptor.capture(), mTimeoutCaptor.capture());
+
+        Assert.assertEquals(60000L, (long) mTimeoutCaptor.getValue());
+        android.os.Message poisonPill = mMessageCaptor.getValue();
+        Assert.assertEquals(ActorHandlerBase.MSG_POISON_PILL, poisonPill.what);
+
+        ShadowLooper.idleMainLooper(60000);
+        handler.handleMessage(poisonPill);
+        Mockito.verify(handler).stopThread();
+        Assert.assertFalse(handler.sendTransaction(Transaction.<Object>obtain(mImpl, mMessage, mFailureHandler)));
+    }
+
+    @SuppressWarnings("ThrowableNotThrown")
+    @Test
+    public void handleMessage_callFailureHandle_batchTransactionThrows() {
+        ActorHandlerBase handler = createBatchHandler(ActorHandlerBase.NO_DELAY, 10, ActorHandlerBase.NO_DELAY);
+
+        Transaction transaction = Transaction.<Object>obtain(mImpl, mMessage, mFailureHandler);
+        handler.sendTransaction(transaction);
+        Mockito.verify(handler).sendMessage(mMessageCaptor.capture());
+
+        RuntimeException exception = new RuntimeException();
+        Mockito.doThrow(exception).when(mMessage).invoke(Mockito.any());
+        Mockito.doReturn(mException).when(mMessage).exception();
+        handler.handleMessage(mMessageCaptor.getValue());
+
+        Mockito.verify(mFailureHandler).onUncaughtException(mImpl, mMessage, mException);
+        Mockito.verify(mException).initCause(exception);
+        // transaction should always be recycled
+        Assert.assertNull(transaction.message);
+    }
+
+    @Test
+    public void handleMessage_invokeHigherPriorityFirst_batchMode() {
+        ActorHandlerBase handler = createBatchHandler(ActorHandlerBase.NO_DELAY, 10, ActorHandlerBase.NO_DELAY);
+        Message low = Mockito.mock(Message.class);
+        Message high = Mockito.mock(Message.class);
+
+        handler.sendTransaction(obtain(low, Priority.LOW));
+        handler.sendTransaction(obtain(mMessage, Priority.NORMAL));
+        handler.sendTransaction(obtain(high, Priority.HIGH));
+        Mockito.verify(handler).sendMessage(mMessageCaptor.capture());
+
+        handler.handleMessage(mMessageCaptor.getValue());
+
+        InOrder order = Mockito.inOrder(high, mMessage, low);
+        order.verify(high).invoke(mImpl);
+        order.verify(mMessage).invoke(mImpl);
+        order.verify(low).invoke(mImpl);
+    }
+
+    @Test
+    public void handleMessage_invokeHigherPriorityFirst_noBatching() {
+        ActorHandlerBase handler = createHandler(ActorHandlerBase.NO_DELAY);
+        Message high = Mockito.mock(Message.class);
+
+        handler.sendTransaction(obtain(mMessage, Priority.NORMAL));
+        handler.sendTransaction(obtain(high, Priority.HIGH));
+        Mockito.verify(handler).sendMessage(mMessageCaptor.capture());
+
+        handler.handleMessage(mMessageCaptor.getValue());
+        Mockito.verify(high).invoke(mImpl);
+        Mockito.verify(mMessage, Mockito.never()).invoke(mImpl);
+    }
+
+    @Test
+    public void sendTransaction_dropNewTransaction_dropNewestPolicyAndFull() {
+        MailboxLimiter limiter = new MailboxLimiter(MailboxConfig.builder(1)
+                .setOverflowPolicy(MailboxConfig.OverflowPolicy.DROP_NEWEST).build());
+        ActorHandlerBase handler = createLimitedHandler(limiter);
+        Message dropped = Mockito.mock(Message.class);
+
+        Assert.assertTrue(handler.sendTransaction(obtain(mMessage, Priority.NORMAL)));
+        Assert.assertTrue(handler.sendTransaction(obtain(dropped, Priority.HIGH)));
+        Mockito.verify(handler).sendMessage(mMessageCaptor.capture());
+
+        handler.handleMessage(mMessageCaptor.getValue());
+        Mockito.verify(mMessage).invoke(mImpl);
+        Mockito.verify(dropped, Mockito.never()).invoke(mImpl);
+        Assert.assertEquals(0, limiter.size());
+    }
+
+    @Test
+    public void sendTransaction_dropLowerPriorityTransaction_dropOldestPolicyAndFull() {
+        MailboxLimiter limiter = new MailboxLimiter(MailboxConfig.builder(1)
+                .setOverflowPolicy(MailboxConfig.OverflowPolicy.DROP_OLDEST).build());
+        ActorHandlerBase handler = createLimitedHandler(limiter);
+        Message high = Mockito.mock(Message.class);
+
+        Assert.assertTrue(handler.sendTransaction(obtain(mMessage, Priority.NORMAL)));
+        Assert.assertTrue(handler.sendTransaction(obtain(high, Priority.HIGH)));
+        Assert.assertEquals(1, limiter.size());
+        Mockito.verify(handler).sendMessage(mMessageCaptor.capture());
+
+        handler.handleMessage(mMessageCaptor.getValue());
+        Mockito.verify(high).invoke(mImpl);
+        Mockito.verify(mMessage, Mockito.never()).invoke(mImpl);
+        Assert.assertEquals(0, limiter.size());
+    }
+
+    @Test(expected = MailboxOverflowException.class)
+    public void sendTransaction_throw_rejectPolicyAndFull() {
+        ActorHandlerBase handler = createLimitedHandler(new MailboxLimiter(MailboxConfig.builder(1).build()));
+
+        handler.sendTransaction(obtain(mMessage, Priority.NORMAL));
+        handler.sendTransaction(obtain(mMessage, Priority.NORMAL));
+    }
+
+    @Test
+    public void handleMessage_invokeLatestCall_coalescingMethod() {
+        ActorHandlerBase handler = createHandler(ActorHandlerBase.NO_DELAY);
+        List<String> actor = new ArrayList<>();
+
+        handler.sendTransaction(Transaction.<List<String>>obtain(actor, new CoalescingMessage(Coalesce.LATEST, "first"),
+                mFailureHandler));
+        handler.sendTransaction(Transaction.<List<String>>obtain(actor, new CoalescingMessage(Coalesce.LATEST, "second"),
+                mFailureHandler));
+        Mockito.verify(handler).sendMessage(mMessageCaptor.capture());
+
+        handler.handleMessage(mMessageCaptor.getValue());
+        handler.handleMessage(mMessageCaptor.getValue());
+        Assert.assertEquals(Collections.singletonList("second"), actor);
+    }
+
+    private Transaction obtain(Message message, int priority) {
+        Transaction transaction = Transaction.<Object>obtain(mImpl, message, mFailureHandler);
+        transaction.priority = priority;
+        return transaction;
+    }
 }
@@ -18,8 +18,10 @@ package com.truecaller.androidactors;
 
 import android.app.Service;
 import android.content.Intent;
+import android.os.HandlerThread;
 import android.os.IBinder;
 import android.os.PowerManager;
+import android.os.Process;
 import androidx.annotation.Nullable;
 import org.junit.Assert;
 import org.junit.Before;
@@ -138,6 +140,28 @@ public class ActorServiceTest {
         Assert.assertEquals(true, Shadows.shadowOf(service).isStoppedBySelf());
     }
 
+    @SuppressWarnings("unchecked")
+    @Test
+    public void onDestroy_reuseThread_stoppedBySelf() throws Exception {
+        ActorService service = createService();
+        IBinder binder = service.onBind(new Intent());
+        ActorService.RemoteMessageSender sender = (ActorService.RemoteMessageSender) binder.queryLocalInterface(ActorService.LOCAL_SENDER_INTERFACE);
+        sender.deliver(Transaction.<Object>obtain(mImpl, mMessage, mFailureHandler));
+
+        ShadowLooper shadowLooper = Shadows.shadowOf(service.mThread.getLooper());
+        shadowLooper.runOneTask();
+        shadowLooper.runOneTask();
+        Assert.assertEquals(true, Shadows.shadowOf(service).isStoppedBySelf());
+
+        HandlerThread thread = service.mThread;
+        service.onDestroy();
+
+        Assert.assertFalse(shadowLooper.hasQuit());
+        HandlerThread reused = WarmThreadCache.shared().obtain(SERVICE_NAME, Process.THREAD_PRIORITY_DEFAULT);
+        Assert.assertSame(thread, reused);
+        reused.quit();
+    }
+
     @Test
     public void onStartCommand_START_NOT_STICKY_always() {
         ActorService service = createService();
@@ -16,10 +16,18 @@
 
 package com.truecaller.androidactors;
 
+import android.os.Process;
 import org.junit.Assert;
 import org.junit.Test;
+import org.junit.runner.RunWith;
 import org.mockito.Mockito;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
 
+import java.util.concurrent.CountDownLatch;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
 public class ActorThreadPoolThreadsFactoryTest {
     @Test
     public void threadCreateTest() throws Exception {
@@ -27,8 +35,54 @@ public class ActorThreadPoolThreadsFactoryTest {
         final ActorThreadPoolThreadsFactory factory = new ActorThreadPoolThreadsFactory("test-thread");
 
         Thread thread = factory.newThread(runnable);
-        Assert.assertEquals("test-thread", thread.getName());
+        Assert.assertEquals("test-thread-1", thread.getName());
         thread.run();
         Mockito.verify(runnable).run();
     }
+
+    @Test
+    public void newThread_numberThreads_always() {
+        final Runnable runnable = Mockito.mock(Runnable.class);
+        final ActorThreadPoolThreadsFactory factory = new ActorThreadPoolThreadsFactory("test-thread");
+
+        Assert.assertEquals("test-thread-1", factory.newThread(runnable).getName());
+        Assert.assertEquals("test-thread-2", factory.newThread(runnable).getName());
+    }
+
+    @Test
+    public void newThread_runRunnable_priorityPassed() {
+        final Runnable runnable = Mockito.mock(Runnable.class);
+        final ActorThreadPoolThreadsFactory factory = new ActorThreadPoolThreadsFactory("test-thread",
+                Process.THREAD_PRIORITY_BACKGROUND);
+
+        factory.newThread(runnable).run();
+
+        Mockito.verify(runnable).run();
+    }
+
+    @Test
+    public void setThreadPriority_keepPriority_threadsRunning() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ActorThreadPoolThreadsFactory factory = new ActorThreadPoolThreadsFactory("test-thread");
+        final Thread thread = factory.newThread(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    // Test is over
+                }
+            }
+        });
+        thread.start();
+        started.await();
+
+        factory.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        Assert.assertEquals(Process.THREAD_PRIORITY_BACKGROUND, factory.getThreadPriority());
+
+        release.countDown();
+        thread.join();
+    }
 }
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class AndroidTracerTest {
+
+    @Test
+    public void traceSections_doNotThrow_longNames() {
+        char[] name = new char[AndroidTracer.MAX_SECTION_NAME_LENGTH * 2];
+        Arrays.fill(name, 'a');
+        int base = ActorMethods.register(Runnable.class, new String(name));
+
+        AndroidTracer tracer = new AndroidTracer();
+        tracer.onStarted(base, -1);
+        tracer.onStarted(ActorMethods.UNKNOWN, -1);
+        tracer.onCompleted(ActorMethods.UNKNOWN, -1, 10, 10, false);
+        tracer.onCompleted(base, -1, 10, 10, false);
+    }
+}
@@ -18,19 +18,24 @@ package com.truecaller.androidactors;
 
 import android.os.Looper;
 import android.os.PowerManager;
+import android.os.Process;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import org.robolectric.RobolectricTestRunner;
+import org.robolectric.Shadows;
 import org.robolectric.annotation.Config;
 import org.robolectric.shadows.ShadowLooper;
 
+import java.util.concurrent.TimeUnit;
+
 @RunWith(RobolectricTestRunner.class)
 @Config(manifest = Config.NONE)
 public class DefaultActorThreadTest {
@@ -150,4 +155,97 @@ public class DefaultActorThreadTest {
         Assert.assertNotNull(thread.mHandler);
         Mockito.verify(thread.mHandler).sendTransaction(transaction);
     }
+
+    @Test
+    public void setThreadPriority_keepPriority_threadNotStarted() {
+        DefaultActorThread thread = createThread();
+        Assert.assertEquals(Process.THREAD_PRIORITY_DEFAULT, thread.getThreadPriority());
+
+        thread.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+
+        Assert.assertNull(thread.mHandler);
+        Assert.assertEquals(Process.THREAD_PRIORITY_BACKGROUND, thread.getThreadPriority());
+    }
+
+    @Test
+    public void setThreadPriority_keepPriority_threadStarted() {
+        DefaultActorThread thread = new DefaultActorThread(mProxyFactory, mFailureHandler, "Test Thread", 0,
+                ActorHandlerBase.NO_BATCHING, ActorHandlerBase.NO_DELAY, Process.THREAD_PRIORITY_BACKGROUND);
+        Assert.assertEquals(Process.THREAD_PRIORITY_BACKGROUND, thread.getThreadPriority());
+
+        thread.sendTransaction(Transaction.<Object>obtain(mImpl, mMessage, mFailureHandler));
+        Assert.assertNotNull(thread.mHandler);
+
+        thread.setThreadPriority(Process.THREAD_PRIORITY_URGENT_DISPLAY);
+        Assert.assertEquals(Process.THREAD_PRIORITY_URGENT_DISPLAY, thread.getThreadPriority());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void setThreadPriority_changeWatchedThread_threadWatched() {
+        DefaultActorThread thread = createThread();
+        Watchdog watchdog = Watchdog.builder(1, TimeUnit.SECONDS, Mockito.mock(Watchdog.Reporter.class)).build();
+
+        PrioritizedActorThread watched = (PrioritizedActorThread) watchdog.watch(thread);
+        watched.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+
+        Assert.assertEquals(Process.THREAD_PRIORITY_BACKGROUND, watched.getThreadPriority());
+        Assert.assertEquals(Process.THREAD_PRIORITY_BACKGROUND, thread.getThreadPriority());
+    }
+
+    @Test
+    public void sendTransaction_reuseLooperThread_afterIdleStop() {
+        DefaultActorThread thread = new DefaultActorThread(mProxyFactory, mFailureHandler, "Test Thread", 0);
+        thread.sendTransaction(Transaction.<Object>obtain(mImpl, mMessage, mFailureHandler));
+        Assert.assertNotNull(thread.mHandler);
+        Looper looper = thread.mHandler.getLooper();
+
+        // Handle the transaction and the poison pill
+        Shadows.shadowOf(looper).runToEndOfTasks();
+        Assert.assertNull(thread.mHandler);
+        Assert.assertFalse(Shadows.shadowOf(looper).hasQuit());
+
+        thread.sendTransaction(Transaction.<Object>obtain(mImpl, mMessage, mFailureHandler));
+        Assert.assertNotNull(thread.mHandler);
+        Assert.assertSame(looper, thread.mHandler.getLooper());
+        Assert.assertEquals("Test Thread", looper.getThread().getName());
+
+        Shadows.shadowOf(looper).runToEndOfTasks();
+        Mockito.verify(mMessage, Mockito.times(2)).invoke(mImpl);
+        // Don't leave warm thread for other tests
+        WarmThreadCache.shared().obtain("Test Thread", Process.THREAD_PRIORITY_DEFAULT).quit();
+    }
+
+    @Test
+    public void deliver_reusePooledObjects_voidMessagesInSteadyState() {
+        // Robolectric's scheduler allocates for every looper message, so only pool misses are checked here,
+        // allocations are counted by ExecutorActorThreadTest
+        CallSiteCapturePolicy.install(CallSiteCapturePolicy.off());
+        try {
+            DefaultActorThread thread = new DefaultActorThread(mProxyFactory, mFailureHandler, "Test Thread");
+            thread.bind(Runnable.class, mImpl);
+            ArgumentCaptor<MessageSender> postmanCaptor = ArgumentCaptor.forClass(MessageSender.class);
+            Mockito.verify(mProxyFactory).newProxy(Mockito.eq(Runnable.class), postmanCaptor.capture());
+            MessageSender postman = postmanCaptor.getValue();
+
+            // Warm up pools and start the thread, android.os.Message instances are pooled by framework
+            postman.deliver(PooledRunnableMessage.obtain(ActorMethodInvokeException.captureIfNeeded(Runnable.class)));
+            Assert.assertNotNull(thread.mHandler);
+            ShadowLooper looper = Shadows.shadowOf(thread.mHandler.getLooper());
+            looper.runToEndOfTasks();
+
+            final long transactionMisses = Transaction.sPool.getMissCount();
+            final long messageMisses = PooledRunnableMessage.sPool.getMissCount();
+            for (int index = 0; index < 1000; ++index) {
+                postman.deliver(PooledRunnableMessage.obtain(ActorMethodInvokeException.captureIfNeeded(Runnable.class)));
+                looper.runToEndOfTasks();
+            }
+
+            Mockito.verify(mImpl, Mockito.times(1001)).run();
+            Assert.assertEquals(transactionMisses, Transaction.sPool.getMissCount());
+            Assert.assertEquals(messageMisses, PooledRunnableMessage.sPool.getMissCount());
+        } finally {
+            CallSiteCapturePolicy.install(CallSiteCapturePolicy.always());
+        }
+    }
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IdleTrackerTest {
+    @Test
+    public void getStopDelay_configuredDelay_noGapsYet() {
+        IdleTracker tracker = new IdleTracker(1000);
+        Assert.assertEquals(1000, tracker.getStopDelay());
+    }
+
+    @Test
+    public void getStopDelay_configuredDelay_shortGaps() {
+        IdleTracker tracker = new IdleTracker(1000);
+        trackGaps(tracker, 200, 10);
+        Assert.assertEquals(1000, tracker.getStopDelay());
+    }
+
+    @Test
+    public void getStopDelay_coverUsualGap_gapsSlightlyLonger() {
+        IdleTracker tracker = new IdleTracker(1000);
+        trackGaps(tracker, 2000, 10);
+        Assert.assertEquals(2500, tracker.getStopDelay());
+    }
+
+    @Test
+    public void getStopDelay_limitDelay_gapsCloseToLimit() {
+        IdleTracker tracker = new IdleTracker(1000);
+        trackGaps(tracker, 3900, 10);
+        Assert.assertEquals(1000 * IdleTracker.MAX_FACTOR, tracker.getStopDelay());
+    }
+
+    @Test
+    public void getStopDelay_shrink_gapsLongerThanLimit() {
+        IdleTracker tracker = new IdleTracker(1000);
+        trackGaps(tracker, 60000, 10);
+        Assert.assertEquals(500, tracker.getStopDelay());
+    }
+
+    @Test
+    public void getStopDelay_adaptSmoothly_singleOutlier() {
+        IdleTracker tracker = new IdleTracker(1000);
+        trackGaps(tracker, 2000, 10);
+        trackGaps(tracker, 60000, 1);
+        // One long gap doesn't make thread stop early
+        Assert.assertTrue(tracker.getStopDelay() > 1000);
+    }
+
+    @Test
+    public void onBusy_ignore_notIdle() {
+        IdleTracker tracker = new IdleTracker(1000);
+        tracker.onBusy(5000);
+        tracker.onBusy(90000);
+        Assert.assertEquals(1000, tracker.getStopDelay());
+    }
+
+    @Test
+    public void getRemainingDelay_subtractIdleTime_idle() {
+        IdleTracker tracker = new IdleTracker(1000);
+        tracker.onIdle(5000);
+        Assert.assertEquals(700, tracker.getRemainingDelay(5300));
+        Assert.assertEquals(-100, tracker.getRemainingDelay(6100));
+    }
+
+    @Test
+    public void getRemainingDelay_fullDelay_busy() {
+        IdleTracker tracker = new IdleTracker(1000);
+        tracker.onIdle(5000);
+        tracker.onBusy(5300);
+        Assert.assertEquals(1000, tracker.getRemainingDelay(9000));
+    }
+
+    private static void trackGaps(IdleTracker tracker, long gap, int count) {
+        long now = 100000;
+        for (int index = 0; index < count; ++index) {
+            tracker.onIdle(now);
+            now += gap;
+            tracker.onBusy(now);
+            now += 10;
+        }
+    }
+}
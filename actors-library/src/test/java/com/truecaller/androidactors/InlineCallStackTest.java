@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@SuppressWarnings("unchecked")
+public class InlineCallStackTest {
+
+    private final InlineCallStack mStack = new InlineCallStack();
+
+    @Mock
+    private FailureHandler mFailureHandler;
+
+    @Mock
+    private Runnable mFirst;
+
+    @Mock
+    private Runnable mSecond;
+
+    @Mock
+    private Runnable mThird;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        Transaction.clearPool();
+    }
+
+    @Test
+    public void executeInline_reject_outsideOfCall() {
+        Message message = Mockito.mock(Message.class);
+
+        Assert.assertFalse(mStack.executeInline(Transaction.obtain(mFirst, message, mFailureHandler), 4));
+
+        Mockito.verify(message, Mockito.never()).invoke(Mockito.any());
+    }
+
+    @Test
+    public void executeInline_execute_otherActorOnStack() {
+        final Message inner = Mockito.mock(Message.class);
+        final List<Boolean> inlined = new ArrayList<>();
+        Message outer = sendFrom(mFirst, Transaction.obtain(mSecond, inner, mFailureHandler), 4, inlined);
+
+        mStack.execute(Transaction.obtain(mFirst, outer, mFailureHandler));
+
+        Assert.assertEquals(true, inlined.get(0));
+        Mockito.verify(inner).invoke(mSecond);
+    }
+
+    @Test
+    public void executeInline_reject_actorOnStack() {
+        final Message inner = Mockito.mock(Message.class);
+        final List<Boolean> inlined = new ArrayList<>();
+        Message outer = sendFrom(mFirst, Transaction.obtain(mFirst, inner, mFailureHandler), 4, inlined);
+
+        mStack.execute(Transaction.obtain(mFirst, outer, mFailureHandler));
+
+        Assert.assertEquals(false, inlined.get(0));
+        Mockito.verify(inner, Mockito.never()).invoke(Mockito.any());
+    }
+
+    @Test
+    public void executeInline_reject_maxDepthReached() {
+        final Message third = Mockito.mock(Message.class);
+        final List<Boolean> inlined = new ArrayList<>();
+        Message second = sendFrom(mSecond, Transaction.obtain(mThird, third, mFailureHandler), 1, inlined);
+        Message first = sendFrom(mFirst, Transaction.obtain(mSecond, second, mFailureHandler), 1, inlined);
+
+        mStack.execute(Transaction.obtain(mFirst, first, mFailureHandler));
+
+        // Second call was executed inline, the third one would be too deep
+        Assert.assertEquals(2, inlined.size());
+        Assert.assertEquals(false, inlined.get(0));
+        Assert.assertEquals(true, inlined.get(1));
+        Mockito.verify(third, Mockito.never()).invoke(Mockito.any());
+    }
+
+    @Test
+    public void execute_rethrowAfterCaller_failureHandlerThrows() {
+        final RuntimeException crash = new IllegalStateException();
+        final ActorInvokeException exception = Mockito.mock(ActorInvokeException.class);
+        final Message inner = Mockito.mock(Message.class);
+        Mockito.doThrow(new RuntimeException()).when(inner).invoke(mSecond);
+        Mockito.doReturn(exception).when(inner).exception();
+        Mockito.doThrow(crash).when(mFailureHandler).onUncaughtException(mSecond, inner, exception);
+        final List<Boolean> inlined = new ArrayList<>();
+        Message outer = sendFrom(mFirst, Transaction.obtain(mSecond, inner, mFailureHandler), 4, inlined);
+
+        try {
+            mStack.execute(Transaction.obtain(mFirst, outer, mFailureHandler));
+            Assert.fail("Failure handler's exception must be rethrown");
+        } catch (IllegalStateException e) {
+            Assert.assertSame(crash, e);
+        }
+
+        Assert.assertEquals(true, inlined.get(0));
+        // Caller wasn't reported as failed
+        Mockito.verify(mFailureHandler).onUncaughtException(Mockito.any(), Mockito.<Message>any(),
+                Mockito.<ActorInvokeException>any());
+    }
+
+    /**
+     * @return message which tries to execute the transaction inline when it is invoked on the actor
+     */
+    private Message sendFrom(Runnable actor, final Transaction transaction, final int maxDepth,
+                             final List<Boolean> inlined) {
+        Message message = Mockito.mock(Message.class);
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                inlined.add(mStack.executeInline(transaction, maxDepth));
+                return null;
+            }
+        }).when(message).invoke(actor);
+        return message;
+    }
+}
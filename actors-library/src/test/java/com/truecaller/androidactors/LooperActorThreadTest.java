@@ -23,14 +23,22 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.Shadows;
 import org.robolectric.annotation.Config;
 import org.robolectric.shadows.ShadowLooper;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 @RunWith(RobolectricTestRunner.class)
 @Config(manifest = Config.NONE)
 public class LooperActorThreadTest {
@@ -48,6 +56,8 @@ public class LooperActorThreadTest {
 
     private ShadowLooper mShadowLooper;
 
+    private ShadowLooper mMainLooper;
+
     @Mock
     private Runnable mActorImpl;
 
@@ -110,4 +120,216 @@ public class LooperActorThreadTest {
         Mockito.verify(mFailureHandler).onUncaughtException(mActorImpl, message, baseCallException);
         Mockito.verify(baseCallException).initCause(occurredException);
     }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void deliver_reportSlowCall_watchedThread() {
+        final Message message = Mockito.mock(Message.class);
+        Mockito.doReturn("Runnable.run()").when(message).toString();
+        Watchdog.Reporter reporter = Mockito.mock(Watchdog.Reporter.class);
+        Watchdog watchdog = Watchdog.builder(0, TimeUnit.MILLISECONDS, reporter).build();
+
+        ActorThread actorThread = watchdog.watch(new LooperActorThread(mProxyFactory, mFailureHandler, mLooper));
+        actorThread.bind(Runnable.class, mActorImpl);
+
+        ArgumentCaptor<MessageSender> postmanCaptor = ArgumentCaptor.forClass(MessageSender.class);
+        Mockito.verify(mProxyFactory).newProxy(Mockito.<Class>any(), postmanCaptor.capture());
+        postmanCaptor.getValue().deliver(message);
+        mShadowLooper.runToEndOfTasks();
+
+        Mockito.verify(message).invoke(mActorImpl);
+        Mockito.verify(reporter).onSlowCall(Mockito.eq("Runnable.run()"), Mockito.anyLong());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void deliver_trackPendingCall_monitoredThread() {
+        final Message message = Mockito.mock(Message.class);
+        Mockito.doReturn("Runnable.run()").when(message).toString();
+        MailboxMonitor monitor = new MailboxMonitor();
+
+        ActorThread actorThread = monitor.monitor(new LooperActorThread(mProxyFactory, mFailureHandler, mLooper));
+        actorThread.bind(Runnable.class, mActorImpl);
+
+        ArgumentCaptor<MessageSender> postmanCaptor = ArgumentCaptor.forClass(MessageSender.class);
+        Mockito.verify(mProxyFactory).newProxy(Mockito.<Class>any(), postmanCaptor.capture());
+        postmanCaptor.getValue().deliver(message);
+
+        Assert.assertEquals(1, monitor.depth());
+        Assert.assertEquals("[Runnable.run()]", monitor.snapshot(1).getCalls().toString());
+        mShadowLooper.runToEndOfTasks();
+
+        Mockito.verify(message).invoke(mActorImpl);
+        Assert.assertEquals(0, monitor.depth());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void deliver_skip_forgottenCall() {
+        final Message message = Mockito.mock(Message.class);
+
+        final LooperActorThread actorThread = new LooperActorThread(mProxyFactory, mFailureHandler, mLooper);
+        actorThread.bind(Runnable.class, mActorImpl);
+
+        ArgumentCaptor<MessageSender> postmanCaptor = ArgumentCaptor.forClass(MessageSender.class);
+        Mockito.verify(mProxyFactory).newProxy(Mockito.<Class>any(), postmanCaptor.capture());
+        PromiseProxy promise = new PromiseProxy(postmanCaptor.getValue(), message);
+        promise.then(Mockito.mock(ResultListener.class)).forget();
+        mShadowLooper.runToEndOfTasks();
+
+        Mockito.verify(message, Mockito.never()).invoke(Mockito.any());
+        Mockito.verifyZeroInteractions(mFailureHandler);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test(timeout = 2000)
+    public void get_invokeInline_looperThread() throws Exception {
+        final Object result = new Object();
+        final Message message = Mockito.mock(Message.class);
+        Mockito.doReturn(Promise.wrap(result)).when(message).invoke(mActorImpl);
+
+        // Tests run on the main looper
+        final LooperActorThread actorThread = new LooperActorThread(mProxyFactory, mFailureHandler,
+                Looper.getMainLooper());
+        actorThread.bind(Runnable.class, mActorImpl);
+
+        ArgumentCaptor<MessageSender> postmanCaptor = ArgumentCaptor.forClass(MessageSender.class);
+        Mockito.verify(mProxyFactory).newProxy(Mockito.<Class>any(), postmanCaptor.capture());
+        PromiseProxy promise = new PromiseProxy(postmanCaptor.getValue(), message);
+
+        Assert.assertSame(result, promise.get());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void deliver_executeInline_sameThreadCallsEnabled() {
+        final Runnable cache = Mockito.mock(Runnable.class);
+        final Message cacheCall = Mockito.mock(Message.class);
+        final Message repositoryCall = Mockito.mock(Message.class);
+        final MessageSender[] postmen = bindRepositoryAndCache(cache, SameThreadCalls.DEFAULT_MAX_DEPTH);
+        final List<String> calls = new ArrayList<>();
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                calls.add("cache");
+                return null;
+            }
+        }).when(cacheCall).invoke(cache);
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                postmen[1].deliver(cacheCall);
+                // Executed before the caller continues
+                calls.add("repository");
+                return null;
+            }
+        }).when(repositoryCall).invoke(mActorImpl);
+
+        postmen[0].deliver(repositoryCall);
+        mMainLooper.runOneTask();
+
+        Assert.assertEquals(Arrays.asList("cache", "repository"), calls);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void deliver_keepOrder_earlierCallPending() {
+        final Runnable cache = Mockito.mock(Runnable.class);
+        final Message earlierCall = Mockito.mock(Message.class);
+        final Message cacheCall = Mockito.mock(Message.class);
+        final Message repositoryCall = Mockito.mock(Message.class);
+        final MessageSender[] postmen = bindRepositoryAndCache(cache, SameThreadCalls.DEFAULT_MAX_DEPTH);
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                postmen[1].deliver(cacheCall);
+                return null;
+            }
+        }).when(repositoryCall).invoke(mActorImpl);
+
+        postmen[0].deliver(repositoryCall);
+        postmen[1].deliver(earlierCall);
+        mMainLooper.runOneTask();
+        Mockito.verifyZeroInteractions(cacheCall);
+        mMainLooper.runToEndOfTasks();
+
+        InOrder order = Mockito.inOrder(earlierCall, cacheCall);
+        order.verify(earlierCall).invoke(cache);
+        order.verify(cacheCall).invoke(cache);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void deliver_queue_sameThreadCallsDisabled() {
+        final Runnable cache = Mockito.mock(Runnable.class);
+        final Message cacheCall = Mockito.mock(Message.class);
+        final Message repositoryCall = Mockito.mock(Message.class);
+        final MessageSender[] postmen = bindRepositoryAndCache(cache, 0);
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                postmen[1].deliver(cacheCall);
+                return null;
+            }
+        }).when(repositoryCall).invoke(mActorImpl);
+
+        postmen[0].deliver(repositoryCall);
+        mMainLooper.runOneTask();
+        Mockito.verifyZeroInteractions(cacheCall);
+        mMainLooper.runToEndOfTasks();
+
+        Mockito.verify(cacheCall).invoke(cache);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void enable_throw_unsupportedThread() {
+        SameThreadCalls.enable(Mockito.mock(ActorThread.class));
+    }
+
+    /**
+     * @return senders of {@link #mActorImpl} and the cache actor bound to the same thread
+     */
+    private MessageSender[] bindRepositoryAndCache(Runnable cache, int maxDepth) {
+        // Tests run on the main looper, so it is the actor thread
+        mMainLooper = Shadows.shadowOf(Looper.getMainLooper());
+        mMainLooper.pause();
+        final LooperActorThread actorThread = new LooperActorThread(mProxyFactory, mFailureHandler,
+                Looper.getMainLooper());
+        SameThreadCalls.enable(new MailboxMonitor().monitor(actorThread), maxDepth);
+        actorThread.bind(Runnable.class, mActorImpl);
+        actorThread.bind(Runnable.class, cache);
+
+        ArgumentCaptor<MessageSender> postmanCaptor = ArgumentCaptor.forClass(MessageSender.class);
+        Mockito.verify(mProxyFactory, Mockito.times(2)).newProxy(Mockito.<Class>any(), postmanCaptor.capture());
+        return postmanCaptor.getAllValues().toArray(new MessageSender[2]);
+    }
+
+    @Test
+    public void deliver_reusePooledObjects_voidMessagesInSteadyState() {
+        // Robolectric's scheduler allocates for every looper message, so only pool misses are checked here,
+        // allocations are counted by ExecutorActorThreadTest
+        CallSiteCapturePolicy.install(CallSiteCapturePolicy.off());
+        try {
+            final LooperActorThread actorThread = new LooperActorThread(mProxyFactory, mFailureHandler, mLooper);
+            actorThread.bind(Runnable.class, mActorImpl);
+            ArgumentCaptor<MessageSender> postmanCaptor = ArgumentCaptor.forClass(MessageSender.class);
+            Mockito.verify(mProxyFactory).newProxy(Mockito.<Class>any(), postmanCaptor.capture());
+            MessageSender postman = postmanCaptor.getValue();
+
+            // Warm up pools, android.os.Message instances are pooled by framework
+            postman.deliver(PooledRunnableMessage.obtain(ActorMethodInvokeException.captureIfNeeded(Runnable.class)));
+            mShadowLooper.runToEndOfTasks();
+
+            final long messageMisses = PooledRunnableMessage.sPool.getMissCount();
+            for (int index = 0; index < 1000; ++index) {
+                postman.deliver(PooledRunnableMessage.obtain(ActorMethodInvokeException.captureIfNeeded(Runnable.class)));
+                mShadowLooper.runToEndOfTasks();
+            }
+
+            Mockito.verify(mActorImpl, Mockito.times(1001)).run();
+            Assert.assertEquals(messageMisses, PooledRunnableMessage.sPool.getMissCount());
+        } finally {
+            CallSiteCapturePolicy.install(CallSiteCapturePolicy.always());
+        }
+    }
 }
@@ -22,6 +22,7 @@ import android.content.Intent;
 import android.content.ServiceConnection;
 import android.os.Binder;
 import android.os.IBinder;
+import android.os.Process;
 import android.os.RemoteException;
 import org.junit.Assert;
 import org.junit.Before;
@@ -169,6 +170,36 @@ public class ServiceActorThreadTest {
         Assert.assertSame(message, transaction.message);
     }
 
+    @Test
+    public void deliver_applyPriority_serviceConnected() {
+        ShadowApplication application = ShadowApplication.getInstance();
+        ServiceActorThread thread = new ServiceActorThread(application.getApplicationContext(), mProxyFactory,
+                mFailureHandler, ActorService.class, 1, null, Process.THREAD_PRIORITY_BACKGROUND);
+        thread.bind(Runnable.class, mActorImpl);
+
+        ArgumentCaptor<MessageSender> postmanCaptor = ArgumentCaptor.forClass(MessageSender.class);
+        Mockito.verify(mProxyFactory).newProxy(Mockito.<Class>any(), postmanCaptor.capture());
+        Mockito.doReturn(true).when(mMessageSender).deliver(Mockito.any(Transaction.class));
+        postmanCaptor.getValue().deliver(Mockito.mock(Message.class));
+
+        Mockito.verify(mMessageSender).setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+    }
+
+    @Test
+    public void deliver_keepServicePriority_noPriorityGiven() {
+        ShadowApplication application = ShadowApplication.getInstance();
+        ServiceActorThread thread = new ServiceActorThread(application.getApplicationContext(), mProxyFactory,
+                mFailureHandler, ActorService.class, 1);
+        thread.bind(Runnable.class, mActorImpl);
+
+        ArgumentCaptor<MessageSender> postmanCaptor = ArgumentCaptor.forClass(MessageSender.class);
+        Mockito.verify(mProxyFactory).newProxy(Mockito.<Class>any(), postmanCaptor.capture());
+        Mockito.doReturn(true).when(mMessageSender).deliver(Mockito.any(Transaction.class));
+        postmanCaptor.getValue().deliver(Mockito.mock(Message.class));
+
+        Mockito.verify(mMessageSender, Mockito.never()).setThreadPriority(Mockito.anyInt());
+    }
+
     @Test
     public void emptyInterfaceTest() {
         ShadowApplication application = ShadowApplication.getInstance();
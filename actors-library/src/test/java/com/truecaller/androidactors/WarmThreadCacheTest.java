@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import android.os.HandlerThread;
+import android.os.Process;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.Shadows;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class WarmThreadCacheTest {
+    @Test
+    public void obtain_startNewThread_emptyCache() {
+        WarmThreadCache cache = new WarmThreadCache(2, 1000);
+
+        HandlerThread thread = cache.obtain("Actor", Process.THREAD_PRIORITY_BACKGROUND);
+
+        Assert.assertTrue(thread.isAlive());
+        Assert.assertEquals("Actor", thread.getName());
+        Assert.assertNotNull(thread.getLooper());
+        thread.quit();
+    }
+
+    @Test
+    public void obtain_reuseThread_recycled() {
+        WarmThreadCache cache = new WarmThreadCache(2, 1000);
+        HandlerThread thread = cache.obtain("First", Process.THREAD_PRIORITY_DEFAULT);
+
+        cache.recycle(thread);
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals(WarmThreadCache.IDLE_THREAD_NAME, thread.getName());
+
+        Assert.assertSame(thread, cache.obtain("Second", Process.THREAD_PRIORITY_BACKGROUND));
+        Assert.assertEquals("Second", thread.getName());
+        Assert.assertEquals(0, cache.size());
+
+        // Expiration was cancelled
+        Shadows.shadowOf(thread.getLooper()).runToEndOfTasks();
+        Assert.assertFalse(Shadows.shadowOf(thread.getLooper()).hasQuit());
+        thread.quit();
+    }
+
+    @Test
+    public void recycle_quitThread_cacheFull() {
+        WarmThreadCache cache = new WarmThreadCache(1, 1000);
+        HandlerThread first = cache.obtain("First", Process.THREAD_PRIORITY_DEFAULT);
+        HandlerThread second = cache.obtain("Second", Process.THREAD_PRIORITY_DEFAULT);
+        // HandlerThread gives no looper once it is dead
+        ShadowLooper firstLooper = Shadows.shadowOf(first.getLooper());
+        ShadowLooper secondLooper = Shadows.shadowOf(second.getLooper());
+
+        cache.recycle(first);
+        cache.recycle(second);
+
+        Assert.assertEquals(1, cache.size());
+        Assert.assertFalse(firstLooper.hasQuit());
+        Assert.assertTrue(secondLooper.hasQuit());
+        first.quit();
+    }
+
+    @Test
+    public void recycle_quitThread_keepAliveExpired() {
+        WarmThreadCache cache = new WarmThreadCache(2, 1000);
+        HandlerThread thread = cache.obtain("Actor", Process.THREAD_PRIORITY_DEFAULT);
+        cache.recycle(thread);
+
+        ShadowLooper looper = Shadows.shadowOf(thread.getLooper());
+        looper.idle(999);
+        Assert.assertEquals(1, cache.size());
+        looper.idle(1);
+
+        Assert.assertEquals(0, cache.size());
+        Assert.assertTrue(looper.hasQuit());
+    }
+}
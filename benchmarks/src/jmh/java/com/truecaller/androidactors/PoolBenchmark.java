@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors;
+
+import androidx.annotation.NonNull;
+import com.truecaller.androidactors.benchmarks.Counter;
+import com.truecaller.androidactors.benchmarks.Counter$Proxy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Object pools on the way from the caller to the actor under contention. Lives in the library
+ * package to reach {@link Transaction}
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PoolBenchmark {
+
+    private final Object mImpl = new Object();
+
+    private final FailureHandler mFailureHandler = new CrashEarlyFailureHandler();
+
+    private final Message<Object, Void> mMessage = new MessageBase<Object, Void>() {
+        @Override
+        public Promise<Void> invoke(@NonNull Object target) {
+            return null;
+        }
+    };
+
+    private Counter mProxy;
+
+    @Setup
+    public void setup() {
+        CallSiteCapturePolicy.install(CallSiteCapturePolicy.off());
+        mProxy = new Counter$Proxy(new MessageSender() {
+            @Override
+            public void deliver(@NonNull Message message) {
+                MessageBase.recycleDelivered(message);
+            }
+        });
+    }
+
+    private void transaction() {
+        Transaction.obtain(mImpl, mMessage, mFailureHandler).recycle();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void transaction_1() {
+        transaction();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void transaction_4() {
+        transaction();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void transaction_16() {
+        transaction();
+    }
+
+    /**
+     * Message of void method obtained by the generated proxy and returned to its pool
+     */
+    @Benchmark
+    @Threads(1)
+    public void message_1() {
+        mProxy.increment(1);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void message_4() {
+        mProxy.increment(1);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void message_16() {
+        mProxy.increment(1);
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors.benchmarks;
+
+import androidx.annotation.NonNull;
+import com.truecaller.androidactors.Promise;
+
+/* package */ class CounterImpl implements Counter {
+
+    private long mValue;
+
+    @Override
+    public void increment(long delta) {
+        mValue += delta;
+    }
+
+    @NonNull
+    @Override
+    public Promise<Long> add(long delta) {
+        mValue += delta;
+        return Promise.wrap(mValue);
+    }
+
+    @NonNull
+    @Override
+    public Promise<Long> get() {
+        return Promise.wrap(mValue);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors.benchmarks;
+
+import com.truecaller.androidactors.ActorThread;
+import com.truecaller.androidactors.CallSiteCapturePolicy;
+import com.truecaller.androidactors.CoreActorsThreads;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of actors on executor actor thread: batch of void calls spread over the actors,
+ * then a call with result to each actor to wait until the batch is done
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ExecutorActorThreadBenchmark {
+
+    private static final int BATCH = 1000;
+
+    @Param({"1", "16"})
+    public int actors;
+
+    @Param({"1", "4"})
+    public int executorThreads;
+
+    private ExecutorService mExecutor;
+
+    private Counter[] mCounters;
+
+    private final Waiter<Long> mWaiter = new Waiter<>();
+
+    @Setup
+    public void setup() {
+        CallSiteCapturePolicy.install(CallSiteCapturePolicy.off());
+        CoreActorsThreads threads = new ActorsBuilder().build();
+        mExecutor = Executors.newFixedThreadPool(executorThreads);
+        ActorThread thread = threads.createThread(mExecutor);
+        mCounters = new Counter[actors];
+        for (int index = 0; index < actors; ++index) {
+            mCounters[index] = thread.bind(Counter.class, new CounterImpl()).tell();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        mExecutor.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public Long increment() {
+        final Counter[] counters = mCounters;
+        for (int index = 0; index < BATCH; ++index) {
+            counters[index % counters.length].increment(1);
+        }
+
+        Long result = null;
+        for (Counter counter : counters) {
+            mWaiter.reset();
+            counter.get().then(mWaiter);
+            result = mWaiter.await();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors.benchmarks;
+
+import com.truecaller.androidactors.ActorThread;
+import com.truecaller.androidactors.CallSiteCapturePolicy;
+import com.truecaller.androidactors.CoreActorsThreads;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trip of a call which returns {@link com.truecaller.androidactors.Promise}: from the caller to the actor
+ * and back to the caller
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PromiseBenchmark {
+
+    private Counter mCounter;
+
+    private ActorThread mListenerThread;
+
+    private final Waiter<Long> mWaiter = new Waiter<>();
+
+    @Setup
+    public void setup() {
+        CallSiteCapturePolicy.install(CallSiteCapturePolicy.off());
+        CoreActorsThreads threads = new ActorsBuilder().build();
+        mCounter = threads.createThread("counter", 1000).bind(Counter.class, new CounterImpl()).tell();
+        mListenerThread = threads.createThread("listener", 1000);
+    }
+
+    /**
+     * Result is delivered to the listener on the actor's thread
+     */
+    @Benchmark
+    public Long then() {
+        mWaiter.reset();
+        mCounter.add(1).then(mWaiter);
+        return mWaiter.await();
+    }
+
+    /**
+     * Result hops to the listener's actor thread
+     */
+    @Benchmark
+    public Long thenOnThread() {
+        mWaiter.reset();
+        mCounter.add(1).then(mListenerThread, mWaiter);
+        return mWaiter.await();
+    }
+
+    @Benchmark
+    public Long get() throws InterruptedException {
+        return mCounter.add(1).get();
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors.benchmarks;
+
+import com.truecaller.androidactors.CallSiteCapturePolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a call on the caller side: generated proxy, message construction or pool obtain, call site capture
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProxyBenchmark {
+
+    @Param({"off", "always"})
+    public String capture;
+
+    private Counter mProxy;
+
+    @Setup
+    public void setup() {
+        CallSiteCapturePolicy.install("always".equals(capture)
+                ? CallSiteCapturePolicy.always() : CallSiteCapturePolicy.off());
+        mProxy = new Counter$Proxy(new RecyclingSender());
+    }
+
+    /**
+     * Pooled message of void method
+     */
+    @Benchmark
+    public void voidCall() {
+        mProxy.increment(1);
+    }
+
+    /**
+     * New message and promise of method which returns result
+     */
+    @Benchmark
+    public void promiseCall() {
+        mProxy.add(1).thenNothing();
+    }
+}
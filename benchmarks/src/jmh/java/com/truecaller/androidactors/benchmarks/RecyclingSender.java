@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors.benchmarks;
+
+import androidx.annotation.NonNull;
+import com.truecaller.androidactors.Message;
+import com.truecaller.androidactors.MessageBase;
+import com.truecaller.androidactors.MessageSender;
+
+/**
+ * Sender which returns messages to their pools right away, so benchmarks measure only the caller side
+ */
+/* package */ class RecyclingSender implements MessageSender {
+    @Override
+    public void deliver(@NonNull Message message) {
+        if (message instanceof MessageBase) {
+            ((MessageBase) message).recycle();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors.benchmarks;
+
+import com.truecaller.androidactors.ActorThread;
+import com.truecaller.androidactors.CallSiteCapturePolicy;
+import com.truecaller.androidactors.CoreActorsThreads;
+import com.truecaller.androidactors.ResultListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Results passed through {@link ResultListener} bound to another actor thread, the path every
+ * {@code then(thread, listener)} result takes
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ResultListenerBenchmark {
+
+    private static final int BATCH = 100;
+
+    private final Waiter<Long> mWaiter = new Waiter<>();
+
+    private final CountingListener mCounting = new CountingListener();
+
+    private ResultListener<Long> mHop;
+
+    private ResultListener<Long> mCountingHop;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        CallSiteCapturePolicy.install(CallSiteCapturePolicy.off());
+        CoreActorsThreads threads = new ActorsBuilder().build();
+        ActorThread thread = threads.createThread("listener", 1000);
+        mHop = thread.bind(ResultListener.class, mWaiter).tell();
+        mCountingHop = thread.bind(ResultListener.class, mCounting).tell();
+    }
+
+    /**
+     * One result and wait until listener gets it
+     */
+    @Benchmark
+    public Long hop() {
+        mWaiter.reset();
+        mHop.onResult(1L);
+        return mWaiter.await();
+    }
+
+    /**
+     * Batch of results, listener thread drains them while caller keeps sending
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public Long hopBatch() {
+        mWaiter.reset();
+        for (int index = 0; index < BATCH - 1; ++index) {
+            mCountingHop.onResult((long) index);
+        }
+        mHop.onResult((long) BATCH);
+        return mWaiter.await();
+    }
+
+    private static class CountingListener implements ResultListener<Long> {
+        private long mCount;
+
+        @Override
+        public void onResult(Long result) {
+            ++mCount;
+        }
+    }
+}
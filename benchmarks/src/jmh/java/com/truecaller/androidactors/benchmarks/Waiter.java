@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2017 True Software Scandinavia AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.truecaller.androidactors.benchmarks;
+
+import androidx.annotation.Nullable;
+import com.truecaller.androidactors.ResultListener;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Listener which lets benchmark thread wait for the result. One instance per benchmark thread,
+ * so waiting doesn't allocate
+ */
+/* package */ class Waiter<R> implements ResultListener<R> {
+
+    @Nullable
+    private volatile Thread mThread;
+
+    private volatile boolean mDone;
+
+    @Nullable
+    private R mResult;
+
+    /* package */ void reset() {
+        mThread = Thread.currentThread();
+        mDone = false;
+    }
+
+    @Override
+    public void onResult(@Nullable R result) {
+        mResult = result;
+        mDone = true;
+        LockSupport.unpark(mThread);
+    }
+
+    @Nullable
+    /* package */ R await() {
+        while (!mDone) {
+            LockSupport.park(this);
+        }
+        return mResult;
+    }
+}
@@ -14,8 +14,8 @@
  * limitations under the License.
  */
 
-package com.truecaller.androidactors;
 
-public interface ActorRef<T> {
-    T tell();
-}
+@ActorsPackage
+package com.truecaller.androidactors.benchmarks;
+
+import com.truecaller.androidactors.ActorsPackage;
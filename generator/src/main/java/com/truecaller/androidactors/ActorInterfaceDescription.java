@@ -48,6 +48,13 @@ public interface ActorInterfaceDescription {
 
         Iterable<? extends Argument> arguments();
 
+        int getPriority();
+
+        /**
+         * @return one of {@link Coalesce} modes
+         */
+        int getCoalesce();
+
         interface Argument {
             @NotNull
             String getName();
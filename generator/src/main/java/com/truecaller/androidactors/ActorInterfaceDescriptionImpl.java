@@ -129,8 +129,13 @@ import androidx.annotation.NonNull;
             arguments.add(argument);
         }
 
+        Priority priority = method.getAnnotation(Priority.class);
+        Coalesce coalesce = method.getAnnotation(Coalesce.class);
+
         return new Method(method,
                 method.getAnnotation(NonNull.class) != null,
+                priority == null ? Priority.NORMAL : priority.value(),
+                coalesce == null ? Coalesce.NONE : coalesce.value(),
                 typeParameters != null && !typeParameters.isEmpty(),
                 method.getReturnType(),
                 exceptions != null && !exceptions.isEmpty(),
@@ -153,14 +158,22 @@ import androidx.annotation.NonNull;
 
         private final boolean mHasExceptions;
 
+        private final int mPriority;
+
+        private final int mCoalesce;
+
         private Method(@NotNull ExecutableElement element,
                        boolean isNonNull,
+                       int priority,
+                       int coalesce,
                        boolean hasTypeParameters,
                        @NotNull TypeMirror returnType,
                        boolean hasExceptions,
                        @NotNull List<Argument> arguments) {
             mElement = element;
             this.mIsNonNull = isNonNull;
+            this.mPriority = priority;
+            this.mCoalesce = coalesce;
             this.mReturnType = returnType;
             this.mHasExceptions = hasExceptions;
             this.mHasTypeParameters = hasTypeParameters;
@@ -176,6 +189,14 @@ import androidx.annotation.NonNull;
                 errors.add(new GenerationError(GenerationError.ER0004, mElement));
             }
 
+            if (mPriority < Priority.LOW || mPriority > Priority.HIGH) {
+                errors.add(new GenerationError(GenerationError.ER0012, mElement));
+            }
+
+            if (mCoalesce != Coalesce.NONE && mCoalesce != Coalesce.LATEST && mCoalesce != Coalesce.SAME_ARGUMENTS) {
+                errors.add(new GenerationError(GenerationError.ER0013, mElement));
+            }
+
             if (mReturnType.getKind() != TypeKind.VOID) {
                 boolean isInvalidType = true;
 
@@ -234,6 +255,16 @@ import androidx.annotation.NonNull;
             return mArguments;
         }
 
+        @Override
+        public int getPriority() {
+            return mPriority;
+        }
+
+        @Override
+        public int getCoalesce() {
+            return mCoalesce;
+        }
+
         private static class Argument implements ActorInterfaceDescription.Method.Argument {
             private final VariableElement mElement;
 
@@ -19,6 +19,8 @@ package com.truecaller.androidactors;
 import androidx.annotation.NonNull;
 import com.squareup.javapoet.AnnotationSpec;
 import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.JavaFile;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.ParameterSpec;
@@ -43,6 +45,7 @@ import java.util.List;
 
     private static final String MESSAGE_SENDER_FIELD = "mMessageSender";
     private static final String MESSAGE_SENDER_PARAM = "messageSender";
+    /* package */ static final String FIELD_METHOD_ID_BASE = "METHOD_ID_BASE";
 
     @NotNull
     private final TypeElement mActor;
@@ -65,12 +68,17 @@ import java.util.List;
         _class.addSuperinterface(ClassName.get(mActor));
         _class.addJavadoc("@hide");
 
+        if (!mMessages.isEmpty()) {
+            _class.addField(generateMethodIdBase());
+        }
+
         _class.addMethod(generateConstructor());
         _class.addMethod(generateCompareMethod());
 
         TypeName actorType = TypeName.get(mActor.asType());
-        for (Message message : mMessages) {
-            TypeSpec messageType = message.generate(actorType, namesProvider);
+        for (int index = 0; index < mMessages.size(); ++index) {
+            Message message = mMessages.get(index);
+            TypeSpec messageType = message.generate(actorType, namesProvider, index);
             _class.addType(messageType);
             _class.addMethod(generateMethod(message, messageType));
 
@@ -117,6 +125,20 @@ import java.util.List;
         return "";
     }
 
+    /**
+     * Methods are registered once per process, message of n-th method reports base + n as its id
+     */
+    @NotNull
+    private FieldSpec generateMethodIdBase() {
+        CodeBlock.Builder names = CodeBlock.builder();
+        for (Message message : mMessages) {
+            names.add(", $S", message.methodName);
+        }
+        return FieldSpec.builder(int.class, FIELD_METHOD_ID_BASE, Modifier.STATIC, Modifier.FINAL)
+                .initializer("$T.register($T.class$L)", ActorMethods.class, ClassName.get(mActor), names.build())
+                .build();
+    }
+
     @NotNull
     private MethodSpec generateConstructor() {
         MethodSpec.Builder constructor = MethodSpec.constructorBuilder();
@@ -153,21 +175,36 @@ import java.util.List;
             call.append("return Promise.wrap(").append(MESSAGE_SENDER_FIELD).append(", ");
         }
         method.returns(promise);
-        call.append("new ").append(messageClass.name).append("(new ActorMethodInvokeException()");
+        if (message.isPooled()) {
+            call.append(messageClass.name).append('.').append(Message.METHOD_OBTAIN);
+        } else {
+            call.append("new ").append(messageClass.name);
+        }
+        call.append("($T.captureIfNeeded($T.class)");
 
         for (Message.Argument argument : message.arguments) {
             method.addParameter(argument.generate());
-            call.append(", ").append(argument.name);
+            call.append(", ").append(argument.name.replace("$", "$$"));
         }
         call.append("))");
 
-        method.addStatement(call.toString());
+        method.addStatement(call.toString(), ClassName.get(ActorMethodInvokeException.class), ClassName.get(mActor));
 
         return method.build();
     }
 
     /* package */ static class Message {
 
+        /* package */ static final String FIELD_POOL = "sPool";
+        /* package */ static final String METHOD_OBTAIN = "obtain";
+        /* package */ static final String METHOD_RESET = "reset";
+        private static final String METHOD_SET_PRIORITY = "setPriority";
+        private static final String METHOD_SET_COALESCE = "setCoalesce";
+        /* package */ static final String METHOD_HAS_SAME_ARGUMENTS = "hasSameArguments";
+        /* package */ static final String METHOD_GET_METHOD_ID = "getMethodId";
+        /* package */ static final String METHOD_BIND_CANCELLATION_TOKEN = "bindCancellationToken";
+        private static final String LOCAL_MESSAGE = "_message";
+
         @NotNull
         final String methodName;
 
@@ -176,8 +213,14 @@ import java.util.List;
 
         final List<Argument> arguments = new ArrayList<>();
 
+        final int priority;
+
+        final int coalesce;
+
         /* package */ Message(@NotNull ActorInterfaceDescription.Method method) {
             methodName = method.getName();
+            priority = method.getPriority();
+            coalesce = method.getCoalesce();
             TypeMirror promised = method.getPromisedType();
             resultType = promised != null ? TypeName.get(promised) : null;
 
@@ -187,34 +230,199 @@ import java.util.List;
             }
         }
 
-        /* package */ TypeSpec generate(@NotNull TypeName actor, @NotNull NamesProvider namesProvider) {
+        /**
+         * @param index index of the method in the actor interface
+         */
+        /* package */ TypeSpec generate(@NotNull TypeName actor, @NotNull NamesProvider namesProvider, int index) {
             TypeName result = resultType == null ? TypeName.get(Void.class) : resultType;
             TypeSpec.Builder _class = TypeSpec.classBuilder(namesProvider.buildMessageName(methodName));
             ParameterizedTypeName baseClass = ParameterizedTypeName.get(ClassName.get(MessageBase.class), actor, result);
             _class.superclass(baseClass);
             _class.addModifiers(Modifier.PRIVATE, Modifier.STATIC);
 
-            _class.addMethod(createConstructor(_class));
+            if (isPooled()) {
+                ClassName self = ClassName.get("", _class.build().name);
+                _class.addField(createPool(self));
+                MethodSpec.Builder constructor = MethodSpec.constructorBuilder().addModifiers(Modifier.PRIVATE);
+                if (coalesce != Coalesce.NONE) {
+                    constructor.addStatement("$N($L)", METHOD_SET_COALESCE, coalesce);
+                }
+                _class.addMethod(constructor.build());
+                _class.addMethod(createObtain(_class, self));
+                _class.addMethod(createReset());
+                _class.addMethod(createRecycle());
+            } else {
+                _class.addMethod(createConstructor(_class));
+            }
+            if (coalesce == Coalesce.SAME_ARGUMENTS && hasComparableArguments()) {
+                _class.addMethod(createHasSameArguments(_class, actor, result));
+            }
             _class.addMethod(createInvoke(actor, result));
+            _class.addMethod(createGetMethodId(index));
             _class.addMethod(createToString());
 
             return _class.build();
         }
 
+        /**
+         * Messages of void methods aren't referenced by anybody after delivery,
+         * so they can be reused
+         */
+        /* package */ boolean isPooled() {
+            return resultType == null;
+        }
+
+        /**
+         * Cancellation tokens are unique for every call, so they don't take part in comparison
+         */
+        private boolean hasComparableArguments() {
+            for (Argument argument : arguments) {
+                if (!argument.isCancellationToken()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
         @NotNull
         private MethodSpec createConstructor(@NotNull TypeSpec.Builder _class) {
             MethodSpec.Builder constructor = MethodSpec.constructorBuilder()
                     .addModifiers(Modifier.PRIVATE);
             constructor.addParameter(ClassName.get(ActorMethodInvokeException.class), "exception");
             constructor.addStatement("super(exception)");
+            if (priority != Priority.NORMAL) {
+                constructor.addStatement("$N($L)", METHOD_SET_PRIORITY, priority);
+            }
+            if (coalesce != Coalesce.NONE) {
+                constructor.addStatement("$N($L)", METHOD_SET_COALESCE, coalesce);
+            }
             for (Argument argument : arguments) {
                 _class.addField(argument.type, argument.name, Modifier.PRIVATE, Modifier.FINAL);
                 constructor.addParameter(argument.type, argument.name);
-                constructor.addStatement("this.$N = $N", argument.name, argument.name);
+                if (argument.isCancellationToken()) {
+                    constructor.addStatement("this.$N = $N($N)", argument.name, METHOD_BIND_CANCELLATION_TOKEN, argument.name);
+                } else {
+                    constructor.addStatement("this.$N = $N", argument.name, argument.name);
+                }
             }
             return constructor.build();
         }
 
+        @NotNull
+        private FieldSpec createPool(@NotNull ClassName self) {
+            ParameterizedTypeName poolType = ParameterizedTypeName.get(ClassName.get(ObjectPool.class), self);
+            ParameterizedTypeName factoryType = ParameterizedTypeName.get(ClassName.get(ObjectPool.Factory.class), self);
+            TypeSpec factory = TypeSpec.anonymousClassBuilder("")
+                    .addSuperinterface(factoryType)
+                    .addMethod(MethodSpec.methodBuilder("create")
+                            .addAnnotation(Override.class)
+                            .addAnnotation(NonNull.class)
+                            .addModifiers(Modifier.PUBLIC)
+                            .returns(self)
+                            .addStatement("return new $T()", self)
+                            .build())
+                    .build();
+
+            return FieldSpec.builder(poolType, FIELD_POOL, Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                    .initializer("new $T<>($L, $N)", ObjectPool.class, factory, "DEFAULT_POOL_SIZE")
+                    .build();
+        }
+
+        @NotNull
+        private MethodSpec createObtain(@NotNull TypeSpec.Builder _class, @NotNull ClassName self) {
+            MethodSpec.Builder method = MethodSpec.methodBuilder(METHOD_OBTAIN)
+                    .addModifiers(Modifier.STATIC)
+                    .returns(self);
+            method.addParameter(ClassName.get(ActorMethodInvokeException.class), "exception");
+            method.addStatement("$T $N = $N.acquire()", self, LOCAL_MESSAGE, FIELD_POOL);
+            method.addStatement("$N.setExceptionTemplate($N)", LOCAL_MESSAGE, "exception");
+            if (priority != Priority.NORMAL) {
+                method.addStatement("$N.$N($L)", LOCAL_MESSAGE, METHOD_SET_PRIORITY, priority);
+            }
+            for (Argument argument : arguments) {
+                _class.addField(argument.type, argument.name, Modifier.PRIVATE);
+                method.addParameter(argument.type, argument.name);
+                if (argument.isCancellationToken()) {
+                    method.addStatement("$N.$N = $N.$N($N)", LOCAL_MESSAGE, argument.name, LOCAL_MESSAGE,
+                            METHOD_BIND_CANCELLATION_TOKEN, argument.name);
+                } else {
+                    method.addStatement("$N.$N = $N", LOCAL_MESSAGE, argument.name, argument.name);
+                }
+            }
+            method.addStatement("return $N", LOCAL_MESSAGE);
+            return method.build();
+        }
+
+        @NotNull
+        private MethodSpec createReset() {
+            MethodSpec.Builder method = MethodSpec.methodBuilder(METHOD_RESET)
+                    .addModifiers(Modifier.PRIVATE);
+            method.addStatement("setExceptionTemplate(null)");
+            // Priority could be changed for a single call
+            method.addStatement("$N($T.NORMAL)", METHOD_SET_PRIORITY, Priority.class);
+            for (Argument argument : arguments) {
+                // Primitives don't hold references, no need to clean them
+                if (!argument.type.isPrimitive()) {
+                    method.addStatement("this.$N = null", argument.name);
+                }
+            }
+            return method.build();
+        }
+
+        @NotNull
+        private MethodSpec createRecycle() {
+            return MethodSpec.methodBuilder("recycle")
+                    .addModifiers(Modifier.PUBLIC)
+                    .addAnnotation(Override.class)
+                    .addStatement("$N()", METHOD_RESET)
+                    .addStatement("$N.release(this)", FIELD_POOL)
+                    .build();
+        }
+
+        @NotNull
+        private MethodSpec createHasSameArguments(@NotNull TypeSpec.Builder _class, @NotNull TypeName actor,
+                                                  @NotNull TypeName result) {
+            ClassName self = ClassName.get("", _class.build().name);
+            MethodSpec.Builder method = MethodSpec.methodBuilder(METHOD_HAS_SAME_ARGUMENTS)
+                    .returns(TypeName.BOOLEAN)
+                    .addAnnotation(Override.class)
+                    .addModifiers(Modifier.PROTECTED)
+                    .addParameter(ParameterSpec.builder(
+                            ParameterizedTypeName.get(ClassName.get(MessageBase.class), actor, result), "other")
+                            .addAnnotation(NonNull.class)
+                            .build());
+            method.addStatement("$T $N = ($T) other", self, LOCAL_MESSAGE, self);
+
+            List<Argument> compared = new ArrayList<>();
+            for (Argument argument : arguments) {
+                if (!argument.isCancellationToken()) {
+                    compared.add(argument);
+                }
+            }
+
+            StringBuilder condition = new StringBuilder("return ");
+            Iterator<Argument> it = compared.iterator();
+            while (it.hasNext()) {
+                Argument argument = it.next();
+                if (argument.type.equals(TypeName.FLOAT) || argument.type.equals(TypeName.DOUBLE)) {
+                    // NaN has to be equal to itself
+                    condition.append(argument.type.box()).append(".compare(this.").append(argument.name)
+                            .append(", ").append(LOCAL_MESSAGE).append('.').append(argument.name).append(") == 0");
+                } else if (argument.type.isPrimitive()) {
+                    condition.append("this.").append(argument.name).append(" == ")
+                            .append(LOCAL_MESSAGE).append('.').append(argument.name);
+                } else {
+                    condition.append("equal(this.").append(argument.name).append(", ")
+                            .append(LOCAL_MESSAGE).append('.').append(argument.name).append(')');
+                }
+                if (it.hasNext()) {
+                    condition.append("$W&& ");
+                }
+            }
+            method.addStatement(condition.toString());
+            return method.build();
+        }
+
         @NotNull
         private MethodSpec createInvoke(@NotNull TypeName actor, @NotNull TypeName result) {
             ClassName promise = ClassName.get(Promise.class);
@@ -248,6 +456,16 @@ import java.util.List;
             return method.build();
         }
 
+        @NotNull
+        private MethodSpec createGetMethodId(int index) {
+            return MethodSpec.methodBuilder(METHOD_GET_METHOD_ID)
+                    .addModifiers(Modifier.PUBLIC)
+                    .addAnnotation(Override.class)
+                    .returns(int.class)
+                    .addStatement("return $N + $L", FIELD_METHOD_ID_BASE, index)
+                    .build();
+        }
+
         @NotNull
         private MethodSpec createToString() {
             MethodSpec.Builder method = MethodSpec.methodBuilder("toString")
@@ -280,6 +498,8 @@ import java.util.List;
         }
 
         static class Argument {
+            private static final TypeName CANCELLATION_TOKEN = ClassName.get(CancellationToken.class);
+
             @NotNull
             /* package */ final String name;
 
@@ -297,6 +517,10 @@ import java.util.List;
                 secureLevel = argument.getSecureLevel();
             }
 
+            /* package */ boolean isCancellationToken() {
+                return CANCELLATION_TOKEN.equals(type);
+            }
+
             ParameterSpec generate() {
                 ParameterSpec.Builder builder = ParameterSpec.builder(type, name);
                 for (AnnotationMirror annotation : annotations) {
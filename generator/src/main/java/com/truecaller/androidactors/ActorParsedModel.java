@@ -27,6 +27,11 @@ import java.util.List;
 
     /* package */ boolean collectPackages;
 
+    /**
+     * True when android part of the library is available, so the builder can offer android threads
+     */
+    /* package */ boolean androidThreads;
+
     @NotNull
     /* package */ final List<ActorInterfaceDescription> interfaces = new ArrayList<>();
 
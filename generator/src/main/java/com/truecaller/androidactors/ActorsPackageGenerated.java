@@ -41,6 +41,11 @@ import java.util.List;
     /* package */ static final String METHOD_BUILD = "build";
     /* package */ static final String CLASS_PROXY_FACTORY = "ProxyFactoryImpl";
 
+    // Android classes are referenced by name, processor itself depends on actors-core only
+    private static final String LIBRARY_PACKAGE = CoreActorsThreads.class.getPackage().getName();
+    /* package */ static final ClassName ANDROID_THREADS = ClassName.get(LIBRARY_PACKAGE, "ActorsThreads");
+    /* package */ static final ClassName ANDROID_THREADS_BASE = ClassName.get(LIBRARY_PACKAGE, "ActorsThreadsBase");
+
     @NotNull
     private final String mPackageName;
 
@@ -50,10 +55,21 @@ import java.util.List;
     @NotNull
     private final ActorsPackage.AccessLevel mAccessLevel;
 
-    /* package */ ActorsPackageGenerated(@NotNull ActorsPackageDescription description) {
+    @NotNull
+    private final ClassName mThreadsClass;
+
+    @NotNull
+    private final ClassName mThreadsBaseClass;
+
+    /**
+     * @param android true to build android threads, false to build only threads available in actors-core
+     */
+    /* package */ ActorsPackageGenerated(@NotNull ActorsPackageDescription description, boolean android) {
         mPackageName = description.getPackageName();
         mClassName = description.getBuilderClassName();
         mAccessLevel = description.getAccessLevel();
+        mThreadsClass = android ? ANDROID_THREADS : ClassName.get(CoreActorsThreads.class);
+        mThreadsBaseClass = android ? ANDROID_THREADS_BASE : ClassName.get(CoreActorsThreadsBase.class);
     }
 
     @NotNull
@@ -121,7 +137,7 @@ import java.util.List;
         MethodSpec.Builder method = MethodSpec.methodBuilder(METHOD_BUILD)
                 .addModifiers(Modifier.PUBLIC)
                 .addAnnotation(NonNull.class)
-                .returns(ActorsThreads.class);
+                .returns(mThreadsClass);
 
         CodeBlock setHandler = CodeBlock.builder()
                 .beginControlFlow(" if ($N == null)", FIELD_ERROR_HANDLER)
@@ -146,7 +162,7 @@ import java.util.List;
     private TypeSpec generateThreadsClass() {
         TypeSpec.Builder threads = TypeSpec.classBuilder("ActorThreadsImpl")
                 .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
-                .superclass(ActorsThreadsBase.class);
+                .superclass(mThreadsBaseClass);
 
         MethodSpec constructor = MethodSpec.constructorBuilder()
                 .addParameter(ProxyFactoryBase.class, "factory")
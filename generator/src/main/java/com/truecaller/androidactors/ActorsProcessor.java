@@ -88,6 +88,8 @@ public class ActorsProcessor extends AbstractProcessor {
     private void configureModel(@NotNull Set<? extends TypeElement> annotations, @NotNull ActorParsedModel model) {
         model.collectInterfaces = containsAnnotation(annotations, ActorInterface.class);
         model.collectPackages = containsAnnotation(annotations, ActorsPackage.class);
+        model.androidThreads = processingEnv.getElementUtils()
+                .getTypeElement(ActorsPackageGenerated.ANDROID_THREADS_BASE.toString()) != null;
     }
 
     @VisibleForTesting
@@ -161,7 +163,7 @@ public class ActorsProcessor extends AbstractProcessor {
 
         if (!model.collectInterfaces && generated.builder == null) {
             assert model.packages.size() == 1;
-            generated.builder = mModelFactory.createBuilderGenerator(model.packages.get(0));
+            generated.builder = mModelFactory.createBuilderGenerator(model.packages.get(0), model.androidThreads);
             generated.files.add(generated.builder.generate(generated.interfaces));
         }
     }
@@ -35,6 +35,8 @@ import javax.tools.Diagnostic;
     /* package */ static final String ER0009 = "Only one package can be marked by @ActorsPackage";
     /* package */ static final String ER0010 = "You MUST mark package which will contain actors builder by @ActorsPackage annotation";
     /* package */ static final String ER0011 = "Unsupported security level for parameter";
+    /* package */ static final String ER0012 = "Unsupported priority for method";
+    /* package */ static final String ER0013 = "Unsupported coalesce mode for method";
 
     final boolean isError;
 
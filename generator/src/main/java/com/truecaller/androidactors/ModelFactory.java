@@ -31,5 +31,5 @@ import javax.lang.model.element.Element;
     ActorInterfaceGenerator createInterfaceGenerator(@NotNull ActorInterfaceDescription description);
 
     @NotNull
-    ActorsPackageGenerator createBuilderGenerator(@NotNull ActorsPackageDescription description);
+    ActorsPackageGenerator createBuilderGenerator(@NotNull ActorsPackageDescription description, boolean android);
 }
@@ -41,7 +41,8 @@ import javax.lang.model.element.Element;
 
     @NotNull
     @Override
-    public ActorsPackageGenerator createBuilderGenerator(@NotNull ActorsPackageDescription description) {
-        return new ActorsPackageGenerated(description);
+    public ActorsPackageGenerator createBuilderGenerator(@NotNull ActorsPackageDescription description,
+                                                         boolean android) {
+        return new ActorsPackageGenerated(description, android);
     }
 }
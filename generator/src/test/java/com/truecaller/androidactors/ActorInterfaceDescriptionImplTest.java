@@ -22,9 +22,13 @@ import com.truecaller.androidactors.cases.ActorClass;
 import com.truecaller.androidactors.cases.ActorGenerifiedPromise;
 import com.truecaller.androidactors.cases.ActorNullablePromise;
 import com.truecaller.androidactors.cases.ActorWithConstant;
+import com.truecaller.androidactors.cases.ActorWithCoalesce;
 import com.truecaller.androidactors.cases.ActorWithException;
 import com.truecaller.androidactors.cases.ActorWithGenericMethod;
 import com.truecaller.androidactors.cases.ActorWithNonPromise;
+import com.truecaller.androidactors.cases.ActorWithPriority;
+import com.truecaller.androidactors.cases.ActorWithWrongCoalesce;
+import com.truecaller.androidactors.cases.ActorWithWrongPriority;
 import com.truecaller.androidactors.cases.PrivateActorContainer;
 import com.truecaller.androidactors.cases.SimpleActor;
 import org.jetbrains.annotations.NotNull;
@@ -261,6 +265,62 @@ public class ActorInterfaceDescriptionImplTest {
         validateMethod(getMethod(element, "get"), getTypeElement(String.class).asType(), methods[1]);
     }
 
+    @Test
+    public void methods_priority_actorWithPriority() {
+        TypeElement element = getTypeElement(ActorWithPriority.class);
+        ActorInterfaceDescriptionImpl description = new ActorInterfaceDescriptionImpl(element);
+        Assert.assertEquals(true, description.validate());
+
+        ActorInterfaceDescription.Method[] methods = Iterables.toArray(description.methods(), ActorInterfaceDescription.Method.class);
+
+        Assert.assertEquals(3, methods.length);
+        Assert.assertEquals(Priority.HIGH, methods[0].getPriority());
+        Assert.assertEquals(Priority.NORMAL, methods[1].getPriority());
+        Assert.assertEquals(Priority.LOW, methods[2].getPriority());
+    }
+
+    @Test
+    public void describeProblems_ER0012_unsupportedPriority() {
+        TypeElement element = getTypeElement(ActorWithWrongPriority.class);
+
+        List<GenerationError> errors = new ArrayList<>();
+        ActorInterfaceDescriptionImpl description = new ActorInterfaceDescriptionImpl(element);
+        Assert.assertEquals(false, description.validate());
+
+        description.describeProblems(errors);
+        Assert.assertEquals(true, errors.get(0).isError);
+        Assert.assertEquals(GenerationError.ER0012, errors.get(0).message);
+        Assert.assertSame(getMethod(element, "testMethod"), errors.get(0).element);
+    }
+
+    @Test
+    public void methods_coalesce_actorWithCoalesce() {
+        TypeElement element = getTypeElement(ActorWithCoalesce.class);
+        ActorInterfaceDescriptionImpl description = new ActorInterfaceDescriptionImpl(element);
+        Assert.assertEquals(true, description.validate());
+
+        ActorInterfaceDescription.Method[] methods = Iterables.toArray(description.methods(), ActorInterfaceDescription.Method.class);
+
+        Assert.assertEquals(3, methods.length);
+        Assert.assertEquals(Coalesce.LATEST, methods[0].getCoalesce());
+        Assert.assertEquals(Coalesce.SAME_ARGUMENTS, methods[1].getCoalesce());
+        Assert.assertEquals(Coalesce.NONE, methods[2].getCoalesce());
+    }
+
+    @Test
+    public void describeProblems_ER0013_unsupportedCoalesceMode() {
+        TypeElement element = getTypeElement(ActorWithWrongCoalesce.class);
+
+        List<GenerationError> errors = new ArrayList<>();
+        ActorInterfaceDescriptionImpl description = new ActorInterfaceDescriptionImpl(element);
+        Assert.assertEquals(false, description.validate());
+
+        description.describeProblems(errors);
+        Assert.assertEquals(true, errors.get(0).isError);
+        Assert.assertEquals(GenerationError.ER0013, errors.get(0).message);
+        Assert.assertSame(getMethod(element, "testMethod"), errors.get(0).element);
+    }
+
     private void validateMethod(ExecutableElement expected, TypeMirror promisedType, ActorInterfaceDescription.Method actual) {
         Assert.assertEquals(expected.getSimpleName().toString(), actual.getName());
         assertSameType(promisedType, actual.getPromisedType());
@@ -20,11 +20,13 @@ import androidx.annotation.NonNull;
 import com.google.common.collect.Iterables;
 import com.google.testing.compile.CompilationRule;
 import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.JavaFile;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.ParameterSpec;
 import com.squareup.javapoet.ParameterizedTypeName;
 import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
 import com.truecaller.androidactors.ActorInterfaceDescription.Method;
 import com.truecaller.androidactors.cases.ActorContainerClass;
 import com.truecaller.androidactors.cases.ActorContainerInterface;
@@ -219,6 +221,167 @@ public class ActorInterfaceGeneratedImplTest {
         validateGetMethod(file.typeSpec.methodSpecs);
     }
 
+    @Test
+    public void generate_pooledMessagesForVoidMethodsOnly_SimpleActor() {
+        setTypeElement(SimpleActor.class);
+
+        List<Method> methods = new ArrayList<>();
+        methods.add(method("save",
+                argument("key", TypeKind.LONG), argument("value", String.class.getCanonicalName(), true)));
+        methods.add(method("get", String.class.getCanonicalName(),
+                argument("key", TypeKind.LONG)));
+        Mockito.doReturn(methods).when(mDescription).methods();
+
+        ActorInterfaceGeneratedImpl generated = new ActorInterfaceGeneratedImpl(mDescription);
+        JavaFile file = generated.generate(mNamesProvider);
+
+        TypeSpec save = Iterables.find(file.typeSpec.typeSpecs, new Predicates.Type("save"));
+        Iterables.find(save.fieldSpecs, new Predicates.Field(ActorInterfaceGeneratedImpl.Message.FIELD_POOL));
+        MethodSpec obtain = Iterables.find(save.methodSpecs,
+                new Predicates.Method(ActorInterfaceGeneratedImpl.Message.METHOD_OBTAIN));
+        Assert.assertEquals(3, obtain.parameters.size());
+        Iterables.find(save.methodSpecs, new Predicates.Method(ActorInterfaceGeneratedImpl.Message.METHOD_RESET));
+        Iterables.find(save.methodSpecs, new Predicates.Method("recycle"));
+
+        TypeSpec get = Iterables.find(file.typeSpec.typeSpecs, new Predicates.Type("get"));
+        Assert.assertEquals(1, get.fieldSpecs.size());
+        Assert.assertFalse(Iterables.any(get.methodSpecs, new Predicates.Method("recycle")));
+    }
+
+    @Test
+    public void generate_methodIds_SimpleActor() {
+        setTypeElement(SimpleActor.class);
+
+        List<Method> methods = new ArrayList<>();
+        methods.add(method("save", argument("key", TypeKind.LONG)));
+        methods.add(method("get", String.class.getCanonicalName(), argument("key", TypeKind.LONG)));
+        Mockito.doReturn(methods).when(mDescription).methods();
+
+        ActorInterfaceGeneratedImpl generated = new ActorInterfaceGeneratedImpl(mDescription);
+        JavaFile file = generated.generate(mNamesProvider);
+
+        FieldSpec base = Iterables.find(file.typeSpec.fieldSpecs,
+                new Predicates.Field(ActorInterfaceGeneratedImpl.FIELD_METHOD_ID_BASE));
+        Assert.assertEquals(TypeName.INT, base.type);
+        Assert.assertTrue(base.modifiers.contains(Modifier.STATIC));
+        Assert.assertTrue(base.modifiers.contains(Modifier.FINAL));
+        Assert.assertFalse(base.modifiers.contains(Modifier.PUBLIC));
+        String initializer = base.initializer.toString();
+        Assert.assertTrue(initializer, initializer.contains("register("));
+        Assert.assertTrue(initializer, initializer.contains("\"save\", \"get\""));
+
+        TypeSpec save = Iterables.find(file.typeSpec.typeSpecs, new Predicates.Type("save"));
+        MethodSpec saveId = Iterables.find(save.methodSpecs,
+                new Predicates.Method(ActorInterfaceGeneratedImpl.Message.METHOD_GET_METHOD_ID));
+        Assert.assertEquals(TypeName.INT, saveId.returnType);
+        Assert.assertTrue(saveId.code.toString().contains(ActorInterfaceGeneratedImpl.FIELD_METHOD_ID_BASE + " + 0"));
+
+        TypeSpec get = Iterables.find(file.typeSpec.typeSpecs, new Predicates.Type("get"));
+        MethodSpec getId = Iterables.find(get.methodSpecs,
+                new Predicates.Method(ActorInterfaceGeneratedImpl.Message.METHOD_GET_METHOD_ID));
+        Assert.assertTrue(getId.code.toString().contains(ActorInterfaceGeneratedImpl.FIELD_METHOD_ID_BASE + " + 1"));
+    }
+
+    @Test
+    public void generate_setPriority_prioritizedMethods() {
+        setTypeElement(SimpleActor.class);
+
+        List<Method> methods = new ArrayList<>();
+        Method save = method("save", argument("key", TypeKind.LONG));
+        Mockito.doReturn(Priority.LOW).when(save).getPriority();
+        methods.add(save);
+        Method get = method("get", String.class.getCanonicalName(), argument("key", TypeKind.LONG));
+        Mockito.doReturn(Priority.HIGH).when(get).getPriority();
+        methods.add(get);
+        Mockito.doReturn(methods).when(mDescription).methods();
+
+        ActorInterfaceGeneratedImpl generated = new ActorInterfaceGeneratedImpl(mDescription);
+        JavaFile file = generated.generate(mNamesProvider);
+
+        TypeSpec saveMessage = Iterables.find(file.typeSpec.typeSpecs, new Predicates.Type("save"));
+        MethodSpec obtain = Iterables.find(saveMessage.methodSpecs,
+                new Predicates.Method(ActorInterfaceGeneratedImpl.Message.METHOD_OBTAIN));
+        Assert.assertTrue(obtain.code.toString().contains("setPriority(" + Priority.LOW + ")"));
+        MethodSpec reset = Iterables.find(saveMessage.methodSpecs,
+                new Predicates.Method(ActorInterfaceGeneratedImpl.Message.METHOD_RESET));
+        Assert.assertTrue(reset.code.toString().contains("setPriority("));
+
+        TypeSpec getMessage = Iterables.find(file.typeSpec.typeSpecs, new Predicates.Type("get"));
+        MethodSpec constructor = Iterables.find(getMessage.methodSpecs, new Predicates.Method("<init>"));
+        Assert.assertTrue(constructor.code.toString().contains("setPriority(" + Priority.HIGH + ")"));
+    }
+
+    @Test
+    public void generate_setCoalesce_coalescingMethods() {
+        setTypeElement(SimpleActor.class);
+
+        List<Method> methods = new ArrayList<>();
+        Method invalidate = method("invalidate", argument("key", TypeKind.LONG));
+        Mockito.doReturn(Coalesce.LATEST).when(invalidate).getCoalesce();
+        methods.add(invalidate);
+        Method get = method("get", String.class.getCanonicalName(), argument("key", TypeKind.LONG),
+                argument("value", String.class.getCanonicalName(), true), argument("ratio", TypeKind.FLOAT));
+        Mockito.doReturn(Coalesce.SAME_ARGUMENTS).when(get).getCoalesce();
+        methods.add(get);
+        Mockito.doReturn(methods).when(mDescription).methods();
+
+        ActorInterfaceGeneratedImpl generated = new ActorInterfaceGeneratedImpl(mDescription);
+        JavaFile file = generated.generate(mNamesProvider);
+
+        TypeSpec invalidateMessage = Iterables.find(file.typeSpec.typeSpecs, new Predicates.Type("invalidate"));
+        MethodSpec constructor = Iterables.find(invalidateMessage.methodSpecs, new Predicates.Method("<init>"));
+        Assert.assertTrue(constructor.code.toString().contains("setCoalesce(" + Coalesce.LATEST + ")"));
+        Assert.assertFalse(Iterables.any(invalidateMessage.methodSpecs,
+                new Predicates.Method(ActorInterfaceGeneratedImpl.Message.METHOD_HAS_SAME_ARGUMENTS)));
+
+        TypeSpec getMessage = Iterables.find(file.typeSpec.typeSpecs, new Predicates.Type("get"));
+        constructor = Iterables.find(getMessage.methodSpecs, new Predicates.Method("<init>"));
+        Assert.assertTrue(constructor.code.toString().contains("setCoalesce(" + Coalesce.SAME_ARGUMENTS + ")"));
+        MethodSpec sameArguments = Iterables.find(getMessage.methodSpecs,
+                new Predicates.Method(ActorInterfaceGeneratedImpl.Message.METHOD_HAS_SAME_ARGUMENTS));
+        String code = sameArguments.code.toString();
+        Assert.assertTrue(code.contains("this.key == _message.key"));
+        Assert.assertTrue(code.contains("equal(this.value, _message.value)"));
+        Assert.assertTrue(code.contains("java.lang.Float.compare(this.ratio, _message.ratio) == 0"));
+    }
+
+    @Test
+    public void generate_bindCancellationToken_tokenArguments() {
+        setTypeElement(SimpleActor.class);
+
+        List<Method> methods = new ArrayList<>();
+        methods.add(method("load", argument("token", CancellationToken.class.getCanonicalName(), false)));
+        Method fetch = method("fetch", String.class.getCanonicalName(), argument("key", TypeKind.LONG),
+                argument("token", CancellationToken.class.getCanonicalName(), false));
+        Mockito.doReturn(Coalesce.SAME_ARGUMENTS).when(fetch).getCoalesce();
+        methods.add(fetch);
+        Method refresh = method("refresh", String.class.getCanonicalName(),
+                argument("token", CancellationToken.class.getCanonicalName(), false));
+        Mockito.doReturn(Coalesce.SAME_ARGUMENTS).when(refresh).getCoalesce();
+        methods.add(refresh);
+        Mockito.doReturn(methods).when(mDescription).methods();
+
+        ActorInterfaceGeneratedImpl generated = new ActorInterfaceGeneratedImpl(mDescription);
+        JavaFile file = generated.generate(mNamesProvider);
+
+        TypeSpec loadMessage = Iterables.find(file.typeSpec.typeSpecs, new Predicates.Type("load"));
+        MethodSpec obtain = Iterables.find(loadMessage.methodSpecs,
+                new Predicates.Method(ActorInterfaceGeneratedImpl.Message.METHOD_OBTAIN));
+        Assert.assertTrue(obtain.code.toString().contains("_message.token = _message.bindCancellationToken(token)"));
+
+        TypeSpec fetchMessage = Iterables.find(file.typeSpec.typeSpecs, new Predicates.Type("fetch"));
+        MethodSpec constructor = Iterables.find(fetchMessage.methodSpecs, new Predicates.Method("<init>"));
+        Assert.assertTrue(constructor.code.toString().contains("this.token = bindCancellationToken(token)"));
+        MethodSpec sameArguments = Iterables.find(fetchMessage.methodSpecs,
+                new Predicates.Method(ActorInterfaceGeneratedImpl.Message.METHOD_HAS_SAME_ARGUMENTS));
+        Assert.assertTrue(sameArguments.code.toString().contains("this.key == _message.key"));
+        Assert.assertFalse(sameArguments.code.toString().contains("token"));
+
+        TypeSpec refreshMessage = Iterables.find(file.typeSpec.typeSpecs, new Predicates.Type("refresh"));
+        Assert.assertFalse(Iterables.any(refreshMessage.methodSpecs,
+                new Predicates.Method(ActorInterfaceGeneratedImpl.Message.METHOD_HAS_SAME_ARGUMENTS)));
+    }
+
     private void validateSaveMethod(final List<MethodSpec> methods) {
         MethodSpec method = Iterables.find(methods, new Predicates.Method("save"));
         Assert.assertTrue(method.hasModifier(Modifier.PUBLIC));
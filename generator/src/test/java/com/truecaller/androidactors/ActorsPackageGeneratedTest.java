@@ -61,7 +61,7 @@ public class ActorsPackageGeneratedTest {
 
     @Test
     public void generate_validPackageLevel_withProxies() {
-        ActorsPackageGenerated generated = new ActorsPackageGenerated(mDescription);
+        ActorsPackageGenerated generated = new ActorsPackageGenerated(mDescription, true);
         List<ActorInterfaceGenerated> proxies = new ArrayList<>();
         proxies.add(createProxy("com.truecaller.androidactors", "TestProxy"));
         JavaFile file = generated.generate(proxies);
@@ -77,7 +77,8 @@ public class ActorsPackageGeneratedTest {
 
         verifyErrorHandlerSetter(self, cls.methodSpecs);
         verifyProxyFactorySetter(self, cls.methodSpecs);
-        verifyBuildMethod(cls.methodSpecs);
+        verifyBuildMethod(cls.methodSpecs, ActorsThreads.class);
+        verifyThreadsClass(cls.typeSpecs, ActorsThreadsBase.class);
 
         verifyProxyFactoryClass(cls.typeSpecs);
     }
@@ -86,7 +87,7 @@ public class ActorsPackageGeneratedTest {
     public void generate_validPublicLevel_withoutProxies() {
         Mockito.doReturn(ActorsPackage.AccessLevel.Public).when(mDescription).getAccessLevel();
 
-        ActorsPackageGenerated generated = new ActorsPackageGenerated(mDescription);
+        ActorsPackageGenerated generated = new ActorsPackageGenerated(mDescription, true);
         List<ActorInterfaceGenerated> proxies = new ArrayList<>();
         JavaFile file = generated.generate(proxies);
         Assert.assertEquals(PACKAGE_NAME, file.packageName);
@@ -101,11 +102,23 @@ public class ActorsPackageGeneratedTest {
 
         verifyErrorHandlerSetter(self, cls.methodSpecs);
         verifyProxyFactorySetter(self, cls.methodSpecs);
-        verifyBuildMethod(cls.methodSpecs);
+        verifyBuildMethod(cls.methodSpecs, ActorsThreads.class);
+        verifyThreadsClass(cls.typeSpecs, ActorsThreadsBase.class);
 
         verifyProxyFactoryClass(cls.typeSpecs);
     }
 
+    @Test
+    public void generate_coreThreads_withoutAndroid() {
+        ActorsPackageGenerated generated = new ActorsPackageGenerated(mDescription, false);
+        JavaFile file = generated.generate(new ArrayList<ActorInterfaceGenerated>());
+
+        TypeSpec cls = file.typeSpec;
+        verifyBuildMethod(cls.methodSpecs, CoreActorsThreads.class);
+        verifyThreadsClass(cls.typeSpecs, CoreActorsThreadsBase.class);
+        verifyProxyFactoryClass(cls.typeSpecs);
+    }
+
     private void verifyClass(TypeSpec type, boolean isPublic) {
         Assert.assertNotNull(type);
         Assert.assertEquals(BUILDER_CLASS_NAME, type.name);
@@ -149,13 +162,23 @@ public class ActorsPackageGeneratedTest {
         Assert.assertEquals(TypeName.get(ProxyFactoryBase.class), parameters.get(0).type);
     }
 
-    private void verifyBuildMethod(List<MethodSpec> methods) {
+    private void verifyBuildMethod(List<MethodSpec> methods, Class<?> threads) {
         MethodSpec method = Iterables.find(methods, new Predicates.Method(ActorsPackageGenerated.METHOD_BUILD));
-        Assert.assertEquals(TypeName.get(ActorsThreads.class), method.returnType);
+        Assert.assertEquals(TypeName.get(threads), method.returnType);
         Assert.assertTrue(method.hasModifier(Modifier.PUBLIC));
         Assert.assertEquals(0, method.parameters.size());
     }
 
+    private void verifyThreadsClass(List<TypeSpec> types, Class<?> base) {
+        TypeSpec type = Iterables.find(types, new Predicates.Type("ActorThreadsImpl"));
+        Assert.assertTrue(type.hasModifier(Modifier.PRIVATE));
+        Assert.assertTrue(type.hasModifier(Modifier.STATIC));
+        Assert.assertEquals(ClassName.get(base), type.superclass);
+        MethodSpec constructor = Iterables.find(type.methodSpecs, new Predicates.Method("<init>"));
+        Assert.assertEquals(2, constructor.parameters.size());
+        Assert.assertEquals(TypeName.get(FailureHandler.class), constructor.parameters.get(1).type);
+    }
+
     private void verifyProxyFactoryClass(List<TypeSpec> types) {
         TypeSpec type = Iterables.find(types, new Predicates.Type(ActorsPackageGenerated.CLASS_PROXY_FACTORY));
         Assert.assertTrue(type.hasModifier(Modifier.PRIVATE));
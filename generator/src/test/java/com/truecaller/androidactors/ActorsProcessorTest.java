@@ -132,6 +132,7 @@ public class ActorsProcessorTest {
     @Test
     public void generateFromModel_filesList_builder() {
         ActorParsedModel model = new ActorParsedModel();
+        model.androidThreads = true;
         ActorGeneratedModel generated = new ActorGeneratedModel();
 
         ActorInterfaceGenerator generator = Mockito.mock(ActorInterfaceGenerator.class);
@@ -141,7 +142,7 @@ public class ActorsProcessorTest {
         model.packages.add(packageDescription);
 
         ActorsPackageGenerated packageGenerated = Mockito.mock(ActorsPackageGenerated.class);
-        Mockito.doReturn(packageGenerated).when(mFactory).createBuilderGenerator(packageDescription);
+        Mockito.doReturn(packageGenerated).when(mFactory).createBuilderGenerator(packageDescription, true);
         JavaFile file = JavaFile.builder("com.truecaller.androidactors", TypeSpec.classBuilder("SimpleActor").build()).build();
         Mockito.doReturn(file).when(packageGenerated).generate(Mockito.anyListOf(ActorInterfaceGenerator.class));
 
@@ -165,7 +166,7 @@ public class ActorsProcessorTest {
         model.packages.add(packageDescription);
 
         ActorsPackageGenerated packageGenerated = Mockito.mock(ActorsPackageGenerated.class);
-        Mockito.doReturn(packageGenerated).when(mFactory).createBuilderGenerator(packageDescription);
+        Mockito.doReturn(packageGenerated).when(mFactory).createBuilderGenerator(packageDescription, true);
 
         ActorsProcessor processor = new ActorsProcessor(mFactory);
         processor.generateFromModel(model, generated);
@@ -14,11 +14,11 @@
  * limitations under the License.
  */
 
-package com.truecaller.androidactors;
+package com.truecaller.androidactors.cases;
 
-public class ActorMethodInvokeException extends ActorInvokeException {
+import com.truecaller.androidactors.Coalesce;
 
-    public ActorMethodInvokeException() {
-        super("uncaught exception from");
-    }
+public interface ActorWithWrongCoalesce {
+    @Coalesce(10)
+    void testMethod();
 }
@@ -14,10 +14,11 @@
  * limitations under the License.
  */
 
-package com.truecaller.androidactors;
+package com.truecaller.androidactors.cases;
 
-/* package */ class ActorCallbackInvokeException extends ActorInvokeException {
-    ActorCallbackInvokeException() {
-        super("uncaught exception when delivering result from");
-    }
+import com.truecaller.androidactors.Priority;
+
+public interface ActorWithWrongPriority {
+    @Priority(10)
+    void testMethod();
 }